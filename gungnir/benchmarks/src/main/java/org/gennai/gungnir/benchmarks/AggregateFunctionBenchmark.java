@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.udf.AggregateFunction;
+import org.gennai.gungnir.topology.udf.ArgumentException;
+import org.gennai.gungnir.topology.udf.Average;
+import org.gennai.gungnir.topology.udf.Count;
+import org.gennai.gungnir.topology.udf.Sum;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregateFunctionBenchmark {
+
+  @Param({"count", "sum", "avg"})
+  private String function;
+
+  private AggregateFunction<?> aggregate;
+  private GungnirTuple tuple;
+
+  @Setup
+  public void setup() throws ArgumentException {
+    tuple = BenchmarkTuples.createTuple();
+
+    switch (function) {
+      case "count":
+        aggregate = new Count().create();
+        break;
+      case "sum":
+        aggregate = new Sum().create(field("int"));
+        break;
+      default:
+        aggregate = new Average().create(field("double"));
+        break;
+    }
+    aggregate.prepare(GungnirConfig.readGugnirConfig(), new GungnirContext());
+  }
+
+  @Benchmark
+  public Object evaluate() {
+    return aggregate.getValue(tuple);
+  }
+
+  @Benchmark
+  public Object evaluateAndExclude() {
+    aggregate.getValue(tuple);
+    return aggregate.exclude(tuple);
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+final class BenchmarkTuples {
+
+  static final String TUPLE_NAME = "tuple1";
+  static final List<String> FIELD_NAMES = Lists.newArrayList("id", "int", "bigint", "double",
+      "struct", "list", "map");
+
+  private BenchmarkTuples() {
+  }
+
+  static TupleValues createTupleValues(String id) {
+    Map<String, Integer> map = Maps.newLinkedHashMap();
+    map.put("a", 1);
+    map.put("b", 2);
+    return new TupleValues(TUPLE_NAME, Lists.<Object>newArrayList(id, 100, 12345678L, 1.5,
+        new Struct(Lists.newArrayList("code"), Lists.<Object>newArrayList("JP")),
+        Lists.newArrayList(1, 2, 3), map));
+  }
+
+  static GungnirTuple createTuple() {
+    return new GungnirTuple(FIELD_NAMES, createTupleValues("user12345"));
+  }
+}
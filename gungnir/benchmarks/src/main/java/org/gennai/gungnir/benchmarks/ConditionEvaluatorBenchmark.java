@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.topology.ConditionEvaluator;
+import org.gennai.gungnir.tuple.Condition;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionEvaluatorBenchmark {
+
+  @Param({"compare", "between", "in", "like", "regexp", "nested", "complex"})
+  private String type;
+
+  private Condition condition;
+  private GungnirTuple tuple;
+
+  @Setup
+  public void setup() {
+    tuple = BenchmarkTuples.createTuple();
+
+    switch (type) {
+      case "compare":
+        condition = field("int").ge(10);
+        break;
+      case "between":
+        condition = field("double").between(0, 2);
+        break;
+      case "in":
+        condition = field("id").in("user1", "user123", "user12345");
+        break;
+      case "like":
+        condition = field("id").like("user%5");
+        break;
+      case "regexp":
+        condition = field("id").regexp("^user[0-9]+$");
+        break;
+      case "nested":
+        condition = field("struct").field("code").eq("JP");
+        break;
+      default:
+        condition = and(field("int").ge(10), or(field("bigint").lt(100),
+            not(field("list").select(0).eq(2))), field("map").select("b").eq(2));
+        break;
+    }
+  }
+
+  @Benchmark
+  public boolean isKeep() {
+    return ConditionEvaluator.isKeep(condition, tuple);
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.topology.ArithNode;
+import org.gennai.gungnir.topology.ArithNode.Operator;
+import org.gennai.gungnir.topology.FieldArithNode;
+import org.gennai.gungnir.topology.InternalArithNode;
+import org.gennai.gungnir.topology.NumberArithNode;
+import org.gennai.gungnir.topology.udf.Cast;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.schema.TupleSchema.FieldTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+
+  @Param({"field", "cast", "constant"})
+  private String type;
+
+  private InternalArithNode node;
+  private GungnirTuple tuple;
+
+  private static ArithNode cast(String fieldName, Object fieldType) throws Exception {
+    return new FieldArithNode(new Cast().create(field(fieldName), fieldType));
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    tuple = BenchmarkTuples.createTuple();
+
+    switch (type) {
+      case "field":
+        // (int + bigint) * double / 2
+        node = new InternalArithNode(Operator.DIVISION,
+            new InternalArithNode(Operator.MULTIPLICATION,
+                new InternalArithNode(Operator.ADDITION, new FieldArithNode(field("int")),
+                    new FieldArithNode(field("bigint"))),
+                new FieldArithNode(field("double"))),
+            new NumberArithNode(2));
+        break;
+      case "cast":
+        // (CAST(int AS BIGINT) + CAST(bigint AS BIGINT)) * CAST(double AS DOUBLE) / 2
+        node = new InternalArithNode(Operator.DIVISION,
+            new InternalArithNode(Operator.MULTIPLICATION,
+                new InternalArithNode(Operator.ADDITION, cast("int", FieldTypes.BIGINT),
+                    cast("bigint", FieldTypes.BIGINT)),
+                cast("double", FieldTypes.DOUBLE)),
+            new NumberArithNode(2));
+        break;
+      default:
+        // bigint * (60 * 60 * 24)
+        node = new InternalArithNode(Operator.MULTIPLICATION,
+            new FieldArithNode(field("bigint")),
+            new InternalArithNode(Operator.MULTIPLICATION,
+                new InternalArithNode(Operator.MULTIPLICATION, new NumberArithNode(60),
+                    new NumberArithNode(60)),
+                new NumberArithNode(24)));
+        break;
+    }
+  }
+
+  @Benchmark
+  public Number getValue() {
+    return node.getValue(tuple);
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessorBenchmark {
+
+  @Param({"field", "struct", "list", "map"})
+  private String type;
+
+  private FieldAccessor accessor;
+  private GungnirTuple tuple;
+
+  @Setup
+  public void setup() {
+    tuple = BenchmarkTuples.createTuple();
+
+    switch (type) {
+      case "field":
+        accessor = field("double");
+        break;
+      case "struct":
+        accessor = field("struct").field("code");
+        break;
+      case "list":
+        accessor = field("list").select(2);
+        break;
+      default:
+        accessor = field("map").select("b");
+        break;
+    }
+  }
+
+  @Benchmark
+  public Object getValue() {
+    return accessor.getValue(tuple);
+  }
+}
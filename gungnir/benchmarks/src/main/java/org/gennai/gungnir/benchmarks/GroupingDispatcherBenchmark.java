@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.dispatcher.GroupingDispatcher;
+import org.gennai.gungnir.topology.operator.FilterOperator;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Maps;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupingDispatcherBenchmark {
+
+  @Param({"16", "1024", "65536"})
+  private int numGroups;
+
+  private GroupingDispatcher dispatcher;
+  private TupleValues[] tuples;
+  private int index;
+
+  @Setup
+  public void setup() {
+    FilterOperator source = new FilterOperator(field("id").isNotNull());
+    source.setId(1);
+    FilterOperator target = new FilterOperator(field("int").ge(1000));
+    target.setId(2);
+
+    Map<String, List<String>> fieldsMap = Maps.newHashMap();
+    fieldsMap.put(BenchmarkTuples.TUPLE_NAME, BenchmarkTuples.FIELD_NAMES);
+    Map<String, Map<String, List<String>>> outputFields = Maps.newHashMap();
+    outputFields.put(source.getName(), fieldsMap);
+
+    GungnirContext context = new GungnirContext();
+    context.setTopologyName("benchmark");
+    context.setOutputFields(outputFields);
+
+    dispatcher = new GroupingDispatcher(target, new GroupFields(new FieldAccessor[] {field("id")}));
+    dispatcher.setSource(source);
+    dispatcher.doPrepare(GungnirConfig.readGugnirConfig(), context);
+
+    tuples = new TupleValues[numGroups];
+    for (int i = 0; i < numGroups; i++) {
+      tuples[i] = BenchmarkTuples.createTupleValues("user" + i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    dispatcher.doCleanup();
+  }
+
+  @Benchmark
+  public void dispatch() {
+    dispatcher.dispatch(tuples[index++ % numGroups]);
+  }
+}
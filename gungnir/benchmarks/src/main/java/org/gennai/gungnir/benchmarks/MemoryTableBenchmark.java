@@ -0,0 +1,95 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.tuple.store.MemoryTable;
+import org.gennai.gungnir.tuple.store.MemoryTable.Entry;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryTableBenchmark {
+
+  private static final int EXPIRE_SECS = 3600;
+  private static final int SEEK_SIZE = 100;
+  private static final int MAX_PUTS = 1000000;
+
+  @Param({"16", "1024"})
+  private int numKeys;
+
+  @Param({"64"})
+  private int valueSize;
+
+  @Param({"0", "536870912"})
+  private long offHeapCapacity;
+
+  private MemoryTable table;
+  private String[] keys;
+  private byte[] value;
+  private int index;
+  private int puts;
+
+  @Setup
+  public void setup() {
+    table = new MemoryTable(EXPIRE_SECS, SEEK_SIZE, offHeapCapacity);
+    value = new byte[valueSize];
+    keys = new String[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      keys[i] = "key" + i;
+      table.put(keys[i], GungnirUtils.currentTimeSecs(), value);
+    }
+  }
+
+  @Benchmark
+  public void put() {
+    if (++puts % MAX_PUTS == 0) {
+      table.clear();
+    }
+    table.put(keys[index++ % numKeys], GungnirUtils.currentTimeSecs(), value);
+  }
+
+  @Benchmark
+  public int size() {
+    return table.size(keys[index++ % numKeys]);
+  }
+
+  // Nothing expires within a run, so this measures the seek cost of one compaction pass.
+  @Benchmark
+  public List<Entry> compactRange() {
+    return table.compactRange();
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.tuple.store.MemoryTable;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A full collection has to trace every live object, so its pause grows with the number of cached
+// entries kept on the heap and stays flat when the entries live off-heap.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class MemoryTableGcBenchmark {
+
+  private static final int EXPIRE_SECS = 3600;
+  private static final int SEEK_SIZE = 100;
+  private static final int NUM_KEYS = 1024;
+
+  @Param({"1000000"})
+  private int numEntries;
+
+  @Param({"64"})
+  private int valueSize;
+
+  @Param({"0", "1073741824"})
+  private long offHeapCapacity;
+
+  private MemoryTable table;
+
+  @Setup
+  public void setup() {
+    table = new MemoryTable(EXPIRE_SECS, SEEK_SIZE, offHeapCapacity);
+    byte[] value = new byte[valueSize];
+    int now = GungnirUtils.currentTimeSecs();
+    for (int i = 0; i < numEntries; i++) {
+      table.put("key" + (i % NUM_KEYS), now, value);
+    }
+  }
+
+  @Benchmark
+  public int fullGc() {
+    System.gc();
+    return table.size();
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.serialization.TupleValuesSerializer;
+import org.gennai.gungnir.utils.KryoSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  private static final int BUFFER_SIZE = 4096;
+
+  private TupleValues tupleValues;
+  private Kryo kryo;
+  private Output output;
+  private Input input;
+  private KryoSerializer serializer;
+  private byte[] serialized;
+
+  @Setup
+  public void setup() {
+    tupleValues = BenchmarkTuples.createTupleValues("user12345");
+
+    kryo = new Kryo();
+    kryo.register(TupleValues.class, new TupleValuesSerializer());
+    output = new Output(BUFFER_SIZE, -1);
+    input = new Input();
+
+    serializer = new KryoSerializer();
+    serializer.register(TupleValues.class, new TupleValuesSerializer());
+    serialized = serializer.serialize(tupleValues);
+  }
+
+  @Benchmark
+  public TupleValues tupleValuesRoundTrip() {
+    output.clear();
+    kryo.writeObject(output, tupleValues);
+    input.setBuffer(output.getBuffer(), 0, output.position());
+    return kryo.readObject(input, TupleValues.class);
+  }
+
+  @Benchmark
+  public byte[] kryoSerialize() {
+    return serializer.serialize(tupleValues);
+  }
+
+  @Benchmark
+  public TupleValues kryoDeserialize() {
+    return serializer.deserialize(serialized, TupleValues.class);
+  }
+}
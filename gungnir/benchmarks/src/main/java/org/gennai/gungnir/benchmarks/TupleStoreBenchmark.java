@@ -0,0 +1,92 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.tuple.store.InMemoryTupleStore;
+import org.gennai.gungnir.tuple.store.Query;
+import org.gennai.gungnir.tuple.store.Query.ConditionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TupleStoreBenchmark {
+
+  @Param({"16", "1024"})
+  private int numKeys;
+
+  @Param({"100"})
+  private int tuplesPerKey;
+
+  private InMemoryTupleStore store;
+  private List<Object> values;
+  private Query[] queries;
+  private int index;
+  private int timeKey;
+
+  @Setup
+  public void setup() {
+    values = BenchmarkTuples.createTupleValues("user12345").getValues();
+
+    queries = new Query[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      queries[i] = Query.builder().hashKeyValue("key" + i)
+          .timeKeyCondition(ConditionType.GE, tuplesPerKey / 2).build();
+    }
+  }
+
+  // Refilled outside the measurement so that put() does not grow the store across iterations
+  @Setup(Level.Iteration)
+  public void fill() {
+    store = new InMemoryTupleStore();
+    store.open(null, null);
+    for (timeKey = 0; timeKey < tuplesPerKey; timeKey++) {
+      for (int i = 0; i < numKeys; i++) {
+        store.put("key" + i, timeKey, values);
+      }
+    }
+  }
+
+  @Benchmark
+  public void put() {
+    store.put("key" + (index++ % numKeys), timeKey++, values);
+  }
+
+  @Benchmark
+  public List<List<Object>> find() {
+    return store.find(queries[index++ % numKeys]);
+  }
+}
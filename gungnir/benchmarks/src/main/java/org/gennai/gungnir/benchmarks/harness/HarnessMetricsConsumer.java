@@ -0,0 +1,58 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gennai.gungnir.benchmarks.harness;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import backtype.storm.metric.api.IMetricsConsumer;
+import backtype.storm.task.IErrorReporter;
+import backtype.storm.task.TopologyContext;
+
+public class HarnessMetricsConsumer implements IMetricsConsumer {
+
+  private static final SortedMap<String, Object> DATA_POINTS =
+      new ConcurrentSkipListMap<String, Object>();
+
+  public static SortedMap<String, Object> getDataPoints() {
+    return DATA_POINTS;
+  }
+
+  @Override
+  public void prepare(@SuppressWarnings("rawtypes") Map stormConf, Object registrationArgument,
+      TopologyContext context, IErrorReporter errorReporter) {
+  }
+
+  @Override
+  public void handleDataPoints(TaskInfo taskInfo, Collection<DataPoint> dataPoints) {
+    for (DataPoint p : dataPoints) {
+      if (p.name.startsWith("__")) {
+        continue;
+      }
+      DATA_POINTS.put(taskInfo.srcComponentId + ":" + taskInfo.srcTaskId + " " + p.name, p.value);
+    }
+  }
+
+  @Override
+  public void cleanup() {
+  }
+}
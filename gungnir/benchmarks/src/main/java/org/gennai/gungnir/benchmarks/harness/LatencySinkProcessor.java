@@ -0,0 +1,93 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gennai.gungnir.benchmarks.harness;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Recorder;
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.operator.OperatorContext;
+import org.gennai.gungnir.topology.processor.EmitProcessor;
+import org.gennai.gungnir.topology.processor.ProcessorException;
+import org.gennai.gungnir.tuple.TupleValues;
+
+import com.google.common.collect.Maps;
+
+public class LatencySinkProcessor implements EmitProcessor {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private static final int HISTOGRAM_SIGNIFICANT_DIGITS = 3;
+  private static final Recorder RECORDER = new Recorder(HISTOGRAM_SIGNIFICANT_DIGITS);
+
+  private String latencyField;
+  private transient Map<String, Integer> indexesMap;
+
+  public LatencySinkProcessor(String latencyField) {
+    this.latencyField = latencyField;
+  }
+
+  public static Recorder getRecorder() {
+    return RECORDER;
+  }
+
+  @Override
+  public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
+      Map<String, List<String>> outputFieldNames) throws ProcessorException {
+    indexesMap = Maps.newHashMap();
+    for (Map.Entry<String, List<String>> entry : outputFieldNames.entrySet()) {
+      int index = entry.getValue().indexOf(latencyField);
+      if (index >= 0) {
+        indexesMap.put(entry.getKey(), index);
+      }
+    }
+    if (indexesMap.isEmpty()) {
+      throw new ProcessorException("'" + latencyField + "' isn't an output field");
+    }
+  }
+
+  @Override
+  public void write(List<TupleValues> tuples) throws ProcessorException {
+    long now = System.nanoTime();
+    for (TupleValues tupleValues : tuples) {
+      Integer index = indexesMap.get(tupleValues.getTupleName());
+      if (index != null) {
+        Object value = tupleValues.getValues().get(index);
+        if (value instanceof Long) {
+          RECORDER.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(now - (Long) value)));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public String toString() {
+    return "latency_sink(" + latencyField + ")";
+  }
+}
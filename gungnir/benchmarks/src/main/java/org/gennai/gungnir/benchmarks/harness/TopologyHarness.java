@@ -0,0 +1,473 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gennai.gungnir.benchmarks.harness;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.GungnirManager;
+import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.cluster.storm.StormClusterManager;
+import org.gennai.gungnir.metastore.InMemoryMetaStore;
+import org.gennai.gungnir.ql.CommandProcessor;
+import org.gennai.gungnir.ql.CommandProcessorFactory;
+import org.gennai.gungnir.ql.session.StatementEntity;
+import org.gennai.gungnir.tuple.persistent.InMemoryEmitter;
+import org.gennai.gungnir.tuple.schema.Schema;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.schema.ViewSchema;
+import org.gennai.gungnir.utils.GungnirUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public final class TopologyHarness {
+
+  private static final String USAGE = "topology-harness -f <gql-file> -t <tuple-name> [options]";
+  private static final String USER_NAME = "HARNESS_USER";
+  private static final String ACCOUNT_ID = "HARNESS_ACCOUNT";
+  private static final String SESSION_ID = "HARNESS_SESSION_ID";
+  private static final String STATEMENT_ID = "HARNESS_STATEMENT_ID";
+  private static final String TEMP_DIR_PREFIX = "gungnir-harness-";
+  private static final int HISTOGRAM_SIGNIFICANT_DIGITS = 3;
+  private static final int STATUS_CHECK_TIMES = 60;
+  private static final int DEFAULT_RATE = 10000;
+  private static final int MAX_RATE = 1000000000;
+  private static final int DEFAULT_DURATION_SECS = 60;
+  private static final int DEFAULT_NUMBER_OF_KEYS = 1000;
+  private static final int DEFAULT_REPORT_INTERVAL_SECS = 10;
+  private static final String DEFAULT_LATENCY_FIELD = "ts";
+  private static final Pattern SUBMIT_PATTERN =
+      Pattern.compile("^SUBMIT\\s+TOPOLOGY\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+  private StatementEntity statement;
+  private CommandProcessorFactory processorFactory;
+  private ObjectMapper mapper = new ObjectMapper();
+  private String topologyName;
+  private TupleSchema schema;
+  private int keyIndex = -1;
+  private int latencyIndex = -1;
+  private double[] keyDistribution;
+  private Random random = new Random();
+  private AtomicLong sent = new AtomicLong();
+  private Histogram intervalHistogram;
+  private Histogram histogram = new Histogram(HISTOGRAM_SIGNIFICANT_DIGITS);
+  private long start;
+  private long lastReport;
+
+  private TopologyHarness() {
+  }
+
+  private static List<String> readFile(Path file) throws IOException {
+    List<String> commands = Lists.newArrayList();
+    StringBuilder sb = new StringBuilder();
+    for (String buff : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      if (!buff.trim().isEmpty()) {
+        if (sb.length() > 0) {
+          sb.append('\n');
+        }
+        if (buff.charAt(buff.length() - 1) == ';') {
+          sb.append(buff.substring(0, buff.length() - 1));
+          commands.add(sb.toString());
+          sb.setLength(0);
+        } else {
+          sb.append(buff);
+        }
+      }
+    }
+    return commands;
+  }
+
+  private String execute(String command) throws Exception {
+    CommandProcessor processor = processorFactory.getProcessor(statement, command);
+    if (processor == null) {
+      throw new IllegalArgumentException("Invalid command '" + command + "'");
+    }
+    return processor.run(statement, command);
+  }
+
+  private void waitForStatus(String status) throws Exception {
+    for (int i = 0; i < STATUS_CHECK_TIMES; i++) {
+      TimeUnit.SECONDS.sleep(1);
+
+      JsonNode descNode = mapper.readTree(execute("DESC TOPOLOGY " + topologyName));
+      if (status.equals(descNode.get("status").asText())) {
+        return;
+      }
+    }
+    throw new IllegalStateException("Topology '" + topologyName + "' isn't " + status);
+  }
+
+  private void executeFile(Path file) throws Exception {
+    for (String command : readFile(file)) {
+      System.out.println(command + ";");
+      String res = execute(command);
+      if (res != null && !res.isEmpty()) {
+        System.out.println(res);
+      }
+
+      Matcher matcher = SUBMIT_PATTERN.matcher(command.trim());
+      if (matcher.find()) {
+        topologyName = matcher.group(1);
+        waitForStatus("RUNNING");
+      }
+    }
+  }
+
+  // Zipf(s) over the keys 0..n-1. An exponent of 0 gives the uniform distribution.
+  private void createKeyDistribution(int numKeys, double exponent) {
+    keyDistribution = new double[numKeys];
+    double sum = 0;
+    for (int i = 0; i < numKeys; i++) {
+      sum += 1.0 / Math.pow(i + 1, exponent);
+      keyDistribution[i] = sum;
+    }
+    for (int i = 0; i < numKeys; i++) {
+      keyDistribution[i] /= sum;
+    }
+  }
+
+  private int nextKey() {
+    int index = Arrays.binarySearch(keyDistribution, random.nextDouble());
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return Math.min(index, keyDistribution.length - 1);
+  }
+
+  private Object createValue(Type type) {
+    if (type == String.class) {
+      return Integer.toString(random.nextInt(DEFAULT_NUMBER_OF_KEYS));
+    } else if (type == Byte.class) {
+      return (byte) random.nextInt(Byte.MAX_VALUE);
+    } else if (type == Short.class) {
+      return (short) random.nextInt(Short.MAX_VALUE);
+    } else if (type == Integer.class) {
+      return random.nextInt(DEFAULT_NUMBER_OF_KEYS);
+    } else if (type == Long.class) {
+      return (long) random.nextInt(DEFAULT_NUMBER_OF_KEYS);
+    } else if (type == Float.class) {
+      return random.nextFloat();
+    } else if (type == Double.class) {
+      return random.nextDouble();
+    } else if (type == Boolean.class) {
+      return random.nextBoolean();
+    } else if (type == Date.class) {
+      return new Date();
+    }
+    return null;
+  }
+
+  private Object createKey(Type type) {
+    int key = nextKey();
+    if (type == Integer.class) {
+      return key;
+    } else if (type == Long.class) {
+      return (long) key;
+    }
+    return "key" + key;
+  }
+
+  private List<Object> createValues(long intendedTime) {
+    List<Object> values = Lists.newArrayListWithCapacity(schema.getFieldCount());
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      Type type = schema.getFieldType(i).getJavaType();
+      if (i == latencyIndex) {
+        values.add(intendedTime);
+      } else if (i == keyIndex) {
+        values.add(createKey(type));
+      } else {
+        values.add(createValue(type));
+      }
+    }
+    return values;
+  }
+
+  private static double toMillis(long micros) {
+    return ((double) micros) / 1000;
+  }
+
+  private synchronized void report() {
+    intervalHistogram = LatencySinkProcessor.getRecorder().getIntervalHistogram(intervalHistogram);
+    histogram.add(intervalHistogram);
+
+    long now = System.nanoTime();
+    double elapsed = ((double) TimeUnit.NANOSECONDS.toMillis(now - lastReport)) / 1000;
+    lastReport = now;
+    if (elapsed > 0) {
+      System.out.println(String.format(
+          "%8.1fs %10d sent %10d emitted %10.1f tuples/s  p50: %.3f  p99: %.3f  p99.9: %.3f"
+              + "  max: %.3f (ms)",
+          ((double) TimeUnit.NANOSECONDS.toMillis(now - start)) / 1000, sent.get(),
+          intervalHistogram.getTotalCount(), intervalHistogram.getTotalCount() / elapsed,
+          toMillis(intervalHistogram.getValueAtPercentile(50)),
+          toMillis(intervalHistogram.getValueAtPercentile(99)),
+          toMillis(intervalHistogram.getValueAtPercentile(99.9)),
+          toMillis(intervalHistogram.getMaxValue())));
+    }
+
+    for (Map.Entry<String, Object> entry : HarnessMetricsConsumer.getDataPoints().entrySet()) {
+      System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+    }
+  }
+
+  private void run(Path file, String tupleName, String keyField, String latencyField, int rate,
+      int durationSecs, int numKeys, double exponent, int reportIntervalSecs) throws Exception {
+    Path tempPath = Files.createTempDirectory(TEMP_DIR_PREFIX);
+
+    GungnirConfig config = GungnirManager.getManager().getConfig();
+    config.put(METASTORE, InMemoryMetaStore.class.getName());
+    config.put(CLUSTER_MODE, LOCAL_CLUSTER);
+    config.put(LOCAL_DIR, tempPath.toString());
+    config.put(PERSISTENT_EMITTER, InMemoryEmitter.class.getName());
+    config.put(TOPOLOGY_METRICS_ENABLED, true);
+    config.put(TOPOLOGY_METRICS_CONSUMER, HarnessMetricsConsumer.class.getName());
+    config.put(TOPOLOGY_METRICS_INTERVAL_SECS, reportIntervalSecs);
+    Map<String, String> extensions = Maps.newHashMap();
+    extensions.put("latency_sink", LatencySinkProcessor.class.getName());
+    config.put(PROCESSOR_EXTENSIONS, extensions);
+
+    UserEntity owner = new UserEntity(USER_NAME);
+    owner.setId(ACCOUNT_ID);
+    statement = new StatementEntity(STATEMENT_ID, SESSION_ID, owner);
+    processorFactory = new CommandProcessorFactory();
+
+    StormClusterManager stormClusterManager = StormClusterManager.getManager();
+    stormClusterManager.startLocalCluster();
+    ScheduledExecutorService reporter = null;
+    try {
+      executeFile(file);
+      if (topologyName == null) {
+        throw new IllegalArgumentException("SUBMIT TOPOLOGY isn't found in " + file);
+      }
+
+      Schema s = GungnirManager.getManager().getMetaStore().findSchema(tupleName, owner);
+      if (s instanceof ViewSchema) {
+        schema = ((ViewSchema) s).getTupleSchema();
+      } else {
+        schema = (TupleSchema) s;
+      }
+      if (keyField != null) {
+        Integer index = schema.getFieldIndex(keyField);
+        if (index == null) {
+          throw new IllegalArgumentException("'" + keyField + "' isn't a field of " + tupleName);
+        }
+        keyIndex = index;
+      }
+      Integer index = schema.getFieldIndex(latencyField);
+      if (index == null || schema.getFieldType(index).getJavaType() != Long.class) {
+        throw new IllegalArgumentException("'" + latencyField + "' isn't a BIGINT field of "
+            + tupleName);
+      }
+      latencyIndex = index;
+      createKeyDistribution(numKeys, exponent);
+
+      LinkedBlockingQueue<List<Object>> queue =
+          InMemoryEmitter.getQueue(owner.getId(), schema.getSchemaName());
+
+      start = System.nanoTime();
+      lastReport = start;
+      reporter = Executors.newSingleThreadScheduledExecutor(
+          GungnirUtils.createThreadFactory("HarnessReporter"));
+      reporter.scheduleAtFixedRate(new Runnable() {
+
+        @Override
+        public void run() {
+          report();
+        }
+      }, reportIntervalSecs, reportIntervalSecs, TimeUnit.SECONDS);
+
+      // Open-loop: each tuple carries the time it was meant to be sent, so a stalled spout queue
+      // shows up as latency instead of silently lowering the offered rate.
+      long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+      long end = start + TimeUnit.SECONDS.toNanos(durationSecs);
+      for (long intendedTime = start; intendedTime < end; intendedTime += intervalNanos) {
+        long wait = intendedTime - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        queue.put(createValues(intendedTime));
+        sent.incrementAndGet();
+      }
+
+      TimeUnit.SECONDS.sleep(reportIntervalSecs);
+      reporter.shutdown();
+      reporter.awaitTermination(reportIntervalSecs, TimeUnit.SECONDS);
+      report();
+
+      System.out.println(String.format(
+          "Total %d sent %d emitted  p50: %.3f  p99: %.3f  p99.9: %.3f  max: %.3f (ms)",
+          sent.get(), histogram.getTotalCount(),
+          toMillis(histogram.getValueAtPercentile(50)),
+          toMillis(histogram.getValueAtPercentile(99)),
+          toMillis(histogram.getValueAtPercentile(99.9)),
+          toMillis(histogram.getMaxValue())));
+
+      execute("STOP TOPOLOGY " + topologyName);
+      waitForStatus("STOPPED");
+    } finally {
+      if (reporter != null) {
+        reporter.shutdownNow();
+      }
+      stormClusterManager.shutdownLocalCluster();
+      GungnirUtils.deleteDirectory(tempPath);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = new Options();
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("filename");
+    OptionBuilder.withDescription("GQL file that creates the tuples and submits the topology");
+    options.addOption(OptionBuilder.create('f'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("tuplename");
+    OptionBuilder.withDescription("Tuple read by memory_spout() to feed");
+    options.addOption(OptionBuilder.create('t'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("tuples-per-sec");
+    OptionBuilder.withDescription("Offered rate (default " + DEFAULT_RATE + ")");
+    options.addOption(OptionBuilder.create('r'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("duration");
+    OptionBuilder.withDescription("Duration (secs, default " + DEFAULT_DURATION_SECS + ")");
+    options.addOption(OptionBuilder.create('d'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("fieldname");
+    OptionBuilder.withDescription("Key field drawn from the key distribution");
+    options.addOption(OptionBuilder.create('k'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("number-of-keys");
+    OptionBuilder.withDescription("Number of distinct keys (default " + DEFAULT_NUMBER_OF_KEYS
+        + ")");
+    options.addOption(OptionBuilder.create('n'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("exponent");
+    OptionBuilder.withDescription("Zipf exponent of the key distribution (default 0, uniform)");
+    options.addOption(OptionBuilder.create('z'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("fieldname");
+    OptionBuilder.withDescription("BIGINT field carrying the send time to latency_sink() (default "
+        + DEFAULT_LATENCY_FIELD + ")");
+    options.addOption(OptionBuilder.create('l'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("report-interval");
+    OptionBuilder.withDescription("Print latency percentiles and operator metrics at each"
+        + " interval (secs, default " + DEFAULT_REPORT_INTERVAL_SECS + ")");
+    options.addOption(OptionBuilder.create('i'));
+
+    OptionBuilder.withArgName("help");
+    OptionBuilder.withDescription("Print help information");
+    options.addOption(OptionBuilder.create('h'));
+
+    Path file = null;
+    String tupleName = null;
+    String keyField = null;
+    String latencyField = DEFAULT_LATENCY_FIELD;
+    int rate = DEFAULT_RATE;
+    int durationSecs = DEFAULT_DURATION_SECS;
+    int numKeys = DEFAULT_NUMBER_OF_KEYS;
+    double exponent = 0;
+    int reportIntervalSecs = DEFAULT_REPORT_INTERVAL_SECS;
+    try {
+      CommandLine commandLine = new GnuParser().parse(options, args);
+      if (commandLine.hasOption('h') || !commandLine.hasOption('f')
+          || !commandLine.hasOption('t')) {
+        new HelpFormatter().printHelp(USAGE, options);
+        return;
+      }
+      file = Paths.get(commandLine.getOptionValue('f'));
+      tupleName = commandLine.getOptionValue('t');
+      if (commandLine.hasOption('r')) {
+        rate = Integer.valueOf(commandLine.getOptionValue('r'));
+        if (rate <= 0 || rate > MAX_RATE) {
+          System.err.println("rate must be between 1 and " + MAX_RATE);
+          new HelpFormatter().printHelp(USAGE, options);
+          return;
+        }
+      }
+      if (commandLine.hasOption('d')) {
+        durationSecs = Integer.valueOf(commandLine.getOptionValue('d'));
+      }
+      if (commandLine.hasOption('k')) {
+        keyField = commandLine.getOptionValue('k');
+      }
+      if (commandLine.hasOption('n')) {
+        numKeys = Integer.valueOf(commandLine.getOptionValue('n'));
+      }
+      if (commandLine.hasOption('z')) {
+        exponent = Double.valueOf(commandLine.getOptionValue('z'));
+      }
+      if (commandLine.hasOption('l')) {
+        latencyField = commandLine.getOptionValue('l');
+      }
+      if (commandLine.hasOption('i')) {
+        reportIntervalSecs = Integer.valueOf(commandLine.getOptionValue('i'));
+      }
+    } catch (ParseException e) {
+      System.err.println(e.getMessage());
+      new HelpFormatter().printHelp(USAGE, options);
+      return;
+    }
+
+    new TopologyHarness().run(file, tupleName, keyField, latencyField, rate, durationSecs, numKeys,
+        exponent, reportIntervalSecs);
+    System.exit(0);
+  }
+}
@@ -73,6 +73,7 @@ public final class Console {
 
   private static final String[] KEYWORDS = {
       "FROM", "JOIN", "ON", "EMIT", "TO", "INTO", "EACH", "CAST", "FILTER", "EXPIRE", "STATE",
+      "PATTERN", "WITHIN", "DEFINE",
       "SLIDE", "LENGTH", "SNAPSHOT", "EVERY", "LIMIT", "FIRST", "LAST", "GROUP", "BEGIN", "END",
       "PARTITION", "BY", "STREAM", "AS", "USING", "PARALLELISM", "EXPLAIN", "EXTENDED", "CLEAR",
       "CREATE", "TUPLE", "VIEW", "PARTITIONED", "COMMENT", "DESCRIBE", "DESC", "SHOW", "TUPLES",
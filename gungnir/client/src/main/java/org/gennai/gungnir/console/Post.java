@@ -34,8 +34,14 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.GnuParser;
@@ -76,6 +82,9 @@ public final class Post {
   private static final String USAGE = "post [-options] [JSON tuple]";
   private static final int DEFAULT_SEND_QUEUE_SIZE = 8192;
   private static final int DEFAULT_RESPONSE_TIMEOUT_SECS = 10;
+  private static final int HISTOGRAM_SIGNIFICANT_DIGITS = 3;
+  // The open-loop send interval is kept in whole nanoseconds
+  private static final int MAX_RATE = 1000000000;
 
   private static final class Request {
 
@@ -94,6 +103,8 @@ public final class Post {
   private int times;
   private int queueSize;
   private int timeLimitsSecs;
+  private int rate;
+  private int reportIntervalSecs;
   private boolean verbose;
   private boolean stats;
   private Service<HttpRequest, HttpResponse> client;
@@ -106,6 +117,14 @@ public final class Post {
   private AtomicInteger failed;
   private AtomicInteger timeout;
   private int tenpct;
+  private long intervalNanos;
+  private long sent;
+  private Semaphore inFlight;
+  private Recorder recorder;
+  private Histogram intervalHistogram;
+  private Histogram histogram;
+  private ScheduledExecutorService reporter;
+  private long lastReport;
 
   private Post(String dest, String uri) {
     this.dest = dest;
@@ -118,6 +137,8 @@ public final class Post {
     private int times = 1;
     private int queueSize = DEFAULT_SEND_QUEUE_SIZE;
     private int timeLimitsSecs = DEFAULT_RESPONSE_TIMEOUT_SECS;
+    private int rate;
+    private int reportIntervalSecs;
     private boolean verbose;
     private boolean stats;
 
@@ -144,6 +165,16 @@ public final class Post {
       return this;
     }
 
+    public Builder rate(int rate) {
+      this.rate = rate;
+      return this;
+    }
+
+    public Builder reportIntervalSecs(int reportIntervalSecs) {
+      this.reportIntervalSecs = reportIntervalSecs;
+      return this;
+    }
+
     public Builder verbose(boolean verbose) {
       this.verbose = verbose;
       return this;
@@ -160,6 +191,8 @@ public final class Post {
       post.times = times;
       post.queueSize = queueSize;
       post.timeLimitsSecs = timeLimitsSecs;
+      post.rate = rate;
+      post.reportIntervalSecs = reportIntervalSecs;
       post.verbose = verbose;
       post.stats = stats;
       return post;
@@ -195,12 +228,83 @@ public final class Post {
     return ((double) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) / 1000;
   }
 
-  private void sendRequests(String jsonTuple) {
+  public double getLatency(double percentile) {
+    if (histogram != null) {
+      synchronized (histogram) {
+        return toMillis(histogram.getValueAtPercentile(percentile));
+      }
+    }
+    return 0;
+  }
+
+  public double getMaxLatency() {
+    if (histogram != null) {
+      synchronized (histogram) {
+        return toMillis(histogram.getMaxValue());
+      }
+    }
+    return 0;
+  }
+
+  private static double toMillis(long micros) {
+    return ((double) micros) / 1000;
+  }
+
+  private void recordLatency(long startTime) {
+    if (recorder != null) {
+      recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    }
+  }
+
+  private void report() {
+    synchronized (histogram) {
+      intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+      histogram.add(intervalHistogram);
+    }
+
+    long now = System.nanoTime();
+    double elapsed = ((double) TimeUnit.NANOSECONDS.toMillis(now - lastReport)) / 1000;
+    lastReport = now;
+    if (elapsed > 0) {
+      System.out.println(String.format(
+          "%8.1fs %10d req %10.1f req/s  p50: %.3f  p99: %.3f  p99.9: %.3f  max: %.3f (ms)",
+          getTime(), intervalHistogram.getTotalCount(),
+          intervalHistogram.getTotalCount() / elapsed,
+          toMillis(intervalHistogram.getValueAtPercentile(50)),
+          toMillis(intervalHistogram.getValueAtPercentile(99)),
+          toMillis(intervalHistogram.getValueAtPercentile(99.9)),
+          toMillis(intervalHistogram.getMaxValue())));
+    }
+  }
+
+  private void complete() {
+    if (completed != null) {
+      int cnt = completed.incrementAndGet();
+      if (tenpct > 0 && cnt % tenpct == 0 && reporter == null) {
+        System.out.println("Completed " + cnt + " requests");
+      }
+    }
+  }
+
+  private HttpRequest createRequest(String jsonTuple) {
     HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri);
     ChannelBuffer content = ChannelBuffers.copiedBuffer(jsonTuple, CharsetUtil.UTF_8);
     request.headers().set(CONTENT_TYPE, MediaType.Json());
     request.headers().set(CONTENT_LENGTH, content.readableBytes());
     request.setContent(content);
+    return request;
+  }
+
+  private void printResponse(HttpResponse response) {
+    System.out.println(response.getProtocolVersion() + " " + response.getStatus());
+    for (Map.Entry<String, String> entry : response.headers().entries()) {
+      System.out.println(entry.getKey() + ": " + entry.getValue());
+    }
+  }
+
+  private void sendRequests(String jsonTuple) {
+    HttpRequest request = createRequest(jsonTuple);
+    final long startTime = System.nanoTime();
 
     try {
       Await.ready(client.apply(request).raiseWithin(
@@ -221,11 +325,10 @@ public final class Post {
 
         @Override
         public void onSuccess(HttpResponse response) {
+          recordLatency(startTime);
+
           if (verbose) {
-            System.out.println(response.getProtocolVersion() + " " + response.getStatus());
-            for (Map.Entry<String, String> entry : response.headers().entries()) {
-              System.out.println(entry.getKey() + ": " + entry.getValue());
-            }
+            printResponse(response);
           }
         }
       }));
@@ -252,20 +355,101 @@ public final class Post {
     }
   }
 
+  // The send time of each request is fixed by the schedule, not by the previous response, and
+  // latency is measured from that intended time so that stalls are not hidden (coordinated
+  // omission).
+  private void sendAsync(String jsonTuple, final long intendedTime) throws InterruptedException {
+    inFlight.acquire();
+
+    client.apply(createRequest(jsonTuple)).raiseWithin(
+        new Duration(TimeUnit.SECONDS.toNanos(timeLimitsSecs)),
+        DefaultTimer.twitter()).addEventListener(new FutureEventListener<HttpResponse>() {
+
+      @Override
+      public void onFailure(Throwable cause) {
+        if (cause instanceof TimeoutException) {
+          LOG.error("Send request timed out", cause);
+          if (timeout != null) {
+            timeout.incrementAndGet();
+          }
+        } else {
+          LOG.error("Failed to send request", cause);
+          if (failed != null) {
+            failed.incrementAndGet();
+          }
+        }
+
+        if (verbose) {
+          cause.printStackTrace(System.err);
+        }
+
+        complete();
+        inFlight.release();
+      }
+
+      @Override
+      public void onSuccess(HttpResponse response) {
+        recordLatency(intendedTime);
+
+        if (verbose) {
+          printResponse(response);
+        }
+
+        complete();
+        inFlight.release();
+      }
+    });
+  }
+
+  private void pace(String jsonTuple) throws InterruptedException {
+    long intendedTime = start + sent * intervalNanos;
+    sent++;
+
+    long delay;
+    while ((delay = intendedTime - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(delay);
+    }
+    sendAsync(jsonTuple, intendedTime);
+  }
+
   public void execute() {
     client = Http.newService(dest);
-    queue = new LinkedBlockingQueue<Request>(queueSize);
-    postExecutor =
-        Executors.newFixedThreadPool(parallelism, GungnirUtils.createThreadFactory("PostExecutor"));
     finish = false;
-    finished = new CountDownLatch(parallelism);
 
     if (stats) {
       completed = new AtomicInteger();
       failed = new AtomicInteger();
       timeout = new AtomicInteger();
+
+      recorder = new Recorder(HISTOGRAM_SIGNIFICANT_DIGITS);
+      histogram = new Histogram(HISTOGRAM_SIGNIFICANT_DIGITS);
+      if (reportIntervalSecs > 0) {
+        reporter = Executors.newSingleThreadScheduledExecutor(GungnirUtils
+            .createThreadFactory("PostReporter"));
+        lastReport = System.nanoTime();
+        reporter.scheduleAtFixedRate(new Runnable() {
+
+          @Override
+          public void run() {
+            report();
+          }
+        }, reportIntervalSecs, reportIntervalSecs, TimeUnit.SECONDS);
+      }
     }
 
+    if (rate > 0) {
+      intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+      sent = 0;
+      inFlight = new Semaphore(queueSize);
+      start = System.nanoTime();
+      return;
+    }
+
+    queue = new LinkedBlockingQueue<Request>(queueSize);
+    postExecutor =
+        Executors.newFixedThreadPool(parallelism, GungnirUtils.createThreadFactory("PostExecutor"));
+    finished = new CountDownLatch(parallelism);
+
     for (int i = 0; i < parallelism; i++) {
       postExecutor.execute(new Runnable() {
 
@@ -277,13 +461,7 @@ public final class Post {
               if (request != null) {
                 for (int j = 0; j < request.times; j++) {
                   sendRequests(request.jsonTuple);
-
-                  if (completed != null) {
-                    int cnt = completed.incrementAndGet();
-                    if (tenpct > 0 && cnt % tenpct == 0) {
-                      System.out.println("Completed " + cnt + " requests");
-                    }
-                  }
+                  complete();
                 }
               } else {
                 if (finish) {
@@ -319,6 +497,14 @@ public final class Post {
     if (stats) {
       tenpct = times / 10 < 100 ? 100 : times / 10;
       start = System.nanoTime();
+      lastReport = start;
+    }
+
+    if (rate > 0) {
+      for (int i = 0; i < times; i++) {
+        pace(jsonTuple);
+      }
+      return;
     }
 
     for (int i = 0; i < parallelism; i++) {
@@ -333,7 +519,11 @@ public final class Post {
       while ((jsonTuple = reader.readLine()) != null) {
         jsonTuple = jsonTuple.trim();
         if (!jsonTuple.isEmpty()) {
-          enqueue(jsonTuple);
+          if (rate > 0) {
+            pace(jsonTuple);
+          } else {
+            enqueue(jsonTuple);
+          }
         }
       }
     } finally {
@@ -358,6 +548,16 @@ public final class Post {
       total *= times;
       tenpct = total / 10 < 100 ? 100 : total / 10;
       start = System.nanoTime();
+      lastReport = start;
+    }
+
+    if (rate > 0) {
+      for (int i = 0; i < times; i++) {
+        for (File jsonFile : jsonFiles) {
+          send(new FileInputStream(jsonFile));
+        }
+      }
+      return;
     }
 
     for (File jsonFile : jsonFiles) {
@@ -367,11 +567,22 @@ public final class Post {
 
   public void close() throws InterruptedException {
     finish = true;
-    postExecutor.shutdown();
-
-    finished.await();
+    if (rate > 0) {
+      inFlight.acquire(queueSize);
+    } else {
+      postExecutor.shutdown();
+      finished.await();
+    }
 
     client.close();
+
+    if (reporter != null) {
+      reporter.shutdown();
+      reporter.awaitTermination(reportIntervalSecs, TimeUnit.SECONDS);
+    }
+    if (recorder != null) {
+      report();
+    }
   }
 
   // CHECKSTYLE IGNORE MethodLengthCheck FOR NEXT 1 LINES
@@ -412,6 +623,17 @@ public final class Post {
     OptionBuilder.withDescription("Response timeout (secs)");
     options.addOption(OptionBuilder.create('l'));
 
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("requests-per-sec");
+    OptionBuilder.withDescription("Post open-loop at a fixed rate. -n is the number of passes over"
+        + " the input files");
+    options.addOption(OptionBuilder.create('r'));
+
+    OptionBuilder.hasArg();
+    OptionBuilder.withArgName("report-interval");
+    OptionBuilder.withDescription("Print latency percentiles at each interval (secs)");
+    options.addOption(OptionBuilder.create('i'));
+
     OptionBuilder.withArgName("verbose");
     OptionBuilder.withDescription("Make the operation more talkative");
     options.addOption(OptionBuilder.create('v'));
@@ -435,6 +657,8 @@ public final class Post {
     int times = 1;
     int queueSize = DEFAULT_SEND_QUEUE_SIZE;
     int timeoutSecs = DEFAULT_RESPONSE_TIMEOUT_SECS;
+    int rate = 0;
+    int reportIntervalSecs = 0;
     boolean verbose = false;
     boolean stats = false;
     try {
@@ -467,6 +691,17 @@ public final class Post {
       if (commandLine.hasOption('l')) {
         timeoutSecs = Integer.valueOf(commandLine.getOptionValue('l'));
       }
+      if (commandLine.hasOption('r')) {
+        rate = Integer.valueOf(commandLine.getOptionValue('r'));
+        if (rate > MAX_RATE) {
+          System.err.println("requests-per-sec must be " + MAX_RATE + " or less");
+          new HelpFormatter().printHelp(USAGE, options);
+          return;
+        }
+      }
+      if (commandLine.hasOption('i')) {
+        reportIntervalSecs = Integer.valueOf(commandLine.getOptionValue('i'));
+      }
       if (commandLine.hasOption('v')) {
         verbose = true;
       }
@@ -494,11 +729,15 @@ public final class Post {
         System.out.println("parallelism:   " + parallelism);
         System.out.println("times:         " + times);
         System.out.println("queue size:    " + queueSize);
+        if (rate > 0) {
+          System.out.println("rate(req/s):   " + rate);
+        }
         System.out.println("timeout(secs): " + timeoutSecs + '\n');
       }
 
       Post post = Post.builder().parallelism(parallelism).times(times).queueSize(queueSize)
-          .timeLimitsSecs(timeoutSecs).verbose(verbose).stats(stats).build(dest, uri);
+          .timeLimitsSecs(timeoutSecs).rate(rate).reportIntervalSecs(reportIntervalSecs)
+          .verbose(verbose).stats(stats).build(dest, uri);
       post.execute();
 
       if (commandLine.getArgs().length > 0) {
@@ -522,6 +761,14 @@ public final class Post {
         System.out.println("Completed requests: " + post.getCompleted());
         System.out.println("Failed requests:    " + post.getFailed());
         System.out.println("Timeout requests:   " + post.getTimeout());
+        if (stats) {
+          System.out.println();
+          System.out.println("Latency p50(ms):    " + post.getLatency(50));
+          System.out.println("Latency p90(ms):    " + post.getLatency(90));
+          System.out.println("Latency p99(ms):    " + post.getLatency(99));
+          System.out.println("Latency p99.9(ms):  " + post.getLatency(99.9));
+          System.out.println("Latency max(ms):    " + post.getMaxLatency());
+        }
 
       }
     } catch (ParseException e) {
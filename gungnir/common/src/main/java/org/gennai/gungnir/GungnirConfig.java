@@ -61,6 +61,9 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
   public static final String PERSISTENT_EMIT_TUPLES_MAX = "persistent.emit.tuples.max";
   public static final String PERSISTENT_EMIT_TUPLES_MAX_SIZE = "persistent.emit.tuples.max.size";
   public static final String PERSISTENT_EMITTER = "persistent.emitter";
+  public static final String PERSISTENT_WORKER_THREADS = "persistent.worker.threads";
+  public static final String PERSISTENT_SCHEDULE_QUANTUM = "persistent.schedule.quantum";
+  public static final String PERSISTENT_SCHEDULE_WEIGHT = "persistent.schedule.weight";
   public static final String REWRITE_RULES = "rewrite.rules";
   public static final String REWRITE_PATTERN = "pattern";
   public static final String REWRITE_TARGET = "target";
@@ -84,6 +87,7 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
   public static final String TOPOLOGY_WORKERS = "topology.workers";
   public static final String TOPOLOGY_STATUS_CHECK_TIMES = "topology.status.check.times";
   public static final String TOPOLOGY_STATUS_CHECK_INTERVAL = "topology.status.check.interval";
+  public static final String TOPOLOGY_JAR_CACHE_SIZE = "topology.jar.cache.size";
   public static final String DEFAULT_PARALLELISM = "default.parallelism";
   public static final String LOCAL_DIR = "gungnir.local.dir";
 
@@ -94,6 +98,7 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
   public static final String KAFKA_BROKERS = "kafka.brokers";
   public static final String KAFKA_REQUIRED_ACKS = "kafka.required.acks";
   public static final String KAFKA_PRODUCER_TYPE = "kafka.producer.type";
+  public static final String KAFKA_COMPRESSION_CODEC = "kafka.compression.codec";
   public static final String KAFKA_AUTO_COMMIT_INTERVAL = "kafka.auto.commit.interval";
   public static final String KAFKA_ZOOKEEPER_SERVERS = "kafka.zookeeper.servers";
   public static final String KAFKA_ZOOKEEPER_SESSION_TIMEOUT = "kafka.zookeeper.session.timeout";
@@ -108,11 +113,30 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
 
   public static final String COMPONENT_SNAPSHOT_QUEUE_SIZE = "component.snapshot.queue.size";
   public static final String COMPONENT_SNAPSHOT_PARALLELISM = "component.snapshot.parallelism";
+  public static final String COMPONENT_CHECKPOINT_INTERVAL_SECS =
+      "component.checkpoint.interval.secs";
+  public static final String COMPONENT_CHECKPOINT_BACKUP_DIR = "component.checkpoint.backup.dir";
 
   public static final String SPOUT_OPERATOR_QUEUE_SIZE = "spout.operator.queue.size";
   public static final String EMIT_OPERATOR_QUEUE_SIZE = "emit.operator.queue.size";
   public static final String EMIT_OPERATOR_EMIT_TUPLES_MAX = "emit.operator.emit.tuples.max";
   public static final String TUPLEJOIN_SEEK_SIZE = "tuplejoin.seek.size";
+  public static final String TUPLEJOIN_OFFHEAP_CAPACITY = "tuplejoin.offheap.capacity";
+  public static final String PATTERN_SEEK_SIZE = "pattern.seek.size";
+  public static final String SLIDE_ALLOWED_LATENESS_SECS = "slide.allowed.lateness.secs";
+  public static final String JOIN_OPERATOR_ASYNC_ENABLED = "join.operator.async.enabled";
+  public static final String JOIN_OPERATOR_PARALLELISM = "join.operator.parallelism";
+  public static final String JOIN_OPERATOR_OUTSTANDING_MAX = "join.operator.outstanding.max";
+  public static final String JOIN_OPERATOR_BATCH_SIZE = "join.operator.batch.size";
+  public static final String JOIN_OPERATOR_BATCH_INTERVAL = "join.operator.batch.interval";
+  public static final String JOIN_OPERATOR_ORDERED = "join.operator.ordered";
+  public static final String AGGREGATE_TWO_PHASE_ENABLED = "aggregate.two.phase.enabled";
+  public static final String AGGREGATE_HOT_KEY_RATIO = "aggregate.hot.key.ratio";
+  public static final String AGGREGATE_HOT_KEY_CAPACITY = "aggregate.hot.key.capacity";
+  public static final String AGGREGATE_MERGE_DELAY_SECS = "aggregate.merge.delay.secs";
+  public static final String PARTITION_LOCAL_WEIGHT = "partition.local.weight";
+
+  public static final String PROCESSOR_EXTENSIONS = "processor.extensions";
 
   public static final String LOG_APPEND_QUEUE_SIZE = "log.append.queue.size";
   public static final String LOG_APPEND_RECONNECT_DELAY = "log.append.reconnect.delay";
@@ -134,6 +158,7 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
   public static final String TOPOLOGY_METRICS_CONSUMER_PARALLELISM =
       "topology.metrics.consumer.parallelism";
   public static final String TOPOLOGY_METRICS_INTERVAL_SECS = "topology.metrics.interval.secs";
+  public static final String TOPOLOGY_METRICS_SAMPLE_INTERVAL = "topology.metrics.sample.interval";
   public static final String TOPOLOGY_STATS_SAMPLE_RATE = "topology.stats.sample.rate";
   public static final String METRICS_STATSD_HOST = "metrics.statsd.host";
   public static final String METRICS_STATSD_PORT = "metrics.statsd.port";
@@ -324,6 +349,11 @@ public final class GungnirConfig extends LinkedHashMap<String, Object> {
     return (List<T>) get(key);
   }
 
+  @SuppressWarnings("unchecked")
+  public <K, V> Map<K, V> getMap(String key) {
+    return (Map<K, V>) get(key);
+  }
+
   public InetSocketAddress getAddress(String key) {
     Object value = get(key);
     if (value != null) {
@@ -50,6 +50,7 @@ public final class GungnirConst {
   public static final String BUILD_PROPERTIES = "/build.properties";
 
   public static final int TERMINATION_WAIT_TIME = 3000;
+  public static final int ASYNC_JOIN_TICK_SECS = 1;
 
   public static final String METRICS_REQUEST_COUNT = "request-count";
   public static final String METRICS_PERSISTENT_DESER_QUEUE_SIZE = "persistent-deser-queue-size";
@@ -63,20 +64,39 @@ public final class GungnirConst {
   public static final String METRICS_PERSISTENT_EMIT_COUNT = "persistent-emit-count";
   public static final String METRICS_DISPATCH_COUNT = "dispatch";
   public static final String METRICS_TUPLE_STORE_SIZE = "store";
+  public static final String METRICS_PARTITION_LOAD = "load";
+  public static final String METRICS_PERSIST_BATCH_TIME = "persist-batch-time";
+  public static final String METRICS_PERSIST_COALESCE_RATIO = "persist-coalesce-ratio";
+  public static final String METRICS_EXECUTE_TIME = "execute-time";
+  public static final String METRICS_QUEUE_SIZE = "queue-size";
+  public static final String METRICS_JOIN_STATE_SIZE = "join-state-size";
+  public static final String METRICS_CACHE_COUNT = "cache";
+  public static final String METRICS_CACHE_HIT = "hit";
+  public static final String METRICS_CACHE_MISS = "miss";
+  public static final String METRICS_CACHE_EVICT = "evict";
+  public static final String METRICS_UDF_CLASS_LOADER = "udf-class-loader";
+  public static final String METRICS_EVENT_TIME = "event-time";
+  public static final String METRICS_EVENT_TIME_LATE = "late";
+  public static final String METRICS_EVENT_TIME_REORDERED = "reordered";
 
   public static final String CLUSTER_NODE_PATH = "/cluster";
   public static final String TOPOLOGIES_NODE_PATH = CLUSTER_NODE_PATH + "/topologies";
   public static final String SERVERS_NODE_PATH = CLUSTER_NODE_PATH + "/servers";
   public static final String STORES_NODE_PATH = CLUSTER_NODE_PATH + "/stores";
+  public static final String METADATA_NODE_PATH = CLUSTER_NODE_PATH + "/metadata";
+  public static final String METRICS_NODE_PATH = CLUSTER_NODE_PATH + "/metrics";
   public static final String SESSION_NODE_PATH = CLUSTER_NODE_PATH + "/session";
   public static final String SESSIONS_NODE_PATH = SESSION_NODE_PATH + "/sessions";
   public static final String STATEMENTS_NODE_PATH = SESSION_NODE_PATH + "/statements";
   public static final String SESSION_INDEX_NODE_PATH = SESSION_NODE_PATH + "/index";
+  public static final String CHECKPOINT_NODE_PATH = "/checkpoint";
 
   public static final String STORE_DIR = "meta-store";
   public static final String SESSION_CACHE_DIR = "session-cache";
   public static final String TOPOLOGY_CACHE_DIR = "topology-cache";
+  public static final String JAR_CACHE_DIR = "jar-cache";
   public static final String CACHE_DIR = "ttl-cache";
+  public static final String CHECKPOINT_DIR = "operator-state";
 
   private GungnirConst() {
   }
@@ -28,12 +28,25 @@ import com.google.common.collect.Lists;
 public class FieldAccessor extends BaseField {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
+  private static final int MAX_FIELD_INDEXES = 8;
 
   private String fieldName;
   private List<Object> subscripts;
   private TupleAccessor tupleAccessor;
   private FieldAccessor parentAccessor;
   private String aliasFieldName;
+  private transient volatile FieldIndex[] fieldIndexes;
+
+  private static final class FieldIndex {
+
+    private final List<String> fieldNames;
+    private final int index;
+
+    private FieldIndex(List<String> fieldNames, int index) {
+      this.fieldNames = fieldNames;
+      this.index = index;
+    }
+  }
 
   public FieldAccessor(String fieldName) {
     this.fieldName = fieldName;
@@ -144,12 +157,46 @@ public class FieldAccessor extends BaseField {
     return value;
   }
 
+  // Keyed by identity, since tuples and structs share the field names of their schema
+  private int fieldIndex(List<String> fieldNames) {
+    FieldIndex[] indexes = fieldIndexes;
+    if (indexes != null) {
+      for (FieldIndex fieldIndex : indexes) {
+        if (fieldIndex.fieldNames == fieldNames) {
+          return fieldIndex.index;
+        }
+      }
+    }
+
+    FieldIndex fieldIndex = new FieldIndex(fieldNames, fieldNames.indexOf(fieldName));
+    if (indexes == null) {
+      fieldIndexes = new FieldIndex[] {fieldIndex};
+    } else {
+      int evicted = indexes.length < MAX_FIELD_INDEXES ? 0 : 1;
+      FieldIndex[] newIndexes = new FieldIndex[indexes.length - evicted + 1];
+      System.arraycopy(indexes, evicted, newIndexes, 0, indexes.length - evicted);
+      newIndexes[newIndexes.length - 1] = fieldIndex;
+      fieldIndexes = newIndexes;
+    }
+    return fieldIndex.index;
+  }
+
+  private Object getValue(List<String> fieldNames, List<Object> values) {
+    int index = fieldIndex(fieldNames);
+    if (index >= 0 && index < values.size()) {
+      return values.get(index);
+    } else {
+      return null;
+    }
+  }
+
   @Override
   public Object getValue(GungnirTuple tuple) {
     if (parentAccessor != null) {
       Object value = parentAccessor.getValue(tuple);
       if (value != null) {
-        value = ((Struct) value).getValueByField(fieldName);
+        Struct struct = (Struct) value;
+        value = getValue(struct.getFieldNames(), struct.getValues());
         return selectValue(value, tuple);
       } else {
         return null;
@@ -157,7 +204,7 @@ public class FieldAccessor extends BaseField {
     } else {
       if (tupleAccessor != null) {
         if (tuple.getTupleName().equals(tupleAccessor.getTupleName())) {
-          Object value = tuple.getValueByField(fieldName);
+          Object value = getValue(tuple.getFieldNames(), tuple.getTupleValues().getValues());
           if (value == null) {
             return null;
           }
@@ -166,7 +213,7 @@ public class FieldAccessor extends BaseField {
           return null;
         }
       } else {
-        Object value = tuple.getValueByField(fieldName);
+        Object value = getValue(tuple.getFieldNames(), tuple.getTupleValues().getValues());
         if (value != null) {
           return selectValue(value, tuple);
         } else {
@@ -112,7 +112,7 @@ public class GungnirTuple {
   public Object getValueByField(String fieldName) {
     Integer index = fieldIndex(fieldName);
     if (index != null) {
-      return tupleValues.getValues().get(fieldIndex(fieldName));
+      return tupleValues.getValues().get(index);
     } else {
       return null;
     }
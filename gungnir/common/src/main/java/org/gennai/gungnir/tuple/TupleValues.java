@@ -24,6 +24,7 @@ public class TupleValues implements Cloneable {
 
   private String tupleName;
   private List<Object> values;
+  private TupleOrigin origin;
 
   TupleValues() {
   }
@@ -36,6 +37,7 @@ public class TupleValues implements Cloneable {
   private TupleValues(TupleValues c) {
     this.tupleName = c.tupleName;
     this.values = c.values;
+    this.origin = c.origin;
   }
 
   public void setTupleName(String tupleName) {
@@ -54,6 +56,14 @@ public class TupleValues implements Cloneable {
     return values;
   }
 
+  public void setOrigin(TupleOrigin origin) {
+    this.origin = origin;
+  }
+
+  public TupleOrigin getOrigin() {
+    return origin;
+  }
+
   @Override
   public TupleValues clone() {
     return new TupleValues(this);
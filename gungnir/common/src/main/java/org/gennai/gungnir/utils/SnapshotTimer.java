@@ -112,6 +112,21 @@ public class SnapshotTimer {
     }
   }
 
+  public synchronized void alignedPeriodSchedule(Period period, int offsetSecs,
+      SnapshotJob job) throws SchedulerException {
+    JobDetail jobDetail = createJob(job);
+
+    long intervalMillis = TimeUnit.SECONDS.toMillis(period.toSeconds());
+    long offsetMillis = TimeUnit.SECONDS.toMillis(offsetSecs) % intervalMillis;
+    long now = System.currentTimeMillis();
+    long start = (now - offsetMillis) / intervalMillis * intervalMillis + intervalMillis
+        + offsetMillis;
+
+    scheduler.scheduleJob(jobDetail, newTrigger().withSchedule(simpleSchedule()
+        .withIntervalInMilliseconds(intervalMillis).repeatForever())
+        .startAt(new Date(start)).build());
+  }
+
   public synchronized void cronSchedule(String schedulingPattern, SnapshotJob job)
       throws SchedulerException {
     JobDetail jobDetail = createJob(job);
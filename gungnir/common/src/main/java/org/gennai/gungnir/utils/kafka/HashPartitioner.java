@@ -26,8 +26,13 @@ public class HashPartitioner implements Partitioner {
   public HashPartitioner(VerifiableProperties props) {
   }
 
+  // Math.abs would leave Integer.MIN_VALUE negative
+  public static int partition(int hash, int numPartitions) {
+    return (hash & Integer.MAX_VALUE) % numPartitions;
+  }
+
   @Override
   public int partition(Object key, int numPartitions) {
-    return Math.abs((Integer) key) % numPartitions;
+    return partition((Integer) key, numPartitions);
   }
 }
@@ -63,6 +63,8 @@ public final class KafkaClientBuilder {
 
     ProducerBuildDeclarer producerType(ProducerType producerType);
 
+    ProducerBuildDeclarer compressionCodec(String compressionCodec);
+
     <K> Producer<K, byte[]> build();
   }
 
@@ -73,6 +75,7 @@ public final class KafkaClientBuilder {
     private Class<? extends Encoder<?>> keySerClass;
     private Class<? extends Partitioner> partitionerClass;
     private ProducerType producerType;
+    private String compressionCodec;
 
     @Override
     public ProducerBuildDeclarer brokers(List<String> brokers) {
@@ -104,6 +107,12 @@ public final class KafkaClientBuilder {
       return this;
     }
 
+    @Override
+    public ProducerBuildDeclarer compressionCodec(String compressionCodec) {
+      this.compressionCodec = compressionCodec;
+      return this;
+    }
+
     @Override
     public <K> Producer<K, byte[]> build() {
       Properties props = new Properties();
@@ -118,6 +127,9 @@ public final class KafkaClientBuilder {
       if (producerType != null) {
         props.put("producer.type", producerType.toString().toLowerCase());
       }
+      if (compressionCodec != null) {
+        props.put("compression.codec", compressionCodec);
+      }
 
       ProducerConfig producerConfig = new ProducerConfig(props);
       return new Producer<K, byte[]>(producerConfig);
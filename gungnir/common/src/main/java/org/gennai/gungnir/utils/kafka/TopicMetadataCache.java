@@ -0,0 +1,165 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.utils.kafka;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import kafka.utils.ZkUtils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.gennai.gungnir.GungnirConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TopicMetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TopicMetadataCache.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private CuratorFramework curator;
+  private volatile Set<String> topics;
+  private volatile boolean topicsWatched;
+  private volatile long retryTime;
+  private int retryInterval;
+  private ConcurrentMap<String, Integer> partitionsMap = Maps.newConcurrentMap();
+
+  private class TopicsWatcher implements CuratorWatcher {
+
+    @Override
+    public void process(WatchedEvent event) {
+      if (event.getType() != EventType.None) {
+        refreshTopics();
+      }
+    }
+  }
+
+  private class PartitionsWatcher implements CuratorWatcher {
+
+    private String topicName;
+
+    PartitionsWatcher(String topicName) {
+      this.topicName = topicName;
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+      if (event.getType() != EventType.None) {
+        partitionsMap.remove(topicName);
+      }
+    }
+  }
+
+  public TopicMetadataCache(GungnirConfig config) {
+    List<String> zkServers = config.getList(KAFKA_ZOOKEEPER_SERVERS);
+
+    curator = CuratorFrameworkFactory.builder()
+        .connectString(StringUtils.join(zkServers, ","))
+        .sessionTimeoutMs(config.getInteger(KAFKA_ZOOKEEPER_SESSION_TIMEOUT))
+        .connectionTimeoutMs(config.getInteger(KAFKA_ZOOKEEPER_CONNECTION_TIMEOUT))
+        .retryPolicy(new RetryNTimes(config.getInteger(KAFKA_ZOOKEEPER_RETRY_TIMES),
+            config.getInteger(KAFKA_ZOOKEEPER_RETRY_INTERVAL))).build();
+    retryInterval = config.getInteger(KAFKA_ZOOKEEPER_RETRY_INTERVAL);
+
+    curator.getConnectionStateListenable().addListener(new ConnectionStateListener() {
+
+      @Override
+      public void stateChanged(CuratorFramework client, ConnectionState newState) {
+        if (newState == ConnectionState.RECONNECTED) {
+          partitionsMap.clear();
+          refreshTopics();
+        }
+      }
+    });
+
+    curator.start();
+  }
+
+  private synchronized void refreshTopics() {
+    boolean watched = false;
+    try {
+      List<String> children = curator.getChildren().usingWatcher(new TopicsWatcher())
+          .forPath(ZkUtils.BrokerTopicsPath());
+      watched = true;
+      topics = Sets.newHashSet(children);
+
+      LOG.info("Topics refreshed. {} topics", topics.size());
+    } catch (Exception e) {
+      LOG.error("Failed to refresh topics", e);
+    } finally {
+      // Without the watch the topics would never be refreshed again, so a later lookup retries
+      topicsWatched = watched;
+      if (!watched) {
+        retryTime = System.currentTimeMillis() + retryInterval;
+      }
+    }
+  }
+
+  public int getNumPartitions(String topicName) {
+    if (topics == null || (!topicsWatched && System.currentTimeMillis() >= retryTime)) {
+      refreshTopics();
+      if (topics == null) {
+        return 0;
+      }
+    }
+
+    if (!topics.contains(topicName)) {
+      return 0;
+    }
+
+    Integer numPartitions = partitionsMap.get(topicName);
+    if (numPartitions == null) {
+      try {
+        byte[] bytes = curator.getData().usingWatcher(new PartitionsWatcher(topicName))
+            .forPath(ZkUtils.getTopicPath(topicName));
+        JsonNode partitionsNode = MAPPER.readTree(bytes).get("partitions");
+        numPartitions = partitionsNode != null ? partitionsNode.size() : 0;
+        partitionsMap.put(topicName, numPartitions);
+      } catch (KeeperException.NoNodeException e) {
+        return 0;
+      } catch (Exception e) {
+        LOG.error("Failed to get partitions of topic '{}'", topicName, e);
+        return 0;
+      }
+    }
+    return numPartitions;
+  }
+
+  public void close() {
+    curator.close();
+  }
+}
@@ -23,6 +23,7 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
 import java.util.Date;
+import java.util.List;
 
 import org.gennai.gungnir.tuple.schema.StructType;
 import org.gennai.gungnir.tuple.schema.TupleSchema;
@@ -268,4 +269,76 @@ public class TestGungnirTuple {
         .put("nudef", "text")
         .build();
   }
+
+  @Test
+  public void testFieldAccessorOnMultipleSchemas() throws InvalidTupleException {
+    GungnirTuple tuple1 =
+        GungnirTuple.builder(new TupleSchema("tuple1").field("title").field("content"))
+            .put("title", "title1")
+            .put("content", "content1")
+            .build();
+    GungnirTuple tuple2 =
+        GungnirTuple.builder(new TupleSchema("tuple2").field("content").field("title"))
+            .put("title", "title2")
+            .put("content", "content2")
+            .build();
+    FieldAccessor title = new FieldAccessor("title");
+    assertEquals("title1", title.getValue(tuple1));
+    assertEquals("title2", title.getValue(tuple2));
+    assertEquals("title1", title.getValue(tuple1));
+    assertNull(new FieldAccessor("none").getValue(tuple1));
+  }
+
+  @Test
+  public void testFieldAccessorOnManySchemas() throws InvalidTupleException {
+    List<GungnirTuple> tuples = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      TupleSchema schema = new TupleSchema("tuple" + i);
+      for (int j = 0; j < i % 5; j++) {
+        schema.field("field" + j);
+      }
+      schema.field("title");
+      tuples.add(GungnirTuple.builder(schema).put("title", "title" + i).build());
+    }
+    FieldAccessor title = new FieldAccessor("title");
+    for (int n = 0; n < 2; n++) {
+      for (int i = 0; i < tuples.size(); i++) {
+        assertEquals("title" + i, title.getValue(tuples.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void testFieldAccessorOnStruct() throws InvalidTupleException {
+    GungnirTuple tuple = GungnirTuple.builder(new TupleSchema("dummy").field("id")
+        .field("struct", structType))
+        .put("id", "id1")
+        .put("struct", Struct.builder(structType)
+            .put("s1", "value1")
+            .put("s2", Lists.newArrayList("a", "b"))
+            .build())
+        .build();
+    FieldAccessor struct = new FieldAccessor("struct");
+    assertEquals("value1", struct.field("s1").getValue(tuple));
+    assertEquals("b", struct.field("s2").select(1).getValue(tuple));
+    assertNull(struct.field("s3").getValue(tuple));
+  }
+
+  @Test
+  public void testFieldAccessorOnCopiedStruct() throws InvalidTupleException {
+    TupleSchema schema = new TupleSchema("dummy").field("struct", structType);
+    FieldAccessor s1 = new FieldAccessor("struct").field("s1");
+    for (int i = 0; i < 20; i++) {
+      List<String> fieldNames = Lists.newArrayList("s1", "s2");
+      List<Object> values = Lists.<Object>newArrayList("value" + i, Lists.newArrayList("a"));
+      GungnirTuple tuple = GungnirTuple.builder(schema)
+          .put("struct", new Struct(fieldNames, values)).build();
+      assertEquals("value" + i, s1.getValue(tuple));
+    }
+
+    GungnirTuple tuple = GungnirTuple.builder(schema)
+        .put("struct", new Struct(Lists.newArrayList("s2", "s1"),
+            Lists.<Object>newArrayList(Lists.newArrayList("a"), "reversed"))).build();
+    assertEquals("reversed", s1.getValue(tuple));
+  }
 }
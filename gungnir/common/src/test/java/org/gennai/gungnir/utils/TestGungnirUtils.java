@@ -27,9 +27,12 @@ import java.util.Random;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
+
 public class TestGungnirUtils {
   @Test
   public void testToTinyIntFromBoolean() throws TypeCastException {
@@ -351,4 +354,56 @@ public class TestGungnirUtils {
       });
     }
   }
+
+  private static long crc32(byte[] bytes, int off, int len) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, off, len);
+    return crc.getValue();
+  }
+
+  private static void assertCrc32Combine(byte[] bytes, int split) {
+    long crc1 = crc32(bytes, 0, split);
+    long crc2 = crc32(bytes, split, bytes.length - split);
+    assertEquals(crc32(bytes, 0, bytes.length),
+        GungnirUtils.crc32Combine(crc1, crc2, bytes.length - split));
+  }
+
+  @Test
+  public void testCrc32Combine() {
+    byte[] bytes = "The quick brown fox jumps over the lazy dog".getBytes(Charsets.UTF_8);
+    for (int split = 0; split <= bytes.length; split++) {
+      assertCrc32Combine(bytes, split);
+    }
+
+    Random random = new Random(1);
+    for (int len : new int[] {1, 2, 255, 256, 257, 4096, 65537}) {
+      byte[] block = new byte[len];
+      random.nextBytes(block);
+      assertCrc32Combine(block, 0);
+      assertCrc32Combine(block, len);
+      assertCrc32Combine(block, len / 2);
+      assertCrc32Combine(block, len - 1);
+      assertCrc32Combine(block, 1);
+    }
+  }
+
+  @Test
+  public void testCrc32CombineEmptyChunk() {
+    long crc = crc32(new byte[] {1, 2, 3}, 0, 3);
+    long empty = crc32(new byte[0], 0, 0);
+    assertEquals(crc, GungnirUtils.crc32Combine(crc, empty, 0));
+    assertEquals(crc, GungnirUtils.crc32Combine(empty, crc, 3));
+    assertEquals(empty, GungnirUtils.crc32Combine(empty, empty, 0));
+  }
+
+  @Test
+  public void testCrc32CombineSingleBytes() {
+    byte[] bytes = new byte[300];
+    new Random(2).nextBytes(bytes);
+    long crc = crc32(bytes, 0, 0);
+    for (int i = 0; i < bytes.length; i++) {
+      crc = GungnirUtils.crc32Combine(crc, crc32(bytes, i, 1), 1);
+      assertEquals(crc32(bytes, 0, i + 1), crc);
+    }
+  }
 }
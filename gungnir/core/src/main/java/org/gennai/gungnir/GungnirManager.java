@@ -19,7 +19,13 @@
 package org.gennai.gungnir;
 
 import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.GungnirConst.*;
 
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.gennai.gungnir.cluster.ClusterManager;
@@ -27,12 +33,14 @@ import org.gennai.gungnir.cluster.DistributedClusterManager;
 import org.gennai.gungnir.cluster.LocalClusterManager;
 import org.gennai.gungnir.metastore.MetaStore;
 import org.gennai.gungnir.metastore.MetaStoreException;
+import org.gennai.gungnir.metastore.MetadataCache;
 import org.gennai.gungnir.metastore.NotStoredException;
 import org.gennai.gungnir.metrics.MetricsManager;
 import org.gennai.gungnir.tuple.persistent.PersistentDeserializer;
 import org.gennai.gungnir.tuple.persistent.PersistentDispatcher;
 import org.gennai.gungnir.tuple.persistent.PersistentEmitter;
 import org.gennai.gungnir.tuple.persistent.TrackingData;
+import org.gennai.gungnir.utils.kafka.TopicMetadataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,12 +57,21 @@ public final class GungnirManager {
   private ReentrantLock metricsManagerLock;
   private volatile ClusterManager clusterManager;
   private ReentrantLock clusterManagerLock;
+  private volatile ForkJoinPool persistentExecutor;
+  private ReentrantLock persistentExecutorLock;
+  private volatile MetadataCache metadataCache;
+  private ReentrantLock metadataCacheLock;
+  private volatile TopicMetadataCache topicMetadataCache;
+  private ReentrantLock topicMetadataCacheLock;
 
   private GungnirManager(GungnirConfig config) {
     this.config = config;
     metaStoreLock = new ReentrantLock();
     metricsManagerLock = new ReentrantLock();
     clusterManagerLock = new ReentrantLock();
+    persistentExecutorLock = new ReentrantLock();
+    metadataCacheLock = new ReentrantLock();
+    topicMetadataCacheLock = new ReentrantLock();
   }
 
   public static GungnirManager getManager() {
@@ -118,6 +135,42 @@ public final class GungnirManager {
     return metricsManager;
   }
 
+  public ForkJoinPool getPersistentExecutor() {
+    if (persistentExecutor == null) {
+      persistentExecutorLock.lock();
+      try {
+        if (persistentExecutor == null) {
+          int threads = config.getInteger(PERSISTENT_WORKER_THREADS);
+          if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+          }
+
+          persistentExecutor = new ForkJoinPool(threads, new ForkJoinWorkerThreadFactory() {
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+              thread.setName("PersistentWorker-" + thread.getPoolIndex());
+              return thread;
+            }
+          }, new UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+              LOG.error("Uncaugh exception has occurred", e);
+            }
+          }, true);
+
+          LOG.info("Persistent executor started. threads: {}", threads);
+        }
+      } finally {
+        persistentExecutorLock.unlock();
+      }
+    }
+    return persistentExecutor;
+  }
+
   public PersistentDispatcher createDispatcher(UserEntity owner) throws MetaStoreException {
     PersistentDeserializer deserializer = null;
     try {
@@ -177,6 +230,34 @@ public final class GungnirManager {
     return clusterManager;
   }
 
+  public MetadataCache getMetadataCache() throws MetaStoreException {
+    if (metadataCache == null) {
+      metadataCacheLock.lock();
+      try {
+        if (metadataCache == null) {
+          metadataCache = new MetadataCache(getMetaStore(), getClusterManager());
+        }
+      } finally {
+        metadataCacheLock.unlock();
+      }
+    }
+    return metadataCache;
+  }
+
+  public TopicMetadataCache getTopicMetadataCache() {
+    if (topicMetadataCache == null) {
+      topicMetadataCacheLock.lock();
+      try {
+        if (topicMetadataCache == null) {
+          topicMetadataCache = new TopicMetadataCache(config);
+        }
+      } finally {
+        topicMetadataCacheLock.unlock();
+      }
+    }
+    return topicMetadataCache;
+  }
+
   // TODO: No15
   public void dispatchTrackingData(String accountId, TrackingData trackingData)
       throws MetaStoreException, NotStoredException {
@@ -203,5 +284,20 @@ public final class GungnirManager {
     if (clusterManager != null) {
       clusterManager.close();
     }
+
+    if (persistentExecutor != null) {
+      persistentExecutor.shutdown();
+      try {
+        if (!persistentExecutor.awaitTermination(TERMINATION_WAIT_TIME, TimeUnit.MILLISECONDS)) {
+          persistentExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        LOG.error("Failed to shutdown persistent executor", e);
+      }
+    }
+
+    if (topicMetadataCache != null) {
+      topicMetadataCache.close();
+    }
   }
 }
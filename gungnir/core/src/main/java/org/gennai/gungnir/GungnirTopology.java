@@ -44,11 +44,18 @@ import org.gennai.gungnir.topology.dispatcher.GroupingDispatcher;
 import org.gennai.gungnir.topology.dispatcher.MultiDispatcher;
 import org.gennai.gungnir.topology.dispatcher.SingleDispatcher;
 import org.gennai.gungnir.topology.dispatcher.TupleNameFilter;
+import org.gennai.gungnir.topology.grouping.FieldsGrouping;
 import org.gennai.gungnir.topology.grouping.GlobalGrouping;
 import org.gennai.gungnir.topology.grouping.Grouping;
 import org.gennai.gungnir.topology.grouping.GroupingBuilder;
+import org.gennai.gungnir.topology.grouping.LocalOrShuffleGrouping;
+import org.gennai.gungnir.topology.grouping.PartialKeyGrouping;
+import org.gennai.gungnir.topology.grouping.SelectGrouping;
 import org.gennai.gungnir.topology.grouping.ShuffleGrouping;
 import org.gennai.gungnir.topology.operator.EachOperator;
+import org.gennai.gungnir.topology.operator.ExecOperator;
+import org.gennai.gungnir.topology.operator.FilterOperator;
+import org.gennai.gungnir.topology.operator.JoinOperator;
 import org.gennai.gungnir.topology.operator.MergeOperator;
 import org.gennai.gungnir.topology.operator.Operator;
 import org.gennai.gungnir.topology.operator.PartitionOperator;
@@ -57,12 +64,23 @@ import org.gennai.gungnir.topology.operator.SlideOperator;
 import org.gennai.gungnir.topology.operator.SnapshotOperator;
 import org.gennai.gungnir.topology.operator.SpoutOperator;
 import org.gennai.gungnir.topology.operator.TupleJoinOperator;
+import org.gennai.gungnir.topology.operator.metrics.ClassLoaderMeter;
+import org.gennai.gungnir.topology.operator.metrics.CountMeter;
+import org.gennai.gungnir.topology.operator.metrics.HistogramMeter;
 import org.gennai.gungnir.topology.operator.metrics.Metrics;
 import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
+import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval.IntervalType;
 import org.gennai.gungnir.topology.processor.SpoutProcessor;
+import org.gennai.gungnir.topology.udf.Function;
+import org.gennai.gungnir.topology.udf.MergeFunction;
+import org.gennai.gungnir.topology.udf.MergeableFunction;
+import org.gennai.gungnir.topology.udf.PartialFunction;
 import org.gennai.gungnir.topology.udf.UserDefined;
+import org.gennai.gungnir.tuple.ComplexCondition;
+import org.gennai.gungnir.tuple.Condition;
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.SimpleCondition;
 import org.gennai.gungnir.tuple.TupleAccessor;
 import org.gennai.gungnir.tuple.schema.Schema;
 import org.gennai.gungnir.tuple.schema.TupleSchema;
@@ -72,6 +90,7 @@ import org.jgrapht.traverse.TopologicalOrderIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import backtype.storm.Config;
 import backtype.storm.generated.StormTopology;
 import backtype.storm.topology.BoltDeclarer;
 import backtype.storm.topology.TopologyBuilder;
@@ -460,6 +479,25 @@ public class GungnirTopology implements Serializable, Cloneable {
         String toTupleName = ((RenameOperator) operator).getToTuple().getTupleName();
         outFieldsMap.put(toTupleName, fieldNames);
         outputFields.put(operator.getName(), outFieldsMap);
+      } else if (operator instanceof PartitionOperator
+          && ((PartitionOperator) operator).getProjection() != null) {
+        Map<String, List<String>> inFieldsMap = getInputFields(graph, operator, outputFields);
+        Map<String, int[]> projection = ((PartitionOperator) operator).getProjection();
+
+        Map<String, List<String>> outFieldsMap = Maps.newLinkedHashMap();
+        for (Map.Entry<String, List<String>> entry : inFieldsMap.entrySet()) {
+          int[] indexes = projection.get(entry.getKey());
+          if (indexes != null) {
+            List<String> fieldNames = Lists.newArrayListWithCapacity(indexes.length);
+            for (int index : indexes) {
+              fieldNames.add(entry.getValue().get(index));
+            }
+            outFieldsMap.put(entry.getKey(), fieldNames);
+          } else {
+            outFieldsMap.put(entry.getKey(), entry.getValue());
+          }
+        }
+        outputFields.put(operator.getName(), outFieldsMap);
       } else {
         Map<String, List<String>> inFieldsMap = getInputFields(graph, operator, outputFields);
 
@@ -518,6 +556,205 @@ public class GungnirTopology implements Serializable, Cloneable {
     return outputFields;
   }
 
+  private boolean addReadFields(Field field, Set<String> fieldNames) {
+    if (field instanceof FieldAccessor) {
+      FieldAccessor f = (FieldAccessor) field;
+      if (f.isWildcardField()) {
+        return false;
+      }
+      if (f.isContextField()) {
+        return true;
+      }
+
+      while (f != null) {
+        if (f.getSubscripts() != null) {
+          for (Object subscript : f.getSubscripts()) {
+            if (subscript instanceof Field && !addReadFields((Field) subscript, fieldNames)) {
+              return false;
+            }
+          }
+        }
+        if (f.getParentAccessor() == null) {
+          fieldNames.add(f.getOriginalName());
+        }
+        f = f.getParentAccessor();
+      }
+      return true;
+    } else if (field instanceof Function<?>) {
+      List<FieldAccessor> fields = ((Function<?>) field).getFields();
+      if (fields != null) {
+        for (FieldAccessor f : fields) {
+          if (!addReadFields(f, fieldNames)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private boolean addReadFields(Condition condition, Set<String> fieldNames) {
+    if (condition instanceof SimpleCondition) {
+      SimpleCondition simpleCondition = (SimpleCondition) condition;
+      if (!addReadFields(simpleCondition.getField(), fieldNames)) {
+        return false;
+      }
+      if (simpleCondition.getValue() instanceof Field) {
+        return addReadFields((Field) simpleCondition.getValue(), fieldNames);
+      }
+      return true;
+    } else if (condition instanceof ComplexCondition) {
+      for (Condition c : ((ComplexCondition) condition).getConditions()) {
+        if (!addReadFields(c, fieldNames)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private boolean addReadFields(GroupFields groupFields, Set<String> fieldNames) {
+    while (groupFields != null) {
+      for (FieldAccessor field : groupFields.getFields()) {
+        if (!addReadFields(field, fieldNames)) {
+          return false;
+        }
+      }
+      groupFields = groupFields.getParent();
+    }
+    return true;
+  }
+
+  private boolean addReadFields(Grouping grouping, Set<String> fieldNames) {
+    if (grouping instanceof ShuffleGrouping || grouping instanceof LocalOrShuffleGrouping
+        || grouping instanceof GlobalGrouping) {
+      return true;
+    } else if (grouping instanceof FieldsGrouping) {
+      return addReadFields(((FieldsGrouping) grouping).getGroupFields(), fieldNames);
+    } else if (grouping instanceof PartialKeyGrouping) {
+      return addReadFields(((PartialKeyGrouping) grouping).getGroupFields(), fieldNames);
+    } else if (grouping instanceof SelectGrouping) {
+      for (Grouping g : ((SelectGrouping) grouping).getGroupings().values()) {
+        if (!addReadFields(g, fieldNames)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private Set<String> getReadFields(DefaultDirectedGraph<Operator, StreamEdge> graph,
+      Operator operator) {
+    Set<String> fieldNames = Sets.newHashSet();
+
+    if (operator instanceof EachOperator || operator instanceof SlideOperator
+        || operator instanceof SnapshotOperator) {
+      List<Field> fields = null;
+      if (operator instanceof EachOperator) {
+        fields = ((EachOperator) operator).getOutputFields();
+      } else if (operator instanceof SlideOperator) {
+        fields = ((SlideOperator) operator).getOutputFields();
+        FieldAccessor timeField = ((SlideOperator) operator).getSlideLength().getTimeField();
+        if (timeField != null && !addReadFields(timeField, fieldNames)) {
+          return null;
+        }
+      } else {
+        fields = ((SnapshotOperator) operator).getOutputFields();
+      }
+
+      for (Field field : fields) {
+        if (!addReadFields(field, fieldNames)) {
+          return null;
+        }
+      }
+      return fieldNames;
+    } else if (operator instanceof FilterOperator) {
+      if (!addReadFields(((FilterOperator) operator).getCondition(), fieldNames)) {
+        return null;
+      }
+    } else if (operator instanceof PartitionOperator) {
+      if (!addReadFields(((PartitionOperator) operator).getGrouping(), fieldNames)) {
+        return null;
+      }
+    } else {
+      return null;
+    }
+
+    Set<String> liveFields = getLiveFields(graph, operator);
+    if (liveFields == null) {
+      return null;
+    }
+    fieldNames.addAll(liveFields);
+    return fieldNames;
+  }
+
+  private Set<String> getLiveFields(DefaultDirectedGraph<Operator, StreamEdge> graph,
+      Operator operator) {
+    if (graph.outDegreeOf(operator) == 0) {
+      return null;
+    }
+
+    Set<String> liveFields = Sets.newHashSet();
+    for (StreamEdge edge : graph.outgoingEdgesOf(operator)) {
+      if (edge instanceof GroupedStreamEdge
+          && !addReadFields(((GroupedStreamEdge) edge).getGroupFields(), liveFields)) {
+        return null;
+      }
+
+      Set<String> fieldNames = getReadFields(graph, graph.getEdgeTarget(edge));
+      if (fieldNames == null) {
+        return null;
+      }
+      liveFields.addAll(fieldNames);
+    }
+    return liveFields;
+  }
+
+  private Map<String, Map<String, List<String>>> pruneOutputFields(
+      DefaultDirectedGraph<Operator, StreamEdge> graph, List<Operator> operators,
+      Map<String, Map<String, List<String>>> outputFields) throws GungnirTopologyException {
+    TopologicalOrderIterator<Operator, StreamEdge> it =
+        new TopologicalOrderIterator<Operator, StreamEdge>(graph);
+    while (it.hasNext()) {
+      Operator operator = it.next();
+      if (!(operator instanceof PartitionOperator) || graph.inDegreeOf(operator) == 0) {
+        continue;
+      }
+
+      PartitionOperator partitionOperator = (PartitionOperator) operator;
+      Set<String> liveFields = getReadFields(graph, partitionOperator);
+      if (liveFields == null) {
+        continue;
+      }
+
+      Map<String, int[]> projection = Maps.newHashMap();
+      for (Map.Entry<String, List<String>> entry
+          : getInputFields(graph, partitionOperator, outputFields).entrySet()) {
+        List<String> fieldNames = entry.getValue();
+        int[] indexes = new int[fieldNames.size()];
+        int size = 0;
+        for (int i = 0; i < fieldNames.size(); i++) {
+          if (liveFields.contains(fieldNames.get(i))) {
+            indexes[size++] = i;
+          }
+        }
+        if (size < fieldNames.size()) {
+          projection.put(entry.getKey(), Arrays.copyOf(indexes, size));
+        }
+      }
+
+      if (!projection.isEmpty()) {
+        partitionOperator.setProjection(projection);
+        outputFields = getOutputFields(graph, operators);
+      }
+    }
+
+    return outputFields;
+  }
+
   private Map<String, GroupFields> getGroupFields(
       DefaultDirectedGraph<Operator, StreamEdge> graph, List<Operator> operators) {
     Map<String, GroupFields> groupFields = Maps.newLinkedHashMap();
@@ -550,9 +787,121 @@ public class GungnirTopology implements Serializable, Cloneable {
     }
   }
 
+  private boolean isMergeable(SnapshotOperator operator, GroupFields groupFields) {
+    if (operator.getExpire() != null || operator.getLength() != null
+        || operator.getInterval().getType() == IntervalType.COUNT
+        || groupFields.getParent() != null) {
+      return false;
+    }
+
+    Set<FieldAccessor> keyFields = Sets.newHashSet();
+    boolean aggregate = false;
+    for (Field field : operator.getFields()) {
+      if (field instanceof FieldAccessor) {
+        FieldAccessor f = (FieldAccessor) field;
+        if (f.isWildcardField() || f.getParentAccessor() != null || f.getTupleAccessor() != null
+            || f.getSubscripts() != null || !f.getFieldName().equals(f.getOriginalName())) {
+          return false;
+        }
+        keyFields.add(f);
+      } else if (field instanceof MergeableFunction<?> && field.getFieldName() != null) {
+        aggregate = true;
+      } else {
+        return false;
+      }
+    }
+
+    return aggregate && keyFields.equals(Sets.newHashSet(groupFields.getFields()));
+  }
+
+  private void splitAggregation(DefaultDirectedGraph<Operator, StreamEdge> graph) {
+    double hotKeyRatio = config.getDouble(AGGREGATE_HOT_KEY_RATIO);
+    int hotKeyCapacity = config.getInteger(AGGREGATE_HOT_KEY_CAPACITY);
+    int mergeDelaySecs = config.getInteger(AGGREGATE_MERGE_DELAY_SECS);
+
+    for (Operator operator : Lists.newArrayList(graph.vertexSet())) {
+      if (!(operator instanceof PartitionOperator) || graph.outDegreeOf(operator) != 1
+          || !(((PartitionOperator) operator).getGrouping() instanceof FieldsGrouping)) {
+        continue;
+      }
+
+      StreamEdge edge = graph.outgoingEdgesOf(operator).iterator().next();
+      Operator target = graph.getEdgeTarget(edge);
+      if (!(edge instanceof GroupedStreamEdge) || !(target instanceof SnapshotOperator)
+          || graph.inDegreeOf(target) != 1) {
+        continue;
+      }
+
+      GroupFields groupFields = ((GroupedStreamEdge) edge).getGroupFields();
+      FieldsGrouping grouping = (FieldsGrouping) ((PartitionOperator) operator).getGrouping();
+      SnapshotOperator snapshotOperator = (SnapshotOperator) target;
+      if (!groupFields.equals(grouping.getGroupFields())
+          || !isMergeable(snapshotOperator, groupFields)) {
+        continue;
+      }
+
+      Field[] fields = snapshotOperator.getFields();
+      Field[] partialFields = new Field[fields.length];
+      Field[] mergeFields = new Field[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        if (fields[i] instanceof FieldAccessor) {
+          partialFields[i] = fields[i];
+          mergeFields[i] = new FieldAccessor(fields[i].getFieldName());
+        } else {
+          String aliasName = fields[i].getFieldName();
+          MergeableFunction<?> function =
+              (MergeableFunction<?>) ((MergeableFunction<?>) fields[i]).clone();
+          function.as(null);
+          partialFields[i] = new PartialFunction(function).as(aliasName);
+          mergeFields[i] = new MergeFunction((MergeableFunction<?>) function.clone(),
+              new FieldAccessor(aliasName)).as(aliasName);
+        }
+      }
+
+      PartitionOperator partialPartition = new PartitionOperator(
+          new PartialKeyGrouping(groupFields, hotKeyRatio, hotKeyCapacity));
+      SnapshotOperator partialSnapshot =
+          new SnapshotOperator(snapshotOperator.getInterval(), partialFields, null);
+      partialSnapshot.setParallelism(snapshotOperator.getParallelism());
+      PartitionOperator mergePartition = new PartitionOperator(new FieldsGrouping(groupFields));
+      SnapshotOperator mergeSnapshot =
+          new SnapshotOperator(snapshotOperator.getInterval(), mergeFields, null);
+      mergeSnapshot.setParallelism(snapshotOperator.getParallelism());
+      // Close the partial and merge windows on the same boundaries, the merge side slightly
+      // later so that the partials of a window arrive before it closes
+      if (snapshotOperator.getInterval().getType() == IntervalType.TIME) {
+        partialSnapshot.setAlignOffsetSecs(0);
+        mergeSnapshot.setAlignOffsetSecs(mergeDelaySecs);
+      }
+
+      graph.addVertex(partialPartition);
+      graph.addVertex(partialSnapshot);
+      graph.addVertex(mergePartition);
+      graph.addVertex(mergeSnapshot);
+
+      for (StreamEdge incomingEdge : Lists.newArrayList(graph.incomingEdgesOf(operator))) {
+        graph.addEdge(graph.getEdgeSource(incomingEdge), partialPartition, incomingEdge.clone());
+      }
+      graph.addEdge(partialPartition, partialSnapshot, edge.clone());
+      graph.addEdge(partialSnapshot, mergePartition, new StreamEdge(edge.getSelector()));
+      graph.addEdge(mergePartition, mergeSnapshot, edge.clone());
+      for (StreamEdge outgoingEdge : Lists.newArrayList(
+          graph.outgoingEdgesOf(snapshotOperator))) {
+        graph.addEdge(mergeSnapshot, graph.getEdgeTarget(outgoingEdge), outgoingEdge.clone());
+      }
+
+      graph.removeVertex(operator);
+      graph.removeVertex(snapshotOperator);
+    }
+  }
+
   private List<Operator> phase1(DefaultDirectedGraph<Operator, StreamEdge> graph) {
     int defParallelism = config.getInteger(DEFAULT_PARALLELISM);
 
+    if (config.getBoolean(AGGREGATE_TWO_PHASE_ENABLED)) {
+      splitAggregation(graph);
+    }
+
     BreadthFirstIterator<Operator, StreamEdge> it =
         new BreadthFirstIterator<Operator, StreamEdge>(graph);
     List<Operator> operators = Lists.newArrayList(it);
@@ -618,7 +967,7 @@ public class GungnirTopology implements Serializable, Cloneable {
             if (target.getParallelism() == 1) {
               partitionOperator = new PartitionOperator(new GlobalGrouping());
             } else if (operator.getParallelism() == 1) {
-              partitionOperator = new PartitionOperator(new ShuffleGrouping());
+              partitionOperator = new PartitionOperator(new LocalOrShuffleGrouping());
             }
 
             if (partitionOperator != null) {
@@ -644,9 +993,21 @@ public class GungnirTopology implements Serializable, Cloneable {
     return operators;
   }
 
+  private void configureGrouping(Grouping grouping) {
+    if (grouping instanceof LocalOrShuffleGrouping) {
+      ((LocalOrShuffleGrouping) grouping).setLocalWeight(
+          config.getInteger(PARTITION_LOCAL_WEIGHT));
+    } else if (grouping instanceof SelectGrouping) {
+      for (Grouping g : ((SelectGrouping) grouping).getGroupings().values()) {
+        configureGrouping(g);
+      }
+    }
+  }
+
   private void phase2(DefaultDirectedGraph<Operator, StreamEdge> graph, List<Operator> operators) {
     for (Operator operator : operators) {
       if (operator instanceof PartitionOperator) {
+        configureGrouping(((PartitionOperator) operator).getGrouping());
         PartitionOperator partitionOperator = ((PartitionOperator) operator).clone();
         graph.addVertex(partitionOperator);
 
@@ -736,6 +1097,8 @@ public class GungnirTopology implements Serializable, Cloneable {
       boltDeclarers = Lists.newArrayList();
     }
 
+    boolean useFunctions = !getUsedFunctions().isEmpty();
+
     StringBuilder sb = new StringBuilder();
     sb.append("Components:\n");
 
@@ -761,6 +1124,10 @@ public class GungnirTopology implements Serializable, Cloneable {
             bolt = bolts.get(boltIndex);
           }
 
+          if (incomingOperator.getGrouping() instanceof PartialKeyGrouping) {
+            operator.registerMetrics(METRICS_PARTITION_LOAD, new CountMeter());
+          }
+
           sb.append(' ');
           sb.append(bolt.getName());
           sb.append(" {");
@@ -770,6 +1137,7 @@ public class GungnirTopology implements Serializable, Cloneable {
         BreadthFirstIterator<Operator, StreamEdge> it =
             new BreadthFirstIterator<Operator, StreamEdge>(graph, operator);
         int parallelism = 0;
+        boolean asyncJoin = false;
         Map<String, Metrics> metricsMap = Maps.newHashMap();
 
         while (it.hasNext()) {
@@ -789,6 +1157,14 @@ public class GungnirTopology implements Serializable, Cloneable {
             sb.append(dispatcher);
           }
 
+          if (operator2 instanceof ExecOperator) {
+            operator2.registerMetrics(METRICS_EXECUTE_TIME, new HistogramMeter());
+          }
+
+          if (operator2 instanceof JoinOperator && ((JoinOperator) operator2).isAsync(config)) {
+            asyncJoin = true;
+          }
+
           if (operator2.getParallelism() > parallelism) {
             parallelism = operator2.getParallelism();
           }
@@ -796,6 +1172,10 @@ public class GungnirTopology implements Serializable, Cloneable {
           collectMetrics(operator2, metricsMap);
         }
 
+        if (useFunctions) {
+          metricsMap.put(METRICS_UDF_CLASS_LOADER, new ClassLoaderMeter(id));
+        }
+
         sb.append("\n } parallelism=");
         sb.append(parallelism);
         sb.append('\n');
@@ -816,10 +1196,22 @@ public class GungnirTopology implements Serializable, Cloneable {
 
           if (!boltsIndex.containsKey(incomingOperator.getGrouping())) {
             if (!explain) {
-              boltDeclarers.add(builder.setBolt(bolt.getName(), bolt, parallelism));
+              BoltDeclarer boltDeclarer = builder.setBolt(bolt.getName(), bolt, parallelism);
+              int checkpointIntervalSecs = config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS);
+              if (checkpointIntervalSecs > 0) {
+                boltDeclarer.addConfiguration(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS,
+                    checkpointIntervalSecs);
+              }
+              boltDeclarers.add(boltDeclarer);
             }
             boltsIndex.put(incomingOperator.getGrouping(), boltIndex);
           }
+
+          // Asynchronous joins emit fetched tuples on ticks while the bolt receives nothing
+          if (asyncJoin && !explain) {
+            boltDeclarers.get(boltIndex).addConfiguration(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS,
+                ASYNC_JOIN_TICK_SECS);
+          }
         }
       }
     }
@@ -1023,6 +1415,7 @@ public class GungnirTopology implements Serializable, Cloneable {
       sb.append(explainStreamEdges(graphCopy, operators));
 
       Map<String, Map<String, List<String>>> outputFields = getOutputFields(graphCopy, operators);
+      outputFields = pruneOutputFields(graphCopy, operators, outputFields);
       sb.append('\n');
       sb.append(explainOutputFields(outputFields));
 
@@ -1063,6 +1456,7 @@ public class GungnirTopology implements Serializable, Cloneable {
     LOG.info(explainGraph(graphCopy, operators));
 
     Map<String, Map<String, List<String>>> outputFields = getOutputFields(graphCopy, operators);
+    outputFields = pruneOutputFields(graphCopy, operators, outputFields);
     LOG.info(explainOutputFields(outputFields));
 
     Map<String, GroupFields> groupFields = getGroupFields(graphCopy, operators);
@@ -18,6 +18,8 @@
 
 package org.gennai.gungnir.cluster;
 
+import java.util.Map;
+
 import org.gennai.gungnir.GungnirTopology;
 import org.gennai.gungnir.UserEntity;
 import org.gennai.gungnir.ql.session.SessionStore;
@@ -36,6 +38,16 @@ public interface ClusterManager {
 
   void sync(GungnirTopology topology) throws ClusterManagerException;
 
+  void watchMetadata(String accountId, MetadataChangedListener listener)
+      throws ClusterManagerException;
+
+  void notifyMetadataChanged(String accountId) throws ClusterManagerException;
+
+  Map<String, Map<String, Object>> getTopologyMetrics(String stormTopologyName)
+      throws ClusterManagerException;
+
+  void deleteTopologyMetrics(String stormTopologyName) throws ClusterManagerException;
+
   SessionStore getSessionStore() throws SessionStoreException;
 
   void close();
@@ -24,6 +24,7 @@ import static org.gennai.gungnir.GungnirConst.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.StringUtils;
@@ -32,11 +33,13 @@ import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.CuratorEventType;
 import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.retry.RetryNTimes;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher.Event.EventType;
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.GungnirManager;
@@ -55,6 +58,7 @@ import org.gennai.gungnir.tuple.schema.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -66,9 +70,13 @@ public class DistributedClusterManager implements ClusterManager {
   private MetaStore metaStore;
   private CuratorFramework curator;
   private String topologiesPath;
+  private String metadataPath;
+  private String metricsPath;
+  private ObjectMapper mapper = new ObjectMapper();
   private Set<String> curTopologyIds;
   private Map<String, PersistentDispatcher> dispatchersMap = Maps.newConcurrentMap();
   private Map<String, UserEntity> usersByName = Maps.newConcurrentMap();
+  private Map<String, MetadataWatcher> metadataWatchers = Maps.newConcurrentMap();
   private volatile SessionStore sessionStore;
   private ReentrantLock sessionStoreLock = new ReentrantLock();
 
@@ -93,12 +101,30 @@ public class DistributedClusterManager implements ClusterManager {
         @Override
         public void stateChanged(CuratorFramework client, ConnectionState newState) {
           LOG.info("Connection state changed. state: {}", newState);
+
+          // The watches survive a reconnection within the session, but not an expired session
+          if (newState == ConnectionState.LOST) {
+            for (MetadataWatcher watcher : metadataWatchers.values()) {
+              watcher.watching.set(false);
+            }
+          } else if (newState == ConnectionState.RECONNECTED) {
+            for (MetadataWatcher watcher : metadataWatchers.values()) {
+              watcher.listener.metadataChanged(watcher.accountId);
+              try {
+                watcher.watch();
+              } catch (Exception e) {
+                LOG.error("Failed to watch metadata. account: {}", watcher.accountId, e);
+              }
+            }
+          }
         }
       });
 
       curator.start();
 
       topologiesPath = config.getString(GUNGNIR_NODE_PATH) + TOPOLOGIES_NODE_PATH;
+      metadataPath = config.getString(GUNGNIR_NODE_PATH) + METADATA_NODE_PATH;
+      metricsPath = config.getString(GUNGNIR_NODE_PATH) + METRICS_NODE_PATH;
       if (curator.checkExists().forPath(topologiesPath) == null) {
         try {
           curator.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT)
@@ -314,6 +340,109 @@ public class DistributedClusterManager implements ClusterManager {
     }
   }
 
+  private class MetadataWatcher implements CuratorWatcher {
+
+    private String accountId;
+    private MetadataChangedListener listener;
+    private AtomicBoolean watching = new AtomicBoolean();
+
+    MetadataWatcher(String accountId, MetadataChangedListener listener) {
+      this.accountId = accountId;
+      this.listener = listener;
+    }
+
+    private void watch() throws Exception {
+      if (watching.compareAndSet(false, true)) {
+        try {
+          curator.checkExists().usingWatcher(this).forPath(metadataPath + "/" + accountId);
+        } catch (Exception e) {
+          watching.set(false);
+          throw e;
+        }
+      }
+    }
+
+    @Override
+    public void process(WatchedEvent event) throws Exception {
+      if (event.getType() == EventType.None) {
+        return;
+      }
+
+      watching.set(false);
+      if (metadataWatchers.get(accountId) == this) {
+        listener.metadataChanged(accountId);
+        watch();
+      }
+    }
+  }
+
+  @Override
+  public void watchMetadata(String accountId, MetadataChangedListener listener)
+      throws ClusterManagerException {
+    MetadataWatcher watcher = new MetadataWatcher(accountId, listener);
+    metadataWatchers.put(accountId, watcher);
+    try {
+      watcher.watch();
+    } catch (Exception e) {
+      metadataWatchers.remove(accountId);
+      throw new ClusterManagerException(e);
+    }
+  }
+
+  @Override
+  public void notifyMetadataChanged(String accountId) throws ClusterManagerException {
+    String path = metadataPath + "/" + accountId;
+    try {
+      try {
+        curator.setData().forPath(path);
+      } catch (KeeperException.NoNodeException e) {
+        try {
+          curator.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT)
+              .forPath(path);
+        } catch (KeeperException.NodeExistsException e2) {
+          curator.setData().forPath(path);
+        }
+      }
+    } catch (Exception e) {
+      throw new ClusterManagerException(e);
+    }
+  }
+
+  @Override
+  public Map<String, Map<String, Object>> getTopologyMetrics(String stormTopologyName)
+      throws ClusterManagerException {
+    Map<String, Map<String, Object>> metrics = Maps.newHashMap();
+    String path = metricsPath + "/" + stormTopologyName;
+    try {
+      for (String taskKey : curator.getChildren().forPath(path)) {
+        try {
+          byte[] data = curator.getData().forPath(path + "/" + taskKey);
+          @SuppressWarnings("unchecked")
+          Map<String, Object> taskMetrics = mapper.readValue(data, Map.class);
+          metrics.put(taskKey, taskMetrics);
+        } catch (KeeperException.NoNodeException ignore) {
+          ignore = null;
+        }
+      }
+    } catch (KeeperException.NoNodeException ignore) {
+      ignore = null;
+    } catch (Exception e) {
+      throw new ClusterManagerException(e);
+    }
+    return metrics;
+  }
+
+  // The task nodes are ephemeral, but their parent is persistent and would outlive the topology
+  @Override
+  public void deleteTopologyMetrics(String stormTopologyName) throws ClusterManagerException {
+    try {
+      curator.delete().deletingChildrenIfNeeded().forPath(metricsPath + "/" + stormTopologyName);
+    } catch (KeeperException.NoNodeException ignore) {
+      ignore = null;
+    } catch (Exception e) {
+      throw new ClusterManagerException(e);
+    }
+  }
 
   @Override
   public SessionStore getSessionStore() throws SessionStoreException {
@@ -25,6 +25,7 @@ import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.GungnirTopology;
 import org.gennai.gungnir.UserEntity;
 import org.gennai.gungnir.GungnirTopology.TopologyStatus;
+import org.gennai.gungnir.cluster.storm.OperatorMetricsConsumer;
 import org.gennai.gungnir.metastore.MetaStore;
 import org.gennai.gungnir.metastore.MetaStoreException;
 import org.gennai.gungnir.metastore.NotStoredException;
@@ -138,6 +139,30 @@ public class LocalClusterManager implements ClusterManager {
     }
   }
 
+  @Override
+  public void watchMetadata(String accountId, MetadataChangedListener listener)
+      throws ClusterManagerException {
+  }
+
+  @Override
+  public void notifyMetadataChanged(String accountId) throws ClusterManagerException {
+  }
+
+  @Override
+  public Map<String, Map<String, Object>> getTopologyMetrics(String stormTopologyName)
+      throws ClusterManagerException {
+    Map<String, Map<String, Object>> metrics =
+        OperatorMetricsConsumer.getLocalMetrics(stormTopologyName);
+    if (metrics == null) {
+      return Maps.newHashMap();
+    }
+    return Maps.newHashMap(metrics);
+  }
+
+  @Override
+  public void deleteTopologyMetrics(String stormTopologyName) throws ClusterManagerException {
+  }
+
   @Override
   public SessionStore getSessionStore() throws SessionStoreException {
     if (sessionStore == null) {
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.cluster.storm;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.gennai.gungnir.GungnirConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import backtype.storm.Config;
+import backtype.storm.metric.api.IMetricsConsumer;
+import backtype.storm.task.IErrorReporter;
+import backtype.storm.task.TopologyContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+
+public class OperatorMetricsConsumer implements IMetricsConsumer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OperatorMetricsConsumer.class);
+
+  private static final Map<String, Map<String, Map<String, Object>>> LOCAL_METRICS =
+      Maps.newConcurrentMap();
+
+  private transient String topologyName;
+  private transient CuratorFramework curator;
+  private transient String metricsPath;
+  private transient ObjectMapper mapper;
+
+  public static Map<String, Map<String, Object>> getLocalMetrics(String topologyName) {
+    return LOCAL_METRICS.get(topologyName);
+  }
+
+  @Override
+  public void prepare(@SuppressWarnings("rawtypes") Map stormConf, Object registrationArgument,
+      TopologyContext context, IErrorReporter errorReporter) {
+    @SuppressWarnings("unchecked")
+    GungnirConfig config =
+        GungnirConfig.wrap((Map<String, Object>) stormConf.get(GUNGNIR_CONFIG));
+    topologyName = (String) stormConf.get(Config.TOPOLOGY_NAME);
+
+    if (config.getString(CLUSTER_MODE).equals(LOCAL_CLUSTER)) {
+      Map<String, Map<String, Object>> metrics = Maps.newConcurrentMap();
+      LOCAL_METRICS.put(topologyName, metrics);
+    } else {
+      List<String> zkServers = config.getList(CLUSTER_ZOOKEEPER_SERVERS);
+      curator = CuratorFrameworkFactory.builder()
+          .connectString(StringUtils.join(zkServers, ","))
+          .sessionTimeoutMs(config.getInteger(CLUSTER_ZOOKEEPER_SESSION_TIMEOUT))
+          .connectionTimeoutMs(config.getInteger(CLUSTER_ZOOKEEPER_CONNECTION_TIMEOUT))
+          .retryPolicy(new RetryNTimes(config.getInteger(CLUSTER_ZOOKEEPER_RETRY_TIMES),
+              config.getInteger(CLUSTER_ZOOKEEPER_RETRY_INTERVAL))).build();
+      curator.start();
+      metricsPath = config.getString(GUNGNIR_NODE_PATH) + METRICS_NODE_PATH + "/" + topologyName;
+      mapper = new ObjectMapper();
+    }
+
+    LOG.info("Operator metrics consumer prepared({})", topologyName);
+  }
+
+  @Override
+  public void handleDataPoints(TaskInfo taskInfo, Collection<DataPoint> dataPoints) {
+    Map<String, Object> metrics = Maps.newLinkedHashMap();
+    for (DataPoint p : dataPoints) {
+      if (!p.name.startsWith("__")) {
+        metrics.put(p.name, p.value);
+      }
+    }
+    if (metrics.isEmpty()) {
+      return;
+    }
+
+    String taskKey = taskInfo.srcComponentId + ":" + taskInfo.srcTaskId;
+    if (curator == null) {
+      Map<String, Map<String, Object>> topologyMetrics = LOCAL_METRICS.get(topologyName);
+      if (topologyMetrics != null) {
+        topologyMetrics.put(taskKey, metrics);
+      }
+    } else {
+      // Ephemeral nodes go away with the consumer, so metrics of a killed topology don't linger
+      String path = metricsPath + "/" + taskKey;
+      try {
+        byte[] data = mapper.writeValueAsBytes(metrics);
+        try {
+          curator.setData().forPath(path, data);
+        } catch (KeeperException.NoNodeException e) {
+          try {
+            curator.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL)
+                .forPath(path, data);
+          } catch (KeeperException.NodeExistsException e2) {
+            curator.setData().forPath(path, data);
+          }
+        }
+      } catch (Exception e) {
+        LOG.warn("Failed to publish metrics {}", path, e);
+      }
+    }
+  }
+
+  @Override
+  public void cleanup() {
+    if (curator != null) {
+      curator.close();
+    } else {
+      LOCAL_METRICS.remove(topologyName);
+    }
+  }
+}
@@ -22,21 +22,35 @@ import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.storm.guava.collect.Lists;
+import org.apache.storm.guava.collect.Maps;
 import org.apache.thrift7.TException;
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.GungnirTopology;
+import org.gennai.gungnir.GungnirTopology.TopologyStatus;
 import org.gennai.gungnir.GungnirTopologyException;
+import org.gennai.gungnir.cluster.ClusterManagerException;
 import org.gennai.gungnir.tuple.serialization.SerializationRegistry;
 import org.gennai.gungnir.utils.GungnirUtils;
 import org.json.simple.JSONValue;
@@ -66,6 +80,9 @@ public final class StormClusterManager {
 
   private Config stormConf;
   private LocalCluster localCluster;
+  private Path coreJar;
+  private long coreJarModified;
+  private byte[] coreJarDigest;
 
   private class ClusterDriver {
 
@@ -234,6 +251,14 @@ public final class StormClusterManager {
       }
 
       if (cnt < times) {
+        if (topology.getStatus() == TopologyStatus.STOPPING) {
+          try {
+            GungnirManager.getManager().getClusterManager()
+                .deleteTopologyMetrics(getStormTopologyName(topology));
+          } catch (ClusterManagerException e) {
+            LOG.warn("Failed to delete topology metrics '{}'", topology.getId(), e);
+          }
+        }
         listener.process();
       } else {
         LOG.error("Topology status check timed out '{}'", topology.getId());
@@ -289,35 +314,147 @@ public final class StormClusterManager {
     }
   }
 
+  private static MessageDigest createDigest() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Failed to create digest", e);
+    }
+  }
+
+  private static void updateDigest(MessageDigest digest, Path file) throws IOException {
+    InputStream is = null;
+    try {
+      is = Files.newInputStream(file, StandardOpenOption.READ);
+      byte[] bytes = new byte[8192];
+      int sz;
+      while ((sz = is.read(bytes)) != -1) {
+        digest.update(bytes, 0, sz);
+      }
+    } finally {
+      if (is != null) {
+        is.close();
+      }
+    }
+  }
+
+  private synchronized byte[] getCoreJarDigest(Path srcJar) throws IOException {
+    long modified = Files.getLastModifiedTime(srcJar).toMillis();
+    if (coreJarDigest == null || !srcJar.equals(coreJar) || modified != coreJarModified) {
+      MessageDigest digest = createDigest();
+      updateDigest(digest, srcJar);
+      coreJarDigest = digest.digest();
+      coreJar = srcJar;
+      coreJarModified = modified;
+    }
+    return coreJarDigest;
+  }
+
+  private void evictSubmitJars(Path jarCacheDir, Path submitJar, int cacheSize) {
+    List<Path> jars = Lists.newArrayList();
+    try {
+      DirectoryStream<Path> ds = Files.newDirectoryStream(jarCacheDir,
+          "*" + GUNGNIR_CORE_JAR_SUFFIX);
+      try {
+        for (Path jar : ds) {
+          if (!jar.equals(submitJar)) {
+            jars.add(jar);
+          }
+        }
+      } finally {
+        ds.close();
+      }
+
+      if (jars.size() >= cacheSize) {
+        final Map<Path, Long> modifiedMap = Maps.newHashMap();
+        for (Path jar : jars) {
+          modifiedMap.put(jar, Files.getLastModifiedTime(jar).toMillis());
+        }
+        Collections.sort(jars, new Comparator<Path>() {
+
+          @Override
+          public int compare(Path p1, Path p2) {
+            return modifiedMap.get(p2).compareTo(modifiedMap.get(p1));
+          }
+        });
+
+        for (Path jar : jars.subList(Math.max(cacheSize - 1, 0), jars.size())) {
+          Files.deleteIfExists(jar);
+          LOG.info("Evicted submit jar {}", jar);
+        }
+      }
+    } catch (IOException e) {
+      LOG.error("Failed to evict submit jars", e);
+    }
+  }
+
+  private Path getSubmitJar(GungnirTopology topology, Path srcJar, List<Path> addPaths)
+      throws IOException {
+    Collections.sort(addPaths);
+
+    MessageDigest digest = createDigest();
+    digest.update(getCoreJarDigest(srcJar));
+    for (Path addPath : addPaths) {
+      digest.update(addPath.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+      updateDigest(digest, addPath);
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(String.format("%02x", b & 0xff));
+    }
+
+    Path jarCacheDir = Paths.get(topology.getConfig().getString(LOCAL_DIR), JAR_CACHE_DIR);
+    Path submitJar = jarCacheDir.resolve(GUNGNIR_CORE_JAR_PREFIX + GUNGNIR_VERSION_STRING + '-'
+        + sb.toString() + GUNGNIR_CORE_JAR_SUFFIX);
+
+    if (Files.exists(submitJar)) {
+      Files.setLastModifiedTime(submitJar, FileTime.fromMillis(System.currentTimeMillis()));
+      LOG.info("Reuse cached submit jar {}", submitJar);
+    } else {
+      Files.createDirectories(jarCacheDir);
+      Path tmpJar = Files.createTempFile(jarCacheDir, sb.toString(), ".tmp");
+      try {
+        GungnirUtils.createFatJar(srcJar, addPaths, tmpJar);
+        Files.move(tmpJar, submitJar, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmpJar);
+      }
+      LOG.info("Created submit jar {}", submitJar);
+
+      evictSubmitJars(jarCacheDir, submitJar,
+          topology.getConfig().getInteger(TOPOLOGY_JAR_CACHE_SIZE));
+    }
+    return submitJar;
+  }
+
   private void submitTopology(ClusterDriver driver, GungnirTopology topology,
       StormTopology stormTopology, Path classPath, TopologyStatusChangedListener listener) {
     try {
       Path submitJar = null;
-      Path srcJar = null;
       if (localCluster == null) {
-        srcJar = Paths.get(System.getProperty(GUNGNIR_HOME), GUNGNIR_CORE_JAR_PREFIX
+        Path srcJar = Paths.get(System.getProperty(GUNGNIR_HOME), GUNGNIR_CORE_JAR_PREFIX
             + GUNGNIR_VERSION_STRING + GUNGNIR_CORE_JAR_SUFFIX);
-        List<Path> addPaths = Lists.newArrayList(Files.newDirectoryStream(classPath));
+        List<Path> addPaths = Lists.newArrayList();
+        DirectoryStream<Path> ds = Files.newDirectoryStream(classPath);
+        try {
+          for (Path path : ds) {
+            addPaths.add(path);
+          }
+        } finally {
+          ds.close();
+        }
+
         if (addPaths.isEmpty()) {
           submitJar = srcJar;
         } else {
-          submitJar = Paths.get(topology.getConfig().getString(LOCAL_DIR), TOPOLOGY_CACHE_DIR,
-              topology.getId() + GUNGNIR_CORE_JAR_SUFFIX);
-          GungnirUtils.createFatJar(srcJar, addPaths, submitJar);
+          submitJar = getSubmitJar(topology, srcJar, addPaths);
         }
       }
 
       driver.submitTopology(getStormTopologyName(topology), stormTopology, submitJar);
 
-
-      if (localCluster == null && !submitJar.equals(srcJar)) {
-        try {
-          Files.deleteIfExists(submitJar);
-        } catch (IOException e) {
-          LOG.error("Failed delete to the submit jar");
-        }
-      }
-
       ExecutorService executor = Executors.newSingleThreadExecutor(
           GungnirUtils.createThreadFactory("ClusterManager"));
       executor.execute(new StatusChecker(driver, topology, listener));
@@ -390,6 +527,7 @@ public final class StormClusterManager {
     stormConfCopy.setNumWorkers(configCopy.getInteger(TOPOLOGY_WORKERS));
     stormConfCopy.put(GUNGNIR_CONFIG, configCopy);
     if (configCopy.getBoolean(TOPOLOGY_METRICS_ENABLED)) {
+      stormConfCopy.registerMetricsConsumer(OperatorMetricsConsumer.class, 1);
       try {
         stormConfCopy.registerMetricsConsumer(configCopy.getClass(TOPOLOGY_METRICS_CONSUMER),
             configCopy.getInteger(TOPOLOGY_METRICS_CONSUMER_PARALLELISM));
@@ -20,6 +20,7 @@ package org.gennai.gungnir.cluster.storm;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import backtype.storm.generated.ErrorInfo;
 import backtype.storm.generated.ExecutorSummary;
@@ -27,6 +28,8 @@ import backtype.storm.generated.GlobalStreamId;
 import backtype.storm.generated.TopologyInfo;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class TopologyStats {
 
@@ -382,11 +385,37 @@ public class TopologyStats {
     }
   }
 
+  public static final class OperatorStats {
+
+    private String id;
+    private Map<String, Object> metrics;
+    private Map<String, Map<String, Object>> taskMetrics;
+
+    private OperatorStats(String id) {
+      this.id = id;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public Map<String, Object> getMetrics() {
+      return metrics;
+    }
+
+    public Map<String, Map<String, Object>> getTaskMetrics() {
+      return taskMetrics;
+    }
+  }
+
+  private static final Set<String> MAX_MERGED_KEYS = Sets.newHashSet("p50", "p99", "max");
+
   private String name;
   private String status;
   private int uptimeSecs;
   private List<WindowStats> stats;
   private List<ComponentErrors> errors;
+  private List<OperatorStats> operatorStats;
 
   public String getName() {
     return name;
@@ -408,6 +437,10 @@ public class TopologyStats {
     return errors;
   }
 
+  public List<OperatorStats> getOperatorStats() {
+    return operatorStats;
+  }
+
   private WindowStats getWindowStats(String window) {
     if (stats == null) {
       stats = Lists.newArrayList();
@@ -424,6 +457,81 @@ public class TopologyStats {
     return ws;
   }
 
+  private OperatorStats getOperatorStats(String operatorId) {
+    if (operatorStats == null) {
+      operatorStats = Lists.newArrayList();
+    } else {
+      for (OperatorStats os : operatorStats) {
+        if (os.id.equals(operatorId)) {
+          return os;
+        }
+      }
+    }
+    OperatorStats os = new OperatorStats(operatorId);
+    os.metrics = Maps.newLinkedHashMap();
+    operatorStats.add(os);
+    return os;
+  }
+
+  // Counts and sizes of the tasks are summed up, latencies and ratios take the worst task.
+  @SuppressWarnings("unchecked")
+  private static Object merge(String key, Object value1, Object value2) {
+    if (value1 == null) {
+      return value2;
+    }
+    if (value1 instanceof Map && value2 instanceof Map) {
+      Map<String, Object> merged = Maps.newLinkedHashMap((Map<String, Object>) value1);
+      for (Map.Entry<String, Object> entry : ((Map<String, Object>) value2).entrySet()) {
+        merged.put(entry.getKey(), merge(entry.getKey(), merged.get(entry.getKey()),
+            entry.getValue()));
+      }
+      return merged;
+    }
+    if (value1 instanceof Number && value2 instanceof Number) {
+      Number n1 = (Number) value1;
+      Number n2 = (Number) value2;
+      if (value1 instanceof Double || value1 instanceof Float || value2 instanceof Double
+          || value2 instanceof Float) {
+        return Math.max(n1.doubleValue(), n2.doubleValue());
+      } else if (MAX_MERGED_KEYS.contains(key)) {
+        return Math.max(n1.longValue(), n2.longValue());
+      } else {
+        return n1.longValue() + n2.longValue();
+      }
+    }
+    return value2;
+  }
+
+  public void applyOperatorMetrics(Map<String, Map<String, Object>> metrics, boolean extended) {
+    for (Map.Entry<String, Map<String, Object>> entry : Maps.newTreeMap(metrics).entrySet()) {
+      for (Map.Entry<String, Object> entry2 : entry.getValue().entrySet()) {
+        String metricName = entry2.getKey();
+        String operatorId = entry.getKey().substring(0, entry.getKey().lastIndexOf(':'));
+        int index = metricName.lastIndexOf('(');
+        if (index > 0 && metricName.charAt(metricName.length() - 1) == ')') {
+          operatorId = metricName.substring(index + 1, metricName.length() - 1);
+          metricName = metricName.substring(0, index);
+        }
+
+        OperatorStats os = getOperatorStats(operatorId);
+        os.metrics.put(metricName, merge(metricName, os.metrics.get(metricName),
+            entry2.getValue()));
+
+        if (extended) {
+          if (os.taskMetrics == null) {
+            os.taskMetrics = Maps.newTreeMap();
+          }
+          Map<String, Object> taskMetrics = os.taskMetrics.get(entry.getKey());
+          if (taskMetrics == null) {
+            taskMetrics = Maps.newLinkedHashMap();
+            os.taskMetrics.put(entry.getKey(), taskMetrics);
+          }
+          taskMetrics.put(metricName, entry2.getValue());
+        }
+      }
+    }
+  }
+
   private void addError(String componentId, int errorTimeSecs, String host, int port,
       String error) {
     ComponentErrors ce = null;
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.metastore;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.cluster.ClusterManager;
+import org.gennai.gungnir.cluster.ClusterManagerException;
+import org.gennai.gungnir.cluster.MetadataChangedListener;
+import org.gennai.gungnir.ql.FunctionEntity;
+import org.gennai.gungnir.tuple.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class MetadataCache implements MetadataChangedListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+
+  private static final long UNCACHED = -1;
+
+  private static final class CacheEntry<T> {
+
+    private final long version;
+    private final List<T> values;
+
+    private CacheEntry(long version, List<T> values) {
+      this.version = version;
+      this.values = values;
+    }
+  }
+
+  private MetaStore metaStore;
+  private ClusterManager clusterManager;
+  private ConcurrentMap<String, AtomicLong> versionsMap = Maps.newConcurrentMap();
+  private ConcurrentMap<String, CacheEntry<Schema>> schemasMap = Maps.newConcurrentMap();
+  private ConcurrentMap<String, CacheEntry<FunctionEntity>> functionsMap =
+      Maps.newConcurrentMap();
+
+  public MetadataCache(MetaStore metaStore, ClusterManager clusterManager) {
+    this.metaStore = metaStore;
+    this.clusterManager = clusterManager;
+  }
+
+  private long getVersion(String accountId) {
+    AtomicLong version = versionsMap.get(accountId);
+    if (version == null) {
+      synchronized (this) {
+        version = versionsMap.get(accountId);
+        if (version == null) {
+          try {
+            clusterManager.watchMetadata(accountId, this);
+          } catch (ClusterManagerException e) {
+            LOG.error("Failed to watch metadata. account: {}", accountId, e);
+            return UNCACHED;
+          }
+          version = new AtomicLong();
+          versionsMap.put(accountId, version);
+        }
+      }
+    }
+    return version.get();
+  }
+
+  public List<Schema> findSchemas(UserEntity owner) throws MetaStoreException {
+    long version = getVersion(owner.getId());
+    CacheEntry<Schema> entry = schemasMap.get(owner.getId());
+    if (entry == null || entry.version != version) {
+      entry = new CacheEntry<Schema>(version, metaStore.findSchemas(owner));
+      if (version != UNCACHED) {
+        schemasMap.put(owner.getId(), entry);
+      }
+    }
+
+    List<Schema> schemas = Lists.newArrayListWithCapacity(entry.values.size());
+    for (Schema schema : entry.values) {
+      schemas.add(schema.clone());
+    }
+    return schemas;
+  }
+
+  public List<FunctionEntity> findFunctions(UserEntity owner) throws MetaStoreException {
+    long version = getVersion(owner.getId());
+    CacheEntry<FunctionEntity> entry = functionsMap.get(owner.getId());
+    if (entry == null || entry.version != version) {
+      entry = new CacheEntry<FunctionEntity>(version, metaStore.findFunctions(owner));
+      if (version != UNCACHED) {
+        functionsMap.put(owner.getId(), entry);
+      }
+    }
+
+    List<FunctionEntity> functions = Lists.newArrayListWithCapacity(entry.values.size());
+    for (FunctionEntity function : entry.values) {
+      functions.add(function.clone());
+    }
+    return functions;
+  }
+
+  @Override
+  public void metadataChanged(String accountId) {
+    AtomicLong version = versionsMap.get(accountId);
+    if (version != null) {
+      version.incrementAndGet();
+    }
+    schemasMap.remove(accountId);
+    functionsMap.remove(accountId);
+
+    LOG.debug("Metadata cache invalidated. account: {}", accountId);
+  }
+
+  public void invalidate(UserEntity owner) {
+    metadataChanged(owner.getId());
+    try {
+      clusterManager.notifyMetadataChanged(owner.getId());
+    } catch (ClusterManagerException e) {
+      LOG.error("Failed to notify metadata changed. account: {}", owner.getId(), e);
+    }
+  }
+}
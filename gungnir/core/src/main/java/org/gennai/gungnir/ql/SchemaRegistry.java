@@ -24,8 +24,8 @@ import java.util.Map;
 import org.apache.storm.guava.collect.Lists;
 import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.UserEntity;
-import org.gennai.gungnir.metastore.MetaStore;
 import org.gennai.gungnir.metastore.MetaStoreException;
+import org.gennai.gungnir.metastore.MetadataCache;
 import org.gennai.gungnir.tuple.schema.Schema;
 
 import com.google.common.collect.Maps;
@@ -33,7 +33,7 @@ import com.google.common.collect.Maps;
 public class SchemaRegistry implements Cloneable {
 
   private Map<String, Schema> schemasMap = Maps.newHashMap();
-  private MetaStore metaStore;
+  private MetadataCache metadataCache;
 
   public SchemaRegistry() {
   }
@@ -60,11 +60,11 @@ public class SchemaRegistry implements Cloneable {
   }
 
   public void load(UserEntity owner) throws MetaStoreException {
-    if (metaStore == null) {
-      metaStore = GungnirManager.getManager().getMetaStore();
+    if (metadataCache == null) {
+      metadataCache = GungnirManager.getManager().getMetadataCache();
     }
     schemasMap.clear();
-    registerAll(metaStore.findSchemas(owner));
+    registerAll(metadataCache.findSchemas(owner));
   }
 
   public boolean exists(String schemaName) {
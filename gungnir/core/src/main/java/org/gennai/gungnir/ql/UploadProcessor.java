@@ -24,17 +24,25 @@ import java.util.zip.CRC32;
 import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.metastore.AlreadyStoredException;
 import org.gennai.gungnir.metastore.MetaStore;
-import org.gennai.gungnir.metastore.MetaStore.ChunkIterator;
 import org.gennai.gungnir.metastore.MetaStoreException;
 import org.gennai.gungnir.metastore.NotStoredException;
 import org.gennai.gungnir.ql.session.StatementEntity;
 import org.gennai.gungnir.ql.task.TaskExecuteException;
+import org.gennai.gungnir.utils.GungnirUtils;
 
 public final class UploadProcessor {
 
   private UploadProcessor() {
   }
 
+  private static FileStat uploadingFile(StatementEntity statement) {
+    FileStat fileStat = new FileStat();
+    fileStat.setId(statement.getUploadingFileId());
+    fileStat.setName(statement.getUploadingFileName());
+    fileStat.setOwner(statement.getOwner());
+    return fileStat;
+  }
+
   public static void beginUpload(StatementEntity statement, String fileName)
       throws UploadProcessorException {
     try {
@@ -45,6 +53,9 @@ public final class UploadProcessor {
       metaStore.insertFile(fileStat);
 
       statement.setUploadingFileName(fileName);
+      statement.setUploadingFileId(fileStat.getId());
+      statement.setUploadingSize(0);
+      statement.setUploadingChecksum(0);
     } catch (MetaStoreException e) {
       throw new UploadProcessorException(e);
     } catch (AlreadyStoredException e) {
@@ -54,18 +65,25 @@ public final class UploadProcessor {
 
   public static void writeChunk(StatementEntity statement, ByteBuffer chunk)
       throws UploadProcessorException {
-    MetaStore metaStore = null;
-    FileStat fileStat = null;
     try {
-      metaStore = GungnirManager.getManager().getMetaStore();
-      fileStat = metaStore.findFile(statement.getUploadingFileName(), statement.getOwner());
-      byte[] bytes = new byte[chunk.remaining()];
-      chunk.get(bytes);
-      metaStore.insertChunk(fileStat, bytes);
+      MetaStore metaStore = GungnirManager.getManager().getMetaStore();
+      byte[] bytes = null;
+      if (chunk.hasArray() && chunk.arrayOffset() == 0 && chunk.position() == 0
+          && chunk.remaining() == chunk.array().length) {
+        bytes = chunk.array();
+      } else {
+        bytes = new byte[chunk.remaining()];
+        chunk.get(bytes);
+      }
+      metaStore.insertChunk(uploadingFile(statement), bytes);
+
+      CRC32 crc32 = new CRC32();
+      crc32.update(bytes);
+      statement.setUploadingChecksum(GungnirUtils.crc32Combine(statement.getUploadingChecksum(),
+          crc32.getValue(), bytes.length));
+      statement.setUploadingSize(statement.getUploadingSize() + bytes.length);
     } catch (MetaStoreException e) {
       throw new UploadProcessorException(e);
-    } catch (NotStoredException e) {
-      throw new UploadProcessorException(e);
     }
   }
 
@@ -73,29 +91,15 @@ public final class UploadProcessor {
       throws UploadProcessorException {
     try {
       MetaStore metaStore = GungnirManager.getManager().getMetaStore();
-      FileStat fileStat = metaStore.findFile(statement.getUploadingFileName(),
-          statement.getOwner());
-
-      int size = 0;
-      CRC32 crc32 = new CRC32();
-      ChunkIterator it = null;
-      try {
-        for (it = metaStore.findChunks(fileStat); it.hasNext();) {
-          byte[] bytes = it.next();
-          size += bytes.length;
-          crc32.update(bytes);
-        }
-      } finally {
-        it.close();
-      }
+      FileStat fileStat = uploadingFile(statement);
 
-      if (size != fileSize) {
+      if (statement.getUploadingSize() != fileSize) {
         metaStore.deleteChunks(fileStat);
         metaStore.deleteFile(fileStat);
         throw new UploadProcessorException(new TaskExecuteException("Incorrect size"));
       }
 
-      if (crc32.getValue() != checksum) {
+      if (statement.getUploadingChecksum() != checksum) {
         metaStore.deleteChunks(fileStat);
         metaStore.deleteFile(fileStat);
         throw new UploadProcessorException(new TaskExecuteException("Invalid checksum"));
@@ -106,6 +110,9 @@ public final class UploadProcessor {
       metaStore.changeFileStat(fileStat);
 
       statement.setUploadingFileName(null);
+      statement.setUploadingFileId(null);
+      statement.setUploadingSize(0);
+      statement.setUploadingChecksum(0);
     } catch (MetaStoreException e) {
       throw new UploadProcessorException(e);
     } catch (NotStoredException e) {
@@ -25,11 +25,13 @@ import java.util.Map;
 
 import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.UserEntity;
-import org.gennai.gungnir.metastore.MetaStore;
 import org.gennai.gungnir.metastore.MetaStoreException;
+import org.gennai.gungnir.metastore.MetadataCache;
 import org.gennai.gungnir.ql.FunctionEntity;
 import org.gennai.gungnir.ql.FunctionEntity.FunctionType;
 import org.gennai.gungnir.ql.FunctionEntity.ScriptType;
+import org.gennai.gungnir.topology.udf.ArgMax;
+import org.gennai.gungnir.topology.udf.ArgMin;
 import org.gennai.gungnir.topology.udf.ArgumentException;
 import org.gennai.gungnir.topology.udf.Average;
 import org.gennai.gungnir.topology.udf.BaseFunction.Description;
@@ -40,11 +42,15 @@ import org.gennai.gungnir.topology.udf.Concat;
 import org.gennai.gungnir.topology.udf.Cosine;
 import org.gennai.gungnir.topology.udf.Count;
 import org.gennai.gungnir.topology.udf.DateFormat;
+import org.gennai.gungnir.topology.udf.First;
 import org.gennai.gungnir.topology.udf.Distance;
 import org.gennai.gungnir.topology.udf.Function;
 import org.gennai.gungnir.topology.udf.Ifnull;
 import org.gennai.gungnir.topology.udf.InvokeAggregateFunction;
 import org.gennai.gungnir.topology.udf.InvokeFunction;
+import org.gennai.gungnir.topology.udf.Last;
+import org.gennai.gungnir.topology.udf.Max;
+import org.gennai.gungnir.topology.udf.Min;
 import org.gennai.gungnir.topology.udf.ParseUrl;
 import org.gennai.gungnir.topology.udf.RegexpExtract;
 import org.gennai.gungnir.topology.udf.ScriptAggregateFunction;
@@ -68,7 +74,7 @@ public class FunctionRegistry {
   private FileRegistry fileRegistry;
   private Map<String, Function<?>> bifsMap = Maps.newHashMap();
   private Map<String, Function<?>> udfsMap = Maps.newHashMap();
-  private MetaStore metaStore;
+  private MetadataCache metadataCache;
 
   public FunctionRegistry(FileRegistry fileRegistry) {
     this.fileRegistry = fileRegistry;
@@ -92,6 +98,12 @@ public class FunctionRegistry {
     register(Slice.class);
     register(CollectList.class);
     register(CollectSet.class);
+    register(Min.class);
+    register(Max.class);
+    register(First.class);
+    register(Last.class);
+    register(ArgMin.class);
+    register(ArgMax.class);
   }
 
   private void register(Class<? extends Function<?>> funcClass) {
@@ -115,10 +127,10 @@ public class FunctionRegistry {
     }
     String classPath = fileRegistry.getCacheDir();
 
-    if (metaStore == null) {
-      metaStore = GungnirManager.getManager().getMetaStore();
+    if (metadataCache == null) {
+      metadataCache = GungnirManager.getManager().getMetadataCache();
     }
-    List<FunctionEntity> functions = metaStore.findFunctions(owner);
+    List<FunctionEntity> functions = metadataCache.findFunctions(owner);
     for (FunctionEntity function : functions) {
       if (function.getLocation().endsWith(".class")) {
         if (function.getType() == FunctionType.UDF) {
@@ -50,6 +50,11 @@ tokens {
   TOK_DISTINCT;
   TOK_FILTER;
   TOK_FILTER_GROUP;
+  TOK_PATTERN;
+  TOK_PATTERN_ELEMENTS;
+  TOK_PATTERN_ELEMENT;
+  TOK_PATTERN_DEFINES;
+  TOK_PATTERN_DEFINE;
   TOK_SLIDE;
   TOK_SNAPSHOT;
   TOK_AGGREGATE_EXPRS;
@@ -406,6 +411,7 @@ operation
   | eachClause
   | filterClause
   | filterGroupClause
+  | patternClause
   | slideClause
   | snapshotClause
   | limitClause
@@ -551,6 +557,48 @@ conditions
       ^(TOK_CONDITIONS condition+)
   ;
 
+patternClause
+@init {
+msgs.push("pattern clause");
+}
+@after {
+msgs.pop();
+}
+  :
+  PATTERN LPAREN patternElements RPAREN WITHIN period (STATE TO fieldName)? DEFINE
+  patternDefines parallelism?
+    ->
+      ^(TOK_PATTERN patternElements period fieldName? patternDefines parallelism?)
+  ;
+
+patternElements
+  :
+  patternElement+
+    ->
+      ^(TOK_PATTERN_ELEMENTS patternElement+)
+  ;
+
+patternElement
+  :
+  NOT? identifier PLUS?
+    ->
+      ^(TOK_PATTERN_ELEMENT identifier NOT? PLUS?)
+  ;
+
+patternDefines
+  :
+  patternDefine (COMMA patternDefine)*
+    ->
+      ^(TOK_PATTERN_DEFINES patternDefine+)
+  ;
+
+patternDefine
+  :
+  identifier AS condition
+    ->
+      ^(TOK_PATTERN_DEFINE identifier condition)
+  ;
+
 slideClause
 @init {
 msgs.push("slide clause");
@@ -583,9 +631,10 @@ msgs.pop();
     | timeInterval
     | cronInterval
   )
-  aggregateExprs snapshotExpire? parallelism?
+  snapshotLength? aggregateExprs snapshotExpire? parallelism?
     ->
-      ^(TOK_SNAPSHOT countInterval? timeInterval? cronInterval? aggregateExprs snapshotExpire? parallelism?)
+      ^(TOK_SNAPSHOT countInterval? timeInterval? cronInterval? snapshotLength? aggregateExprs
+        snapshotExpire? parallelism?)
   ;
 
 aggregateExprs
@@ -605,6 +654,12 @@ aggregateExpr
       ^(TOK_AGGREGATE_EXPR field aliasFieldName?)
   ;
 
+snapshotLength
+  :
+  LENGTH timeInterval
+    -> timeInterval
+  ;
+
 snapshotExpire
   :
   EXPIRE
@@ -1539,6 +1594,9 @@ nonReserved
   | FILTER
   | EXPIRE
   | STATE
+  | PATTERN
+  | WITHIN
+  | DEFINE
   | SLIDE
   | LENGTH
   | SNAPSHOT
@@ -1662,6 +1720,21 @@ STATE
   'STATE'
   ;
 
+PATTERN
+  :
+  'PATTERN'
+  ;
+
+WITHIN
+  :
+  'WITHIN'
+  ;
+
+DEFINE
+  :
+  'DEFINE'
+  ;
+
 SLIDE
   :
   'SLIDE'
@@ -18,6 +18,11 @@
 
 package org.gennai.gungnir.ql.analysis;
 
+import static org.gennai.gungnir.GungnirConfig.*;
+
+import java.util.Map;
+
+import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.ql.analysis.processor.ArgmentConvertException;
 import org.gennai.gungnir.ql.analysis.processor.ArrayParameterConverter;
 import org.gennai.gungnir.ql.analysis.processor.ConditionParameterConverter;
@@ -62,6 +67,22 @@ public class ProcessorRegistry extends Registry {
     register("file_cache", FileTtlCacheProcessor.class);
 
     register("dummy_spout", DummySpoutProcessor.class);
+
+    Map<String, String> extensions =
+        GungnirManager.getManager().getConfig().getMap(PROCESSOR_EXTENSIONS);
+    if (extensions != null) {
+      for (Map.Entry<String, String> entry : extensions.entrySet()) {
+        try {
+          Class<?> registerClass = Class.forName(entry.getValue());
+          if (!Processor.class.isAssignableFrom(registerClass)) {
+            throw new RegisterException(entry.getValue() + " isn't a processor");
+          }
+          register(entry.getKey(), registerClass);
+        } catch (ClassNotFoundException e) {
+          throw new RegisterException(e);
+        }
+      }
+    }
   }
 
   public void registerProcessor(String name, Class<? extends Processor> registerClass)
@@ -62,6 +62,7 @@ import org.gennai.gungnir.ql.analysis.analyzer.JoinClauseAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.LimitClauseAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.MapAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.ParallelismAnalyzer;
+import org.gennai.gungnir.ql.analysis.analyzer.PatternClauseAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.PeriodAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.ProcessorAnalyzer;
 import org.gennai.gungnir.ql.analysis.analyzer.SimpleConditionAnalyzer;
@@ -296,6 +297,8 @@ public class SemanticAnalyzer {
         return new FilterClauseAnalyzer(this).analyze(node, stream);
       case TOK_FILTER_GROUP:
         return new FilterGroupClauseAnalyzer(this).analyze(node, stream);
+      case TOK_PATTERN:
+        return new PatternClauseAnalyzer(this).analyze(node, stream);
       case TOK_SLIDE:
         return new SlideClauseAnalyzer(this).analyze(node, stream);
       case TOK_SNAPSHOT:
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.ql.analysis.analyzer;
+
+import static org.gennai.gungnir.ql.analysis.GungnirLexer.*;
+
+import java.util.Map;
+
+import org.gennai.gungnir.GungnirTopologyException;
+import org.gennai.gungnir.Period;
+import org.gennai.gungnir.ql.analysis.ASTNode;
+import org.gennai.gungnir.ql.analysis.SemanticAnalyzeException;
+import org.gennai.gungnir.ql.analysis.SemanticAnalyzer;
+import org.gennai.gungnir.ql.stream.GroupedStream;
+import org.gennai.gungnir.ql.stream.SingleStream;
+import org.gennai.gungnir.ql.stream.Stream;
+import org.gennai.gungnir.topology.operator.pattern.PatternElement;
+import org.gennai.gungnir.tuple.Condition;
+import org.gennai.gungnir.tuple.FieldAccessor;
+
+import com.google.common.collect.Maps;
+
+public class PatternClauseAnalyzer {
+
+  private SemanticAnalyzer semanticAnalyzer;
+
+  public PatternClauseAnalyzer(SemanticAnalyzer semanticAnalyzer) {
+    this.semanticAnalyzer = semanticAnalyzer;
+  }
+
+  private Map<String, Condition> definesAnalyze(ASTNode node) throws SemanticAnalyzeException {
+    Map<String, Condition> defines = Maps.newHashMap();
+    for (int i = 0; i < node.getChildCount(); i++) {
+      String name = semanticAnalyzer.analyzeByAnalyzer(node.getChild(i).getChild(0));
+      if (defines.containsKey(name)) {
+        throw new SemanticAnalyzeException("Pattern variable '" + name + "' is already defined");
+      }
+      Condition condition = semanticAnalyzer.analyzeByAnalyzer(node.getChild(i).getChild(1));
+      defines.put(name, condition);
+    }
+    return defines;
+  }
+
+  private PatternElement[] elementsAnalyze(ASTNode node, Map<String, Condition> defines)
+      throws SemanticAnalyzeException {
+    PatternElement[] elements = new PatternElement[node.getChildCount()];
+    for (int i = 0; i < node.getChildCount(); i++) {
+      ASTNode elementNode = node.getChild(i);
+      String name = semanticAnalyzer.analyzeByAnalyzer(elementNode.getChild(0));
+      Condition condition = defines.get(name);
+      if (condition == null) {
+        throw new SemanticAnalyzeException("Pattern variable '" + name + "' isn't defined");
+      }
+
+      boolean negated = false;
+      boolean oneOrMore = false;
+      for (int j = 1; j < elementNode.getChildCount(); j++) {
+        if (elementNode.getChild(j).getType() == NOT) {
+          negated = true;
+        } else if (elementNode.getChild(j).getType() == PLUS) {
+          oneOrMore = true;
+        }
+      }
+      elements[i] = new PatternElement(name, condition, negated, oneOrMore);
+    }
+    return elements;
+  }
+
+  public Stream analyze(ASTNode node, Stream stream)
+      throws SemanticAnalyzeException, GungnirTopologyException {
+    Period within = semanticAnalyzer.analyzeByAnalyzer(node.getChild(1));
+
+    FieldAccessor stateField = null;
+    int index = 2;
+    if (node.getChild(index).getType() == Identifier) {
+      String fieldName = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index));
+      stateField = new FieldAccessor(fieldName);
+      index++;
+    }
+    Map<String, Condition> defines = definesAnalyze(node.getChild(index));
+    PatternElement[] elements = elementsAnalyze(node.getChild(0), defines);
+    Integer parallelism = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index + 1));
+
+    if (stream instanceof SingleStream) {
+      return ((SingleStream) stream).pattern(within, stateField, elements).parallelism(
+          parallelism);
+    } else {
+      return ((GroupedStream<?>) stream).pattern(within, stateField, elements)
+          .parallelism(parallelism);
+    }
+  }
+}
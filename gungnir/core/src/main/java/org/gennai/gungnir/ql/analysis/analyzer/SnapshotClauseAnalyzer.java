@@ -29,6 +29,9 @@ import org.gennai.gungnir.ql.stream.GroupedStream;
 import org.gennai.gungnir.ql.stream.Stream;
 import org.gennai.gungnir.ql.stream.SingleStream;
 import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
+import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval.IntervalType;
+import org.gennai.gungnir.topology.udf.AggregateFunction;
+import org.gennai.gungnir.topology.udf.MergeableFunction;
 import org.gennai.gungnir.tuple.Field;
 
 public class SnapshotClauseAnalyzer {
@@ -63,26 +66,59 @@ public class SnapshotClauseAnalyzer {
       throws SemanticAnalyzeException, GungnirTopologyException {
     SnapshotInterval interval = intervalAnalyze(node.getChild(0));
 
-    Field[] exprs = semanticAnalyzer.analyzeByAnalyzer(node.getChild(1));
+    int index = 1;
+    Period length = null;
+    if (node.getChild(index).getType() == TOK_TIME_INTERVAL) {
+      length = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index));
+      index++;
+    }
+
+    Field[] exprs = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index));
+    index++;
 
     SnapshotInterval expire = null;
     Integer parallelism = null;
-    if (node.getChild(2) != null) {
-      if (node.getChild(2).getType() == TOK_COUNT_INTERVAL
-          || node.getChild(2).getType() == TOK_TIME_INTERVAL
-          || node.getChild(2).getType() == TOK_CRON_INTERVAL) {
-        expire = intervalAnalyze(node.getChild(2));
+    if (node.getChild(index) != null) {
+      if (node.getChild(index).getType() == TOK_COUNT_INTERVAL
+          || node.getChild(index).getType() == TOK_TIME_INTERVAL
+          || node.getChild(index).getType() == TOK_CRON_INTERVAL) {
+        expire = intervalAnalyze(node.getChild(index));
 
-        parallelism = semanticAnalyzer.analyzeByAnalyzer(node.getChild(3));
+        parallelism = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index + 1));
       } else {
-        parallelism = semanticAnalyzer.analyzeByAnalyzer(node.getChild(2));
+        parallelism = semanticAnalyzer.analyzeByAnalyzer(node.getChild(index));
+      }
+    }
+
+    if (length != null) {
+      if (interval.getType() != IntervalType.TIME) {
+        throw new SemanticAnalyzeException("Snapshot length requires time interval '"
+            + interval + "'");
+      }
+      if (expire != null) {
+        throw new SemanticAnalyzeException("Snapshot length can't be used with expire '"
+            + expire + "'");
+      }
+      long intervalSecs = interval.getPeriod().toSeconds();
+      if (intervalSecs <= 0 || length.toSeconds() < intervalSecs
+          || length.toSeconds() % intervalSecs != 0) {
+        throw new SemanticAnalyzeException("Snapshot length isn't a multiple of interval '"
+            + length + "'");
+      }
+      for (Field expr : exprs) {
+        if (expr instanceof AggregateFunction<?> && !(expr instanceof MergeableFunction<?>)) {
+          throw new SemanticAnalyzeException("Snapshot length requires mergeable function '"
+              + expr + "'");
+        }
       }
     }
 
     if (stream instanceof SingleStream) {
-      return ((SingleStream) stream).snapshot(interval, expire, exprs).parallelism(parallelism);
+      return ((SingleStream) stream).snapshot(interval, length, expire, exprs)
+          .parallelism(parallelism);
     } else {
-      return ((GroupedStream<?>) stream).snapshot(interval, expire, exprs).parallelism(parallelism);
+      return ((GroupedStream<?>) stream).snapshot(interval, length, expire, exprs)
+          .parallelism(parallelism);
     }
   }
 }
@@ -46,6 +46,9 @@ public class StatementEntity implements Serializable {
   private Set<String> streamTuples;
   private Map<String, String> aliasNamesMap;
   private String uploadingFileName;
+  private String uploadingFileId;
+  private long uploadingSize;
+  private long uploadingChecksum;
 
   public StatementEntity(String statementId, String sessionId, UserEntity owner) {
     this.statementId = statementId;
@@ -123,11 +126,38 @@ public class StatementEntity implements Serializable {
     return uploadingFileName;
   }
 
+  public void setUploadingFileId(String uploadingFileId) {
+    this.uploadingFileId = uploadingFileId;
+  }
+
+  public String getUploadingFileId() {
+    return uploadingFileId;
+  }
+
+  public void setUploadingSize(long uploadingSize) {
+    this.uploadingSize = uploadingSize;
+  }
+
+  public long getUploadingSize() {
+    return uploadingSize;
+  }
+
+  public void setUploadingChecksum(long uploadingChecksum) {
+    this.uploadingChecksum = uploadingChecksum;
+  }
+
+  public long getUploadingChecksum() {
+    return uploadingChecksum;
+  }
+
   public void clear() {
     topology = null;
     streamsMap = null;
     streamTuples = null;
     aliasNamesMap = null;
     uploadingFileName = null;
+    uploadingFileId = null;
+    uploadingSize = 0;
+    uploadingChecksum = 0;
   }
 }
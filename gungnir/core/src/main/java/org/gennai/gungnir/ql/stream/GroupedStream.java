@@ -32,10 +32,13 @@ import org.gennai.gungnir.topology.operator.FilterOperator;
 import org.gennai.gungnir.topology.operator.LimitOperator;
 import org.gennai.gungnir.topology.operator.LimitOperator.LimitType;
 import org.gennai.gungnir.topology.operator.Operator;
+import org.gennai.gungnir.topology.operator.PatternOperator;
 import org.gennai.gungnir.topology.operator.RenameOperator;
 import org.gennai.gungnir.topology.operator.SlideOperator;
 import org.gennai.gungnir.topology.operator.SnapshotOperator;
 import org.gennai.gungnir.topology.operator.limit.LimitInterval;
+import org.gennai.gungnir.topology.operator.pattern.PatternElement;
+import org.gennai.gungnir.topology.operator.pattern.SequencePattern;
 import org.gennai.gungnir.topology.operator.slide.SlideLength;
 import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
 import org.gennai.gungnir.topology.processor.EmitProcessor;
@@ -119,6 +122,11 @@ public class GroupedStream<T extends Stream> extends BaseStream {
     return addOperator(new FilterGroupOperator(expire, stateField, conditions));
   }
 
+  public GroupedStream<T> pattern(Period within, FieldAccessor stateField,
+      PatternElement... elements) throws GungnirTopologyException {
+    return addOperator(new PatternOperator(within, stateField, new SequencePattern(elements)));
+  }
+
   public GroupedStream<T> slide(SlideLength slideLength, Field... fields)
       throws GungnirTopologyException {
     return addOperator(new SlideOperator(slideLength, fields));
@@ -134,6 +142,11 @@ public class GroupedStream<T extends Stream> extends BaseStream {
     return addOperator(new SnapshotOperator(interval, fields, expire));
   }
 
+  public GroupedStream<T> snapshot(SnapshotInterval interval, Period length,
+      SnapshotInterval expire, Field... fields) throws GungnirTopologyException {
+    return addOperator(new SnapshotOperator(interval, length, fields, expire));
+  }
+
   public GroupedStream<T> limit(LimitType type, LimitInterval interval)
       throws GungnirTopologyException {
     return addOperator(new LimitOperator(type, interval));
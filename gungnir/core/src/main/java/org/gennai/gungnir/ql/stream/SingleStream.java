@@ -27,7 +27,7 @@ import org.gennai.gungnir.ql.stream.TupleJoinStreamBuilder.JoinToTupleDeclarer;
 import org.gennai.gungnir.topology.GroupFields;
 import org.gennai.gungnir.topology.grouping.FieldsGrouping;
 import org.gennai.gungnir.topology.grouping.Grouping;
-import org.gennai.gungnir.topology.grouping.ShuffleGrouping;
+import org.gennai.gungnir.topology.grouping.LocalOrShuffleGrouping;
 import org.gennai.gungnir.topology.operator.EachOperator;
 import org.gennai.gungnir.topology.operator.EmitOperator;
 import org.gennai.gungnir.topology.operator.FilterGroupOperator;
@@ -37,10 +37,13 @@ import org.gennai.gungnir.topology.operator.LimitOperator;
 import org.gennai.gungnir.topology.operator.LimitOperator.LimitType;
 import org.gennai.gungnir.topology.operator.Operator;
 import org.gennai.gungnir.topology.operator.PartitionOperator;
+import org.gennai.gungnir.topology.operator.PatternOperator;
 import org.gennai.gungnir.topology.operator.RenameOperator;
 import org.gennai.gungnir.topology.operator.SlideOperator;
 import org.gennai.gungnir.topology.operator.SnapshotOperator;
 import org.gennai.gungnir.topology.operator.limit.LimitInterval;
+import org.gennai.gungnir.topology.operator.pattern.PatternElement;
+import org.gennai.gungnir.topology.operator.pattern.SequencePattern;
 import org.gennai.gungnir.topology.operator.slide.SlideLength;
 import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
 import org.gennai.gungnir.topology.processor.EmitProcessor;
@@ -89,7 +92,7 @@ public class SingleStream extends BaseStream {
     if (groupFields != null) {
       grouping = new FieldsGrouping(groupFields);
     } else {
-      grouping = new ShuffleGrouping();
+      grouping = new LocalOrShuffleGrouping();
     }
     return addOperator(new PartitionOperator(grouping))
         .addOperator(new JoinOperator(processor, toFieldNames));
@@ -125,6 +128,11 @@ public class SingleStream extends BaseStream {
     return addOperator(new FilterGroupOperator(expire, stateField, conditions));
   }
 
+  public SingleStream pattern(Period within, FieldAccessor stateField, PatternElement... elements)
+      throws GungnirTopologyException {
+    return addOperator(new PatternOperator(within, stateField, new SequencePattern(elements)));
+  }
+
   public SingleStream emit(EmitProcessor processor, FieldAccessor... outputFields)
       throws GungnirTopologyException {
     if (outputFields == null || outputFields.length == 0) {
@@ -148,6 +156,11 @@ public class SingleStream extends BaseStream {
     return addOperator(new SnapshotOperator(interval, fields, expire));
   }
 
+  public SingleStream snapshot(SnapshotInterval interval, Period length, SnapshotInterval expire,
+      Field... fields) throws GungnirTopologyException {
+    return addOperator(new SnapshotOperator(interval, length, fields, expire));
+  }
+
   public SingleStream limit(LimitType type, LimitInterval interval)
       throws GungnirTopologyException {
     return addOperator(new LimitOperator(type, interval));
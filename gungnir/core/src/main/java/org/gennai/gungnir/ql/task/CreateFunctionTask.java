@@ -41,7 +41,9 @@ public class CreateFunctionTask implements Task {
   public String execute() throws TaskExecuteException {
     try {
       function.validate(fileRegistry);
-      GungnirManager.getManager().getMetaStore().insertFunction(function);
+      GungnirManager manager = GungnirManager.getManager();
+      manager.getMetaStore().insertFunction(function);
+      manager.getMetadataCache().invalidate(function.getOwner());
     } catch (IOException e) {
       throw new TaskExecuteException(e);
     } catch (MetaStoreException e) {
@@ -36,7 +36,9 @@ public class CreateSchemaTask implements Task {
   public String execute() throws TaskExecuteException {
     try {
       schema.validate();
-      GungnirManager.getManager().getMetaStore().insertSchema(schema);
+      GungnirManager manager = GungnirManager.getManager();
+      manager.getMetaStore().insertSchema(schema);
+      manager.getMetadataCache().invalidate(schema.getOwner());
     } catch (MetaStoreException e) {
       throw new TaskExecuteException(e);
     } catch (AlreadyStoredException e) {
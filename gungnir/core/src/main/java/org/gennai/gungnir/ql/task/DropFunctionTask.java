@@ -48,6 +48,8 @@ public class DropFunctionTask implements Task {
       if (!metaStore.deleteFunction(function)) {
         throw new TaskExecuteException(functionName + " has been locked");
       }
+
+      GungnirManager.getManager().getMetadataCache().invalidate(owner);
     } catch (MetaStoreException e) {
       throw new TaskExecuteException(e);
     } catch (NotStoredException e) {
@@ -48,6 +48,8 @@ public class DropSchemaTask implements Task {
       if (!metaStore.deleteSchema(schema)) {
         throw new TaskExecuteException(schemaName + " has been used");
       }
+
+      GungnirManager.getManager().getMetadataCache().invalidate(owner);
     } catch (MetaStoreException e) {
       throw new TaskExecuteException(e);
     } catch (NotStoredException e) {
@@ -82,6 +82,8 @@ public class DropTopologyTask implements Task {
         }
       }
 
+      GungnirManager.getManager().getMetadataCache().invalidate(owner);
+
       try {
         GungnirUtils.deleteDirectory(Paths.get(topology.getConfig().getString(LOCAL_DIR),
             TOPOLOGY_CACHE_DIR, topology.getId()));
@@ -18,11 +18,16 @@
 
 package org.gennai.gungnir.ql.task;
 
+import static org.gennai.gungnir.GungnirConfig.*;
+
+import java.util.Map;
+
 import org.apache.thrift7.TException;
 import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.GungnirTopology;
 import org.gennai.gungnir.GungnirTopology.TopologyStatus;
 import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.cluster.ClusterManagerException;
 import org.gennai.gungnir.cluster.storm.StormClusterManager;
 import org.gennai.gungnir.cluster.storm.TopologyStats;
 import org.gennai.gungnir.metastore.MetaStore;
@@ -94,8 +99,21 @@ public class StatsTopologyTask implements Task {
       throw new TaskExecuteException(topologyName + " isn't alive");
     }
 
+    Map<String, Map<String, Object>> operatorMetrics = null;
+    if (topology.getConfig().getBoolean(TOPOLOGY_METRICS_ENABLED)) {
+      try {
+        operatorMetrics = GungnirManager.getManager().getClusterManager()
+            .getTopologyMetrics(StormClusterManager.getStormTopologyName(topology));
+      } catch (ClusterManagerException e) {
+        LOG.warn("Failed to get operator metrics '{}'", topology.getId(), e);
+      }
+    }
+
     try {
       TopologyStats topologyStats = TopologyStats.apply(topologyInfo, extended);
+      if (operatorMetrics != null) {
+        topologyStats.applyOperatorMetrics(operatorMetrics, extended);
+      }
       return mapper.writeValueAsString(topologyStats);
     } catch (Exception e) {
       LOG.error("Failed to convert json format", e);
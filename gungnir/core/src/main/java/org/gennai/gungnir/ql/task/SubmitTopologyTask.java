@@ -95,6 +95,7 @@ public class SubmitTopologyTask implements Task {
     for (int i = 0; i < schemaCnt; i++) {
       metaStore.changeSchemaToFree(schemas.get(i), topology.getId());
     }
+    manager.getMetadataCache().invalidate(topology.getOwner());
 
     try {
       metaStore.deleteTopology(topology);
@@ -184,6 +185,7 @@ public class SubmitTopologyTask implements Task {
           }
         }
       }
+      manager.getMetadataCache().invalidate(topology.getOwner());
 
       Path classPath = Paths.get(topology.getConfig().getString(LOCAL_DIR), TOPOLOGY_CACHE_DIR,
           topology.getId());
@@ -0,0 +1,320 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology;
+
+import static org.gennai.gungnir.topology.ArithmeticCalculator.*;
+
+import org.gennai.gungnir.topology.ArithNode.Operator;
+import org.gennai.gungnir.topology.udf.Cast;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.schema.FieldType;
+
+abstract class ArithExpression {
+
+  private static final ArithmeticException NOT_A_NUMBER =
+      new ArithmeticException("Result isn't a finite number");
+  private static final TypeMismatchException TYPE_MISMATCH = new TypeMismatchException();
+
+  private int type;
+
+  ArithExpression(int type) {
+    this.type = type;
+  }
+
+  int getType() {
+    return type;
+  }
+
+  boolean isConstant() {
+    return false;
+  }
+
+  abstract Number evaluate(GungnirTuple tuple);
+
+  Number evaluateGeneric(GungnirTuple tuple) {
+    return evaluate(tuple);
+  }
+
+  Number getValue(GungnirTuple tuple) {
+    try {
+      try {
+        return evaluate(tuple);
+      } catch (TypeMismatchException e) {
+        return evaluateGeneric(tuple);
+      }
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  long longValue(GungnirTuple tuple) {
+    return evaluate(tuple).longValue();
+  }
+
+  double doubleValue(GungnirTuple tuple) {
+    return evaluate(tuple).doubleValue();
+  }
+
+  private static final class TypeMismatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    TypeMismatchException() {
+      super("Field value doesn't match the cast type", null, false, false);
+    }
+  }
+
+  private static final class ConstantExpression extends ArithExpression {
+
+    private Number value;
+    private long longValue;
+    private double doubleValue;
+
+    ConstantExpression(Number value) {
+      super(numericType(value));
+      this.value = value;
+      this.longValue = value.longValue();
+      this.doubleValue = value.doubleValue();
+    }
+
+    @Override
+    boolean isConstant() {
+      return true;
+    }
+
+    @Override
+    Number evaluate(GungnirTuple tuple) {
+      return value;
+    }
+
+    @Override
+    long longValue(GungnirTuple tuple) {
+      return longValue;
+    }
+
+    @Override
+    double doubleValue(GungnirTuple tuple) {
+      return doubleValue;
+    }
+  }
+
+  private static final class InvalidExpression extends ArithExpression {
+
+    InvalidExpression() {
+      super(UNKNOWN_TYPE);
+    }
+
+    @Override
+    Number evaluate(GungnirTuple tuple) {
+      throw NOT_A_NUMBER;
+    }
+  }
+
+  private static final class FieldExpression extends ArithExpression {
+
+    private FieldArithNode node;
+
+    FieldExpression(FieldArithNode node, int type) {
+      super(type);
+      this.node = node;
+    }
+
+    @Override
+    Number evaluate(GungnirTuple tuple) {
+      return node.getValue(tuple);
+    }
+
+    private Number typedValue(GungnirTuple tuple) {
+      Number value = node.getValue(tuple);
+      if (getType() != UNKNOWN_TYPE && numericType(value) != getType()) {
+        // A failed cast yields 0 (INT), which changes the result type
+        throw TYPE_MISMATCH;
+      }
+      return value;
+    }
+
+    @Override
+    long longValue(GungnirTuple tuple) {
+      return typedValue(tuple).longValue();
+    }
+
+    @Override
+    double doubleValue(GungnirTuple tuple) {
+      return typedValue(tuple).doubleValue();
+    }
+  }
+
+  private static final class BinaryExpression extends ArithExpression {
+
+    private Operator operator;
+    private ArithExpression left;
+    private ArithExpression right;
+    private boolean floating;
+
+    BinaryExpression(Operator operator, ArithExpression left, ArithExpression right, int type) {
+      super(type);
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+      this.floating = left.getType() >= FLOAT_TYPE || right.getType() >= FLOAT_TYPE;
+    }
+
+    private Number computeFinite(Number v1, Number v2) {
+      Number res = compute(operator, v1, v2);
+      if (res instanceof Double && (((Double) res).isInfinite() || ((Double) res).isNaN())) {
+        throw NOT_A_NUMBER;
+      }
+      return res;
+    }
+
+    @Override
+    Number evaluateGeneric(GungnirTuple tuple) {
+      return computeFinite(left.evaluateGeneric(tuple), right.evaluateGeneric(tuple));
+    }
+
+    @Override
+    Number evaluate(GungnirTuple tuple) {
+      switch (getType()) {
+        case UNKNOWN_TYPE:
+          return computeFinite(left.evaluate(tuple), right.evaluate(tuple));
+        case INT_TYPE:
+          return (int) longValue(tuple);
+        case BIGINT_TYPE:
+          return longValue(tuple);
+        default:
+          return doubleValue(tuple);
+      }
+    }
+
+    @Override
+    long longValue(GungnirTuple tuple) {
+      if (getType() == UNKNOWN_TYPE) {
+        return evaluate(tuple).longValue();
+      }
+      if (getType() == DOUBLE_TYPE) {
+        return (long) doubleValue(tuple);
+      }
+      if (floating) {
+        return (long) (left.doubleValue(tuple) / right.doubleValue(tuple));
+      }
+
+      long v1 = left.longValue(tuple);
+      long v2 = right.longValue(tuple);
+      switch (operator) {
+        case ADDITION:
+          return v1 + v2;
+        case SUBTRACTION:
+          return v1 - v2;
+        case MULTIPLICATION:
+          return v1 * v2;
+        case MODULO:
+          return v1 % v2;
+        default:
+          return v1 / v2;
+      }
+    }
+
+    @Override
+    double doubleValue(GungnirTuple tuple) {
+      if (getType() == UNKNOWN_TYPE) {
+        return evaluate(tuple).doubleValue();
+      }
+      if (getType() != DOUBLE_TYPE) {
+        return longValue(tuple);
+      }
+
+      double v1 = left.doubleValue(tuple);
+      double v2 = right.doubleValue(tuple);
+      double res;
+      switch (operator) {
+        case ADDITION:
+          res = v1 + v2;
+          break;
+        case SUBTRACTION:
+          res = v1 - v2;
+          break;
+        case MULTIPLICATION:
+          res = v1 * v2;
+          break;
+        case MODULO:
+          res = v1 % v2;
+          break;
+        default:
+          res = v1 / v2;
+      }
+      if (Double.isInfinite(res) || Double.isNaN(res)) {
+        throw NOT_A_NUMBER;
+      }
+      return res;
+    }
+  }
+
+  private static int fieldType(Field field) {
+    if (field instanceof Cast) {
+      FieldType castType = ((Cast) field).getCastType();
+      if (castType != null) {
+        return numericType(castType.getJavaType());
+      }
+    }
+    return UNKNOWN_TYPE;
+  }
+
+  static ArithExpression compile(ArithNode node) {
+    if (node instanceof NumberArithNode) {
+      return new ConstantExpression(((NumberArithNode) node).getValue(null));
+    } else if (node instanceof FieldArithNode) {
+      FieldArithNode fieldNode = (FieldArithNode) node;
+      return new FieldExpression(fieldNode, fieldType(fieldNode.getField()));
+    }
+
+    InternalArithNode internalNode = (InternalArithNode) node;
+    ArithExpression left = internalNode.getLeftNode() instanceof InternalArithNode
+        ? ((InternalArithNode) internalNode.getLeftNode()).getExpression()
+        : compile(internalNode.getLeftNode());
+    ArithExpression right = internalNode.getRightNode() instanceof InternalArithNode
+        ? ((InternalArithNode) internalNode.getRightNode()).getExpression()
+        : compile(internalNode.getRightNode());
+    Operator operator = internalNode.getOperatior();
+
+    if (left instanceof InvalidExpression || right instanceof InvalidExpression) {
+      return new InvalidExpression();
+    }
+
+    if (left.isConstant() && right.isConstant()) {
+      try {
+        Number res = compute(operator, left.evaluate(null), right.evaluate(null));
+        if (res instanceof Double && (((Double) res).isInfinite() || ((Double) res).isNaN())) {
+          return new InvalidExpression();
+        }
+        return new ConstantExpression(res);
+      } catch (ArithmeticException e) {
+        return new InvalidExpression();
+      } catch (IllegalArgumentException e) {
+        return new BinaryExpression(operator, left, right, UNKNOWN_TYPE);
+      }
+    }
+
+    int type = UNKNOWN_TYPE;
+    if (left.getType() != UNKNOWN_TYPE && right.getType() != UNKNOWN_TYPE) {
+      type = resultType(operator, Math.max(left.getType(), right.getType()));
+    }
+    return new BinaryExpression(operator, left, right, type);
+  }
+}
@@ -18,36 +18,74 @@
 
 package org.gennai.gungnir.topology;
 
-import java.util.Map;
+import java.lang.reflect.Type;
 
 import org.gennai.gungnir.topology.ArithNode.Operator;
 import org.gennai.gungnir.tuple.GungnirTuple;
 
-import com.google.common.collect.Maps;
-
 public final class ArithmeticCalculator {
 
-  private static final Map<Class<? extends Number>, Integer> NUMERIC_TYPES_MAP = Maps.newHashMap();
+  static final int UNKNOWN_TYPE = 0;
+  static final int TINYINT_TYPE = 1;
+  static final int SMALLINT_TYPE = 2;
+  static final int INT_TYPE = 3;
+  static final int BIGINT_TYPE = 4;
+  static final int FLOAT_TYPE = 5;
+  static final int DOUBLE_TYPE = 6;
 
-  static {
-    NUMERIC_TYPES_MAP.put(Byte.class, 1);
-    NUMERIC_TYPES_MAP.put(Short.class, 2);
-    NUMERIC_TYPES_MAP.put(Integer.class, 3);
-    NUMERIC_TYPES_MAP.put(Long.class, 4);
-    NUMERIC_TYPES_MAP.put(Float.class, 5);
-    NUMERIC_TYPES_MAP.put(Double.class, 6);
+  private ArithmeticCalculator() {
   }
 
-  private ArithmeticCalculator() {
+  static int numericType(Type type) {
+    if (type == Integer.class) {
+      return INT_TYPE;
+    } else if (type == Long.class) {
+      return BIGINT_TYPE;
+    } else if (type == Double.class) {
+      return DOUBLE_TYPE;
+    } else if (type == Float.class) {
+      return FLOAT_TYPE;
+    } else if (type == Short.class) {
+      return SMALLINT_TYPE;
+    } else if (type == Byte.class) {
+      return TINYINT_TYPE;
+    }
+    return UNKNOWN_TYPE;
+  }
+
+  static int numericType(Number value) {
+    return numericType(value.getClass());
+  }
+
+  static int resultType(Operator operatior, int t) {
+    if (t == UNKNOWN_TYPE) {
+      return UNKNOWN_TYPE;
+    }
+    switch (operatior) {
+      case DIVISION:
+        return DOUBLE_TYPE;
+      case INTEGER_DIVISION:
+        return (t <= SMALLINT_TYPE) ? INT_TYPE : BIGINT_TYPE;
+      case ADDITION:
+      case SUBTRACTION:
+      case MULTIPLICATION:
+      case MODULO:
+        if (t <= SMALLINT_TYPE) {
+          return INT_TYPE;
+        }
+        return (t >= FLOAT_TYPE) ? DOUBLE_TYPE : BIGINT_TYPE;
+      default:
+        return UNKNOWN_TYPE;
+    }
   }
 
   public static Number compute(Operator operatior, Number v1, Number v2) {
-    Integer t1 = NUMERIC_TYPES_MAP.get(v1.getClass());
-    Integer t2 = NUMERIC_TYPES_MAP.get(v2.getClass());
-    if (t1 != null && t2 != null) {
-      Integer t = (t1 > t2) ? t1 : t2;
+    int t1 = numericType(v1);
+    int t2 = numericType(v2);
+    if (t1 != UNKNOWN_TYPE && t2 != UNKNOWN_TYPE) {
+      int t = (t1 > t2) ? t1 : t2;
       switch (t) {
-        case 1:
+        case TINYINT_TYPE:
           switch (operatior) {
             case ADDITION:
               return v1.byteValue() + v2.byteValue();
@@ -63,7 +101,7 @@ public final class ArithmeticCalculator {
               return v1.byteValue() / v2.byteValue();
             default:
           }
-        case 2:
+        case SMALLINT_TYPE:
           switch (operatior) {
             case ADDITION:
               return v1.shortValue() + v2.shortValue();
@@ -79,8 +117,8 @@ public final class ArithmeticCalculator {
               return v1.shortValue() / v2.shortValue();
             default:
           }
-        case 3:
-        case 4:
+        case INT_TYPE:
+        case BIGINT_TYPE:
           switch (operatior) {
             case ADDITION:
               return v1.longValue() + v2.longValue();
@@ -96,8 +134,8 @@ public final class ArithmeticCalculator {
               return v1.longValue() / v2.longValue();
             default:
           }
-        case 5:
-        case 6:
+        case FLOAT_TYPE:
+        case DOUBLE_TYPE:
           switch (operatior) {
             case ADDITION:
               return v1.doubleValue() + v2.doubleValue();
@@ -125,28 +163,6 @@ public final class ArithmeticCalculator {
   }
 
   public static Number compute(InternalArithNode node, GungnirTuple tuple) {
-    Number left = null;
-    if (node.getLeftNode() instanceof InternalArithNode) {
-      left = compute((InternalArithNode) node.getLeftNode(), tuple);
-    } else {
-      left = ((ExternalArithNode) node.getLeftNode()).getValue(tuple);
-    }
-
-    Number right = null;
-    if (node.getRightNode() instanceof InternalArithNode) {
-      right = compute((InternalArithNode) node.getRightNode(), tuple);
-    } else {
-      right = ((ExternalArithNode) node.getRightNode()).getValue(tuple);
-    }
-
-    try {
-      Number res = compute(node.getOperatior(), left, right);
-      if (res instanceof Double && (((Double) res).isInfinite() || ((Double) res).isNaN())) {
-        return null;
-      }
-      return res;
-    } catch (ArithmeticException e) {
-      return null;
-    }
+    return node.getValue(tuple);
   }
 }
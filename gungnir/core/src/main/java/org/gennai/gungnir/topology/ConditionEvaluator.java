@@ -19,11 +19,11 @@
 package org.gennai.gungnir.topology;
 
 import static org.gennai.gungnir.GungnirConst.*;
+import static org.gennai.gungnir.topology.ArithmeticCalculator.*;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.Collection;
-import java.util.Map;
 
 import org.gennai.gungnir.tuple.ComplexCondition;
 import org.gennai.gungnir.tuple.Condition;
@@ -33,24 +33,11 @@ import org.gennai.gungnir.tuple.SimpleCondition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
-
 public final class ConditionEvaluator implements Serializable {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(ConditionEvaluator.class);
 
-  private static final Map<Class<? extends Number>, Integer> NUMERIC_TYPES_MAP = Maps.newHashMap();
-
-  static {
-    NUMERIC_TYPES_MAP.put(Byte.class, 1);
-    NUMERIC_TYPES_MAP.put(Short.class, 2);
-    NUMERIC_TYPES_MAP.put(Integer.class, 3);
-    NUMERIC_TYPES_MAP.put(Long.class, 4);
-    NUMERIC_TYPES_MAP.put(Float.class, 5);
-    NUMERIC_TYPES_MAP.put(Double.class, 6);
-  }
-
   private ConditionEvaluator() {
   }
 
@@ -101,17 +88,18 @@ public final class ConditionEvaluator implements Serializable {
   }
 
   public static int compareNumber(Number v1, Number v2) {
-    Integer t1 = NUMERIC_TYPES_MAP.get(v1.getClass());
-    Integer t2 = NUMERIC_TYPES_MAP.get(v2.getClass());
-    if (t1 != null && t2 != null) {
-      Integer t = (t1 > t2) ? t1 : t2;
-      if (t == 5) {
+    int t1 = numericType(v1);
+    int t2 = numericType(v2);
+    if (t1 != UNKNOWN_TYPE && t2 != UNKNOWN_TYPE) {
+      int t = (t1 > t2) ? t1 : t2;
+      if (t == FLOAT_TYPE) {
         return Float.compare(v1.floatValue(), v2.floatValue());
-      } else if (t == 6) {
+      } else if (t == DOUBLE_TYPE) {
         return Double.compare(v1.doubleValue(), v2.doubleValue());
       } else {
-        Long l = v1.longValue();
-        return l.compareTo(v2.longValue());
+        long l1 = v1.longValue();
+        long l2 = v2.longValue();
+        return (l1 < l2) ? -1 : ((l1 == l2) ? 0 : 1);
       }
     } else {
       throw new IllegalArgumentException(
@@ -46,6 +46,10 @@ public class FieldArithNode implements ExternalArithNode {
     }
   }
 
+  public Field getField() {
+    return value;
+  }
+
   @Override
   public Number getValue(GungnirTuple tuple) {
     Object v = value.getValue(tuple);
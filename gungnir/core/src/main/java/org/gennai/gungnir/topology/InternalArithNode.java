@@ -25,6 +25,7 @@ import java.util.Set;
 
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -36,6 +37,7 @@ public class InternalArithNode implements ArithNode {
   private ArithNode leftNode;
   private ArithNode rightNode;
   private Operator operatior = Operator.NONE;
+  private transient ArithExpression expression;
 
   public InternalArithNode(Operator operator, ArithNode leftNode,
       ArithNode rightNode) {
@@ -67,6 +69,19 @@ public class InternalArithNode implements ArithNode {
     } else if (rightNode instanceof FieldArithNode) {
       ((FieldArithNode) rightNode).prepare(config, context);
     }
+
+    expression = ArithExpression.compile(this);
+  }
+
+  ArithExpression getExpression() {
+    if (expression == null) {
+      expression = ArithExpression.compile(this);
+    }
+    return expression;
+  }
+
+  public Number getValue(GungnirTuple tuple) {
+    return getExpression().getValue(tuple);
   }
 
   @Override
@@ -21,6 +21,7 @@ package org.gennai.gungnir.topology.component;
 import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,15 +32,19 @@ import org.gennai.gungnir.topology.dispatcher.BaseDispatcher;
 import org.gennai.gungnir.topology.dispatcher.Dispatcher;
 import org.gennai.gungnir.topology.dispatcher.FilterDispatcher;
 import org.gennai.gungnir.topology.dispatcher.MultiDispatcher;
+import org.gennai.gungnir.topology.operator.Operator;
 import org.gennai.gungnir.topology.operator.PartitionOperator;
 import org.gennai.gungnir.topology.operator.metrics.Metrics;
 import org.gennai.gungnir.tuple.GungnirTuple;
 import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
 import org.gennai.gungnir.utils.SnapshotTimer;
 import org.quartz.SchedulerException;
+import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import backtype.storm.Constants;
 import backtype.storm.task.OutputCollector;
 import backtype.storm.task.TopologyContext;
 import backtype.storm.topology.OutputFieldsDeclarer;
@@ -66,6 +71,8 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
   private Map<String, Metrics> metricsMap;
   private TopologyContext topologyContext;
   private SnapshotTimer snapshotTimer;
+  private StateCheckpointer stateCheckpointer;
+  private List<SnapshotTask> tickTasks;
 
   private static class BoltDispatcher extends BaseDispatcher {
 
@@ -79,7 +86,8 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
 
     @Override
     public void dispatch(TupleValues tupleValues) {
-      collector.emit(getSource().getName(), new Values(tupleValues));
+      collector.emit(getSource().getName(),
+          new Values(((PartitionOperator) getSource()).project(tupleValues)));
 
       if (LOG.isDebugEnabled()) {
         LOG.debug("Dispatch {} from {}", tupleValues, getSource().getName());
@@ -123,6 +131,16 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
     return snapshotTimer;
   }
 
+  @Override
+  public StateCheckpointer getStateCheckpointer() {
+    return stateCheckpointer;
+  }
+
+  @Override
+  public void addTickTask(SnapshotTask task) {
+    tickTasks.add(task);
+  }
+
   public void addIncomingOperator(PartitionOperator incomingOperator) {
     if (this.incomingOperatorsMap == null) {
       this.incomingOperatorsMap = Maps.newHashMap();
@@ -166,6 +184,7 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
     GungnirConfig config = GungnirConfig.wrap((Map<String, Object>) stormConf.get(GUNGNIR_CONFIG));
 
     topologyContext = context;
+    tickTasks = Lists.newArrayList();
 
     if (config.getBoolean(TOPOLOGY_METRICS_ENABLED) && metricsMap != null) {
       for (Map.Entry<String, Metrics> entry : metricsMap.entrySet()) {
@@ -176,6 +195,17 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
 
     this.context.setComponent(this);
 
+    if (config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS) > 0) {
+      try {
+        stateCheckpointer = StateCheckpointer.open(config, this.context,
+            getName() + "_" + topologyContext.getThisTaskIndex());
+      } catch (IOException e) {
+        LOG.error("Failed to open state checkpointer", e);
+      } catch (RocksDBException e) {
+        LOG.error("Failed to open state checkpointer", e);
+      }
+    }
+
     for (PartitionOperator partitionOperator : incomingOperatorsMap.values()) {
       partitionOperator.doPrepare(config, this.context);
     }
@@ -183,6 +213,7 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
     for (PartitionOperator partitionOperator : outgoingOperators) {
       BoltDispatcher boltDispatcher = new BoltDispatcher();
       boltDispatcher.collector = collector;
+      boltDispatcher.setSource(partitionOperator);
 
       Dispatcher dispatcher = partitionOperator.getDispatcher();
       if (dispatcher == null) {
@@ -202,10 +233,39 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
     // snapshotTimer = new SnapshotTimer(config.getInteger(COMPONENT_SNAPSHOT_QUEUE_SIZE),
     //     config.getInteger(COMPONENT_SNAPSHOT_PARALLELISM));
     snapshotTimer = new SnapshotTimer(getName() + "_" + topologyContext.getThisTaskIndex());
+
+    if (stateCheckpointer != null) {
+      for (PartitionOperator partitionOperator : incomingOperatorsMap.values()) {
+        restoreStates(partitionOperator, config);
+      }
+    }
+  }
+
+  // Stateful operators are prepared and restored up front, so that their timers run and their
+  // state is emitted even before the first tuple arrives
+  private void restoreStates(Operator operator, GungnirConfig config) {
+    Dispatcher dispatcher = operator.getDispatcher();
+    if (dispatcher != null) {
+      if (!dispatcher.isPrepared()) {
+        dispatcher.doPrepare(config, context);
+      }
+      dispatcher.restoreStates();
+    }
   }
 
   @Override
   public void execute(Tuple input) {
+    if (Constants.SYSTEM_COMPONENT_ID.equals(input.getSourceComponent())
+        && Constants.SYSTEM_TICK_STREAM_ID.equals(input.getSourceStreamId())) {
+      for (SnapshotTask task : tickTasks) {
+        task.execute();
+      }
+      if (stateCheckpointer != null) {
+        stateCheckpointer.tick();
+      }
+      return;
+    }
+
     if (LOG.isDebugEnabled()) {
       LOG.debug("execute({} {}[{}]) {}", context.getTopologyId(), getName(),
           this.getTopologyContext().getThisTaskIndex(), input);
@@ -222,6 +282,9 @@ public class ExecBolt extends BaseRichBolt implements GungnirComponent {
 
   @Override
   public void cleanup() {
+    if (stateCheckpointer != null) {
+      stateCheckpointer.close();
+    }
     for (PartitionOperator partitionOperator : incomingOperatorsMap.values()) {
       partitionOperator.doCleanup();
     }
@@ -21,6 +21,7 @@ package org.gennai.gungnir.topology.component;
 import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -30,12 +31,15 @@ import org.gennai.gungnir.topology.dispatcher.BaseDispatcher;
 import org.gennai.gungnir.topology.dispatcher.Dispatcher;
 import org.gennai.gungnir.topology.dispatcher.FilterDispatcher;
 import org.gennai.gungnir.topology.dispatcher.MultiDispatcher;
+import org.gennai.gungnir.topology.operator.Operator;
 import org.gennai.gungnir.topology.operator.PartitionOperator;
 import org.gennai.gungnir.topology.operator.SpoutOperator;
 import org.gennai.gungnir.topology.operator.metrics.Metrics;
 import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
 import org.gennai.gungnir.utils.SnapshotTimer;
 import org.quartz.SchedulerException;
+import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,7 +65,9 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
   private List<PartitionOperator> outgoingOperators;
   private TopologyContext topologyContext;
   private SnapshotTimer snapshotTimer;
+  private StateCheckpointer stateCheckpointer;
   private Map<String, Metrics> metricsMap;
+  private List<SnapshotTask> tickTasks;
 
   private static class SpoutDispatcher extends BaseDispatcher {
 
@@ -75,7 +81,8 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
 
     @Override
     public void dispatch(TupleValues tupleValues) {
-      collector.emit(getSource().getName(), new Values(tupleValues));
+      collector.emit(getSource().getName(),
+          new Values(((PartitionOperator) getSource()).project(tupleValues)));
 
       if (LOG.isDebugEnabled()) {
         LOG.debug("Dispatch {} from {}", tupleValues, getSource().getName());
@@ -107,6 +114,16 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
     return snapshotTimer;
   }
 
+  @Override
+  public StateCheckpointer getStateCheckpointer() {
+    return stateCheckpointer;
+  }
+
+  @Override
+  public void addTickTask(SnapshotTask task) {
+    tickTasks.add(task);
+  }
+
   public void setIncomingOperator(SpoutOperator incomingOperator) {
     this.incomingOperator = incomingOperator;
   }
@@ -146,6 +163,7 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
     GungnirConfig config = GungnirConfig.wrap((Map<String, Object>) stormConf.get(GUNGNIR_CONFIG));
 
     topologyContext = context;
+    tickTasks = Lists.newArrayList();
 
     if (config.getBoolean(TOPOLOGY_METRICS_ENABLED) && metricsMap != null) {
       for (Map.Entry<String, Metrics> entry : metricsMap.entrySet()) {
@@ -156,11 +174,23 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
 
     this.context.setComponent(this);
 
+    if (config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS) > 0) {
+      try {
+        stateCheckpointer = StateCheckpointer.open(config, this.context,
+            getName() + "_" + topologyContext.getThisTaskIndex());
+      } catch (IOException e) {
+        LOG.error("Failed to open state checkpointer", e);
+      } catch (RocksDBException e) {
+        LOG.error("Failed to open state checkpointer", e);
+      }
+    }
+
     incomingOperator.doPrepare(config, this.context);
 
     for (PartitionOperator partitionOperator : outgoingOperators) {
       SpoutDispatcher spoutDispatcher = new SpoutDispatcher();
       spoutDispatcher.collector = collector;
+      spoutDispatcher.setSource(partitionOperator);
 
       Dispatcher dispatcher = partitionOperator.getDispatcher();
       if (dispatcher == null) {
@@ -180,12 +210,36 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
     // snapshotTimer = new SnapshotTimer(config.getInteger(COMPONENT_SNAPSHOT_QUEUE_SIZE),
     //     config.getInteger(COMPONENT_SNAPSHOT_PARALLELISM));
     snapshotTimer = new SnapshotTimer(getName() + "_" + topologyContext.getThisTaskIndex());
+
+    if (stateCheckpointer != null) {
+      restoreStates(incomingOperator, config);
+    }
+  }
+
+  // Stateful operators are prepared and restored up front, so that their timers run and their
+  // state is emitted even before the first tuple arrives
+  private void restoreStates(Operator operator, GungnirConfig config) {
+    Dispatcher dispatcher = operator.getDispatcher();
+    if (dispatcher != null) {
+      if (!dispatcher.isPrepared()) {
+        dispatcher.doPrepare(config, context);
+      }
+      dispatcher.restoreStates();
+    }
   }
 
   @Override
   public void nextTuple() {
     incomingOperator.nextTuple();
 
+    for (SnapshotTask task : tickTasks) {
+      task.execute();
+    }
+
+    if (stateCheckpointer != null) {
+      stateCheckpointer.tick();
+    }
+
     if (LOG.isDebugEnabled()) {
       LOG.debug("nextTuple({} {}[{}])", context.getTopologyId(), getName(),
           this.getTopologyContext().getThisTaskIndex());
@@ -194,6 +248,9 @@ public class ExecSpout extends BaseRichSpout implements GungnirComponent {
 
   @Override
   public void close() {
+    if (stateCheckpointer != null) {
+      stateCheckpointer.close();
+    }
     incomingOperator.doCleanup();
     try {
       snapshotTimer.stop();
@@ -18,6 +18,7 @@
 
 package org.gennai.gungnir.topology.component;
 
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
 import org.gennai.gungnir.utils.SnapshotTimer;
 
 import backtype.storm.task.TopologyContext;
@@ -29,4 +30,8 @@ public interface GungnirComponent {
   TopologyContext getTopologyContext();
 
   SnapshotTimer getShapshotTimer();
+
+  StateCheckpointer getStateCheckpointer();
+
+  void addTickTask(SnapshotTask task);
 }
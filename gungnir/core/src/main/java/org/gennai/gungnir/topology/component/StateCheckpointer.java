@@ -0,0 +1,552 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.component;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.operator.KeyedStatefulOperator;
+import org.gennai.gungnir.topology.operator.StatefulOperator;
+import org.gennai.gungnir.topology.processor.spout.kafka.ZkState;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleOrigin;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.serialization.StructSerializer;
+import org.gennai.gungnir.tuple.serialization.TupleValuesSerializer;
+import org.gennai.gungnir.utils.KryoSerializer;
+import org.rocksdb.BackupableDB;
+import org.rocksdb.BackupableDBOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RestoreBackupableDB;
+import org.rocksdb.RestoreOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public final class StateCheckpointer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StateCheckpointer.class);
+
+  private static final int NUM_BACKUPS = 2;
+  private static final List<Object> OFFSETS_KEY = Lists.<Object>newArrayList("_offsets");
+
+  private static final class OffsetTracker {
+
+    private long epoch;
+    private long applied = -1;
+    private long replayed = -1;
+
+    private OffsetTracker(long epoch) {
+      this.epoch = epoch;
+    }
+  }
+
+  private GungnirConfig config;
+  private String name;
+  private String nodePath;
+  private long intervalMs;
+  private Options options;
+  private BackupableDBOptions backupOptions;
+  private RocksDB db;
+  private WriteOptions writeOptions;
+  private KryoSerializer serializer;
+  private Map<List<Object>, byte[]> restoredStates = Maps.newHashMap();
+  private Map<List<Object>, Map<Object, byte[]>> restoredKeyStates = Maps.newHashMap();
+  private Map<List<Object>, StatefulOperator> operators = Maps.newLinkedHashMap();
+  private Map<List<Object>, Long> checksums = Maps.newHashMap();
+  private Set<List<Object>> writingKeys = Sets.newHashSet();
+  private CRC32 crc32 = new CRC32();
+  private ExecutorService writer;
+  private ExecutorService publisher;
+  private Future<?> lastWrite;
+  private volatile boolean writeFailed;
+  private long lastCheckpointTime;
+  private Map<String, Map<String, OffsetTracker>> offsetTrackers = Maps.newHashMap();
+  private boolean offsetsChanged;
+  private Map<String, Long> pendingOffsets = Maps.newHashMap();
+  private Map<String, Long> appliedOffsets = Maps.newHashMap();
+  private Map<String, Long> nextOffsets = Maps.newHashMap();
+  private Map<String, Long> writingOffsets = Maps.newHashMap();
+  private Map<String, Long> publishedOffsets = Maps.newHashMap();
+  private volatile boolean publishFailed;
+  private Long restoredTime;
+  private ZkState zkState;
+
+  private StateCheckpointer(GungnirConfig config, GungnirContext context, String name)
+      throws IOException, RocksDBException {
+    this.config = config;
+    this.name = name;
+    nodePath = config.getString(GUNGNIR_NODE_PATH) + CHECKPOINT_NODE_PATH + "/"
+        + context.getTopologyId() + "/" + name;
+    intervalMs = TimeUnit.SECONDS.toMillis(config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS));
+
+    serializer = new KryoSerializer();
+    serializer.register(Struct.class, new StructSerializer());
+    serializer.register(TupleValues.class, new TupleValuesSerializer());
+
+    String dbPath = config.getString(LOCAL_DIR) + "/" + CHECKPOINT_DIR + "/"
+        + context.getTopologyId() + "/" + name;
+    String backupDir = config.getString(COMPONENT_CHECKPOINT_BACKUP_DIR);
+
+    options = new Options().setCreateIfMissing(true);
+    if (backupDir != null) {
+      String backupPath = backupDir + "/" + context.getTopologyId() + "/" + name;
+      Files.createDirectories(Paths.get(backupPath));
+      backupOptions = new BackupableDBOptions(backupPath);
+
+      if (!Files.exists(Paths.get(dbPath))) {
+        RestoreBackupableDB restoreDb = new RestoreBackupableDB(backupOptions);
+        try {
+          Files.createDirectories(Paths.get(dbPath));
+          restoreDb.restoreDBFromLatestBackup(dbPath, dbPath, new RestoreOptions(false));
+          LOG.info("Restored operator state from backup {}", backupPath);
+        } catch (RocksDBException e) {
+          LOG.info("No operator state backup to restore {}", backupPath);
+        } finally {
+          restoreDb.dispose();
+        }
+      }
+
+      Files.createDirectories(Paths.get(dbPath));
+      db = BackupableDB.open(options, backupOptions, dbPath);
+    } else {
+      Files.createDirectories(Paths.get(dbPath));
+      db = RocksDB.open(options, dbPath);
+    }
+    writeOptions = new WriteOptions();
+
+    int numRestored = 0;
+    WriteBatch staleBatch = new WriteBatch();
+    int numStale = 0;
+    RocksIterator it = db.newIterator();
+    try {
+      for (it.seekToFirst(); it.isValid(); it.next()) {
+        @SuppressWarnings("unchecked")
+        List<Object> stateKey = serializer.deserialize(it.key(), ArrayList.class);
+        if (OFFSETS_KEY.equals(stateKey)) {
+          restoreOffsets(it.value());
+        } else if (context.getOutputFields() != null
+            && !context.getOutputFields().containsKey(stateKey.get(0))) {
+          // The operator is no longer in the topology
+          staleBatch.remove(it.key());
+          numStale++;
+        } else if (stateKey.size() > 2) {
+          List<Object> operatorKey = Lists.newArrayList(stateKey.get(0), stateKey.get(1));
+          Map<Object, byte[]> keyStates = restoredKeyStates.get(operatorKey);
+          if (keyStates == null) {
+            keyStates = Maps.newLinkedHashMap();
+            restoredKeyStates.put(operatorKey, keyStates);
+          }
+          keyStates.put(stateKey.get(2), it.value());
+          numRestored++;
+        } else {
+          restoredStates.put(stateKey, it.value());
+          numRestored++;
+        }
+      }
+
+      if (numStale > 0) {
+        db.write(writeOptions, staleBatch);
+      }
+    } finally {
+      it.dispose();
+      staleBatch.dispose();
+    }
+
+    writer = Executors.newSingleThreadExecutor();
+    publisher = Executors.newSingleThreadExecutor();
+    lastCheckpointTime = System.currentTimeMillis();
+
+    LOG.info("StateCheckpointer opened({}) {} states, {} stale states deleted", dbPath,
+        numRestored, numStale);
+
+    if (!writingOffsets.isEmpty()) {
+      restoredTime = System.currentTimeMillis();
+      publishOffsets();
+    }
+  }
+
+  // Tuples up to the restored offsets are replays of what the restored state already contains,
+  // everything after them has to be replayed by the spout.
+  private void restoreOffsets(byte[] bytes) {
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, long[]>> offsets =
+        (Map<String, Map<String, long[]>>) serializer.deserialize(bytes);
+    for (Map.Entry<String, Map<String, long[]>> entry : offsets.entrySet()) {
+      Map<String, OffsetTracker> trackers = Maps.newHashMap();
+      for (Map.Entry<String, long[]> offset : entry.getValue().entrySet()) {
+        OffsetTracker tracker = new OffsetTracker(offset.getValue()[0]);
+        tracker.applied = offset.getValue()[1];
+        tracker.replayed = tracker.applied;
+        trackers.put(offset.getKey(), tracker);
+
+        Long writingOffset = writingOffsets.get(offset.getKey());
+        if (writingOffset == null || tracker.applied + 1 < writingOffset) {
+          writingOffsets.put(offset.getKey(), tracker.applied + 1);
+        }
+      }
+      offsetTrackers.put(entry.getKey(), trackers);
+    }
+  }
+
+  private byte[] saveOffsets() {
+    Map<String, Map<String, long[]>> offsets = Maps.newHashMap();
+    for (Map.Entry<String, Map<String, OffsetTracker>> entry : offsetTrackers.entrySet()) {
+      Map<String, long[]> trackers = Maps.newHashMap();
+      for (Map.Entry<String, OffsetTracker> tracker : entry.getValue().entrySet()) {
+        trackers.put(tracker.getKey(),
+            new long[] {tracker.getValue().epoch, tracker.getValue().applied});
+      }
+      offsets.put(entry.getKey(), trackers);
+    }
+    return serializer.serialize(offsets, true);
+  }
+
+  // ZooKeeper is written on the publisher thread, in the order the offsets are published
+  private void publishOffsets() {
+    Map<String, Long> offsets = Maps.newHashMap(writingOffsets);
+    mergeOffsets(offsets, pendingOffsets);
+    mergeOffsets(offsets, nextOffsets);
+    if (offsets.equals(publishedOffsets) && restoredTime == null && !publishFailed) {
+      return;
+    }
+
+    final Map<Object, Object> node = Maps.newHashMap();
+    node.put("offsets", offsets);
+    if (restoredTime != null) {
+      node.put("restored", restoredTime);
+    }
+    publishedOffsets = offsets;
+    publishFailed = false;
+
+    publisher.execute(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          if (zkState == null) {
+            zkState = new ZkState(config);
+          }
+          zkState.writeJSON(nodePath, node);
+        } catch (Exception e) {
+          publishFailed = true;
+          LOG.error("Failed to publish checkpoint offsets", e);
+        }
+      }
+    });
+  }
+
+  private static void mergeOffsets(Map<String, Long> offsets, Map<String, Long> others) {
+    for (Map.Entry<String, Long> entry : others.entrySet()) {
+      Long offset = offsets.get(entry.getKey());
+      if (offset == null || entry.getValue() < offset) {
+        offsets.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  public static StateCheckpointer open(GungnirConfig config, GungnirContext context, String name)
+      throws IOException, RocksDBException {
+    return new StateCheckpointer(config, context, name);
+  }
+
+  public void register(StatefulOperator operator, List<Object> key) {
+    List<Object> stateKey = Lists.<Object>newArrayList(operator.getName(), key);
+    operators.put(stateKey, operator);
+
+    byte[] bytes = restoredStates.remove(stateKey);
+    if (bytes != null) {
+      operator.restoreState(serializer.deserialize(bytes));
+      checksums.put(stateKey, checksum(bytes));
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Restored state of {} {}", operator.getName(), key);
+      }
+    }
+
+    if (operator instanceof KeyedStatefulOperator) {
+      Map<Object, byte[]> keyStates = restoredKeyStates.remove(stateKey);
+      if (keyStates != null) {
+        for (Map.Entry<Object, byte[]> entry : keyStates.entrySet()) {
+          ((KeyedStatefulOperator) operator).restoreState(entry.getKey(),
+              serializer.deserialize(entry.getValue()));
+        }
+
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Restored {} keys of {} {}", keyStates.size(), operator.getName(), key);
+        }
+      }
+    }
+  }
+
+  // Keys the operator has been registered with before the restart, so that every per-key clone
+  // can be restored up front rather than when its key shows up again
+  @SuppressWarnings("unchecked")
+  public Set<List<Object>> getRestoredKeys(String operatorName) {
+    Set<List<Object>> keys = Sets.newLinkedHashSet();
+    for (List<Object> stateKey : restoredStates.keySet()) {
+      if (operatorName.equals(stateKey.get(0)) && stateKey.get(1) != null) {
+        keys.add((List<Object>) stateKey.get(1));
+      }
+    }
+    for (List<Object> stateKey : restoredKeyStates.keySet()) {
+      if (operatorName.equals(stateKey.get(0)) && stateKey.get(1) != null) {
+        keys.add((List<Object>) stateKey.get(1));
+      }
+    }
+    return keys;
+  }
+
+  public boolean accept(StatefulOperator operator, TupleValues tupleValues) {
+    TupleOrigin origin = tupleValues.getOrigin();
+    if (origin == null) {
+      return true;
+    }
+
+    Map<String, OffsetTracker> trackers = offsetTrackers.get(operator.getName());
+    if (trackers == null) {
+      trackers = Maps.newHashMap();
+      offsetTrackers.put(operator.getName(), trackers);
+    }
+    OffsetTracker tracker = trackers.get(origin.getSource());
+    if (tracker == null) {
+      tracker = new OffsetTracker(origin.getEpoch());
+      trackers.put(origin.getSource(), tracker);
+    } else if (origin.getEpoch() > tracker.epoch) {
+      // The spout has been restarted or rewound
+      tracker.epoch = origin.getEpoch();
+      tracker.replayed = tracker.applied;
+    }
+
+    if (origin.getOffset() <= tracker.replayed) {
+      return false;
+    }
+    tracker.replayed = -1;
+    if (origin.getOffset() > tracker.applied) {
+      tracker.applied = origin.getOffset();
+    }
+    offsetsChanged = true;
+
+    Long pendingOffset = pendingOffsets.get(origin.getSource());
+    if (pendingOffset == null || origin.getOffset() < pendingOffset) {
+      pendingOffsets.put(origin.getSource(), origin.getOffset());
+    }
+    Long appliedOffset = appliedOffsets.get(origin.getSource());
+    if (appliedOffset == null || origin.getOffset() > appliedOffset) {
+      appliedOffsets.put(origin.getSource(), origin.getOffset());
+    }
+
+    // Sources active in the last interval are already published up to their next offset, only
+    // the first tuple of a quiet source or a tuple out of order has to lower the published offset
+    Long publishedOffset = publishedOffsets.get(origin.getSource());
+    if (publishedOffset == null || origin.getOffset() < publishedOffset) {
+      publishOffsets();
+    }
+    return true;
+  }
+
+  private long checksum(byte[] bytes) {
+    crc32.reset();
+    crc32.update(bytes, 0, bytes.length);
+    return crc32.getValue();
+  }
+
+  public void tick() {
+    if (System.currentTimeMillis() - lastCheckpointTime >= intervalMs) {
+      checkpoint();
+    }
+  }
+
+  public void checkpoint() {
+    lastCheckpointTime = System.currentTimeMillis();
+
+    if (lastWrite != null && !lastWrite.isDone()) {
+      LOG.warn("Skip checkpoint of {}, previous checkpoint is still being written", name);
+      return;
+    }
+    if (lastWrite != null && !writeFailed) {
+      writingOffsets.clear();
+      restoredTime = null;
+    }
+    mergeOffsets(writingOffsets, pendingOffsets);
+    pendingOffsets.clear();
+    nextOffsets.clear();
+    for (Map.Entry<String, Long> entry : appliedOffsets.entrySet()) {
+      nextOffsets.put(entry.getKey(), entry.getValue() + 1);
+    }
+    appliedOffsets.clear();
+    publishOffsets();
+
+    // Keys of a failed write are saved again with their current state
+    Set<List<Object>> keys = Sets.newLinkedHashSet();
+    if (writeFailed) {
+      checksums.clear();
+      offsetsChanged = true;
+      keys.addAll(writingKeys);
+      writeFailed = false;
+    }
+
+    final WriteBatch writeBatch = new WriteBatch();
+    int numChanged = 0;
+    for (Map.Entry<List<Object>, StatefulOperator> entry : operators.entrySet()) {
+      if (entry.getValue() instanceof KeyedStatefulOperator) {
+        for (Object key : ((KeyedStatefulOperator) entry.getValue()).pollChangedKeys()) {
+          if (key instanceof List) {
+            key = Lists.newArrayList((List<?>) key);
+          }
+          keys.add(Lists.newArrayList(entry.getKey().get(0), entry.getKey().get(1), key));
+        }
+      }
+
+      Object state = entry.getValue().saveState();
+      if (state == null) {
+        if (checksums.remove(entry.getKey()) != null) {
+          writeBatch.remove(serializer.serialize(entry.getKey()));
+          numChanged++;
+        }
+        continue;
+      }
+
+      byte[] bytes = serializer.serialize(state, true);
+      Long crc = checksum(bytes);
+      if (!crc.equals(checksums.get(entry.getKey()))) {
+        writeBatch.put(serializer.serialize(entry.getKey()), bytes);
+        checksums.put(entry.getKey(), crc);
+        numChanged++;
+      }
+    }
+
+    for (List<Object> key : keys) {
+      KeyedStatefulOperator operator = (KeyedStatefulOperator) operators.get(key.subList(0, 2));
+      Object state = operator.saveState(key.get(2));
+      if (state == null) {
+        writeBatch.remove(serializer.serialize(key));
+      } else {
+        writeBatch.put(serializer.serialize(key), serializer.serialize(state, true));
+      }
+      numChanged++;
+    }
+    writingKeys = keys;
+
+    if (offsetsChanged) {
+      writeBatch.put(serializer.serialize(OFFSETS_KEY), saveOffsets());
+      offsetsChanged = false;
+      numChanged++;
+    }
+
+    if (numChanged == 0) {
+      writeBatch.dispose();
+      return;
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Checkpoint {} {}/{} states", name, numChanged, operators.size());
+    }
+
+    lastWrite = writer.submit(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          db.write(writeOptions, writeBatch);
+          if (db instanceof BackupableDB) {
+            ((BackupableDB) db).createNewBackup(true);
+            ((BackupableDB) db).purgeOldBackups(NUM_BACKUPS);
+          }
+        } catch (RocksDBException e) {
+          writeFailed = true;
+          LOG.error("Failed to write checkpoint", e);
+        } finally {
+          writeBatch.dispose();
+        }
+      }
+    });
+  }
+
+  private void awaitWrite() {
+    if (lastWrite != null) {
+      try {
+        lastWrite.get();
+      } catch (InterruptedException e) {
+        LOG.warn("Interrupted while waiting for checkpoint");
+      } catch (ExecutionException e) {
+        LOG.error("Failed to write checkpoint", e);
+      }
+    }
+  }
+
+  public void close() {
+    awaitWrite();
+    checkpoint();
+    awaitWrite();
+    writer.shutdown();
+    publisher.shutdown();
+    try {
+      if (!publisher.awaitTermination(TERMINATION_WAIT_TIME, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Timed out while publishing checkpoint offsets");
+      }
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted while publishing checkpoint offsets");
+    }
+
+    if (zkState != null) {
+      if (!writeFailed) {
+        try {
+          zkState.delete(nodePath);
+        } catch (Exception e) {
+          LOG.error("Failed to delete checkpoint offsets", e);
+        }
+      }
+      zkState.close();
+    }
+
+    db.close();
+    options.dispose();
+    writeOptions.dispose();
+    if (backupOptions != null) {
+      backupOptions.dispose();
+    }
+
+    LOG.info("StateCheckpointer closed({})", name);
+  }
+}
@@ -20,10 +20,17 @@ package org.gennai.gungnir.topology.dispatcher;
 
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.log.DebugLogger;
 import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.component.StateCheckpointer;
 import org.gennai.gungnir.topology.operator.Operator;
+import org.gennai.gungnir.topology.operator.StatefulOperator;
+import org.gennai.gungnir.tuple.TupleValues;
 
 public abstract class BaseDispatcher implements Dispatcher {
 
@@ -67,6 +74,35 @@ public abstract class BaseDispatcher implements Dispatcher {
     return source;
   }
 
+  protected void registerState(Operator target, List<Object> key) {
+    if (target instanceof StatefulOperator && context.getComponent() != null) {
+      StateCheckpointer checkpointer = context.getComponent().getStateCheckpointer();
+      if (checkpointer != null) {
+        checkpointer.register((StatefulOperator) target, key);
+      }
+    }
+  }
+
+  protected Set<List<Object>> getRestoredKeys(Operator target) {
+    if (target instanceof StatefulOperator && context.getComponent() != null) {
+      StateCheckpointer checkpointer = context.getComponent().getStateCheckpointer();
+      if (checkpointer != null) {
+        return checkpointer.getRestoredKeys(target.getName());
+      }
+    }
+    return Collections.emptySet();
+  }
+
+  protected boolean isReplayed(Operator target, TupleValues tupleValues) {
+    if (target instanceof StatefulOperator && context.getComponent() != null) {
+      StateCheckpointer checkpointer = context.getComponent().getStateCheckpointer();
+      if (checkpointer != null) {
+        return !checkpointer.accept((StatefulOperator) target, tupleValues);
+      }
+    }
+    return false;
+  }
+
   @Override
   public boolean isPrepared() {
     return prepared;
@@ -84,6 +120,22 @@ public abstract class BaseDispatcher implements Dispatcher {
     this.prepared = true;
   }
 
+  @Override
+  public void restoreStates() {
+  }
+
+  // Prepares the dispatcher below the target, so that the stateful operators further down are
+  // restored when the component is prepared rather than at their first tuple
+  protected void restoreStates(Operator target) {
+    Dispatcher dispatcher = target.getDispatcher();
+    if (dispatcher != null) {
+      if (!dispatcher.isPrepared()) {
+        dispatcher.doPrepare(config, context);
+      }
+      dispatcher.restoreStates();
+    }
+  }
+
   @Override
   public boolean isCleanedup() {
     return cleanedup;
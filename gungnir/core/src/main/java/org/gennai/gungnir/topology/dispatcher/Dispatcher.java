@@ -37,5 +37,7 @@ public interface Dispatcher extends Serializable {
 
   void dispatch(TupleValues values);
 
+  void restoreStates();
+
   void doCleanup();
 }
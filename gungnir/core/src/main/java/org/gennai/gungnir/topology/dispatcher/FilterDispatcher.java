@@ -138,6 +138,14 @@ public final class FilterDispatcher extends BaseDispatcher implements Cloneable
     }
   }
 
+  @Override
+  public void restoreStates() {
+    if (!dispatcher.isPrepared()) {
+      dispatcher.doPrepare(getConfig(), getContext());
+    }
+    dispatcher.restoreStates();
+  }
+
   @Override
   public void cleanup() {
     if (dispatcher.isPrepared() && !dispatcher.isCleanedup()) {
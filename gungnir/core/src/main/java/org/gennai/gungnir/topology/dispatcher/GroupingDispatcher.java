@@ -26,7 +26,10 @@ import java.util.Map;
 
 import org.gennai.gungnir.topology.GroupFields;
 import org.gennai.gungnir.topology.operator.ExecOperator;
+import org.gennai.gungnir.topology.operator.KeyedOperator;
 import org.gennai.gungnir.topology.operator.Operator;
+import org.gennai.gungnir.topology.operator.StatefulOperator;
+import org.gennai.gungnir.topology.operator.metrics.HistogramMeter;
 import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
 import org.gennai.gungnir.tuple.GungnirTuple;
 import org.gennai.gungnir.tuple.TupleValues;
@@ -45,6 +48,9 @@ public class GroupingDispatcher extends BaseDispatcher {
   private Map<List<Object>, ExecOperator> targetsMap;
   private Marker marker;
   private MultiCountMeter dispatchCount;
+  private HistogramMeter executeTime;
+  private int sampleInterval;
+  private int executeCount;
 
   public GroupingDispatcher(Operator target, GroupFields groupFields) {
     this.target = target;
@@ -58,6 +64,8 @@ public class GroupingDispatcher extends BaseDispatcher {
     marker = MarkerFactory.getMarker(PATH_MARKER_NAME + " " + getContext().getTopologyName());
     if (getConfig().getBoolean(TOPOLOGY_METRICS_ENABLED)) {
       dispatchCount = getSource().getMetrics(METRICS_DISPATCH_COUNT);
+      executeTime = target.getMetrics(METRICS_EXECUTE_TIME);
+      sampleInterval = getConfig().getInteger(TOPOLOGY_METRICS_SAMPLE_INTERVAL);
     }
   }
 
@@ -65,22 +73,24 @@ public class GroupingDispatcher extends BaseDispatcher {
   public void dispatch(TupleValues tupleValues) {
     if (target instanceof ExecOperator) {
       if (!target.isPrepared()) {
-        target.doPrepare(getConfig(), getContext());
+        prepareTarget();
+      }
+      if (isReplayed(target, tupleValues)) {
+        return;
       }
 
       GungnirTuple tuple =
           new GungnirTuple(getContext().getOutputFields().get(getSource().getName())
               .get(tupleValues.getTupleName()), tupleValues.clone());
       List<Object> key = groupFields.getValues(tuple);
-      ExecOperator t = targetsMap.get(key);
-      if (t == null) {
-        t = ((ExecOperator) target).clone();
-        if (target.getDispatcher() != null) {
-          t.setDispatcher(target.getDispatcher());
+      ExecOperator t = null;
+      if (target instanceof KeyedOperator) {
+        t = (ExecOperator) target;
+      } else {
+        t = targetsMap.get(key);
+        if (t == null) {
+          t = createTarget(key);
         }
-        t.doPrepare(getConfig(), getContext());
-
-        targetsMap.put(key, t);
       }
 
       getDebugLogger().logging(marker, getSource(), t, tuple);
@@ -88,6 +98,53 @@ public class GroupingDispatcher extends BaseDispatcher {
         dispatchCount.scope(target.getName()).mark();
       }
 
+      if (executeTime != null && ++executeCount >= sampleInterval) {
+        executeCount = 0;
+        long start = System.nanoTime();
+        execute(t, key, tuple);
+        executeTime.update(System.nanoTime() - start);
+      } else {
+        execute(t, key, tuple);
+      }
+    }
+  }
+
+  private void prepareTarget() {
+    target.doPrepare(getConfig(), getContext());
+    if (target instanceof KeyedOperator) {
+      registerState(target, null);
+    } else {
+      for (List<Object> key : getRestoredKeys(target)) {
+        createTarget(key);
+      }
+    }
+  }
+
+  private ExecOperator createTarget(List<Object> key) {
+    ExecOperator t = ((ExecOperator) target).clone();
+    if (target.getDispatcher() != null) {
+      t.setDispatcher(target.getDispatcher());
+    }
+    t.doPrepare(getConfig(), getContext());
+    registerState(t, key);
+
+    targetsMap.put(key, t);
+    return t;
+  }
+
+  @Override
+  public void restoreStates() {
+    if (target instanceof ExecOperator && target instanceof StatefulOperator
+        && !target.isPrepared()) {
+      prepareTarget();
+    }
+    restoreStates(target);
+  }
+
+  private static void execute(ExecOperator t, List<Object> key, GungnirTuple tuple) {
+    if (t instanceof KeyedOperator) {
+      ((KeyedOperator) t).execute(key, tuple);
+    } else {
       t.execute(tuple);
     }
   }
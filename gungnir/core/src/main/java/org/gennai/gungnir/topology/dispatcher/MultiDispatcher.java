@@ -64,6 +64,18 @@ public class MultiDispatcher extends BaseDispatcher {
     }
   }
 
+  @Override
+  public void restoreStates() {
+    if (dispatchers != null) {
+      for (Dispatcher dispatcher : dispatchers) {
+        if (!dispatcher.isPrepared()) {
+          dispatcher.doPrepare(getConfig(), getContext());
+        }
+        dispatcher.restoreStates();
+      }
+    }
+  }
+
   @Override
   public void cleanup() {
     for (Dispatcher dispatcher : dispatchers) {
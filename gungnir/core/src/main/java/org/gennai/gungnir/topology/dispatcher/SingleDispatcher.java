@@ -23,6 +23,8 @@ import static org.gennai.gungnir.GungnirConst.*;
 
 import org.gennai.gungnir.topology.operator.ExecOperator;
 import org.gennai.gungnir.topology.operator.Operator;
+import org.gennai.gungnir.topology.operator.StatefulOperator;
+import org.gennai.gungnir.topology.operator.metrics.HistogramMeter;
 import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
 import org.gennai.gungnir.tuple.GungnirTuple;
 import org.gennai.gungnir.tuple.TupleValues;
@@ -37,6 +39,9 @@ public class SingleDispatcher extends BaseDispatcher {
 
   private Marker marker;
   private MultiCountMeter dispatchCount;
+  private HistogramMeter executeTime;
+  private int sampleInterval;
+  private int executeCount;
 
   public SingleDispatcher(Operator target) {
     this.target = target;
@@ -47,6 +52,8 @@ public class SingleDispatcher extends BaseDispatcher {
     marker = MarkerFactory.getMarker(PATH_MARKER_NAME + " " + getContext().getTopologyName());
     if (getConfig().getBoolean(TOPOLOGY_METRICS_ENABLED)) {
       dispatchCount = getSource().getMetrics(METRICS_DISPATCH_COUNT);
+      executeTime = target.getMetrics(METRICS_EXECUTE_TIME);
+      sampleInterval = getConfig().getInteger(TOPOLOGY_METRICS_SAMPLE_INTERVAL);
     }
   }
 
@@ -54,7 +61,10 @@ public class SingleDispatcher extends BaseDispatcher {
   public void dispatch(TupleValues tupleValues) {
     if (target instanceof ExecOperator) {
       if (!target.isPrepared()) {
-        target.doPrepare(getConfig(), getContext());
+        prepareTarget();
+      }
+      if (isReplayed(target, tupleValues)) {
+        return;
       }
 
       GungnirTuple tuple =
@@ -66,8 +76,29 @@ public class SingleDispatcher extends BaseDispatcher {
         dispatchCount.scope(target.getName()).mark();
       }
 
-      ((ExecOperator) target).execute(tuple);
+      if (executeTime != null && ++executeCount >= sampleInterval) {
+        executeCount = 0;
+        long start = System.nanoTime();
+        ((ExecOperator) target).execute(tuple);
+        executeTime.update(System.nanoTime() - start);
+      } else {
+        ((ExecOperator) target).execute(tuple);
+      }
+    }
+  }
+
+  private void prepareTarget() {
+    target.doPrepare(getConfig(), getContext());
+    registerState(target, null);
+  }
+
+  @Override
+  public void restoreStates() {
+    if (target instanceof ExecOperator && target instanceof StatefulOperator
+        && !target.isPrepared()) {
+      prepareTarget();
     }
+    restoreStates(target);
   }
 
   @Override
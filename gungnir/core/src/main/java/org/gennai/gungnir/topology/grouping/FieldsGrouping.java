@@ -45,6 +45,10 @@ public class FieldsGrouping extends BaseGrouping {
     this.groupFields = groupFields;
   }
 
+  public GroupFields getGroupFields() {
+    return groupFields;
+  }
+
   @Override
   public void prepare(WorkerTopologyContext context, GlobalStreamId stream,
       List<Integer> targetTasks) {
@@ -49,7 +49,7 @@ public final class GroupingBuilder {
             grouping.addGrouping(schema.getSchemaName(), new FieldsGrouping(new GroupFields(
                 groupFields)));
           } else {
-            grouping.addGrouping(schema.getSchemaName(), new ShuffleGrouping());
+            grouping.addGrouping(schema.getSchemaName(), new LocalOrShuffleGrouping());
           }
         }
         return grouping;
@@ -62,10 +62,10 @@ public final class GroupingBuilder {
           }
           return new FieldsGrouping(new GroupFields(groupFields));
         } else {
-          return new ShuffleGrouping();
+          return new LocalOrShuffleGrouping();
         }
       }
     }
-    return new ShuffleGrouping();
+    return new LocalOrShuffleGrouping();
   }
 }
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.grouping;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import backtype.storm.generated.GlobalStreamId;
+import backtype.storm.task.WorkerTopologyContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class LocalOrShuffleGrouping extends BaseGrouping {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private static final int DEFAULT_LOCAL_WEIGHT = 4;
+
+  // The weighting compares counts of sends rather than the targets' actual load. They are
+  // counted per worker so that the senders in a worker see each other's sends, but sends from
+  // other workers are not included.
+  private static final ConcurrentMap<String, AtomicLongArray> WORKER_COUNTS =
+      Maps.newConcurrentMap();
+
+  private int localWeight = DEFAULT_LOCAL_WEIGHT;
+  private List<Integer> targetTasks;
+  private int[] localIndexes;
+  private transient AtomicLongArray counts;
+  private int weight;
+  private int next;
+  private Random random;
+
+  public LocalOrShuffleGrouping() {
+  }
+
+  public LocalOrShuffleGrouping(int localWeight) {
+    this.localWeight = localWeight;
+  }
+
+  public void setLocalWeight(int localWeight) {
+    this.localWeight = localWeight;
+  }
+
+  public int getLocalWeight() {
+    return localWeight;
+  }
+
+  @Override
+  public void prepare(WorkerTopologyContext context, GlobalStreamId stream,
+      List<Integer> targetTasks) {
+    this.targetTasks = targetTasks;
+
+    List<Integer> workerTasks = context.getThisWorkerTasks();
+    List<Integer> indexes = Lists.newArrayList();
+    for (int i = 0; i < targetTasks.size(); i++) {
+      if (workerTasks != null && workerTasks.contains(targetTasks.get(i))) {
+        indexes.add(i);
+      }
+    }
+    localIndexes = new int[indexes.size()];
+    for (int i = 0; i < localIndexes.length; i++) {
+      localIndexes[i] = indexes.get(i);
+    }
+
+    int sourceTasks = 1;
+    List<Integer> tasks = context.getComponentTasks(stream.get_componentId());
+    if (tasks != null && !tasks.isEmpty()) {
+      sourceTasks = tasks.size();
+    }
+    weight = localWeight(localWeight, sourceTasks, localIndexes.length, targetTasks.size());
+
+    String countsKey = context.getStormId() + ':' + targetTasks;
+    counts = WORKER_COUNTS.get(countsKey);
+    if (counts == null) {
+      AtomicLongArray newCounts = new AtomicLongArray(targetTasks.size());
+      counts = WORKER_COUNTS.putIfAbsent(countsKey, newCounts);
+      if (counts == null) {
+        counts = newCounts;
+      }
+    }
+
+    random = new Random();
+    next = random.nextInt(targetTasks.size());
+  }
+
+  // Preferring local tasks only keeps the targets balanced when every target has a sender on
+  // its own worker. With fewer senders than that (e.g. a single spout task) the targets that
+  // have no local sender would starve, so the tuples are shuffled evenly instead.
+  static int localWeight(int localWeight, int sourceTasks, int localTargets, int targets) {
+    if (localTargets == 0 || (long) sourceTasks * localTargets < targets) {
+      return 1;
+    }
+    return Math.max(1, localWeight);
+  }
+
+  @Override
+  public synchronized List<Integer> chooseTasks(int taskId, List<Object> values) {
+    List<Integer> tasks = Lists.newArrayListWithCapacity(1);
+
+    int index;
+    if (localIndexes.length == 0 || localIndexes.length == targetTasks.size() || weight <= 1) {
+      index = random.nextInt(targetTasks.size());
+    } else {
+      next = (next + 1) % localIndexes.length;
+      index = localIndexes[next];
+      int remote = random.nextInt(targetTasks.size());
+      if (counts.get(index) > weight * (counts.get(remote) + 1)) {
+        index = remote;
+      }
+      counts.incrementAndGet(index);
+    }
+
+    tasks.add(targetTasks.get(index));
+    return tasks;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + localWeight;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    LocalOrShuffleGrouping other = (LocalOrShuffleGrouping) obj;
+    if (localWeight != other.localWeight) {
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "local or shuffle grouping";
+  }
+}
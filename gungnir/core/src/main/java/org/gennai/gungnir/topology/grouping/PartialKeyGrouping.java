@@ -0,0 +1,204 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.grouping;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import backtype.storm.generated.GlobalStreamId;
+import backtype.storm.task.WorkerTopologyContext;
+import backtype.storm.tuple.Fields;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PartialKeyGrouping extends BaseGrouping {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+  private static final Logger LOG = LoggerFactory.getLogger(PartialKeyGrouping.class);
+
+  private static final long DECAY_INTERVAL = 100000;
+
+  // Sends are counted per worker rather than per sender, so that the senders in a worker see
+  // each other's sends to the same target tasks. Sends from other workers are not included,
+  // and the loads are therefore only a worker-local estimate of the target's load.
+  private static final ConcurrentMap<String, AtomicLongArray> WORKER_LOADS =
+      Maps.newConcurrentMap();
+
+  private GroupFields groupFields;
+  private double hotKeyRatio;
+  private int hotKeyCapacity;
+  private List<Integer> targetTasks;
+  private Fields outputFields;
+  private Map<List<Object>, Long> keyCounts;
+  private long keyTotal;
+  private transient AtomicLongArray loads;
+
+  public PartialKeyGrouping(GroupFields groupFields, double hotKeyRatio, int hotKeyCapacity) {
+    this.groupFields = groupFields;
+    this.hotKeyRatio = hotKeyRatio;
+    this.hotKeyCapacity = hotKeyCapacity;
+  }
+
+  public GroupFields getGroupFields() {
+    return groupFields;
+  }
+
+  @Override
+  public void prepare(WorkerTopologyContext context, GlobalStreamId stream,
+      List<Integer> targetTasks) {
+    this.targetTasks = targetTasks;
+    this.outputFields = context.getComponentOutputFields(stream);
+    keyCounts = Maps.newHashMapWithExpectedSize(hotKeyCapacity);
+    keyTotal = 0;
+    String loadsKey = context.getStormId() + ':' + targetTasks;
+    loads = WORKER_LOADS.get(loadsKey);
+    if (loads == null) {
+      AtomicLongArray newLoads = new AtomicLongArray(targetTasks.size());
+      loads = WORKER_LOADS.putIfAbsent(loadsKey, newLoads);
+      if (loads == null) {
+        loads = newLoads;
+      }
+    }
+  }
+
+  private void decay() {
+    for (Iterator<Map.Entry<List<Object>, Long>> it = keyCounts.entrySet().iterator();
+        it.hasNext();) {
+      Map.Entry<List<Object>, Long> entry = it.next();
+      if (entry.getValue() <= 1) {
+        it.remove();
+      } else {
+        entry.setValue(entry.getValue() / 2);
+      }
+    }
+    keyTotal /= 2;
+
+    for (int i = 0; i < loads.length(); i++) {
+      loads.set(i, loads.get(i) / 2);
+    }
+  }
+
+  private boolean isHotKey(List<Object> key) {
+    Long count = keyCounts.get(key);
+    if (count != null) {
+      count++;
+      keyCounts.put(key, count);
+    } else if (keyCounts.size() < hotKeyCapacity) {
+      count = 1L;
+      keyCounts.put(key, count);
+    } else {
+      count = 0L;
+      for (Iterator<Map.Entry<List<Object>, Long>> it = keyCounts.entrySet().iterator();
+          it.hasNext();) {
+        Map.Entry<List<Object>, Long> entry = it.next();
+        if (entry.getValue() <= 1) {
+          it.remove();
+        } else {
+          entry.setValue(entry.getValue() - 1);
+        }
+      }
+    }
+
+    keyTotal++;
+    if (keyTotal >= DECAY_INTERVAL) {
+      decay();
+    }
+
+    return keyTotal >= hotKeyCapacity && count > keyTotal * hotKeyRatio;
+  }
+
+  @Override
+  public synchronized List<Integer> chooseTasks(int taskId, List<Object> values) {
+    List<Integer> tasks = Lists.newArrayListWithCapacity(1);
+
+    TupleValues tupleValues = (TupleValues) values.get(outputFields.fieldIndex(TUPLE_FIELD));
+    GungnirTuple tuple = new GungnirTuple(getContext().getOutputFields().get(getPartitionName())
+        .get(tupleValues.getTupleName()), tupleValues);
+
+    List<Object> key = Lists.newArrayListWithCapacity(groupFields.getFields().length);
+    for (FieldAccessor field : groupFields.getFields()) {
+      key.add(field.getValue(tuple));
+    }
+
+    int index = hashIndex(key, targetTasks.size());
+    if (targetTasks.size() > 1 && isHotKey(key)) {
+      int index2 = (index + 1 + hashIndex(~key.hashCode(), targetTasks.size() - 1))
+          % targetTasks.size();
+      if (loads.get(index2) < loads.get(index)) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Hot key {} is routed to task {} instead of {}", key,
+              targetTasks.get(index2), targetTasks.get(index));
+        }
+        index = index2;
+      }
+    }
+    loads.incrementAndGet(index);
+    tasks.add(targetTasks.get(index));
+
+    return tasks;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((groupFields == null) ? 0 : groupFields.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    PartialKeyGrouping other = (PartialKeyGrouping) obj;
+    if (groupFields == null) {
+      if (other.groupFields != null) {
+        return false;
+      }
+    } else if (!groupFields.equals(other.groupFields)) {
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "partial key grouping(" + groupFields.toString() + ")";
+  }
+}
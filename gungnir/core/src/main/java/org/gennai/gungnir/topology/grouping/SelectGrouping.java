@@ -43,6 +43,10 @@ public class SelectGrouping extends BaseGrouping {
     groupingsMap.put(tupleName, grouping);
   }
 
+  public Map<String, Grouping> getGroupings() {
+    return groupingsMap;
+  }
+
   @Override
   public void setContext(GungnirContext context) {
     super.setContext(context);
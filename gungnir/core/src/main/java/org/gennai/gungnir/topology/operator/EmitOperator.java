@@ -29,7 +29,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
+import org.gennai.gungnir.topology.operator.metrics.GaugeMeter;
+import org.gennai.gungnir.topology.operator.metrics.Metrics;
 import org.gennai.gungnir.topology.processor.EmitProcessor;
+import org.gennai.gungnir.topology.processor.MeasurableProcessor;
 import org.gennai.gungnir.topology.processor.ProcessorException;
 import org.gennai.gungnir.tuple.FieldAccessor;
 import org.gennai.gungnir.tuple.GungnirTuple;
@@ -139,6 +142,17 @@ public class EmitOperator extends BaseOperator implements ExecOperator {
     super();
     this.processor = processor;
     this.outputFields = outputFields;
+
+    registerMetrics(METRICS_QUEUE_SIZE, new GaugeMeter());
+
+    if (processor instanceof MeasurableProcessor) {
+      Map<String, Metrics> metrics = ((MeasurableProcessor) processor).getMetrics();
+      if (metrics != null) {
+        for (Map.Entry<String, Metrics> entry : metrics.entrySet()) {
+          registerMetrics(entry.getKey(), entry.getValue());
+        }
+      }
+    }
   }
 
   private EmitOperator(EmitOperator c) {
@@ -167,6 +181,17 @@ public class EmitOperator extends BaseOperator implements ExecOperator {
         max = getConfig().getInteger(EMIT_OPERATOR_EMIT_TUPLES_MAX);
       }
       emitMax = max;
+
+      GaugeMeter queueSizeGauge = getMetrics(METRICS_QUEUE_SIZE);
+      if (queueSizeGauge != null) {
+        queueSizeGauge.setGauge(new GaugeMeter.Gauge() {
+
+          @Override
+          public long getValue() {
+            return emitQueue.size();
+          }
+        });
+      }
     }
   }
 
@@ -38,7 +38,7 @@ import com.google.common.collect.Lists;
 
 @Operator.Description(name = "FILTER_GROUP",
     parameterNames = {"expire", "stateField", "conditions"})
-public class FilterGroupOperator extends BaseOperator implements ExecOperator {
+public class FilterGroupOperator extends BaseOperator implements StatefulOperator {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(FilterGroupOperator.class);
@@ -129,6 +129,19 @@ public class FilterGroupOperator extends BaseOperator implements ExecOperator {
     }
   }
 
+  @Override
+  public Object saveState() {
+    return keepTimes.clone();
+  }
+
+  @Override
+  public void restoreState(Object state) {
+    int[] times = (int[]) state;
+    if (times.length == keepTimes.length) {
+      keepTimes = times;
+    }
+  }
+
   @Override
   public List<Field> getOutputFields() {
     if (stateField != null) {
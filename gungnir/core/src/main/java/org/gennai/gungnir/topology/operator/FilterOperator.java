@@ -44,6 +44,10 @@ public class FilterOperator extends BaseOperator implements ExecOperator {
     this.condition = c.condition;
   }
 
+  public Condition getCondition() {
+    return condition;
+  }
+
   @Override
   protected void prepare() {
   }
@@ -18,20 +18,36 @@
 
 package org.gennai.gungnir.topology.operator;
 
+import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.processor.BatchFetchProcessor;
 import org.gennai.gungnir.topology.processor.FetchProcessor;
 import org.gennai.gungnir.topology.processor.ProcessorException;
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.FieldAccessor;
 import org.gennai.gungnir.tuple.GungnirTuple;
 import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 @Operator.Description(name = "JOIN", parameterNames = {"processor", "toFieldNames"})
 public class JoinOperator extends BaseOperator implements ExecOperator {
@@ -39,9 +55,236 @@ public class JoinOperator extends BaseOperator implements ExecOperator {
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(JoinOperator.class);
 
+  private static final class FetchRequest {
+
+    private JoinOperator operator;
+    private GungnirTuple tuple;
+    private List<List<Object>> valuesList;
+    private boolean done;
+
+    private FetchRequest(JoinOperator operator, GungnirTuple tuple) {
+      this.operator = operator;
+      this.tuple = tuple;
+    }
+  }
+
+  private static final class FetchEntry {
+
+    private List<Object> key;
+    private GungnirTuple tuple;
+    private List<FetchRequest> requests = Lists.newArrayList();
+
+    private FetchEntry(List<Object> key, GungnirTuple tuple) {
+      this.key = key;
+      this.tuple = tuple;
+    }
+  }
+
+  private static final class AsyncFetcher implements Runnable {
+
+    private FetchProcessor processor;
+    private GroupFields keyFields;
+    private int batchSize;
+    private long batchInterval;
+    private boolean ordered;
+    private Semaphore outstanding;
+    private LinkedBlockingQueue<FetchEntry> fetchQueue = new LinkedBlockingQueue<FetchEntry>();
+    private LinkedBlockingQueue<FetchRequest> completedQueue =
+        new LinkedBlockingQueue<FetchRequest>();
+    private Map<List<Object>, FetchEntry> entries = Maps.newHashMap();
+    private Deque<FetchRequest> requests = new ArrayDeque<FetchRequest>();
+    private ExecutorService fetchExecutor;
+    private volatile boolean closed = false;
+
+    private AsyncFetcher(FetchProcessor processor, int outstandingMax, int batchSize,
+        long batchInterval, boolean ordered) {
+      this.processor = processor;
+      this.keyFields = processor.getGroupFields();
+      this.outstanding = new Semaphore(outstandingMax);
+      this.batchSize = batchSize;
+      this.batchInterval = batchInterval;
+      this.ordered = ordered;
+    }
+
+    private void start(String name, int parallelism) {
+      fetchExecutor = Executors.newFixedThreadPool(parallelism,
+          GungnirUtils.createThreadFactory(name));
+      for (int i = 0; i < parallelism; i++) {
+        fetchExecutor.execute(this);
+      }
+    }
+
+    private void submit(JoinOperator operator, GungnirTuple tuple) throws InterruptedException {
+      // Completed requests are emitted by this thread only, so they have to be drained while
+      // waiting for an outstanding request to finish
+      while (!outstanding.tryAcquire()) {
+        FetchRequest request = completedQueue.poll(TERMINATION_WAIT_TIME, TimeUnit.MILLISECONDS);
+        if (request != null) {
+          emit(request);
+        }
+      }
+
+      FetchRequest request = new FetchRequest(operator, tuple);
+      List<Object> key = null;
+      if (keyFields != null) {
+        key = keyFields.getValues(tuple);
+      } else {
+        key = Collections.emptyList();
+      }
+
+      synchronized (this) {
+        if (ordered) {
+          requests.add(request);
+        }
+
+        FetchEntry entry = entries.get(key);
+        if (entry == null) {
+          entry = new FetchEntry(key, tuple);
+          entries.put(key, entry);
+          fetchQueue.add(entry);
+        }
+        entry.requests.add(request);
+      }
+    }
+
+    private List<List<List<Object>>> fetch(List<FetchEntry> batch) {
+      if (batch.size() > 1 && processor instanceof BatchFetchProcessor
+          && ((BatchFetchProcessor) processor).isBatchable()) {
+        List<GungnirTuple> tuples = Lists.newArrayListWithCapacity(batch.size());
+        for (FetchEntry entry : batch) {
+          tuples.add(entry.tuple);
+        }
+        try {
+          return ((BatchFetchProcessor) processor).fetch(tuples);
+        } catch (ProcessorException e) {
+          LOG.error("Failed to execute in processor", e);
+        }
+      }
+
+      List<List<List<Object>>> valuesLists = Lists.newArrayListWithCapacity(batch.size());
+      for (FetchEntry entry : batch) {
+        try {
+          valuesLists.add(processor.fetch(entry.tuple));
+        } catch (ProcessorException e) {
+          LOG.error("Failed to execute in processor", e);
+          valuesLists.add(Collections.<List<Object>>emptyList());
+        }
+      }
+      return valuesLists;
+    }
+
+    private void emit(FetchRequest request) {
+      try {
+        request.operator.emit(request.tuple, request.valuesList);
+      } catch (RuntimeException e) {
+        LOG.error("Failed to dispatch fetched tuple", e);
+      } finally {
+        outstanding.release();
+      }
+    }
+
+    private synchronized void complete(List<FetchEntry> batch,
+        List<List<List<Object>>> valuesLists) {
+      for (int i = 0; i < batch.size(); i++) {
+        FetchEntry entry = batch.get(i);
+        entries.remove(entry.key);
+        for (FetchRequest request : entry.requests) {
+          request.valuesList = valuesLists.get(i);
+          request.done = true;
+          if (!ordered) {
+            completedQueue.add(request);
+          }
+        }
+      }
+
+      if (ordered) {
+        while (!requests.isEmpty() && requests.peek().done) {
+          completedQueue.add(requests.poll());
+        }
+      }
+    }
+
+    private void drain() {
+      FetchRequest request = null;
+      while ((request = completedQueue.poll()) != null) {
+        emit(request);
+      }
+    }
+
+    @Override
+    public void run() {
+      List<FetchEntry> batch = Lists.newArrayListWithCapacity(batchSize);
+      try {
+        while (!closed || !fetchQueue.isEmpty()) {
+          FetchEntry entry = fetchQueue.poll(TERMINATION_WAIT_TIME, TimeUnit.MILLISECONDS);
+          if (entry == null) {
+            continue;
+          }
+
+          batch.add(entry);
+          long deadline = System.currentTimeMillis() + batchInterval;
+          while (batch.size() < batchSize) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+              fetchQueue.drainTo(batch, batchSize - batch.size());
+              break;
+            }
+            entry = fetchQueue.poll(wait, TimeUnit.MILLISECONDS);
+            if (entry == null) {
+              break;
+            }
+            batch.add(entry);
+          }
+
+          complete(batch, fetch(batch));
+          batch = Lists.newArrayListWithCapacity(batchSize);
+        }
+      } catch (InterruptedException e) {
+        LOG.info("Fetcher interrupted");
+      }
+    }
+
+    private void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      fetchExecutor.shutdown();
+      try {
+        if (!fetchExecutor.awaitTermination(TERMINATION_WAIT_TIME * 2, TimeUnit.MILLISECONDS)) {
+          fetchExecutor.shutdownNow();
+          LOG.info("Fetch executor forced shutdown");
+        }
+      } catch (InterruptedException e) {
+        LOG.error("Failed to shutdown fetch executor", e);
+      }
+
+      // The operators downstream have already been cleaned up
+      if (!completedQueue.isEmpty()) {
+        LOG.warn("Discarded {} fetched requests on close", completedQueue.size());
+        completedQueue.clear();
+      }
+    }
+  }
+
+  private static final class DrainTask implements SnapshotTask {
+
+    private AsyncFetcher fetcher;
+
+    private DrainTask(AsyncFetcher fetcher) {
+      this.fetcher = fetcher;
+    }
+
+    @Override
+    public void execute() {
+      fetcher.drain();
+    }
+  }
+
   private FetchProcessor processor;
   private String[] toFieldNames;
   private boolean open = false;
+  private AsyncFetcher fetcher;
 
   public JoinOperator(FetchProcessor processor, String[] toFieldNames) {
     super();
@@ -54,6 +297,31 @@ public class JoinOperator extends BaseOperator implements ExecOperator {
     this.processor = c.processor;
     this.toFieldNames = c.toFieldNames;
     this.open = c.open;
+    this.fetcher = c.fetcher;
+  }
+
+  private Integer getInteger(String key) {
+    Integer value = getConfig().getInteger(key + "." + getId());
+    if (value == null) {
+      value = getConfig().getInteger(key);
+    }
+    return value;
+  }
+
+  private Boolean getBoolean(String key) {
+    return getBoolean(getConfig(), key);
+  }
+
+  private Boolean getBoolean(GungnirConfig config, String key) {
+    Boolean value = config.getBoolean(key + "." + getId());
+    if (value == null) {
+      value = config.getBoolean(key);
+    }
+    return value;
+  }
+
+  public boolean isAsync(GungnirConfig config) {
+    return getBoolean(config, JOIN_OPERATOR_ASYNC_ENABLED);
   }
 
   @Override
@@ -66,6 +334,25 @@ public class JoinOperator extends BaseOperator implements ExecOperator {
       }
       open = true;
     }
+
+    if (fetcher == null && getBoolean(JOIN_OPERATOR_ASYNC_ENABLED)) {
+      fetcher = new AsyncFetcher(processor, getInteger(JOIN_OPERATOR_OUTSTANDING_MAX),
+          getInteger(JOIN_OPERATOR_BATCH_SIZE), getInteger(JOIN_OPERATOR_BATCH_INTERVAL),
+          getBoolean(JOIN_OPERATOR_ORDERED));
+      fetcher.start(getName(), getInteger(JOIN_OPERATOR_PARALLELISM));
+      // Fetched tuples are emitted on the executor thread, on every execute and on ticks
+      getContext().getComponent().addTickTask(new DrainTask(fetcher));
+    }
+  }
+
+  private void emit(GungnirTuple tuple, List<List<Object>> valuesList) {
+    for (List<Object> joinValues : valuesList) {
+      List<Object> values = Lists.newArrayList(tuple.getTupleValues().getValues());
+      values.addAll(joinValues);
+      TupleValues tupleValues = new TupleValues(tuple.getTupleName(), values);
+      tupleValues.setOrigin(tuple.getTupleValues().getOrigin());
+      dispatch(tupleValues);
+    }
   }
 
   @Override
@@ -74,15 +361,22 @@ public class JoinOperator extends BaseOperator implements ExecOperator {
       LOG.debug("execute({} {}) {}", getContext().getTopologyId(), getName(), tuple);
     }
 
-    try {
-      List<List<Object>> valuesList = processor.fetch(tuple);
-      for (List<Object> joinValues : valuesList) {
-        List<Object> values = Lists.newArrayList(tuple.getTupleValues().getValues());
-        values.addAll(joinValues);
-        dispatch(new TupleValues(tuple.getTupleName(), values));
+    if (fetcher != null) {
+      fetcher.drain();
+      try {
+        TupleValues tupleValues = new TupleValues(tuple.getTupleName(),
+            Lists.newArrayList(tuple.getTupleValues().getValues()));
+        tupleValues.setOrigin(tuple.getTupleValues().getOrigin());
+        fetcher.submit(this, new GungnirTuple(tuple.getFieldNames(), tupleValues));
+      } catch (InterruptedException e) {
+        LOG.info("Fetch request interrupted");
+      }
+    } else {
+      try {
+        emit(tuple, processor.fetch(tuple));
+      } catch (ProcessorException e) {
+        LOG.error("Failed to execute in processor", e);
       }
-    } catch (ProcessorException e) {
-      LOG.error("Failed to execute in processor", e);
     }
   }
 
@@ -98,6 +392,9 @@ public class JoinOperator extends BaseOperator implements ExecOperator {
 
   @Override
   public void cleanup() {
+    if (fetcher != null) {
+      fetcher.close();
+    }
     processor.close();
   }
 
@@ -20,6 +20,8 @@ package org.gennai.gungnir.topology.operator;
 
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.util.List;
+
 import org.gennai.gungnir.topology.operator.limit.LimitInterval;
 import org.gennai.gungnir.topology.operator.limit.LimitInterval.IntervalType;
 import org.gennai.gungnir.tuple.GungnirTuple;
@@ -28,8 +30,10 @@ import org.gennai.gungnir.utils.GungnirUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 @Operator.Description(name = "LIMIT", parameterNames = {"type", "interval"})
-public class LimitOperator extends BaseOperator implements ExecOperator {
+public class LimitOperator extends BaseOperator implements StatefulOperator {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(LimitOperator.class);
@@ -106,6 +110,19 @@ public class LimitOperator extends BaseOperator implements ExecOperator {
     }
   }
 
+  @Override
+  public Object saveState() {
+    return Lists.<Object>newArrayList(limitTime, counter, lastTupleValues);
+  }
+
+  @Override
+  public void restoreState(Object state) {
+    List<?> values = (List<?>) state;
+    limitTime = (Integer) values.get(0);
+    counter = (Integer) values.get(1);
+    lastTupleValues = (TupleValues) values.get(2);
+  }
+
   @Override
   public LimitOperator clone() {
     return new LimitOperator(this);
@@ -18,13 +18,21 @@
 
 package org.gennai.gungnir.topology.operator;
 
+import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.util.List;
+import java.util.Map;
+
 import org.gennai.gungnir.topology.grouping.Grouping;
+import org.gennai.gungnir.topology.operator.metrics.CountMeter;
 import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.TupleValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 @Operator.Description(name = "PARTITION", parameterNames = "grouping")
 public class PartitionOperator extends BaseOperator implements ExecOperator {
 
@@ -33,6 +41,8 @@ public class PartitionOperator extends BaseOperator implements ExecOperator {
   private static final Logger LOG = LoggerFactory.getLogger(PartitionOperator.class);
 
   private Grouping grouping;
+  private Map<String, int[]> projection;
+  private CountMeter loadCount;
 
   public PartitionOperator(Grouping grouping) {
     super();
@@ -42,6 +52,7 @@ public class PartitionOperator extends BaseOperator implements ExecOperator {
   private PartitionOperator(PartitionOperator c) {
     super(c);
     this.grouping = c.grouping;
+    this.projection = c.projection;
   }
 
   public void setGrouping(Grouping grouping) {
@@ -52,8 +63,37 @@ public class PartitionOperator extends BaseOperator implements ExecOperator {
     return grouping;
   }
 
+  public void setProjection(Map<String, int[]> projection) {
+    this.projection = projection;
+  }
+
+  public Map<String, int[]> getProjection() {
+    return projection;
+  }
+
+  public TupleValues project(TupleValues tupleValues) {
+    if (projection != null) {
+      int[] indexes = projection.get(tupleValues.getTupleName());
+      if (indexes != null) {
+        List<Object> values = tupleValues.getValues();
+        List<Object> projectValues = Lists.newArrayListWithCapacity(indexes.length);
+        for (int index : indexes) {
+          projectValues.add(values.get(index));
+        }
+        // The same values may also be dispatched unprojected to another partition
+        TupleValues projected = tupleValues.clone();
+        projected.setValues(projectValues);
+        return projected;
+      }
+    }
+    return tupleValues;
+  }
+
   @Override
   protected void prepare() {
+    if (getConfig().getBoolean(TOPOLOGY_METRICS_ENABLED)) {
+      loadCount = getMetrics(METRICS_PARTITION_LOAD);
+    }
   }
 
   @Override
@@ -62,6 +102,10 @@ public class PartitionOperator extends BaseOperator implements ExecOperator {
       LOG.debug("execute({} {}) {}", getContext().getTopologyId(), getName(), tuple);
     }
 
+    if (loadCount != null) {
+      loadCount.mark();
+    }
+
     dispatch(tuple.getTupleValues());
   }
 
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.Period;
+import org.gennai.gungnir.topology.operator.pattern.SequencePattern;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.store.MemoryTable;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.gennai.gungnir.utils.IntArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+@Operator.Description(name = "PATTERN", parameterNames = {"within", "stateField", "pattern"})
+public class PatternOperator extends BaseOperator implements KeyedOperator {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+  private static final Logger LOG = LoggerFactory.getLogger(PatternOperator.class);
+  private static final List<Object> NO_KEY = Collections.emptyList();
+
+  private Period within;
+  private FieldAccessor stateField;
+  private SequencePattern pattern;
+  private int withinSecs;
+  private transient MemoryTable runs;
+  private transient IntArrayUtils times;
+
+  public PatternOperator(Period within, FieldAccessor stateField, SequencePattern pattern) {
+    super();
+    this.within = within;
+    this.stateField = stateField;
+    this.pattern = pattern;
+  }
+
+  private PatternOperator(PatternOperator c) {
+    super(c);
+    this.within = c.within;
+    this.stateField = c.stateField;
+    this.pattern = c.pattern;
+  }
+
+  @Override
+  protected void prepare() {
+    withinSecs = within.toSeconds();
+    runs = new MemoryTable(withinSecs, getConfig().getInteger(PATTERN_SEEK_SIZE));
+    times = new IntArrayUtils(pattern.length());
+  }
+
+  // The runs of every group share one table keyed by (group key, NFA state), so a group needs no
+  // operator clone of its own and its runs are compacted away once they expire.
+  private static List<Object> runKey(List<Object> key, int state) {
+    List<Object> runKey = Lists.newArrayListWithCapacity(key.size() + 1);
+    runKey.addAll(key);
+    runKey.add(state);
+    return runKey;
+  }
+
+  // Partial matches are kept one per NFA state. A run that reached the same state later expires
+  // later and any sequence completing the older run completes it too, so it supersedes the older.
+  private void putRun(List<Object> key, int state, int startTime, int[] matchTimes) {
+    List<Object> runKey = runKey(key, state);
+    for (Iterator<MemoryTable.Entry> it = runs.iterator(runKey); it.hasNext();) {
+      MemoryTable.Entry entry = it.next();
+      if (entry.getTimeKey() - withinSecs >= startTime) {
+        return;
+      }
+      it.remove();
+    }
+    runs.put(runKey, startTime, times.create(matchTimes));
+  }
+
+  @Override
+  public void execute(GungnirTuple tuple) {
+    execute(NO_KEY, tuple);
+  }
+
+  @Override
+  public void execute(List<Object> key, GungnirTuple tuple) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("execute({} {}) {}", getContext().getTopologyId(), getName(), tuple);
+    }
+
+    int now = GungnirUtils.currentTimeSecs();
+    runs.compactRange();
+
+    int[] matched = null;
+    for (int state = pattern.length() - 1; state > 0; state--) {
+      Iterator<MemoryTable.Entry> it = runs.iterator(runKey(key, state));
+      if (!it.hasNext()) {
+        continue;
+      }
+
+      MemoryTable.Entry entry = it.next();
+      int startTime = entry.getTimeKey() - withinSecs;
+      int[] matchTimes = times.get(entry.getValue());
+      if (pattern.isMatch(state, tuple)) {
+        it.remove();
+        matchTimes[state] = now;
+        if (state == pattern.length() - 1) {
+          matched = matchTimes;
+        } else {
+          putRun(key, state + 1, startTime, matchTimes);
+        }
+      } else if (pattern.isGuarded(state, tuple)) {
+        it.remove();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Discard run started at {} in state {}", startTime, state);
+        }
+      } else if (pattern.isLoop(state - 1, tuple)) {
+        it.remove();
+        matchTimes[state - 1] = now;
+        putRun(key, state, startTime, matchTimes);
+      }
+    }
+
+    if (pattern.isMatch(0, tuple)) {
+      int[] matchTimes = new int[pattern.length()];
+      matchTimes[0] = now;
+      if (pattern.length() == 1) {
+        matched = matchTimes;
+      } else {
+        putRun(key, 1, now, matchTimes);
+      }
+    }
+
+    if (matched != null) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Match {}", getName());
+      }
+
+      if (stateField != null) {
+        List<Date> status = Lists.newArrayListWithCapacity(matched.length);
+        for (int time : matched) {
+          status.add(new Date(TimeUnit.SECONDS.toMillis(time)));
+        }
+        tuple.getTupleValues().getValues().add(status);
+      }
+
+      dispatch(tuple.getTupleValues());
+    }
+  }
+
+  @Override
+  public List<Field> getOutputFields() {
+    if (stateField != null) {
+      List<Field> fields = Lists.newArrayListWithCapacity(2);
+      fields.add(new FieldAccessor("*"));
+      fields.add(stateField);
+      return fields;
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public PatternOperator clone() {
+    return new PatternOperator(this);
+  }
+}
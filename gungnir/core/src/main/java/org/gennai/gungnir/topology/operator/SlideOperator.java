@@ -18,17 +18,23 @@
 
 package org.gennai.gungnir.topology.operator;
 
+import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.gennai.gungnir.Period;
 import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
 import org.gennai.gungnir.topology.operator.slide.SlideLength;
 import org.gennai.gungnir.topology.operator.slide.SlideLength.LengthType;
 import org.gennai.gungnir.topology.udf.AggregateFunction;
+import org.gennai.gungnir.topology.udf.BaseSlidingFunction;
 import org.gennai.gungnir.topology.udf.Function;
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.FieldAccessor;
@@ -39,14 +45,18 @@ import org.gennai.gungnir.tuple.store.Query;
 import org.gennai.gungnir.tuple.store.Query.ConditionType;
 import org.gennai.gungnir.tuple.store.TupleStore;
 import org.gennai.gungnir.utils.GungnirUtils;
+import org.gennai.gungnir.utils.SnapshotJob;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
+import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 @Operator.Description(name = "SLIDE", parameterNames = {"slideLength", "fields"})
-public class SlideOperator extends BaseOperator implements ExecOperator {
+public class SlideOperator extends BaseOperator implements KeyedStatefulOperator {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(SlideOperator.class);
@@ -57,11 +67,53 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
   private List<FieldAccessor> accessFields;
   private List<String> accessFieldNames;
   private TupleStore tupleStore;
+  private int allowedLatenessSecs;
+  private Map<Object, EventTime> eventTimes;
+  private MultiCountMeter eventTimeCount;
+  private Set<Object> keyValues;
+  private Set<Object> changedKeys;
+  private String tupleName;
+  private SnapshotJob flushJob;
+  private Set<SlideOperator> pendingOperators;
+
+  private static class PendingTuple implements Comparable<PendingTuple> {
+
+    private int timeKeyValue;
+    private long seq;
+    private GungnirTuple tuple;
+
+    PendingTuple(int timeKeyValue, long seq, GungnirTuple tuple) {
+      this.timeKeyValue = timeKeyValue;
+      this.seq = seq;
+      this.tuple = tuple;
+    }
+
+    @Override
+    public int compareTo(PendingTuple o) {
+      if (timeKeyValue != o.timeKeyValue) {
+        return timeKeyValue < o.timeKeyValue ? -1 : 1;
+      }
+      return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+    }
+  }
+
+  private static class EventTime {
+
+    private int maxTime = Integer.MIN_VALUE;
+    private int windowEnd = Integer.MIN_VALUE;
+    private long seq;
+    private int arrivalSecs;
+    private PriorityQueue<PendingTuple> pendingTuples = new PriorityQueue<PendingTuple>();
+  }
 
   public SlideOperator(SlideLength slideLength, Field[] fields) {
     super();
     this.slideLength = slideLength;
     this.fields = fields;
+
+    if (slideLength.getType() == LengthType.TIME) {
+      registerMetrics(METRICS_EVENT_TIME, new MultiCountMeter());
+    }
   }
 
   private SlideOperator(SlideOperator c) {
@@ -78,11 +130,20 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
     this.accessFields = c.accessFields;
     this.accessFieldNames = c.accessFieldNames;
     this.tupleStore = c.tupleStore;
+    this.flushJob = c.flushJob;
+    this.pendingOperators = c.pendingOperators;
+  }
+
+  public SlideLength getSlideLength() {
+    return slideLength;
   }
 
   @Override
   protected void prepare() {
     for (Field field : fields) {
+      if (field instanceof BaseSlidingFunction<?>) {
+        ((BaseSlidingFunction<?>) field).setSliding(true);
+      }
       if (field instanceof Function<?>) {
         ((Function<?>) field).prepare(getConfig(), getContext());
       }
@@ -90,6 +151,23 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
 
     if (slideLength.getType() == LengthType.TIME) {
       periodSecs = slideLength.getPeriod().toSeconds();
+      allowedLatenessSecs = getConfig().getInteger(SLIDE_ALLOWED_LATENESS_SECS);
+      eventTimes = Maps.newHashMap();
+      eventTimeCount = getMetrics(METRICS_EVENT_TIME);
+
+      // A single flush task is shared by the clones, only clones holding pending tuples are
+      // visited
+      if (allowedLatenessSecs > 0 && flushJob == null) {
+        flushJob = new SnapshotJob();
+        pendingOperators = Sets.newSetFromMap(Maps.<SlideOperator, Boolean>newConcurrentMap());
+        flushJob.addTask(new FlushTask(pendingOperators));
+        try {
+          getContext().getComponent().getShapshotTimer()
+              .periodSchedule(Period.of(allowedLatenessSecs, TimeUnit.SECONDS), flushJob);
+        } catch (SchedulerException e) {
+          LOG.error("Failed to add schedule", e);
+        }
+      }
     }
 
     if (accessFields == null) {
@@ -118,6 +196,9 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
       tupleStore = new InMemoryTupleStore();
       tupleStore.open(getConfig(), getContext());
     }
+
+    keyValues = Sets.newHashSet();
+    changedKeys = Sets.newHashSet();
   }
 
   @Override
@@ -126,6 +207,115 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
       LOG.debug("execute({} {}) {}", getContext().getTopologyId(), getName(), tuple);
     }
 
+    synchronized (this) {
+      Object keyValue = null;
+      Integer timeKeyValue = null;
+      GroupFields groupFields = getContext().getGroupFields().get(getName());
+      if (groupFields != null) {
+        keyValue = groupFields.getValues(tuple);
+      } else {
+        keyValue = getContext().getComponent().getTopologyContext().getThisTaskIndex();
+      }
+
+      if (slideLength.getTimeField() != null) {
+        Object value = slideLength.getTimeField().getValue(tuple);
+        if (value instanceof Date) {
+          timeKeyValue = (int) TimeUnit.MILLISECONDS.toSeconds(((Date) value).getTime());
+        }
+      }
+
+      if (keyValue != null) {
+        keyValues.add(keyValue);
+        changedKeys.add(keyValue);
+        if (timeKeyValue != null) {
+          EventTime eventTime = eventTimes.get(keyValue);
+          if (eventTime == null) {
+            eventTime = new EventTime();
+            eventTimes.put(keyValue, eventTime);
+          }
+
+          if (eventTime.windowEnd != Integer.MIN_VALUE
+              && timeKeyValue < eventTime.windowEnd - periodSecs) {
+            if (eventTimeCount != null) {
+              eventTimeCount.scope(METRICS_EVENT_TIME_LATE).mark();
+            }
+            if (LOG.isDebugEnabled()) {
+              LOG.debug("Drop late tuple({} {}) window end {} {}", getContext().getTopologyId(),
+                  getName(), eventTime.windowEnd, tuple);
+            }
+            return;
+          }
+
+          if (allowedLatenessSecs > 0) {
+            if (timeKeyValue > eventTime.maxTime) {
+              eventTime.maxTime = timeKeyValue;
+            }
+            eventTime.pendingTuples.add(new PendingTuple(timeKeyValue, eventTime.seq++, tuple));
+            eventTime.arrivalSecs = GungnirUtils.currentTimeSecs();
+
+            int watermark = eventTime.maxTime - allowedLatenessSecs;
+            while (!eventTime.pendingTuples.isEmpty()
+                && eventTime.pendingTuples.peek().timeKeyValue <= watermark) {
+              PendingTuple pending = eventTime.pendingTuples.poll();
+              slide(pending.tuple, keyValue, pending.timeKeyValue, eventTime);
+            }
+            if (!eventTime.pendingTuples.isEmpty()) {
+              pendingOperators.add(this);
+            }
+          } else {
+            slide(tuple, keyValue, timeKeyValue, eventTime);
+          }
+        } else {
+          slide(tuple, keyValue, null, null);
+        }
+      }
+    }
+  }
+
+  private static class FlushTask implements SnapshotTask {
+
+    private Set<SlideOperator> operators;
+
+    FlushTask(Set<SlideOperator> operators) {
+      this.operators = operators;
+    }
+
+    @Override
+    public void execute() {
+      for (SlideOperator operator : operators) {
+        synchronized (operator) {
+          if (operator.flushIdle()) {
+            operators.remove(operator);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean flushIdle() {
+    int now = GungnirUtils.currentTimeSecs();
+    boolean flushed = true;
+    for (Map.Entry<Object, EventTime> entry : eventTimes.entrySet()) {
+      EventTime eventTime = entry.getValue();
+      if (!eventTime.pendingTuples.isEmpty()) {
+        if (now - eventTime.arrivalSecs >= allowedLatenessSecs) {
+          changedKeys.add(entry.getKey());
+          while (!eventTime.pendingTuples.isEmpty()) {
+            PendingTuple pending = eventTime.pendingTuples.poll();
+            slide(pending.tuple, entry.getKey(), pending.timeKeyValue, eventTime);
+          }
+        } else {
+          flushed = false;
+        }
+      }
+    }
+    return flushed;
+  }
+
+  private void slide(GungnirTuple tuple, Object keyValue, Integer timeKeyValue,
+      EventTime eventTime) {
+    tupleName = tuple.getTupleName();
+
     List<Object> values = Lists.newArrayList();
     if (accessFields.isEmpty()) {
       values.add(tuple.getTupleName());
@@ -135,80 +325,156 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
       }
     }
 
-    Object keyValue = null;
-    Integer timeKeyValue = null;
-    GroupFields groupFields = getContext().getGroupFields().get(getName());
-    if (groupFields != null) {
-      keyValue = groupFields.getValues(tuple);
+    List<List<Object>> excludeValues = null;
+    if (timeKeyValue != null) {
+      if (timeKeyValue < eventTime.windowEnd) {
+        if (eventTimeCount != null) {
+          eventTimeCount.scope(METRICS_EVENT_TIME_REORDERED).mark();
+        }
+      } else {
+        eventTime.windowEnd = timeKeyValue;
+      }
+
+      tupleStore.put(keyValue, timeKeyValue, values);
+      excludeValues = tupleStore.findAndRemove(Query.builder().hashKeyValue(keyValue)
+          .timeKeyCondition(ConditionType.LT, eventTime.windowEnd - periodSecs).build());
     } else {
-      keyValue = getContext().getComponent().getTopologyContext().getThisTaskIndex();
+      tupleStore.put(keyValue, GungnirUtils.currentTimeSecs(), values);
+      int count = tupleStore.count(Query.builder().hashKeyValue(keyValue).build());
+      if (count > slideLength.getCount()) {
+        excludeValues = tupleStore.findAndRemove(Query.builder().hashKeyValue(keyValue)
+            .limit(count - slideLength.getCount()).build());
+      }
     }
 
-    if (slideLength.getTimeField() != null) {
-      Object value = slideLength.getTimeField().getValue(tuple);
-      if (value instanceof Date) {
-        timeKeyValue = (int) TimeUnit.MILLISECONDS.toSeconds(((Date) value).getTime());
+    GungnirTuple includeTuple = new GungnirTuple(accessFieldNames,
+        new TupleValues(tuple.getTupleName(), values));
+    List<GungnirTuple> excludeTuples = null;
+    if (excludeValues != null && !excludeValues.isEmpty()) {
+      excludeTuples = Lists.newArrayListWithCapacity(excludeValues.size());
+      for (List<Object> exclude : excludeValues) {
+        excludeTuples.add(new GungnirTuple(accessFieldNames,
+            new TupleValues(tuple.getTupleName(), exclude)));
       }
     }
 
-    if (keyValue != null) {
-      List<List<Object>> excludeValues = null;
-      if (timeKeyValue != null) {
-        tupleStore.put(keyValue, timeKeyValue, values);
-        excludeValues = tupleStore.findAndRemove(Query.builder().hashKeyValue(keyValue)
-            .timeKeyCondition(ConditionType.LT, timeKeyValue - periodSecs).build());
-      } else {
-        tupleStore.put(keyValue, GungnirUtils.currentTimeSecs(), values);
-        int count = tupleStore.count(Query.builder().hashKeyValue(keyValue).build());
-        if (count > slideLength.getCount()) {
-          excludeValues = tupleStore.findAndRemove(Query.builder().hashKeyValue(keyValue)
-              .limit(count - slideLength.getCount()).build());
+    List<Object> outputValues = Lists.newArrayList();
+    for (Field field : fields) {
+      if (field instanceof FieldAccessor) {
+        FieldAccessor f = (FieldAccessor) field;
+        if (f.isWildcardField()) {
+          if (f.getTupleAccessor() == null) {
+            outputValues.addAll(tuple.getTupleValues().getValues());
+          } else {
+            if (tuple.getTupleName().equals(f.getTupleAccessor().getTupleName())) {
+              outputValues.addAll(tuple.getTupleValues().getValues());
+            }
+          }
+        } else if (f.isContextField()) {
+          outputValues.add(getContext().get(f.getOriginalName()));
+        } else {
+          outputValues.add(field.getValue(tuple));
+        }
+      } else if (field instanceof AggregateFunction<?>) {
+        Object value = field.getValue(includeTuple);
+        if (excludeTuples != null) {
+          for (GungnirTuple excludeTuple : excludeTuples) {
+            value = ((AggregateFunction<?>) field).exclude(excludeTuple);
+          }
         }
+        outputValues.add(value);
+      }
+    }
+
+    TupleValues tupleValues = tuple.getTupleValues();
+    tupleValues.setValues(outputValues);
+
+    dispatch(tupleValues);
+  }
+
+  @Override
+  public Object saveState() {
+    return null;
+  }
+
+  @Override
+  public void restoreState(Object state) {
+  }
+
+  @Override
+  public Set<Object> pollChangedKeys() {
+    synchronized (this) {
+      Set<Object> keys = changedKeys;
+      changedKeys = Sets.newHashSet();
+      return keys;
+    }
+  }
+
+  @Override
+  public Object saveState(Object keyValue) {
+    synchronized (this) {
+      Query query = Query.builder().hashKeyValue(keyValue).build();
+      List<Integer> timeKeys = tupleStore.findTimeKeys(query);
+      if (timeKeys == null) {
+        return null;
       }
 
-      GungnirTuple includeTuple = new GungnirTuple(accessFieldNames,
-          new TupleValues(tuple.getTupleName(), values));
-      List<GungnirTuple> excludeTuples = null;
-      if (excludeValues != null && !excludeValues.isEmpty()) {
-        excludeTuples = Lists.newArrayListWithCapacity(excludeValues.size());
-        for (List<Object> exclude : excludeValues) {
-          excludeTuples.add(new GungnirTuple(accessFieldNames,
-              new TupleValues(tuple.getTupleName(), exclude)));
+      List<Object> eventTimeState = null;
+      EventTime eventTime = eventTimes != null ? eventTimes.get(keyValue) : null;
+      if (eventTime != null) {
+        List<Object> pendingTuples = Lists.newArrayList();
+        for (PendingTuple pending : eventTime.pendingTuples) {
+          pendingTuples.add(Lists.<Object>newArrayList(pending.timeKeyValue,
+              Lists.newArrayList(pending.tuple.getFieldNames()),
+              pending.tuple.getTupleValues()));
         }
+        eventTimeState = Lists.<Object>newArrayList(eventTime.maxTime, eventTime.windowEnd,
+            pendingTuples);
       }
 
-      List<Object> outputValues = Lists.newArrayList();
-      for (Field field : fields) {
-        if (field instanceof FieldAccessor) {
-          FieldAccessor f = (FieldAccessor) field;
-          if (f.isWildcardField()) {
-            if (f.getTupleAccessor() == null) {
-              outputValues.addAll(tuple.getTupleValues().getValues());
-            } else {
-              if (tuple.getTupleName().equals(f.getTupleAccessor().getTupleName())) {
-                outputValues.addAll(tuple.getTupleValues().getValues());
-              }
-            }
-          } else if (f.isContextField()) {
-            outputValues.add(getContext().get(f.getOriginalName()));
-          } else {
-            outputValues.add(field.getValue(tuple));
-          }
-        } else if (field instanceof AggregateFunction<?>) {
-          Object value = field.getValue(includeTuple);
-          if (excludeTuples != null) {
-            for (GungnirTuple excludeTuple : excludeTuples) {
-              value = ((AggregateFunction<?>) field).exclude(excludeTuple);
-            }
+      return Lists.<Object>newArrayList(tupleName, timeKeys, tupleStore.find(query),
+          eventTimeState);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void restoreState(Object keyValue, Object state) {
+    synchronized (this) {
+      List<Object> values = (List<Object>) state;
+      tupleName = (String) values.get(0);
+      List<Integer> timeKeys = (List<Integer>) values.get(1);
+      List<List<Object>> tuples = (List<List<Object>>) values.get(2);
+
+      keyValues.add(keyValue);
+      for (int i = 0; i < timeKeys.size(); i++) {
+        tupleStore.put(keyValue, timeKeys.get(i), tuples.get(i));
+        GungnirTuple includeTuple = new GungnirTuple(accessFieldNames,
+            new TupleValues(tupleName, tuples.get(i)));
+        for (Field field : fields) {
+          if (field instanceof AggregateFunction<?>) {
+            field.getValue(includeTuple);
           }
-          outputValues.add(value);
         }
       }
 
-      TupleValues tupleValues = tuple.getTupleValues();
-      tupleValues.setValues(outputValues);
-
-      dispatch(tupleValues);
+      List<Object> eventTimeState = (List<Object>) values.get(3);
+      if (eventTimeState != null && eventTimes != null) {
+        EventTime eventTime = new EventTime();
+        eventTime.maxTime = (Integer) eventTimeState.get(0);
+        eventTime.windowEnd = (Integer) eventTimeState.get(1);
+        eventTime.arrivalSecs = GungnirUtils.currentTimeSecs();
+        for (Object pendingState : (List<Object>) eventTimeState.get(2)) {
+          List<Object> pending = (List<Object>) pendingState;
+          eventTime.pendingTuples.add(new PendingTuple((Integer) pending.get(0),
+              eventTime.seq++, new GungnirTuple((List<String>) pending.get(1),
+                  (TupleValues) pending.get(2))));
+        }
+        eventTimes.put(keyValue, eventTime);
+        if (!eventTime.pendingTuples.isEmpty() && pendingOperators != null) {
+          pendingOperators.add(this);
+        }
+      }
     }
   }
 
@@ -219,6 +485,9 @@ public class SlideOperator extends BaseOperator implements ExecOperator {
 
   @Override
   protected void cleanup() {
+    if (pendingOperators != null) {
+      pendingOperators.remove(this);
+    }
     if (tupleStore.isOpen()) {
       tupleStore.close();
     }
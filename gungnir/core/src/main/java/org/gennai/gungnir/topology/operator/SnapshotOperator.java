@@ -15,19 +15,23 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.gennai.gungnir.topology.operator;
 
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.text.ParseException;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.gennai.gungnir.Period;
 import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
 import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval.IntervalType;
 import org.gennai.gungnir.topology.udf.AggregateFunction;
 import org.gennai.gungnir.topology.udf.Function;
+import org.gennai.gungnir.topology.udf.MergeableFunction;
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.FieldAccessor;
 import org.gennai.gungnir.tuple.GungnirTuple;
@@ -41,24 +45,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
-@Operator.Description(name = "SNAPSHOT", parameterNames = {"interval", "fields", "expire"})
-public class SnapshotOperator extends BaseOperator implements ExecOperator {
+@Operator.Description(name = "SNAPSHOT", parameterNames = {"interval", "length", "fields",
+    "expire"})
+public class SnapshotOperator extends BaseOperator implements KeyedOperator, KeyedStatefulOperator {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(SnapshotOperator.class);
 
   private SnapshotInterval interval;
+  private Period length;
   private Field[] fields;
   private SnapshotInterval expire;
   private SnapshotJob snapshotJob;
-  private TupleValues lastTupleValues;
-  private long expireTime;
-  private Integer counter;
+  private Integer alignOffsetSecs;
+  private Map<List<Object>, KeyState> keyStates;
+  private Set<Object> changedKeys;
+  private Field[] mergeFields;
+  private int numPanes;
+  private int currentPane;
+
+  private static class KeyState {
+
+    private Field[] fields;
+    private TupleValues lastTupleValues;
+    private GungnirTuple lastTuple;
+    private Object[][] panes;
+    private int counter;
+    private long expireTime;
+  }
 
   public SnapshotOperator(SnapshotInterval interval, Field[] fields, SnapshotInterval expire) {
+    this(interval, null, fields, expire);
+  }
+
+  public SnapshotOperator(SnapshotInterval interval, Period length, Field[] fields,
+      SnapshotInterval expire) {
     super();
     this.interval = interval;
+    this.length = length;
     this.fields = fields;
     this.expire = expire;
   }
@@ -66,16 +93,52 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
   private SnapshotOperator(SnapshotOperator c) {
     super(c);
     this.interval = c.interval;
-    this.fields = new Field[c.fields.length];
-    for (int i = 0; i < c.fields.length; i++) {
-      if (c.fields[i] instanceof Function<?>) {
-        this.fields[i] = ((Function<?>) c.fields[i]).clone();
+    this.length = c.length;
+    this.fields = cloneFields(c.fields);
+    this.expire = c.expire;
+    this.snapshotJob = c.snapshotJob;
+    this.alignOffsetSecs = c.alignOffsetSecs;
+  }
+
+  public SnapshotInterval getInterval() {
+    return interval;
+  }
+
+  public Period getLength() {
+    return length;
+  }
+
+  public Field[] getFields() {
+    return fields;
+  }
+
+  public SnapshotInterval getExpire() {
+    return expire;
+  }
+
+  public void setAlignOffsetSecs(Integer alignOffsetSecs) {
+    this.alignOffsetSecs = alignOffsetSecs;
+  }
+
+  private static Field[] cloneFields(Field[] fields) {
+    Field[] clonedFields = new Field[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i] instanceof Function<?>) {
+        clonedFields[i] = ((Function<?>) fields[i]).clone();
       } else {
-        this.fields[i] = c.fields[i];
+        clonedFields[i] = fields[i];
       }
     }
-    this.expire = c.expire;
-    this.snapshotJob = c.snapshotJob;
+    return clonedFields;
+  }
+
+  private Field[] prepareFields(Field[] fields) {
+    for (Field field : fields) {
+      if (field instanceof Function<?>) {
+        ((Function<?>) field).prepare(getConfig(), getContext());
+      }
+    }
+    return fields;
   }
 
   private class CommitTask implements SnapshotTask {
@@ -83,9 +146,10 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
     @Override
     public void execute() {
       synchronized (SnapshotOperator.this) {
-        if (lastTupleValues != null) {
-          SnapshotOperator.this.dispatch(lastTupleValues);
-          lastTupleValues = null;
+        if (numPanes > 0) {
+          closePane();
+        } else {
+          commit();
         }
       }
     }
@@ -93,21 +157,27 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
 
   @Override
   protected void prepare() {
-    for (Field field : fields) {
-      if (field instanceof Function<?>) {
-        ((Function<?>) field).prepare(getConfig(), getContext());
-      }
+    prepareFields(fields);
+
+    keyStates = Maps.newLinkedHashMap();
+    changedKeys = Sets.newHashSet();
+
+    if (length != null) {
+      numPanes = length.toSeconds() / interval.getPeriod().toSeconds();
+      mergeFields = prepareFields(cloneFields(fields));
+      currentPane = 0;
     }
 
-    if (interval.getType() == IntervalType.COUNT) {
-      counter = 0;
-    } else {
+    if (interval.getType() != IntervalType.COUNT) {
       if (snapshotJob == null) {
         snapshotJob = new SnapshotJob();
         try {
           if (interval.getType() == IntervalType.CRON) {
             getContext().getComponent().getShapshotTimer()
                 .cronSchedule(interval.getSchedulingPattern(), snapshotJob);
+          } else if (alignOffsetSecs != null) {
+            getContext().getComponent().getShapshotTimer()
+                .alignedPeriodSchedule(interval.getPeriod(), alignOffsetSecs, snapshotJob);
           } else {
             getContext().getComponent().getShapshotTimer()
                 .periodSchedule(interval.getPeriod(), snapshotJob);
@@ -118,29 +188,42 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
       }
 
       snapshotJob.addTask(new CommitTask());
+    }
+  }
 
-      if (expire != null) {
-        if (interval.getType() == IntervalType.CRON) {
-          CronExpression cronExpr;
-          try {
-            cronExpr = new CronExpression(expire.getSchedulingPattern());
-            expireTime = cronExpr.getNextValidTimeAfter(new Date(GungnirUtils.currentTimeMillis()))
-                .getTime();
-          } catch (ParseException e) {
-            LOG.error("Failed to parse pattern", e);
-          }
-        } else {
-          expireTime = GungnirUtils.currentTimeMillis()
-              + expire.getPeriod().getTimeUnit().toMillis(expire.getPeriod().getTime());
+  private KeyState createKeyState() {
+    KeyState state = new KeyState();
+    state.fields = prepareFields(cloneFields(fields));
+
+    if (numPanes > 0) {
+      state.panes = new Object[numPanes][];
+    }
+
+    if (interval.getType() == IntervalType.COUNT) {
+      state.counter = 0;
+    } else if (expire != null) {
+      if (interval.getType() == IntervalType.CRON) {
+        CronExpression cronExpr;
+        try {
+          cronExpr = new CronExpression(expire.getSchedulingPattern());
+          state.expireTime = cronExpr.getNextValidTimeAfter(
+              new Date(GungnirUtils.currentTimeMillis())).getTime();
+        } catch (ParseException e) {
+          LOG.error("Failed to parse pattern", e);
         }
+      } else {
+        state.expireTime = GungnirUtils.currentTimeMillis()
+            + expire.getPeriod().getTimeUnit().toMillis(expire.getPeriod().getTime());
       }
     }
+    return state;
   }
 
-  private TupleValues getTupleValues(GungnirTuple tuple) {
+  private TupleValues getTupleValues(Field[] fields, GungnirTuple tuple, Object[] aggValues) {
     List<Object> outputValues = Lists.newArrayList();
 
-    for (Field field : fields) {
+    for (int i = 0; i < fields.length; i++) {
+      Field field = fields[i];
       if (field instanceof FieldAccessor) {
         FieldAccessor f = (FieldAccessor) field;
         if (f.isWildcardField()) {
@@ -156,18 +239,17 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
         } else {
           outputValues.add(field.getValue(tuple));
         }
+      } else if (aggValues != null && field instanceof AggregateFunction<?>) {
+        outputValues.add(aggValues[i]);
       } else {
         outputValues.add(field.getValue(tuple));
       }
     }
 
-    TupleValues tupleValues = tuple.getTupleValues();
-    tupleValues.setValues(outputValues);
-
-    return tupleValues;
+    return new TupleValues(tuple.getTupleName(), outputValues);
   }
 
-  private void clear() {
+  private static void clear(Field[] fields) {
     for (Field field : fields) {
       if (field instanceof AggregateFunction<?>) {
         ((AggregateFunction<?>) field).clear();
@@ -175,60 +257,217 @@ public class SnapshotOperator extends BaseOperator implements ExecOperator {
     }
   }
 
-  private void expire() {
-    if (expire == null) {
-      clear();
-    } else {
-      if (expireTime > 0 && GungnirUtils.currentTimeMillis() >= expireTime) {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("expire {} >= {}", GungnirUtils.currentTimeMillis(), expireTime);
+  private void expire(KeyState state) {
+    if (state.expireTime > 0 && GungnirUtils.currentTimeMillis() >= state.expireTime) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("expire {} >= {}", GungnirUtils.currentTimeMillis(), state.expireTime);
+      }
+      clear(state.fields);
+
+      if (expire.getType() == IntervalType.CRON) {
+        try {
+          CronExpression cronExpr = new CronExpression(expire.getSchedulingPattern());
+          state.expireTime = cronExpr.getNextValidTimeAfter(
+              new Date(GungnirUtils.currentTimeMillis())).getTime();
+        } catch (ParseException e) {
+          state.expireTime = 0;
+          LOG.error("Failed to parse pattern", e);
         }
-        clear();
-
-        if (expire.getType() == IntervalType.CRON) {
-          try {
-            CronExpression cronExpr = new CronExpression(expire.getSchedulingPattern());
-            expireTime = cronExpr.getNextValidTimeAfter(
-                new Date(GungnirUtils.currentTimeMillis())).getTime();
-          } catch (ParseException e) {
-            expireTime = 0;
-            LOG.error("Failed to parse pattern", e);
+      } else {
+        long expireMs = expire.getPeriod().getTimeUnit().toMillis(expire.getPeriod().getTime());
+        state.expireTime +=
+            ((GungnirUtils.currentTimeMillis() - state.expireTime) / expireMs + 1) * expireMs;
+      }
+    }
+  }
+
+  // With EXPIRE, the state of an idle key is kept until it expires, because the next tuple of the
+  // key would have to be aggregated onto it. After that the next tuple would clear it anyway.
+  private void commit() {
+    Iterator<Map.Entry<List<Object>, KeyState>> it = keyStates.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<List<Object>, KeyState> entry = it.next();
+      KeyState state = entry.getValue();
+      if (state.lastTupleValues != null) {
+        dispatch(state.lastTupleValues);
+        state.lastTupleValues = null;
+        changedKeys.add(entry.getKey());
+        if (expire == null) {
+          it.remove();
+        }
+      } else if (expire == null || (state.expireTime > 0
+          && GungnirUtils.currentTimeMillis() >= state.expireTime)) {
+        it.remove();
+        changedKeys.add(entry.getKey());
+      }
+    }
+  }
+
+  private void closePane() {
+    changedKeys.addAll(keyStates.keySet());
+    Iterator<KeyState> it = keyStates.values().iterator();
+    while (it.hasNext()) {
+      KeyState state = it.next();
+      if (state.lastTupleValues != null) {
+        Object[] partials = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+          if (state.fields[i] instanceof MergeableFunction<?>) {
+            partials[i] = ((MergeableFunction<?>) state.fields[i]).partial();
           }
-        } else {
-          long expireMs = expire.getPeriod().getTimeUnit().toMillis(expire.getPeriod().getTime());
-          expireTime +=
-              ((GungnirUtils.currentTimeMillis() - expireTime) / expireMs + 1) * expireMs;
         }
+        state.panes[currentPane] = partials;
+        clear(state.fields);
+        state.lastTupleValues = null;
+      } else {
+        state.panes[currentPane] = null;
       }
+
+      clear(mergeFields);
+      Object[] aggValues = null;
+      for (Object[] partials : state.panes) {
+        if (partials != null) {
+          if (aggValues == null) {
+            aggValues = new Object[fields.length];
+          }
+          for (int i = 0; i < fields.length; i++) {
+            if (mergeFields[i] instanceof MergeableFunction<?>) {
+              aggValues[i] = ((MergeableFunction<?>) mergeFields[i]).merge(partials[i]);
+            }
+          }
+        }
+      }
+
+      if (aggValues == null) {
+        it.remove();
+      } else {
+        dispatch(getTupleValues(mergeFields, state.lastTuple, aggValues));
+      }
+    }
+
+    currentPane = (currentPane + 1) % numPanes;
+    for (KeyState state : keyStates.values()) {
+      state.panes[currentPane] = null;
     }
   }
 
   @Override
   public void execute(GungnirTuple tuple) {
+    execute(null, tuple);
+  }
+
+  @Override
+  public void execute(List<Object> key, GungnirTuple tuple) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("execute({} {}) {}", getContext().getTopologyId(), getName(), tuple);
     }
 
-    if (interval.getType() == IntervalType.COUNT) {
-      TupleValues tupleValues = getTupleValues(tuple);
-
-      counter++;
-      if (counter >= interval.getCount()) {
-        dispatch(tupleValues);
-        for (Field field : fields) {
-          if (field instanceof AggregateFunction<?>) {
-            ((AggregateFunction<?>) field).clear();
-          }
+    synchronized (this) {
+      KeyState state = keyStates.get(key);
+      if (state == null) {
+        state = createKeyState();
+        keyStates.put(key, state);
+      }
+      changedKeys.add(key);
+
+      if (interval.getType() == IntervalType.COUNT) {
+        TupleValues tupleValues = getTupleValues(state.fields, tuple, null);
+
+        state.counter++;
+        if (state.counter >= interval.getCount()) {
+          dispatch(tupleValues);
+          clear(state.fields);
+          state.counter = 0;
+        }
+      } else {
+        if (state.lastTupleValues == null && expire != null) {
+          expire(state);
+        }
+        state.lastTupleValues = getTupleValues(state.fields, tuple, null);
+        if (numPanes > 0) {
+          state.lastTuple = tuple;
         }
-        counter = 0;
       }
-    } else {
-      synchronized (this) {
-        if (lastTupleValues == null) {
-          expire();
+    }
+  }
+
+  @Override
+  public Object saveState() {
+    synchronized (this) {
+      return currentPane;
+    }
+  }
+
+  @Override
+  public void restoreState(Object state) {
+    synchronized (this) {
+      currentPane = (Integer) state;
+    }
+  }
+
+  @Override
+  public Set<Object> pollChangedKeys() {
+    synchronized (this) {
+      Set<Object> keys = changedKeys;
+      changedKeys = Sets.newHashSet();
+      return keys;
+    }
+  }
+
+  @Override
+  public Object saveState(Object key) {
+    synchronized (this) {
+      KeyState state = keyStates.get(key);
+      if (state == null) {
+        return null;
+      }
+
+      Object[] partials = new Object[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        if (state.fields[i] instanceof MergeableFunction<?>) {
+          partials[i] = ((MergeableFunction<?>) state.fields[i]).partial();
         }
-        lastTupleValues = getTupleValues(tuple);
       }
+      List<Object> lastTuple = null;
+      if (state.lastTuple != null) {
+        lastTuple = Lists.<Object>newArrayList(
+            Lists.newArrayList(state.lastTuple.getFieldNames()),
+            state.lastTuple.getTupleValues());
+      }
+
+      return Lists.<Object>newArrayList(state.lastTupleValues, state.counter,
+          state.expireTime, partials, state.panes, lastTuple);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void restoreState(Object key, Object state) {
+    synchronized (this) {
+      List<?> values = (List<?>) state;
+      KeyState keyState = createKeyState();
+      keyState.lastTupleValues = (TupleValues) values.get(0);
+      keyState.counter = (Integer) values.get(1);
+      keyState.expireTime = (Long) values.get(2);
+
+      Object[] partials = (Object[]) values.get(3);
+      for (int i = 0; i < fields.length; i++) {
+        if (keyState.fields[i] instanceof MergeableFunction<?> && partials[i] != null) {
+          ((MergeableFunction<?>) keyState.fields[i]).merge(partials[i]);
+        }
+      }
+
+      Object[][] panes = (Object[][]) values.get(4);
+      if (numPanes > 0 && panes != null && panes.length == numPanes) {
+        keyState.panes = panes;
+      }
+
+      List<?> lastTuple = (List<?>) values.get(5);
+      if (lastTuple != null) {
+        keyState.lastTuple = new GungnirTuple((List<String>) lastTuple.get(0),
+            (TupleValues) lastTuple.get(1));
+      }
+
+      keyStates.put((List<Object>) key, keyState);
     }
   }
 
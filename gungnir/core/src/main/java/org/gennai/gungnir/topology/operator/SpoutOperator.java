@@ -27,6 +27,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.gennai.gungnir.topology.ConditionEvaluator;
+import org.gennai.gungnir.topology.operator.metrics.GaugeMeter;
 import org.gennai.gungnir.topology.processor.ProcessorException;
 import org.gennai.gungnir.topology.processor.SpoutProcessor;
 import org.gennai.gungnir.topology.processor.spout.TupleAndMessageId;
@@ -68,6 +69,7 @@ public class SpoutOperator extends BaseOperator {
             for (TupleAndMessageId tupleAndMessageId : tupleAndMessageIds) {
               TupleValues tupleValues = new TupleValues(schema.getSchemaName(),
                   tupleAndMessageId.getValues());
+              tupleValues.setOrigin(tupleAndMessageId.getOrigin());
 
               if (schema instanceof TupleSchema) {
                 spoutQueue.put(tupleValues);
@@ -108,6 +110,8 @@ public class SpoutOperator extends BaseOperator {
     super();
     this.processor = processor;
     this.schemas = schemas;
+
+    registerMetrics(METRICS_QUEUE_SIZE, new GaugeMeter());
   }
 
   public Schema[] getSchemas() {
@@ -119,6 +123,17 @@ public class SpoutOperator extends BaseOperator {
     spoutQueue =
         new LinkedBlockingQueue<TupleValues>(getConfig().getInteger(SPOUT_OPERATOR_QUEUE_SIZE));
 
+    GaugeMeter queueSizeGauge = getMetrics(METRICS_QUEUE_SIZE);
+    if (queueSizeGauge != null) {
+      queueSizeGauge.setGauge(new GaugeMeter.Gauge() {
+
+        @Override
+        public long getValue() {
+          return spoutQueue.size();
+        }
+      });
+    }
+
     spoutExecutor = Executors.newFixedThreadPool(schemas.length,
         GungnirUtils.createThreadFactory(getName()));
     readers = new Reader[schemas.length];
@@ -22,12 +22,16 @@ import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.util.List;
+import java.util.Map;
 
 import org.gennai.gungnir.GungnirTopologyException;
 import org.gennai.gungnir.Period;
 import org.gennai.gungnir.topology.operator.tuplejoin.ComplexJoinContext;
 import org.gennai.gungnir.topology.operator.tuplejoin.JoinTupleCollection;
 import org.gennai.gungnir.topology.operator.tuplejoin.JoinTupleCollection.DispatchHandler;
+import org.gennai.gungnir.topology.operator.metrics.GaugeMeter;
+import org.gennai.gungnir.topology.operator.metrics.Metrics;
+import org.gennai.gungnir.topology.processor.MeasurableProcessor;
 import org.gennai.gungnir.topology.processor.TtlCacheProcessor;
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.FieldAccessor;
@@ -53,7 +57,6 @@ public class TupleJoinOperator extends BaseOperator implements ExecOperator {
   private List<FieldAccessor> toFields;
   private transient JoinTupleCollection collection;
 
-  // TODO metrics
   public TupleJoinOperator(ComplexJoinContext complexContext, TtlCacheProcessor processor,
       Period expire, TupleAccessor toTuple, List<FieldAccessor> toFields) {
     super();
@@ -62,6 +65,17 @@ public class TupleJoinOperator extends BaseOperator implements ExecOperator {
     this.expire = expire;
     this.toTuple = toTuple;
     this.toFields = toFields;
+
+    registerMetrics(METRICS_JOIN_STATE_SIZE, new GaugeMeter());
+
+    if (processor instanceof MeasurableProcessor) {
+      Map<String, Metrics> metrics = ((MeasurableProcessor) processor).getMetrics();
+      if (metrics != null) {
+        for (Map.Entry<String, Metrics> entry : metrics.entrySet()) {
+          registerMetrics(entry.getKey(), entry.getValue());
+        }
+      }
+    }
   }
 
   public TupleJoinOperator(ComplexJoinContext complexContext, TtlCacheProcessor processor,
@@ -110,6 +124,17 @@ public class TupleJoinOperator extends BaseOperator implements ExecOperator {
       collection = new JoinTupleCollection(complexContext, processor, expire.toSeconds(),
           toFields, seekSize);
       collection.prepare(getConfig(), getContext(), getOperatorContext());
+
+      GaugeMeter stateSizeGauge = getMetrics(METRICS_JOIN_STATE_SIZE);
+      if (stateSizeGauge != null) {
+        stateSizeGauge.setGauge(new GaugeMeter.Gauge() {
+
+          @Override
+          public long getValue() {
+            return collection.size();
+          }
+        });
+      }
     }
 
     collection.setDispatchHandler(new Dispatcher());
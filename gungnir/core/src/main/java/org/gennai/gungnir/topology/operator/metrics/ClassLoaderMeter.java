@@ -0,0 +1,65 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator.metrics;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.gennai.gungnir.topology.udf.FunctionClassLoaderCache;
+
+import com.google.common.collect.Maps;
+
+public class ClassLoaderMeter implements Metrics {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private static final String[] COUNTERS = {"created", "loaded", "hit"};
+  private static final ConcurrentMap<String, ClassLoaderMeter> REPORTERS =
+      Maps.newConcurrentMap();
+
+  private String topologyId;
+  private transient Map<String, Long> prevStats;
+
+  public ClassLoaderMeter(String topologyId) {
+    this.topologyId = topologyId;
+  }
+
+  // The class loader cache is shared by every task in the worker, so only the first meter of the
+  // topology that reports in the worker reports the stats, and the others report nothing. The
+  // counters are reported as the increase since the previous report.
+  @Override
+  public synchronized Object getValueAndReset() {
+    ClassLoaderMeter reporter = REPORTERS.putIfAbsent(topologyId, this);
+    if (reporter != null && reporter != this) {
+      return null;
+    }
+
+    Map<String, Long> stats = FunctionClassLoaderCache.getStats();
+    Map<String, Long> values = Maps.newLinkedHashMap(stats);
+    if (prevStats != null) {
+      for (String counter : COUNTERS) {
+        values.put(counter, stats.get(counter) - prevStats.get(counter));
+      }
+    }
+    prevStats = stats;
+    return values;
+  }
+}
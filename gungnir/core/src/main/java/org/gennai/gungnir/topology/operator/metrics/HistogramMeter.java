@@ -0,0 +1,64 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gennai.gungnir.topology.operator.metrics;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.google.common.collect.Maps;
+
+public class HistogramMeter implements Metrics {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+  private static final int HISTOGRAM_SIGNIFICANT_DIGITS = 2;
+
+  private transient Histogram histogram;
+
+  public synchronized void update(long nanos) {
+    if (histogram == null) {
+      histogram = new Histogram(HISTOGRAM_SIGNIFICANT_DIGITS);
+    }
+    histogram.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+  }
+
+  @Override
+  public synchronized Object getValueAndReset() {
+    Map<String, Object> ret = Maps.newLinkedHashMap();
+    if (histogram != null) {
+      ret.put("count", histogram.getTotalCount());
+      ret.put("mean", histogram.getMean());
+      ret.put("p50", histogram.getValueAtPercentile(50));
+      ret.put("p99", histogram.getValueAtPercentile(99));
+      ret.put("max", histogram.getMaxValue());
+      histogram.reset();
+    } else {
+      ret.put("count", 0L);
+      ret.put("mean", 0.0);
+      ret.put("p50", 0L);
+      ret.put("p99", 0L);
+      ret.put("max", 0L);
+    }
+    return ret;
+  }
+}
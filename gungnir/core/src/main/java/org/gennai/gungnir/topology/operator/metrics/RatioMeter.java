@@ -0,0 +1,42 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator.metrics;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+public class RatioMeter implements Metrics {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private long numerator;
+  private long denominator;
+
+  public synchronized void mark(long numerator, long denominator) {
+    this.numerator += numerator;
+    this.denominator += denominator;
+  }
+
+  @Override
+  public synchronized Object getValueAndReset() {
+    double ret = denominator > 0 ? (double) numerator / denominator : 0.0;
+    numerator = 0;
+    denominator = 0;
+    return ret;
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator.pattern;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.Serializable;
+
+import org.gennai.gungnir.tuple.Condition;
+
+public class PatternElement implements Serializable {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private String name;
+  private Condition condition;
+  private boolean negated;
+  private boolean oneOrMore;
+
+  public PatternElement(String name, Condition condition, boolean negated, boolean oneOrMore) {
+    this.name = name;
+    this.condition = condition;
+    this.negated = negated;
+    this.oneOrMore = oneOrMore;
+  }
+
+  public PatternElement(String name, Condition condition) {
+    this(name, condition, false, false);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Condition getCondition() {
+    return condition;
+  }
+
+  public boolean isNegated() {
+    return negated;
+  }
+
+  public boolean isOneOrMore() {
+    return oneOrMore;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    if (negated) {
+      sb.append('!');
+    }
+    sb.append(name);
+    if (oneOrMore) {
+      sb.append('+');
+    }
+    return sb.toString();
+  }
+}
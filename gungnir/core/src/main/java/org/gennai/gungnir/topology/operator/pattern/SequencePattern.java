@@ -0,0 +1,131 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator.pattern;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.GungnirTopologyException;
+import org.gennai.gungnir.topology.ConditionEvaluator;
+import org.gennai.gungnir.tuple.Condition;
+import org.gennai.gungnir.tuple.GungnirTuple;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class SequencePattern implements Serializable {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private PatternElement[] elements;
+  private Condition[] steps;
+  private boolean[] loops;
+  private Condition[][] guards;
+
+  public SequencePattern(PatternElement... elements) throws GungnirTopologyException {
+    if (elements == null || elements.length == 0) {
+      throw new GungnirTopologyException("Pattern must have at least one element");
+    }
+    if (elements[0].isNegated()) {
+      throw new GungnirTopologyException("Pattern can't start with negation '" + elements[0]
+          + "'");
+    }
+    if (elements[elements.length - 1].isNegated()) {
+      throw new GungnirTopologyException("Pattern can't end with negation '"
+          + elements[elements.length - 1] + "'");
+    }
+
+    this.elements = elements;
+
+    List<Condition> stepList = Lists.newArrayList();
+    List<Boolean> loopList = Lists.newArrayList();
+    List<Condition[]> guardList = Lists.newArrayList();
+    List<Condition> negations = Lists.newArrayList();
+    for (PatternElement element : elements) {
+      if (element.isNegated()) {
+        if (element.isOneOrMore()) {
+          throw new GungnirTopologyException("Negation can't be repeated '" + element + "'");
+        }
+        negations.add(element.getCondition());
+      } else {
+        stepList.add(element.getCondition());
+        loopList.add(element.isOneOrMore());
+        guardList.add(negations.toArray(new Condition[0]));
+        negations.clear();
+      }
+    }
+
+    steps = stepList.toArray(new Condition[0]);
+    loops = new boolean[steps.length];
+    for (int i = 0; i < loops.length; i++) {
+      loops[i] = loopList.get(i);
+    }
+    guards = guardList.toArray(new Condition[0][]);
+  }
+
+  public int length() {
+    return steps.length;
+  }
+
+  public boolean isMatch(int step, GungnirTuple tuple) {
+    return ConditionEvaluator.isKeep(steps[step], tuple);
+  }
+
+  public boolean isGuarded(int step, GungnirTuple tuple) {
+    for (Condition guard : guards[step]) {
+      if (ConditionEvaluator.isKeep(guard, tuple)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isLoop(int step, GungnirTuple tuple) {
+    return loops[step] && ConditionEvaluator.isKeep(steps[step], tuple);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append('(');
+    Map<String, Condition> defines = Maps.newLinkedHashMap();
+    for (int i = 0; i < elements.length; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      sb.append(elements[i]);
+      defines.put(elements[i].getName(), elements[i].getCondition());
+    }
+    sb.append(") DEFINE ");
+    int i = 0;
+    for (Map.Entry<String, Condition> entry : defines.entrySet()) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(entry.getKey());
+      sb.append(" AS ");
+      sb.append(entry.getValue());
+      i++;
+    }
+    return sb.toString();
+  }
+}
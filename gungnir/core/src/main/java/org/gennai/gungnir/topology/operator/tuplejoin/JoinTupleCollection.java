@@ -51,6 +51,8 @@ public class JoinTupleCollection implements Cloneable {
   private DispatchHandler dispatchHandler;
   private int seekSize;
   private Map<String, TtlCacheProcessor> processorsMap;
+  private int rowSize = -1;
+  private int[] outputSourceIndex;
   private int[] outputFieldsIndex;
   private boolean[] isOutputAllFields;
 
@@ -93,14 +95,10 @@ public class JoinTupleCollection implements Cloneable {
     }
   }
 
-  @SuppressWarnings("unchecked")
-  public List<Object> select(List<Object> values) {
-    if (outputFields == null) {
-      return values;
-    }
-
-    if (outputFieldsIndex == null) {
-      outputFieldsIndex = complexContext.getFieldsIndex(outputFields);
+  private void setOutputFieldsIndex(List<List<List<Object>>> valuesList) {
+    int[] fieldsIndex = null;
+    if (outputFields != null) {
+      fieldsIndex = complexContext.getFieldsIndex(outputFields);
       isOutputAllFields = new boolean[outputFields.size()];
       for (int i = 0; i < outputFields.size(); i++) {
         if ("*".equals(outputFields.get(i).getFieldName())) {
@@ -109,36 +107,80 @@ public class JoinTupleCollection implements Cloneable {
       }
     }
 
-    List<Object> selectValues = Lists.newArrayList();
-    for (int i = 0; i < outputFieldsIndex.length; i++) {
-      if (outputFieldsIndex[i] >= 0) {
+    int[] rowSizes = new int[valuesList.size()];
+    for (int i = 0; i < valuesList.size(); i++) {
+      rowSizes[i] = valuesList.get(i).get(0).size();
+      rowSize += rowSizes[i];
+    }
+
+    if (fieldsIndex == null) {
+      return;
+    }
+
+    outputSourceIndex = new int[fieldsIndex.length];
+    outputFieldsIndex = new int[fieldsIndex.length];
+    for (int i = 0; i < fieldsIndex.length; i++) {
+      outputSourceIndex[i] = -1;
+      int index = fieldsIndex[i];
+      if (index >= 0) {
+        for (int j = 0; j < rowSizes.length; j++) {
+          if (index < rowSizes[j]) {
+            outputSourceIndex[i] = j;
+            outputFieldsIndex[i] = index;
+            break;
+          }
+          index -= rowSizes[j];
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> select(List<List<List<Object>>> valuesList, int[] rowIndex) {
+    if (outputSourceIndex == null) {
+      List<Object> values = Lists.newArrayListWithCapacity(rowSize);
+      for (int i = 0; i < rowIndex.length; i++) {
+        values.addAll(valuesList.get(i).get(rowIndex[i]));
+      }
+      return values;
+    }
+
+    List<Object> selectValues = Lists.newArrayListWithCapacity(outputSourceIndex.length);
+    for (int i = 0; i < outputSourceIndex.length; i++) {
+      if (outputSourceIndex[i] >= 0) {
+        Object value = valuesList.get(outputSourceIndex[i]).get(rowIndex[outputSourceIndex[i]])
+            .get(outputFieldsIndex[i]);
         if (isOutputAllFields[i]) {
-          selectValues.addAll((List<Object>) values.get(outputFieldsIndex[i]));
+          selectValues.addAll((List<Object>) value);
         } else {
-          selectValues.add(values.get(outputFieldsIndex[i]));
+          selectValues.add(value);
         }
       } else {
         selectValues.add(null);
       }
     }
-
     return selectValues;
   }
 
-  private void join(List<List<List<Object>>> valuesList, int index, List<Object> values) {
-    for (int i = 0; i < valuesList.get(index).size(); i++) {
-      List<Object> newValues;
-      if (values != null) {
-        newValues = Lists.newArrayList(values);
-      } else {
-        newValues = Lists.newArrayList();
-      }
-      newValues.addAll(valuesList.get(index).get(i));
+  private void join(List<List<List<Object>>> valuesList) {
+    if (rowSize < 0) {
+      rowSize = 0;
+      setOutputFieldsIndex(valuesList);
+    }
 
-      if (index < processorsMap.size() - 1) {
-        join(valuesList, index + 1, newValues);
-      } else {
-        dispatchHandler.dispatch(select(newValues));
+    int[] rowIndex = new int[valuesList.size()];
+    for (;;) {
+      dispatchHandler.dispatch(select(valuesList, rowIndex));
+
+      int i = rowIndex.length - 1;
+      for (; i >= 0; i--) {
+        if (++rowIndex[i] < valuesList.get(i).size()) {
+          break;
+        }
+        rowIndex[i] = 0;
+      }
+      if (i < 0) {
+        break;
       }
     }
   }
@@ -155,9 +197,15 @@ public class JoinTupleCollection implements Cloneable {
     if (entired) {
       List<List<List<Object>>> valuesList = Lists.newArrayListWithCapacity(processorsMap.size());
       for (TtlCacheProcessor p : processorsMap.values()) {
-        valuesList.add(p.take(key));
+        List<List<Object>> values = p.take(key);
+        if (values.isEmpty()) {
+          entired = false;
+        }
+        valuesList.add(values);
+      }
+      if (entired) {
+        join(valuesList);
       }
-      join(valuesList, 0, null);
     }
   }
 
@@ -178,6 +226,16 @@ public class JoinTupleCollection implements Cloneable {
     join(key);
   }
 
+  public long size() {
+    long size = 0;
+    if (processorsMap != null) {
+      for (TtlCacheProcessor p : processorsMap.values()) {
+        size += p.size(null);
+      }
+    }
+    return size;
+  }
+
   public void cleanup() {
     if (processorsMap != null) {
       for (Iterator<Map.Entry<String, TtlCacheProcessor>> it = processorsMap.entrySet().
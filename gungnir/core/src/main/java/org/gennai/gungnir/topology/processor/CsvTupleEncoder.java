@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+
+public class CsvTupleEncoder {
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private StringBuilder sb;
+  private CharsetEncoder encoder;
+  private ByteBuffer byteBuffer;
+
+  public CsvTupleEncoder() {
+    sb = new StringBuilder(INITIAL_BUFFER_SIZE);
+    encoder = Charset.defaultCharset().newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    byteBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  }
+
+  private void appendEscaped(String str, boolean quoted) {
+    if (!quoted && str.indexOf(',') >= 0) {
+      quoted = true;
+    }
+
+    if (quoted) {
+      sb.append('"');
+    }
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == '"') {
+        sb.append('"');
+      }
+      sb.append(c);
+    }
+    if (quoted) {
+      sb.append('"');
+    }
+  }
+
+  public byte[] encode(TupleValues tupleValues) {
+    sb.setLength(0);
+
+    for (Object value : tupleValues.getValues()) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      if (value instanceof String) {
+        appendEscaped((String) value, false);
+      } else if (value instanceof Number) {
+        sb.append(value);
+      } else if (value instanceof Boolean) {
+        sb.append(value);
+      } else if (value instanceof Date) {
+        sb.append(JsonTupleEncoder.DATE_FORMAT.format((Date) value));
+      } else if (value instanceof List || value instanceof Map || value instanceof Struct) {
+        appendEscaped(value.toString(), true);
+      }
+    }
+
+    int capacity = (int) (sb.length() * encoder.maxBytesPerChar()) + 1;
+    if (byteBuffer.capacity() < capacity) {
+      byteBuffer = ByteBuffer.allocate(capacity);
+    }
+
+    byteBuffer.clear();
+    encoder.reset();
+    encoder.encode(CharBuffer.wrap(sb), byteBuffer, true);
+    encoder.flush(byteBuffer);
+    byteBuffer.flip();
+
+    byte[] bytes = new byte[byteBuffer.remaining()];
+    byteBuffer.get(bytes);
+    return bytes;
+  }
+}
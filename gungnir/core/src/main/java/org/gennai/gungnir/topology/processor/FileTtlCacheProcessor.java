@@ -26,10 +26,13 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.GungnirContext;
 import org.gennai.gungnir.topology.operator.OperatorContext;
+import org.gennai.gungnir.topology.operator.metrics.Metrics;
+import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
 import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.serialization.StructSerializer;
 import org.gennai.gungnir.tuple.store.RocksDBTable;
@@ -41,14 +44,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
-public class FileTtlCacheProcessor implements TtlCacheProcessor {
+public class FileTtlCacheProcessor implements TtlCacheProcessor, MeasurableProcessor {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(FileTtlCacheProcessor.class);
 
   private transient RocksDBTable table;
   private transient KryoSerializer serializer;
+  private MultiCountMeter cacheCount;
+
+  public FileTtlCacheProcessor() {
+  }
+
+  private FileTtlCacheProcessor(FileTtlCacheProcessor c) {
+    this.cacheCount = c.cacheCount;
+  }
+
+  @Override
+  public Map<String, Metrics> getMetrics() {
+    if (cacheCount == null) {
+      cacheCount = new MultiCountMeter();
+    }
+
+    Map<String, Metrics> metrics = Maps.newHashMap();
+    metrics.put(METRICS_CACHE_COUNT, cacheCount);
+    return metrics;
+  }
+
+  private void markCount(String scope, long n) {
+    if (cacheCount != null && n > 0) {
+      cacheCount.scope(scope).mark(n);
+    }
+  }
 
   @Override
   public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
@@ -81,7 +110,7 @@ public class FileTtlCacheProcessor implements TtlCacheProcessor {
     try {
       table.put(key, GungnirUtils.currentTimeSecs(), serializer.serialize(values));
 
-      table.compactRange();
+      markCount(METRICS_CACHE_EVICT, table.compactRange().size());
     } catch (RocksDBException e) {
       throw new ProcessorException(e);
     }
@@ -90,7 +119,11 @@ public class FileTtlCacheProcessor implements TtlCacheProcessor {
   @Override
   public int size(Object key) {
     try {
-      return table.size(key);
+      int size = table.size(key);
+      if (key != null) {
+        markCount(size > 0 ? METRICS_CACHE_HIT : METRICS_CACHE_MISS, 1);
+      }
+      return size;
     } catch (RocksDBException e) {
       LOG.error("Failed to get size", e);
       return 0;
@@ -109,6 +142,8 @@ public class FileTtlCacheProcessor implements TtlCacheProcessor {
           @SuppressWarnings("unchecked")
           List<Object> values = serializer.deserialize(entry.getValue(), ArrayList.class);
           valuesList.add(values);
+        } else {
+          markCount(METRICS_CACHE_EVICT, 1);
         }
         it.remove();
       }
@@ -142,7 +177,7 @@ public class FileTtlCacheProcessor implements TtlCacheProcessor {
 
   @Override
   public FileTtlCacheProcessor clone() {
-    return new FileTtlCacheProcessor();
+    return new FileTtlCacheProcessor(this);
   }
 
   @Override
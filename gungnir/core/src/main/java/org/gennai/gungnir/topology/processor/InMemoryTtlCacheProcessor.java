@@ -18,15 +18,19 @@
 
 package org.gennai.gungnir.topology.processor;
 
+import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.GungnirContext;
 import org.gennai.gungnir.topology.operator.OperatorContext;
+import org.gennai.gungnir.topology.operator.metrics.Metrics;
+import org.gennai.gungnir.topology.operator.metrics.MultiCountMeter;
 import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.serialization.StructSerializer;
 import org.gennai.gungnir.tuple.store.MemoryTable;
@@ -34,32 +38,66 @@ import org.gennai.gungnir.utils.GungnirUtils;
 import org.gennai.gungnir.utils.KryoSerializer;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
-public class InMemoryTtlCacheProcessor implements TtlCacheProcessor {
+public class InMemoryTtlCacheProcessor implements TtlCacheProcessor, MeasurableProcessor {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
 
   private transient MemoryTable table;
   private transient KryoSerializer serializer;
+  private MultiCountMeter cacheCount;
+
+  public InMemoryTtlCacheProcessor() {
+  }
+
+  private InMemoryTtlCacheProcessor(InMemoryTtlCacheProcessor c) {
+    this.cacheCount = c.cacheCount;
+  }
+
+  @Override
+  public Map<String, Metrics> getMetrics() {
+    if (cacheCount == null) {
+      cacheCount = new MultiCountMeter();
+    }
+
+    Map<String, Metrics> metrics = Maps.newHashMap();
+    metrics.put(METRICS_CACHE_COUNT, cacheCount);
+    return metrics;
+  }
+
+  private void markCount(String scope, long n) {
+    if (cacheCount != null && n > 0) {
+      cacheCount.scope(scope).mark(n);
+    }
+  }
 
   @Override
   public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
       String tupleName, int expireSecs, int seekSize) throws ProcessorException {
-    table = new MemoryTable(expireSecs, seekSize);
+    table = new MemoryTable(expireSecs, seekSize, config.getLong(TUPLEJOIN_OFFHEAP_CAPACITY));
     serializer = new KryoSerializer();
     serializer.register(Struct.class, new StructSerializer());
   }
 
   @Override
   public void put(Object key, List<Object> values) throws ProcessorException {
-    table.put(key, GungnirUtils.currentTimeSecs(), serializer.serialize(values));
+    try {
+      table.put(key, GungnirUtils.currentTimeSecs(), serializer.serialize(values));
+    } catch (IllegalStateException e) {
+      throw new ProcessorException(e);
+    }
 
-    table.compactRange();
+    markCount(METRICS_CACHE_EVICT, table.compactRange().size() + table.pollEvictedCount());
   }
 
   @Override
   public int size(Object key) {
-    return table.size(key);
+    int size = table.size(key);
+    if (key != null) {
+      markCount(size > 0 ? METRICS_CACHE_HIT : METRICS_CACHE_MISS, 1);
+    }
+    return size;
   }
 
   @Override
@@ -72,6 +110,8 @@ public class InMemoryTtlCacheProcessor implements TtlCacheProcessor {
         @SuppressWarnings("unchecked")
         List<Object> values = serializer.deserialize(entry.getValue(), ArrayList.class);
         valuesList.add(values);
+      } else {
+        markCount(METRICS_CACHE_EVICT, 1);
       }
       it.remove();
     }
@@ -80,11 +120,14 @@ public class InMemoryTtlCacheProcessor implements TtlCacheProcessor {
 
   @Override
   public void close() {
+    if (table != null) {
+      table.close();
+    }
   }
 
   @Override
   public InMemoryTtlCacheProcessor clone() {
-    return new InMemoryTtlCacheProcessor();
+    return new InMemoryTtlCacheProcessor(this);
   }
 
   @Override
@@ -24,17 +24,22 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.Period;
 import org.gennai.gungnir.topology.GroupFields;
 import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.processor.ProcessorUtils.BatchResults;
 import org.gennai.gungnir.topology.processor.ProcessorUtils.PlaceHolder;
 import org.gennai.gungnir.topology.processor.ProcessorUtils.PlaceHolders;
 import org.gennai.gungnir.tuple.FieldAccessor;
@@ -45,9 +50,10 @@ import org.slf4j.LoggerFactory;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
-public class JdbcFetchProcessor implements FetchProcessor {
+public class JdbcFetchProcessor implements BatchFetchProcessor {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(JdbcFetchProcessor.class);
@@ -55,6 +61,17 @@ public class JdbcFetchProcessor implements FetchProcessor {
   private static final String DRIVER = "jdbc.fetch.driver";
   private static final String CACHE_SIZE = "jdbc.fetch.cache.size";
 
+  private static final Pattern SELECT_PATTERN =
+      Pattern.compile("^\\s*SELECT\\s+", Pattern.CASE_INSENSITIVE);
+  private static final Pattern FROM_PATTERN =
+      Pattern.compile("\\s+FROM\\s+", Pattern.CASE_INSENSITIVE);
+  private static final Pattern KEY_CONDITION_PATTERN = Pattern.compile("([\\w.]+)\\s*=\\s*$");
+  private static final Pattern SUBQUERY_PATTERN =
+      Pattern.compile("\\(\\s*SELECT\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern NOT_BATCHABLE_PATTERN = Pattern.compile(
+      "\\b(?:DISTINCT|GROUP\\s+BY|HAVING|LIMIT|UNION|OR|COUNT|SUM|AVG|MIN|MAX)\\b",
+      Pattern.CASE_INSENSITIVE);
+
   private String sql;
   private String url;
   private String user;
@@ -64,6 +81,10 @@ public class JdbcFetchProcessor implements FetchProcessor {
   private transient int expireSecs;
   private transient Connection conn;
   private transient PreparedStatement stmt;
+  private transient String batchSqlPrefix;
+  private transient String batchSqlSuffix;
+  private transient String batchKeyColumn;
+  private transient boolean batchKeyAppended;
   private transient Cache<List<Object>, List<List<Object>>> cache;
 
   public JdbcFetchProcessor(String url, String user, String password, String sql, Period expire) {
@@ -111,6 +132,34 @@ public class JdbcFetchProcessor implements FetchProcessor {
     return sb.toString();
   }
 
+  private void parseBatchSql(PlaceHolders placeHolders) {
+    if (placeHolders.size() != 1 || NOT_BATCHABLE_PATTERN.matcher(placeHolders.getSrc()).find()) {
+      return;
+    }
+
+    PlaceHolder placeHolder = placeHolders.iterator().next();
+    String head = placeHolders.getSrc().substring(0, placeHolder.getStart());
+    Matcher selectMatcher = SELECT_PATTERN.matcher(head);
+    Matcher fromMatcher = FROM_PATTERN.matcher(head);
+    Matcher keyMatcher = KEY_CONDITION_PATTERN.matcher(head);
+    if (selectMatcher.find() && fromMatcher.find() && keyMatcher.find()
+        && !SUBQUERY_PATTERN.matcher(placeHolders.getSrc()).find()) {
+      String column = keyMatcher.group(1);
+      String selectList = head.substring(selectMatcher.end(), fromMatcher.start()).trim();
+      String from = head.substring(fromMatcher.start(), keyMatcher.start());
+
+      // "SELECT *" can't take another column in every dialect, so the key is looked up by name
+      // in the result instead of being appended as the last column.
+      batchKeyAppended = !selectList.equals("*");
+      if (batchKeyAppended) {
+        selectList = selectList + ", " + column;
+      }
+      batchKeyColumn = column.substring(column.lastIndexOf('.') + 1);
+      batchSqlPrefix = "SELECT " + selectList + from + column + " IN (";
+      batchSqlSuffix = ")" + placeHolders.getSrc().substring(placeHolder.getEnd());
+    }
+  }
+
   @Override
   public void open(GungnirConfig config, GungnirContext context) throws ProcessorException {
     placeHolders = ProcessorUtils.findPlaceHolders(sql);
@@ -124,6 +173,7 @@ public class JdbcFetchProcessor implements FetchProcessor {
 
       placeHolders = ProcessorUtils.findPlaceHolders(sql);
       stmt = conn.prepareStatement(replacePlaceHolders(placeHolders));
+      parseBatchSql(placeHolders);
     } catch (ClassNotFoundException e) {
       LOG.error("Failed to load driver", e);
     } catch (SQLException e) {
@@ -176,7 +226,8 @@ public class JdbcFetchProcessor implements FetchProcessor {
   }
 
   @Override
-  public List<List<Object>> fetch(final GungnirTuple tuple) throws ProcessorException {
+  public synchronized List<List<Object>> fetch(final GungnirTuple tuple)
+      throws ProcessorException {
     if (stmt == null) {
       throw new ProcessorException("Processor isn't open");
     }
@@ -208,6 +259,153 @@ public class JdbcFetchProcessor implements FetchProcessor {
     }
   }
 
+  @Override
+  public boolean isBatchable() {
+    return batchSqlPrefix != null;
+  }
+
+  String getBatchSql(int size) {
+    if (batchSqlPrefix == null) {
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder(batchSqlPrefix);
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append('?');
+    }
+    sb.append(batchSqlSuffix);
+    return sb.toString();
+  }
+
+  private static int findColumn(ResultSetMetaData metaData, String column) throws SQLException {
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      if (column.equalsIgnoreCase(metaData.getColumnLabel(i))
+          || column.equalsIgnoreCase(metaData.getColumnName(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private BatchResults executeBatch(List<Object> keys) throws SQLException {
+    BatchResults results = new BatchResults(true);
+    PreparedStatement batchStmt = null;
+    ResultSet resultSet = null;
+
+    try {
+      batchStmt = conn.prepareStatement(getBatchSql(keys.size()));
+      for (int i = 0; i < keys.size(); i++) {
+        batchStmt.setObject(i + 1, keys.get(i));
+      }
+
+      resultSet = batchStmt.executeQuery();
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Execute query '{}'", batchStmt);
+      }
+
+      int columnCount = resultSet.getMetaData().getColumnCount();
+      int keyIndex;
+      if (batchKeyAppended) {
+        keyIndex = columnCount;
+        columnCount--;
+      } else {
+        keyIndex = findColumn(resultSet.getMetaData(), batchKeyColumn);
+        if (keyIndex < 0) {
+          LOG.warn("Key column '{}' isn't in the result of '{}'", batchKeyColumn, sql);
+          batchSqlPrefix = null;
+          return null;
+        }
+      }
+
+      while (resultSet.next()) {
+        List<Object> values = Lists.newArrayListWithCapacity(columnCount);
+        for (int j = 1; j <= columnCount; j++) {
+          values.add(resultSet.getObject(j));
+        }
+        results.add(resultSet.getObject(keyIndex), values);
+      }
+    } finally {
+      if (resultSet != null) {
+        try {
+          resultSet.close();
+        } catch (SQLException e) {
+          LOG.error("Failed to close resultSet", e);
+        }
+      }
+      if (batchStmt != null) {
+        try {
+          batchStmt.close();
+        } catch (SQLException e) {
+          LOG.error("Failed to close statement", e);
+        }
+      }
+    }
+
+    return results;
+  }
+
+  @Override
+  public synchronized List<List<List<Object>>> fetch(List<GungnirTuple> tuples)
+      throws ProcessorException {
+    if (stmt == null) {
+      throw new ProcessorException("Processor isn't open");
+    }
+
+    List<List<List<Object>>> valuesLists = Lists.newArrayListWithCapacity(tuples.size());
+    if (batchSqlPrefix == null) {
+      for (GungnirTuple tuple : tuples) {
+        valuesLists.add(fetch(tuple));
+      }
+      return valuesLists;
+    }
+
+    PlaceHolder placeHolder = placeHolders.iterator().next();
+    Map<Object, Object> keys = Maps.newLinkedHashMap();
+    for (GungnirTuple tuple : tuples) {
+      Object key = placeHolder.getField().getValue(tuple);
+      List<List<Object>> valuesList = null;
+      if (key == null) {
+        valuesList = Lists.newArrayList();
+      } else if (expireSecs > 0) {
+        valuesList = cache.getIfPresent(Lists.newArrayList(key));
+      }
+      if (valuesList == null) {
+        keys.put(ProcessorUtils.normalizeKey(key), key);
+      }
+      valuesLists.add(valuesList);
+    }
+
+    if (!keys.isEmpty()) {
+      BatchResults results = null;
+      try {
+        results = executeBatch(Lists.newArrayList(keys.values()));
+      } catch (SQLException e) {
+        throw new ProcessorException("Failed to execute query '" + sql + "'", e);
+      }
+
+      for (int i = 0; i < tuples.size(); i++) {
+        if (valuesLists.get(i) == null) {
+          if (results == null) {
+            valuesLists.set(i, fetch(tuples.get(i)));
+          } else {
+            Object key = placeHolder.getField().getValue(tuples.get(i));
+            List<List<Object>> valuesList = results.get(key);
+            if (expireSecs > 0) {
+              cache.put(Lists.newArrayList(key), valuesList);
+            }
+            valuesLists.set(i, valuesList);
+          }
+        }
+      }
+    }
+
+    return valuesLists;
+  }
+
   @Override
   public void close() {
     try {
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.commons.lang.time.FastDateFormat;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.json.StructSerializer;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonGenerator.Feature;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.collect.Maps;
+
+public class JsonTupleEncoder {
+
+  public static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+  public static final FastDateFormat DATE_FORMAT =
+      FastDateFormat.getInstance(DATE_PATTERN, TimeZone.getTimeZone("UTC"));
+
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  static class EncodeBuffer extends ByteArrayOutputStream {
+
+    EncodeBuffer(int size) {
+      super(size);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
+  private Map<String, SerializedString[]> fieldNamesMap;
+  private ObjectMapper mapper;
+  private boolean escapeNonAscii;
+  private EncodeBuffer buffer;
+  private JsonGenerator generator;
+
+  public JsonTupleEncoder(Map<String, List<String>> outputFieldNames, boolean escapeNonAscii)
+      throws IOException {
+    fieldNamesMap = Maps.newHashMap();
+    for (Map.Entry<String, List<String>> entry : outputFieldNames.entrySet()) {
+      SerializedString[] fieldNames = new SerializedString[entry.getValue().size()];
+      for (int i = 0; i < fieldNames.length; i++) {
+        fieldNames[i] = new SerializedString(entry.getValue().get(i));
+      }
+      fieldNamesMap.put(entry.getKey(), fieldNames);
+    }
+
+    SimpleModule module = new SimpleModule("GungnirModule",
+        new Version(GUNGNIR_VERSION[0], GUNGNIR_VERSION[1], GUNGNIR_VERSION[2], null, null, null));
+    module.addSerializer(Struct.class, new StructSerializer());
+
+    mapper = new ObjectMapper();
+    SimpleDateFormat sdf = new SimpleDateFormat(DATE_PATTERN);
+    sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+    mapper.setDateFormat(sdf);
+    mapper.registerModule(module);
+
+    this.escapeNonAscii = escapeNonAscii;
+    buffer = new EncodeBuffer(INITIAL_BUFFER_SIZE);
+    createGenerator();
+  }
+
+  private void createGenerator() throws IOException {
+    generator = mapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8);
+    generator.setRootValueSeparator(null);
+    if (escapeNonAscii) {
+      generator.enable(Feature.ESCAPE_NON_ASCII);
+    }
+  }
+
+  public boolean hasFields(String tupleName) {
+    SerializedString[] fieldNames = fieldNamesMap.get(tupleName);
+    return fieldNames != null && fieldNames.length > 0;
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof String) {
+      generator.writeString((String) value);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Date) {
+      generator.writeString(DATE_FORMAT.format((Date) value));
+    } else if (value instanceof List) {
+      generator.writeStartArray();
+      for (Object element : (List<?>) value) {
+        writeValue(element);
+      }
+      generator.writeEndArray();
+    } else if (value instanceof Map) {
+      generator.writeStartObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (entry.getKey() instanceof Date) {
+          generator.writeFieldName(DATE_FORMAT.format((Date) entry.getKey()));
+        } else {
+          generator.writeFieldName(String.valueOf(entry.getKey()));
+        }
+        writeValue(entry.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof Struct) {
+      Struct struct = (Struct) value;
+      generator.writeStartObject();
+      for (int i = 0; i < struct.getFieldNames().size(); i++) {
+        generator.writeFieldName(struct.getFieldNames().get(i));
+        writeValue(struct.getValues().get(i));
+      }
+      generator.writeEndObject();
+    } else {
+      generator.writeObject(value);
+    }
+  }
+
+  public void write(TupleValues tupleValues) throws IOException {
+    SerializedString[] fieldNames = fieldNamesMap.get(tupleValues.getTupleName());
+    generator.writeStartObject();
+    for (int i = 0; i < fieldNames.length; i++) {
+      generator.writeFieldName(fieldNames[i]);
+      writeValue(tupleValues.getValues().get(i));
+    }
+    generator.writeEndObject();
+  }
+
+  public void writeStartArray() throws IOException {
+    generator.writeStartArray();
+  }
+
+  public void writeEndArray() throws IOException {
+    generator.writeEndArray();
+  }
+
+  public void writeRaw(String text) throws IOException {
+    generator.writeRaw(text);
+  }
+
+  public void reset() throws IOException {
+    if (generator.getOutputContext().inRoot()) {
+      generator.flush();
+    } else {
+      createGenerator();
+    }
+    buffer.reset();
+  }
+
+  public void flush() throws IOException {
+    generator.flush();
+  }
+
+  public byte[] getBuffer() {
+    return buffer.getBuffer();
+  }
+
+  public int size() {
+    return buffer.size();
+  }
+
+  public byte[] encode(TupleValues tupleValues) throws IOException {
+    reset();
+    write(tupleValues);
+    generator.flush();
+    return buffer.toByteArray();
+  }
+}
@@ -21,11 +21,8 @@ package org.gennai.gungnir.topology.processor;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
 
 import kafka.common.FailedToSendMessageException;
 import kafka.javaapi.producer.Producer;
@@ -34,20 +31,12 @@ import kafka.producer.KeyedMessage;
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.GungnirContext;
 import org.gennai.gungnir.topology.operator.OperatorContext;
-import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.TupleValues;
-import org.gennai.gungnir.tuple.json.StructSerializer;
 import org.gennai.gungnir.utils.kafka.KafkaClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonGenerationException;
-import com.fasterxml.jackson.core.Version;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 public class KafkaEmitProcessor implements EmitProcessor {
 
@@ -63,10 +52,9 @@ public class KafkaEmitProcessor implements EmitProcessor {
 
   private String topicName;
   private Format format;
-  private transient Map<String, List<String>> outputFieldNames;
   private transient Producer<Integer, byte[]> producer;
-  private transient ObjectMapper mapper;
-  private transient SimpleDateFormat sdf;
+  private transient JsonTupleEncoder jsonEncoder;
+  private transient CsvTupleEncoder csvEncoder;
 
   public KafkaEmitProcessor(String topicName) {
     this.topicName = topicName;
@@ -86,7 +74,6 @@ public class KafkaEmitProcessor implements EmitProcessor {
   public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
       Map<String, List<String>> outputFieldNames) throws ProcessorException {
     topicName = context.replaceVariable(topicName);
-    this.outputFieldNames = outputFieldNames;
 
     List<String> brokers = config.getList(KAFKA_EMIT_BROKERS);
     int requiredAcks = config.getInteger(KAFKA_EMIT_REQUIRED_ACKS);
@@ -94,17 +81,14 @@ public class KafkaEmitProcessor implements EmitProcessor {
     producer =
         KafkaClientBuilder.createProducer().brokers(brokers).requiredAcks(requiredAcks).build();
 
-    SimpleModule module = new SimpleModule("GungnirModule",
-        new Version(GUNGNIR_VERSION[0], GUNGNIR_VERSION[1], GUNGNIR_VERSION[2], null, null, null));
-    module.addSerializer(Struct.class, new StructSerializer());
-
-    sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-    sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-
     if (format == Format.JSON) {
-      mapper = new ObjectMapper();
-      mapper.setDateFormat(sdf);
-      mapper.registerModule(module);
+      try {
+        jsonEncoder = new JsonTupleEncoder(outputFieldNames, false);
+      } catch (IOException e) {
+        throw new ProcessorException("Failed to create json encoder", e);
+      }
+    } else {
+      csvEncoder = new CsvTupleEncoder();
     }
 
     LOG.info("KafkaEmitProcessor opened({})", this);
@@ -117,73 +101,16 @@ public class KafkaEmitProcessor implements EmitProcessor {
     }
 
     List<KeyedMessage<Integer, byte[]>> messages = Lists.newArrayListWithCapacity(tuples.size());
-    StringBuilder sb = null;
 
     for (TupleValues tupleValues : tuples) {
       if (format == Format.CSV) {
-        if (sb == null) {
-          sb = new StringBuilder();
-        } else {
-          sb.setLength(0);
-        }
-
-        for (Object value : tupleValues.getValues()) {
-          if (sb.length() > 0) {
-            sb.append(',');
-          }
-          if (value instanceof String) {
-            String str = value.toString();
-            str = str.replace("\"", "\"\"");
-            if (str.indexOf(',') >= 0) {
-              sb.append('"');
-              sb.append(str);
-              sb.append('"');
-            } else {
-              sb.append(str);
-            }
-          } else if (value instanceof Number) {
-            sb.append(value);
-          } else if (value instanceof Boolean) {
-            sb.append(value);
-          } else if (value instanceof Date) {
-            sb.append(sdf.format((Date) value));
-          } else if (value instanceof List) {
-            String str = value.toString();
-            str = str.replace("\"", "\"\"");
-            sb.append('"');
-            sb.append(str);
-            sb.append('"');
-          } else if (value instanceof Map) {
-            String str = value.toString();
-            str = str.replace("\"", "\"\"");
-            sb.append('"');
-            sb.append(str);
-            sb.append('"');
-          } else if (value instanceof Struct) {
-            String str = value.toString();
-            str = str.replace("\"", "\"\"");
-            sb.append('"');
-            sb.append(str);
-            sb.append('"');
-          }
-        }
-
-        messages.add(new KeyedMessage<Integer, byte[]>(topicName, sb.toString().getBytes()));
+        messages.add(new KeyedMessage<Integer, byte[]>(topicName,
+            csvEncoder.encode(tupleValues)));
       } else {
-        List<String> fieldNames = outputFieldNames.get(tupleValues.getTupleName());
-        if (fieldNames.size() > 0) {
-          Map<String, Object> record = Maps.newLinkedHashMap();
-          for (int i = 0; i < fieldNames.size(); i++) {
-            record.put(fieldNames.get(i), tupleValues.getValues().get(i));
-          }
-
+        if (jsonEncoder.hasFields(tupleValues.getTupleName())) {
           byte[] bytes = null;
           try {
-            bytes = mapper.writeValueAsBytes(record);
-          } catch (JsonGenerationException e) {
-            throw new ProcessorException("Failed to convert json format", e);
-          } catch (JsonMappingException e) {
-            throw new ProcessorException("Failed to convert json format", e);
+            bytes = jsonEncoder.encode(tupleValues);
           } catch (IOException e) {
             throw new ProcessorException("Failed to convert json format", e);
           }
@@ -191,7 +118,7 @@ public class KafkaEmitProcessor implements EmitProcessor {
           messages.add(new KeyedMessage<Integer, byte[]>(topicName, bytes));
 
           if (LOG.isDebugEnabled()) {
-            LOG.debug("Emit to '{}' {}", topicName, record);
+            LOG.debug("Emit to '{}' {}", topicName, tupleValues);
           }
         }
       }
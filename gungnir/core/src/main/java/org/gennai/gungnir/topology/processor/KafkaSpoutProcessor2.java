@@ -101,6 +101,8 @@ public class KafkaSpoutProcessor2 implements SpoutProcessor {
   private long lastRefreshTime;
   private int curPartitionIndex;
   private long lastStateUpdateTime;
+  private String checkpointPath;
+  private Map<String, Long> restoreMarks;
 
   public KafkaSpoutProcessor2(String topicName, String format, long startOffsetTime,
       boolean forceFromStart) {
@@ -167,9 +169,10 @@ public class KafkaSpoutProcessor2 implements SpoutProcessor {
       Set<Partition> deletedPartitions = Sets.newHashSet(curPartitions);
       deletedPartitions.removeAll(partitions);
 
+      Map<String, Long> checkpointOffsets = readCheckpoints();
       for (Partition partition : deletedPartitions) {
         PartitionManager manager = managersMap.remove(partition);
-        manager.commit();
+        manager.commit(checkpointOffsets.get(manager.getSource()));
         manager.close();
       }
 
@@ -183,6 +186,10 @@ public class KafkaSpoutProcessor2 implements SpoutProcessor {
         PartitionManager manager =
             new PartitionManager(config, spoutConfig, state, connections, topologyId, partition,
                 deserializer);
+        Long checkpointOffset = checkpointOffsets.get(manager.getSource());
+        if (checkpointOffset != null) {
+          manager.rewind(checkpointOffset);
+        }
         managersMap.put(partition, manager);
       }
 
@@ -250,13 +257,68 @@ public class KafkaSpoutProcessor2 implements SpoutProcessor {
 
     connections = new DynamicPartitionConnections(spoutConfig, brokerReader);
     state = new ZkState(config);
+    if (config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS) > 0) {
+      checkpointPath = config.getString(GUNGNIR_NODE_PATH) + CHECKPOINT_NODE_PATH + "/"
+          + topologyId;
+      restoreMarks = Maps.newHashMap();
+    }
 
     LOG.info("KafkaSpoutProcessor opened({})", topicName);
   }
 
+  // Tasks publish the oldest offset per partition that is not yet in their checkpoint. A task
+  // that has just restored its state marks the node, so that the spout rewinds to it once.
+  private Map<String, Long> readCheckpoints() {
+    Map<String, Long> checkpointOffsets = Maps.newHashMap();
+    if (checkpointPath == null) {
+      return checkpointOffsets;
+    }
+
+    try {
+      for (String task : state.getChildren(checkpointPath)) {
+        Map<String, Object> node = state.readJSON(checkpointPath + "/" + task);
+        if (node == null) {
+          continue;
+        }
+
+        Long restored = null;
+        if (node.get("restored") != null) {
+          restored = ((Number) node.get("restored")).longValue();
+        }
+        boolean rewind = restored != null && !restored.equals(restoreMarks.get(task));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> offsets = (Map<String, Object>) node.get("offsets");
+        for (Map.Entry<String, Object> entry : offsets.entrySet()) {
+          long offset = ((Number) entry.getValue()).longValue();
+          Long checkpointOffset = checkpointOffsets.get(entry.getKey());
+          if (checkpointOffset == null || offset < checkpointOffset) {
+            checkpointOffsets.put(entry.getKey(), offset);
+          }
+
+          if (rewind) {
+            for (PartitionManager manager : managersMap.values()) {
+              if (manager.getSource().equals(entry.getKey())) {
+                manager.rewind(offset);
+              }
+            }
+          }
+        }
+
+        if (restored != null) {
+          restoreMarks.put(task, restored);
+        }
+      }
+    } catch (Exception e) {
+      LOG.warn("Failed to read checkpoints", e);
+    }
+    return checkpointOffsets;
+  }
+
   private void commit() {
+    Map<String, Long> checkpointOffsets = readCheckpoints();
     for (PartitionManager manager : getPartitionManagers()) {
-      manager.commit();
+      manager.commit(checkpointOffsets.get(manager.getSource()));
     }
     lastStateUpdateTime = System.currentTimeMillis();
   }
@@ -330,8 +392,9 @@ public class KafkaSpoutProcessor2 implements SpoutProcessor {
   public void close() {
     List<PartitionManager> managers = getPartitionManagers();
     if (managers != null) {
+      Map<String, Long> checkpointOffsets = readCheckpoints();
       for (PartitionManager manager : managers) {
-        manager.commit();
+        manager.commit(checkpointOffsets.get(manager.getSource()));
         manager.close();
       }
     }
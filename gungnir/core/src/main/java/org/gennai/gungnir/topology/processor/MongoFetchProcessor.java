@@ -37,6 +37,7 @@ import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.Period;
 import org.gennai.gungnir.topology.GroupFields;
 import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.processor.ProcessorUtils.BatchResults;
 import org.gennai.gungnir.topology.processor.ProcessorUtils.PlaceHolder;
 import org.gennai.gungnir.topology.processor.ProcessorUtils.PlaceHolders;
 import org.gennai.gungnir.tuple.FieldAccessor;
@@ -61,7 +62,7 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 
-public class MongoFetchProcessor implements FetchProcessor {
+public class MongoFetchProcessor implements BatchFetchProcessor {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(MongoFetchProcessor.class);
@@ -83,6 +84,7 @@ public class MongoFetchProcessor implements FetchProcessor {
   private transient Map<String, Object> query;
   private transient Document fetchFields;
   private transient Document sort;
+  private transient String batchKey;
   private transient int expireSecs;
   private transient MongoClient mongoClient;
   private transient MongoCollection<Document> collection;
@@ -254,6 +256,28 @@ public class MongoFetchProcessor implements FetchProcessor {
     return new Document(sortMap);
   }
 
+  private String getBatchKey(Map<String, Object> query) {
+    if (limit != null || query.size() != 1) {
+      return null;
+    }
+
+    Map.Entry<String, Object> entry = query.entrySet().iterator().next();
+    if (entry.getKey().startsWith("$") || entry.getKey().indexOf('.') >= 0
+        || !(entry.getValue() instanceof PlaceHolders)) {
+      return null;
+    }
+
+    PlaceHolders placeHolders = (PlaceHolders) entry.getValue();
+    if (placeHolders.size() != 1) {
+      return null;
+    }
+    PlaceHolder placeHolder = placeHolders.iterator().next();
+    if (placeHolder.getStart() != 0 || placeHolder.getEnd() != placeHolders.getSrc().length()) {
+      return null;
+    }
+    return entry.getKey();
+  }
+
   @Override
   public void open(GungnirConfig config, GungnirContext context) throws ProcessorException {
     dbName = context.replaceVariable(dbName);
@@ -266,6 +290,7 @@ public class MongoFetchProcessor implements FetchProcessor {
     if (sortString != null) {
       sort = parseSortString(sortString);
     }
+    batchKey = getBatchKey(query);
     if (expire != null) {
       expireSecs = expire.toSeconds();
     }
@@ -413,6 +438,110 @@ public class MongoFetchProcessor implements FetchProcessor {
     }
   }
 
+  @Override
+  public boolean isBatchable() {
+    return batchKey != null;
+  }
+
+  // $in matches a document whose key field is an array when any of its elements or the array
+  // itself equals a requested key, as the query for a single key does
+  static void addBatchResult(BatchResults results, Object key, List<Object> values) {
+    results.add(key, values);
+    if (key instanceof List) {
+      Set<Object> elements = Sets.newHashSet();
+      for (Object element : (List<?>) key) {
+        if (elements.add(ProcessorUtils.normalizeKey(element))) {
+          results.add(element, values);
+        }
+      }
+    }
+  }
+
+  private BatchResults findBatch(List<Object> keys) {
+    BatchResults results = new BatchResults(false);
+    Document execQuery = new Document(batchKey, new Document("$in", keys));
+    Document projection = new Document(fetchFields);
+    projection.append(batchKey, 1);
+    FindIterable<Document> find = collection.find(execQuery).projection(projection);
+    if (sort != null) {
+      find.sort(sort);
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Fetch from '{}.{}' query {}", dbName, collectionName, execQuery);
+    }
+
+    MongoCursor<Document> cursor = find.iterator();
+    try {
+      while (cursor.hasNext()) {
+        Document doc = cursor.next();
+
+        List<Object> values = Lists.newArrayListWithCapacity(fetchFieldNames.length);
+        for (String fieldName : fetchFieldNames) {
+          values.add(toValue(doc.get(fieldName)));
+        }
+        addBatchResult(results, doc.get(batchKey), values);
+      }
+    } finally {
+      cursor.close();
+    }
+    return results;
+  }
+
+  @Override
+  public List<List<List<Object>>> fetch(List<GungnirTuple> tuples) throws ProcessorException {
+    if (collection == null) {
+      throw new ProcessorException("Processor isn't open");
+    }
+
+    List<List<List<Object>>> valuesLists = Lists.newArrayListWithCapacity(tuples.size());
+    if (batchKey == null) {
+      for (GungnirTuple tuple : tuples) {
+        valuesLists.add(fetch(tuple));
+      }
+      return valuesLists;
+    }
+
+    List<Document> execQueries = Lists.newArrayListWithCapacity(tuples.size());
+    Map<Object, Object> keys = Maps.newLinkedHashMap();
+    for (GungnirTuple tuple : tuples) {
+      Document execQuery = getQuery(query, tuple);
+      execQueries.add(execQuery);
+
+      List<List<Object>> valuesList = null;
+      if (expireSecs > 0) {
+        valuesList = cache.getIfPresent(execQuery.toString());
+      }
+      if (valuesList == null) {
+        Object key = execQuery.get(batchKey);
+        keys.put(ProcessorUtils.normalizeKey(key), key);
+      }
+      valuesLists.add(valuesList);
+    }
+
+    if (!keys.isEmpty()) {
+      BatchResults results = null;
+      try {
+        results = findBatch(Lists.newArrayList(keys.values()));
+      } catch (MongoException e) {
+        throw new ProcessorException("Failed to find document", e);
+      }
+
+      for (int i = 0; i < tuples.size(); i++) {
+        if (valuesLists.get(i) == null) {
+          Document execQuery = execQueries.get(i);
+          List<List<Object>> valuesList = results.get(execQuery.get(batchKey));
+          if (expireSecs > 0) {
+            cache.put(execQuery.toString(), valuesList);
+          }
+          valuesLists.set(i, valuesList);
+        }
+      }
+    }
+
+    return valuesLists;
+  }
+
   @Override
   public void close() {
     if (mongoClient != null) {
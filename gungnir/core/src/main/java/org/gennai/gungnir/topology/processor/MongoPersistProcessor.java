@@ -23,11 +23,16 @@ import static org.gennai.gungnir.GungnirConst.*;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.GungnirContext;
 import org.gennai.gungnir.topology.operator.OperatorContext;
+import org.gennai.gungnir.topology.operator.metrics.LatencyMeter;
+import org.gennai.gungnir.topology.operator.metrics.Metrics;
+import org.gennai.gungnir.topology.operator.metrics.RatioMeter;
 import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.TupleValues;
 import org.slf4j.Logger;
@@ -35,21 +40,31 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.mongodb.BasicDBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 
-public class MongoPersistProcessor implements EmitProcessor {
+public class MongoPersistProcessor implements EmitProcessor, MeasurableProcessor {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(MongoPersistProcessor.class);
 
   private static final String MONGO_PERSIST_SERVERS = "mongo.persist.servers";
+  private static final String MONGO_PERSIST_BULK_SIZE = "mongo.persist.bulk.size";
+  private static final String MONGO_PERSIST_COALESCE = "mongo.persist.coalesce";
+  private static final String MONGO_PERSIST_COUNTER_FIELDS = "mongo.persist.counter.fields";
+
+  private enum CoalesceMode {
+    LAST, INC
+  }
 
   private String dbName;
   private String collectionName;
@@ -59,6 +74,10 @@ public class MongoPersistProcessor implements EmitProcessor {
   private transient Map<String, int[]> keyFieldsIndexes;
   private transient MongoClient mongoClient;
   private transient MongoCollection<Document> collection;
+  private transient int bulkSize;
+  private transient Set<String> counterFieldNames;
+  private LatencyMeter batchTime;
+  private RatioMeter coalesceRatio;
 
   public MongoPersistProcessor(String dbName, String collectionName) {
     this.dbName = dbName;
@@ -81,6 +100,19 @@ public class MongoPersistProcessor implements EmitProcessor {
     this(dbName, collectionName, false, keyFieldNames);
   }
 
+  @Override
+  public Map<String, Metrics> getMetrics() {
+    if (batchTime == null) {
+      batchTime = new LatencyMeter();
+      coalesceRatio = new RatioMeter();
+    }
+
+    Map<String, Metrics> metrics = Maps.newHashMap();
+    metrics.put(METRICS_PERSIST_BATCH_TIME, batchTime);
+    metrics.put(METRICS_PERSIST_COALESCE_RATIO, coalesceRatio);
+    return metrics;
+  }
+
   @Override
   public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
       Map<String, List<String>> outputFieldNames) throws ProcessorException {
@@ -117,6 +149,28 @@ public class MongoPersistProcessor implements EmitProcessor {
     MongoDatabase db = mongoClient.getDatabase(dbName);
     collection = db.getCollection(collectionName);
 
+    bulkSize = config.getInteger(MONGO_PERSIST_BULK_SIZE);
+    CoalesceMode coalesceMode;
+    try {
+      coalesceMode = CoalesceMode.valueOf(config.getString(MONGO_PERSIST_COALESCE).toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ProcessorException("Invalid coalesce mode '"
+          + config.getString(MONGO_PERSIST_COALESCE) + "'", e);
+    }
+
+    if (coalesceMode == CoalesceMode.INC && keyFieldNames != null) {
+      List<String> counterFields = config.getList(MONGO_PERSIST_COUNTER_FIELDS);
+      if (counterFields == null || counterFields.isEmpty()) {
+        throw new ProcessorException("Counter fields aren't specified for coalesce mode 'inc'");
+      }
+      counterFieldNames = Sets.newHashSet(counterFields);
+      for (String keyFieldName : keyFieldNames) {
+        if (counterFieldNames.contains(keyFieldName)) {
+          throw new ProcessorException("Key field '" + keyFieldName + "' can't be a counter field");
+        }
+      }
+    }
+
     if (autoIndexing && keyFieldNames != null) {
       Document doc = new Document();
       for (String keyFieldName : keyFieldNames) {
@@ -189,30 +243,117 @@ public class MongoPersistProcessor implements EmitProcessor {
         }
       }
     } else {
+      Map<List<Object>, Document> updates = Maps.newLinkedHashMap();
+      int count = 0;
       for (TupleValues tupleValues : tuples) {
         List<String> fieldNames = outputFieldNames.get(tupleValues.getTupleName());
         if (!fieldNames.isEmpty()) {
-          BasicDBObject query = null;
-          if (keyFieldsIndexes != null) {
-            int[] index = keyFieldsIndexes.get(tupleValues.getTupleName());
-            query = new BasicDBObject();
-            for (int i = 0; i < index.length; i++) {
-              query.append(keyFieldNames[i], tupleValues.getValues().get(index[i]));
-            }
+          int[] index = keyFieldsIndexes.get(tupleValues.getTupleName());
+          List<Object> key = Lists.newArrayListWithCapacity(index.length);
+          for (int i = 0; i < index.length; i++) {
+            key.add(tupleValues.getValues().get(index[i]));
           }
 
-          Document doc = toDBObject(fieldNames, tupleValues.getValues());
-          try {
-            collection.updateOne(query, new Document("$set", doc),
-                new UpdateOptions().upsert(true));
+          Document update = updates.get(key);
+          if (update == null) {
+            update = new Document();
+            updates.put(key, update);
+          }
+          coalesce(update, toDBObject(fieldNames, tupleValues.getValues()), counterFieldNames);
+          count++;
+        }
+      }
 
-            if (LOG.isDebugEnabled()) {
-              LOG.debug("Update '{}.{}' set {} where {}", dbName, collectionName, doc, query);
-            }
-          } catch (MongoException e) {
-            LOG.error("Failed to update documents", e);
+      if (!updates.isEmpty()) {
+        if (coalesceRatio != null) {
+          coalesceRatio.mark(updates.size(), count);
+        }
+
+        List<UpdateOneModel<Document>> requests =
+            Lists.newArrayListWithCapacity(Math.min(updates.size(), bulkSize));
+        for (Map.Entry<List<Object>, Document> entry : updates.entrySet()) {
+          BasicDBObject query = new BasicDBObject();
+          for (int i = 0; i < keyFieldNames.length; i++) {
+            query.append(keyFieldNames[i], entry.getKey().get(i));
+          }
+          requests.add(new UpdateOneModel<Document>(query, entry.getValue(),
+              new UpdateOptions().upsert(true)));
+
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Update '{}.{}' {} where {}", dbName, collectionName, entry.getValue(),
+                query);
+          }
+
+          if (requests.size() >= bulkSize) {
+            bulkWrite(requests);
+            requests = Lists.newArrayListWithCapacity(bulkSize);
           }
         }
+
+        if (!requests.isEmpty()) {
+          bulkWrite(requests);
+        }
+      }
+    }
+  }
+
+  private static Number add(Number a, Number b) {
+    if ((a instanceof Integer || a instanceof Long || a instanceof Short || a instanceof Byte)
+        && (b instanceof Integer || b instanceof Long || b instanceof Short
+            || b instanceof Byte)) {
+      return a.longValue() + b.longValue();
+    }
+    return a.doubleValue() + b.doubleValue();
+  }
+
+  // Only the counter fields are summed into $inc. The other fields, including numeric ones such
+  // as prices or timestamps, keep the last value written within the batch.
+  static void coalesce(Document update, Document doc, Set<String> counterFieldNames) {
+    Document setDoc = (Document) update.get("$set");
+    if (setDoc == null) {
+      setDoc = new Document();
+      update.append("$set", setDoc);
+    }
+
+    if (counterFieldNames != null) {
+      Document incDoc = (Document) update.get("$inc");
+      for (Map.Entry<String, Object> entry : doc.entrySet()) {
+        if (entry.getValue() instanceof Number && counterFieldNames.contains(entry.getKey())) {
+          if (incDoc == null) {
+            incDoc = new Document();
+            update.append("$inc", incDoc);
+          }
+          Number value = (Number) incDoc.get(entry.getKey());
+          if (value == null) {
+            incDoc.put(entry.getKey(), entry.getValue());
+          } else {
+            incDoc.put(entry.getKey(), add(value, (Number) entry.getValue()));
+          }
+          setDoc.remove(entry.getKey());
+        } else {
+          setDoc.put(entry.getKey(), entry.getValue());
+          if (incDoc != null) {
+            incDoc.remove(entry.getKey());
+          }
+        }
+      }
+      if (incDoc != null && incDoc.isEmpty()) {
+        update.remove("$inc");
+      }
+    } else {
+      setDoc.putAll(doc);
+    }
+  }
+
+  private void bulkWrite(List<UpdateOneModel<Document>> requests) {
+    long start = System.nanoTime();
+    try {
+      collection.bulkWrite(requests, new BulkWriteOptions().ordered(false));
+    } catch (MongoException e) {
+      LOG.error("Failed to update documents", e);
+    } finally {
+      if (batchTime != null) {
+        batchTime.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
       }
     }
   }
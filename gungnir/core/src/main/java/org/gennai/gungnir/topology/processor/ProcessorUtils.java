@@ -21,14 +21,21 @@ package org.gennai.gungnir.topology.processor;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.gennai.gungnir.tuple.FieldAccessor;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public final class ProcessorUtils {
 
@@ -139,4 +146,90 @@ public final class ProcessorUtils {
     }
     return placeHolders;
   }
+
+  // Brings a batch lookup key and the key read back from the store to one form, so that the
+  // same value compares equal whatever numeric type or date class it comes in.
+  public static Object normalizeKey(Object key) {
+    if (key instanceof Number) {
+      BigDecimal decimal;
+      if (key instanceof BigDecimal) {
+        decimal = (BigDecimal) key;
+      } else if (key instanceof BigInteger) {
+        decimal = new BigDecimal((BigInteger) key);
+      } else if (key instanceof Double || key instanceof Float) {
+        double value = ((Number) key).doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+          return value;
+        }
+        decimal = new BigDecimal(key.toString());
+      } else {
+        decimal = BigDecimal.valueOf(((Number) key).longValue());
+      }
+      if (decimal.signum() == 0) {
+        return BigDecimal.ZERO;
+      }
+      return decimal.stripTrailingZeros();
+    } else if (key instanceof Character) {
+      return key.toString();
+    } else if (key instanceof Date) {
+      return ((Date) key).getTime();
+    } else if (key instanceof byte[]) {
+      return ByteBuffer.wrap((byte[]) key);
+    } else if (key instanceof List) {
+      List<Object> values = Lists.newArrayListWithCapacity(((List<?>) key).size());
+      for (Object value : (List<?>) key) {
+        values.add(normalizeKey(value));
+      }
+      return values;
+    }
+    return key;
+  }
+
+  private static Object foldKey(Object key) {
+    if (key instanceof String) {
+      String str = (String) key;
+      int end = str.length();
+      while (end > 0 && str.charAt(end - 1) == ' ') {
+        end--;
+      }
+      return str.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+    return key;
+  }
+
+  public static final class BatchResults {
+
+    private boolean foldKeys;
+    private Map<Object, List<List<Object>>> valuesMap = Maps.newHashMap();
+
+    // With foldKeys, rows are matched to the requested keys the way a store that ignores case
+    // and trailing blanks (CHAR padding, case insensitive collation) compares them, so a row is
+    // handed to every requested key that folds to the same value.
+    public BatchResults(boolean foldKeys) {
+      this.foldKeys = foldKeys;
+    }
+
+    private Object toKey(Object key) {
+      Object normalizedKey = normalizeKey(key);
+      return foldKeys ? foldKey(normalizedKey) : normalizedKey;
+    }
+
+    public void add(Object key, List<Object> values) {
+      Object k = toKey(key);
+      List<List<Object>> valuesList = valuesMap.get(k);
+      if (valuesList == null) {
+        valuesList = Lists.newArrayList();
+        valuesMap.put(k, valuesList);
+      }
+      valuesList.add(values);
+    }
+
+    public List<List<Object>> get(Object key) {
+      List<List<Object>> valuesList = valuesMap.get(toKey(key));
+      if (valuesList == null) {
+        return Lists.newArrayList();
+      }
+      return valuesList;
+    }
+  }
 }
@@ -21,37 +21,29 @@ package org.gennai.gungnir.topology.processor;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
 
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.GungnirContext;
 import org.gennai.gungnir.topology.operator.OperatorContext;
-import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.TupleValues;
-import org.gennai.gungnir.tuple.json.StructSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator.Feature;
-import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 public class WebEmitProcessor implements EmitProcessor {
 
@@ -65,9 +57,8 @@ public class WebEmitProcessor implements EmitProcessor {
   private String url;
   private Format format;
   private Map<String, String> param;
-  private transient Map<String, List<String>> outputFieldNames;
   private transient CloseableHttpClient client;
-  private transient ObjectMapper mapper;
+  private transient JsonTupleEncoder encoder;
   private transient String actionLine;
 
   public WebEmitProcessor(String url, String format, Map<String, String> param) {
@@ -93,23 +84,20 @@ public class WebEmitProcessor implements EmitProcessor {
   public void open(GungnirConfig config, GungnirContext context, OperatorContext operatorContext,
       Map<String, List<String>> outputFieldNames) throws ProcessorException {
     url = context.replaceVariable(url);
-    this.outputFieldNames = outputFieldNames;
 
     client = HttpClientBuilder.create().build();
 
-    SimpleModule module = new SimpleModule("GungnirModule",
-        new Version(GUNGNIR_VERSION[0], GUNGNIR_VERSION[1], GUNGNIR_VERSION[2], null, null, null));
-    module.addSerializer(Struct.class, new StructSerializer());
-
-    mapper = new ObjectMapper();
-    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-    sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-    mapper.setDateFormat(sdf);
-    mapper.registerModule(module);
-    mapper.configure(Feature.ESCAPE_NON_ASCII, true);
+    try {
+      encoder = new JsonTupleEncoder(outputFieldNames, true);
+    } catch (IOException e) {
+      throw new ProcessorException("Failed to create json encoder", e);
+    }
 
     if (format == Format.ES && param != null && param.containsKey("index")
         && param.containsKey("type")) {
+      ObjectMapper mapper = new ObjectMapper();
+      mapper.configure(Feature.ESCAPE_NON_ASCII, true);
+
       ObjectNode metadataNode = mapper.createObjectNode();
       metadataNode.put("_index", param.get("index"));
       metadataNode.put("_type", param.get("type"));
@@ -137,52 +125,50 @@ public class WebEmitProcessor implements EmitProcessor {
       throw new ProcessorException("Processor isn't open");
     }
 
-    List<Map<String, Object>> records = Lists.newArrayListWithCapacity(tuples.size());
-    for (TupleValues tupleValues : tuples) {
-      List<String> fieldNames = outputFieldNames.get(tupleValues.getTupleName());
-      if (fieldNames.size() > 0) {
-        Map<String, Object> record = Maps.newLinkedHashMap();
-        for (int i = 0; i < fieldNames.size(); i++) {
-          record.put(fieldNames.get(i), tupleValues.getValues().get(i));
-        }
-        records.add(record);
+    int count = 0;
+    HttpPost request = new HttpPost(url);
+    try {
+      encoder.reset();
+      if (actionLine == null) {
+        encoder.writeStartArray();
+      }
+
+      for (TupleValues tupleValues : tuples) {
+        if (encoder.hasFields(tupleValues.getTupleName())) {
+          if (actionLine != null) {
+            encoder.writeRaw(actionLine);
+            encoder.write(tupleValues);
+            encoder.writeRaw("\n");
+          } else {
+            encoder.write(tupleValues);
+          }
+          count++;
 
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Emit to '{}' {}", url, record);
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Emit to '{}' {}", url, tupleValues);
+          }
         }
       }
+
+      if (actionLine == null) {
+        encoder.writeEndArray();
+        request.addHeader("Content-Type", "application/json");
+      }
+      encoder.flush();
+    } catch (IOException e) {
+      throw new ProcessorException("Failed to convert json format", e);
     }
 
-    if (records.size() > 0) {
+    if (count > 0) {
       // TODO No2
-      HttpPost request = new HttpPost(url);
-      try {
-        if (actionLine != null) {
-          StringBuilder sb = new StringBuilder();
-          for (Map<String, Object> record : records) {
-            sb.append(actionLine);
-            sb.append(mapper.writeValueAsString(record));
-            sb.append('\n');
-          }
-          request.setEntity(new StringEntity(sb.toString()));
-        } else {
-          request.addHeader("Content-Type", "application/json");
-          request.setEntity(new StringEntity(mapper.writeValueAsString(records)));
-        }
-      } catch (JsonGenerationException e) {
-        throw new ProcessorException("Failed to convert json format", e);
-      } catch (JsonMappingException e) {
-        throw new ProcessorException("Failed to convert json format", e);
-      } catch (IOException e) {
-        throw new ProcessorException("Failed to convert json format", e);
-      }
+      request.setEntity(new ByteArrayEntity(encoder.getBuffer(), 0, encoder.size()));
 
       CloseableHttpResponse response = null;
       try {
         response = client.execute(request);
         if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
           if (LOG.isDebugEnabled()) {
-            LOG.debug("Execute post request to '{}' {}", url, records);
+            LOG.debug("Execute post request to '{}' {} tuples", url, count);
           }
         } else {
           throw new ProcessorException("Failed to execute post request to '" + url + "' status:"
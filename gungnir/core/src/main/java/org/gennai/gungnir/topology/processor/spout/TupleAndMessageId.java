@@ -20,16 +20,24 @@ package org.gennai.gungnir.topology.processor.spout;
 
 import java.util.List;
 
+import org.gennai.gungnir.tuple.TupleOrigin;
+
 public class TupleAndMessageId {
 
   private List<Object> values;
   private MessageId messageId;
+  private TupleOrigin origin;
 
   public TupleAndMessageId(List<Object> values, MessageId messageId) {
     this.values = values;
     this.messageId = messageId;
   }
 
+  public TupleAndMessageId(List<Object> values, MessageId messageId, TupleOrigin origin) {
+    this(values, messageId);
+    this.origin = origin;
+  }
+
   public List<Object> getValues() {
     return values;
   }
@@ -38,6 +46,10 @@ public class TupleAndMessageId {
     return messageId;
   }
 
+  public TupleOrigin getOrigin() {
+    return origin;
+  }
+
   @Override
   public String toString() {
     return "{values=" + values + ", id=" + messageId + "}";
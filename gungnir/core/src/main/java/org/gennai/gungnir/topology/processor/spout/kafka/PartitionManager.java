@@ -18,6 +18,7 @@
 
 package org.gennai.gungnir.topology.processor.spout.kafka;
 
+import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.topology.processor.KafkaSpoutProcessor2.*;
 
 import java.nio.ByteBuffer;
@@ -39,6 +40,7 @@ import org.gennai.gungnir.GungnirConfig;
 import org.gennai.gungnir.topology.processor.ProcessorException;
 import org.gennai.gungnir.topology.processor.spout.TupleAndMessageId;
 import org.gennai.gungnir.topology.processor.spout.TupleDeserializer;
+import org.gennai.gungnir.tuple.TupleOrigin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,11 +78,16 @@ public class PartitionManager {
   private SortedSet<Long> failedOffsets = Sets.newTreeSet();
   private long numAcked;
   private long numFailed;
+  private String source;
+  private long epoch;
+  private boolean trackOrigin;
 
   private CombinedMetric fetchLatencyMax;
   private ReducedMetric fetchLatencyMean;
   private CountMetric fetchCount;
   private CountMetric fetchMessageCount;
+  private long checkpointLag;
+  private boolean checkpointBehind;
 
   private long getOffset(long offsetTime) throws ProcessorException {
     TopicAndPartition topicAndPartition =
@@ -134,6 +141,9 @@ public class PartitionManager {
 
     retryTimes = config.getInteger(PARTITION_OPERATION_RETRY_TIMES);
     retryInterval = config.getInteger(PARTITION_OPERATION_RETRY_INTERVAL);
+    source = spoutConfig.topic + "/" + partition.partition;
+    epoch = System.currentTimeMillis();
+    trackOrigin = config.getInteger(COMPONENT_CHECKPOINT_INTERVAL_SECS) > 0;
 
     commitPath = spoutConfig.zkRoot + "/" + spoutConfig.id + "/" + spoutConfig.topic + "/"
         + partition.partition;
@@ -178,6 +188,10 @@ public class PartitionManager {
     fetchMessageCount = new CountMetric();
   }
 
+  public String getSource() {
+    return source;
+  }
+
   public Map<String, Object> getMetricsDataMap() {
     Map<String, Object> metricsMap = Maps.newHashMap();
     metricsMap.put("fetchLatencyMax/" + spoutConfig.topic + "/" + partition.partition,
@@ -188,6 +202,8 @@ public class PartitionManager {
         fetchCount.getValueAndReset());
     metricsMap.put("fetchMessageCount" + spoutConfig.topic + "/" + partition.partition,
         fetchMessageCount.getValueAndReset());
+    metricsMap.put("checkpointLag/" + spoutConfig.topic + "/" + partition.partition,
+        checkpointLag);
     return metricsMap;
   }
 
@@ -254,8 +270,13 @@ public class PartitionManager {
         if (tupleAndMessageIds == null) {
           tupleAndMessageIds = Lists.newArrayList();
         }
-        tupleAndMessageIds.add(new TupleAndMessageId(values,
-            new KafkaMessageId(partition, message.offset())));
+        KafkaMessageId messageId = new KafkaMessageId(partition, message.offset());
+        if (trackOrigin) {
+          tupleAndMessageIds.add(new TupleAndMessageId(values, messageId,
+              new TupleOrigin(source, epoch, message.offset())));
+        } else {
+          tupleAndMessageIds.add(new TupleAndMessageId(values, messageId));
+        }
       }
     }
 
@@ -284,7 +305,22 @@ public class PartitionManager {
     }
   }
 
-  public void commit() {
+  public void rewind(long offset) throws ProcessorException {
+    if (offset >= startOffset) {
+      return;
+    }
+    offset = Math.max(offset, getOffset(kafka.api.OffsetRequest.EarliestTime()));
+    if (offset < startOffset) {
+      LOG.info("Rewind {} from {} to {}", partition, startOffset, offset);
+      startOffset = offset;
+      pendingOffsets.tailSet(offset).clear();
+      failedOffsets.tailSet(offset).clear();
+      // Receivers drop the re-emitted tuples they have already applied once the epoch changes
+      epoch = Math.max(epoch + 1, System.currentTimeMillis());
+    }
+  }
+
+  public void commit(Long checkpointOffset) {
     long offset;
     if (pendingOffsets.isEmpty()) {
       offset = startOffset;
@@ -292,6 +328,25 @@ public class PartitionManager {
       offset = pendingOffsets.first();
     }
 
+    // Stay at the oldest offset that is not yet in a checkpoint of operator state, however far
+    // behind it is, so that the state can always be recovered
+    checkpointLag = 0;
+    if (checkpointOffset != null && checkpointOffset < offset) {
+      checkpointLag = offset - checkpointOffset;
+      if (checkpointLag > spoutConfig.maxOffsetBehind) {
+        if (!checkpointBehind) {
+          LOG.warn("Commit of {} held {} offsets behind at checkpoint offset {}", partition,
+              checkpointLag, checkpointOffset);
+          checkpointBehind = true;
+        }
+      } else {
+        checkpointBehind = false;
+      }
+      offset = checkpointOffset;
+    } else {
+      checkpointBehind = false;
+    }
+
     if (commitOffset != offset) {
       Map<Object, Object> stateNode = ImmutableMap.builder()
           .put("offset", offset)
@@ -20,6 +20,7 @@ package org.gennai.gungnir.topology.processor.spout.kafka;
 
 import static org.gennai.gungnir.GungnirConfig.*;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -87,6 +88,20 @@ public class ZkState {
     }
   }
 
+  public List<String> getChildren(String path) throws Exception {
+    if (curator.checkExists().forPath(path) != null) {
+      return curator.getChildren().forPath(path);
+    } else {
+      return Collections.emptyList();
+    }
+  }
+
+  public void delete(String path) throws Exception {
+    if (curator.checkExists().forPath(path) != null) {
+      curator.delete().forPath(path);
+    }
+  }
+
   public void close() {
     curator.close();
   }
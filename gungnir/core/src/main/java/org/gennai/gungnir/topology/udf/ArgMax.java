@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import org.gennai.gungnir.topology.ConditionEvaluator;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.GungnirTuple;
+
+@BaseFunction.Description(name = "argmax")
+public class ArgMax extends BaseSlidingFunction<Object> {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  public ArgMax() {
+  }
+
+  private ArgMax(ArgMax c) {
+    super(c);
+  }
+
+  @Override
+  public ArgMax create(Object... parameters) throws ArgumentException {
+    if (parameters.length == 2) {
+      setFieldParameters(parameters);
+    } else {
+      throw new ArgumentException("Incorrect number of arguments");
+    }
+    return this;
+  }
+
+  @Override
+  protected Object getKey(GungnirTuple tuple) {
+    return ((Field) getParameter(1)).getValue(tuple);
+  }
+
+  @Override
+  protected Object getResult(GungnirTuple tuple, Object key) {
+    return ((Field) getParameter(0)).getValue(tuple);
+  }
+
+  @Override
+  protected boolean dominates(Object key, Object lastKey) {
+    return ConditionEvaluator.compare(key, lastKey) >= 0;
+  }
+
+  @Override
+  public ArgMax clone() {
+    return new ArgMax(this);
+  }
+}
@@ -20,6 +20,8 @@ package org.gennai.gungnir.topology.udf;
 
 import static org.gennai.gungnir.GungnirConst.*;
 
+import java.util.List;
+
 import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.GungnirTuple;
 import org.gennai.gungnir.utils.ArithmeticOperationException;
@@ -27,8 +29,11 @@ import org.gennai.gungnir.utils.GungnirUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 @BaseFunction.Description(name = "avg")
-public class Average extends BaseAggregateFunction<Number> {
+public class Average extends BaseAggregateFunction<Number>
+    implements MergeableFunction<Number> {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(Average.class);
@@ -120,6 +125,61 @@ public class Average extends BaseAggregateFunction<Number> {
     }
   }
 
+  @Override
+  public Object partial() {
+    return Lists.newArrayList(total, cnt);
+  }
+
+  @Override
+  public Number merge(Object partial) {
+    if (partial instanceof List<?>) {
+      List<?> values = (List<?>) partial;
+      try {
+        total = GungnirUtils.addition(total, values.get(0));
+        cnt += ((Number) values.get(1)).longValue();
+      } catch (ArithmeticOperationException e) {
+        LOG.warn("Failed to merged {} + {}", total, values.get(0));
+      }
+    }
+
+    if (cnt == 0) {
+      return 0;
+    }
+
+    if (total instanceof Double) {
+      Double d = ((Double) total);
+      return d / cnt;
+    } else {
+      Long l = ((Long) total);
+      return l / cnt;
+    }
+  }
+
+  @Override
+  public Number unmerge(Object partial) {
+    if (partial instanceof List<?>) {
+      List<?> values = (List<?>) partial;
+      try {
+        total = GungnirUtils.subtraction(total, values.get(0));
+        cnt -= ((Number) values.get(1)).longValue();
+      } catch (ArithmeticOperationException e) {
+        LOG.warn("Failed to unmerged {} - {}", total, values.get(0));
+      }
+    }
+
+    if (cnt == 0) {
+      return 0;
+    }
+
+    if (total instanceof Double) {
+      Double d = ((Double) total);
+      return d / cnt;
+    } else {
+      Long l = ((Long) total);
+      return l / cnt;
+    }
+  }
+
   @Override
   public void clear() {
     if (getParameter(0) instanceof AggregateFunction<?>) {
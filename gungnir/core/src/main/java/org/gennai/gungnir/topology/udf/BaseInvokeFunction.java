@@ -26,7 +26,6 @@ import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
@@ -34,7 +33,6 @@ import java.util.Map;
 
 import org.gennai.gungnir.ql.FunctionEntity;
 import org.gennai.gungnir.tuple.schema.FieldType;
-import org.gennai.gungnir.utils.GungnirUtils;
 import org.gennai.gungnir.utils.ScalaConverters;
 
 import scala.reflect.ScalaSignature;
@@ -60,6 +58,7 @@ public abstract class BaseInvokeFunction extends BaseFunction<Object> implements
     super(c);
     this.function = c.function;
     this.classPath = c.classPath;
+    this.functionClass = c.functionClass;
   }
 
   @Override
@@ -78,12 +77,7 @@ public abstract class BaseInvokeFunction extends BaseFunction<Object> implements
     if (functionClass == null) {
       String className = function.getLocation().substring(0, function.getLocation().length() - 6);
       if (getClassPath() != null) {
-        ClassLoader classLoader = GungnirUtils.addToClassPath(Paths.get(getClassPath()));
-        if (classLoader != null) {
-          functionClass = Class.forName(className, true, classLoader);
-        } else {
-          functionClass = Class.forName(className);
-        }
+        functionClass = FunctionClassLoaderCache.loadClass(getClassPath(), className);
       } else {
         functionClass = Class.forName(className);
       }
@@ -22,27 +22,44 @@ import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.gennai.gungnir.ql.FunctionEntity;
 import org.gennai.gungnir.ql.FunctionEntity.ScriptType;
-import org.gennai.gungnir.utils.GungnirUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.CharStreams;
 
 public abstract class BaseScriptFunction extends BaseFunction<Object> implements UserDefined {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
 
+  private static final ConcurrentMap<ScriptType, ScriptEngineFactory> FACTORIES =
+      Maps.newConcurrentMap();
+
+  // Shared by an instance and the clones made from it for each group key, which all run on the
+  // same executor thread.
+  private static final class ScriptHolder {
+
+    private String script;
+    private ScriptEngine engine;
+  }
+
   private FunctionEntity function;
   private ScriptType scriptType;
   private transient String classPath;
   private transient ScriptEngine engine;
+  private transient ScriptHolder holder;
 
   protected BaseScriptFunction(FunctionEntity function, ScriptType scriptType, String classPath) {
     this.function = function;
@@ -55,6 +72,7 @@ public abstract class BaseScriptFunction extends BaseFunction<Object> implements
     this.function = c.function;
     this.scriptType = c.scriptType;
     this.classPath = c.classPath;
+    this.holder = c.getHolder();
   }
 
   @Override
@@ -62,28 +80,70 @@ public abstract class BaseScriptFunction extends BaseFunction<Object> implements
     return function;
   }
 
+  private ScriptHolder getHolder() {
+    if (holder == null) {
+      holder = new ScriptHolder();
+    }
+    return holder;
+  }
+
+  // Functions that keep state in script globals, such as aggregates, need an engine per
+  // instance. Others share the engine of the instance they were cloned from.
+  protected boolean isStateful() {
+    return false;
+  }
+
+  private ScriptEngine createEngine() {
+    ScriptEngineFactory factory = FACTORIES.get(scriptType);
+    if (factory == null) {
+      ScriptEngine scriptEngine =
+          new ScriptEngineManager().getEngineByName(scriptType.getShortName());
+      FACTORIES.putIfAbsent(scriptType, scriptEngine.getFactory());
+      return scriptEngine;
+    }
+    return factory.getScriptEngine();
+  }
+
+  private String readScript() throws IOException {
+    ClassLoader classLoader = null;
+    if (classPath != null) {
+      classLoader = FunctionClassLoaderCache.getClassLoader(classPath);
+    }
+    if (classLoader == null) {
+      classLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    InputStream is = classLoader.getResourceAsStream(function.getLocation());
+    if (is == null) {
+      throw new IOException("Script '" + function.getLocation() + "' isn't found");
+    }
+    InputStreamReader reader = new InputStreamReader(is, Charsets.UTF_8);
+    try {
+      return CharStreams.toString(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
   protected Invocable getEngine() throws IOException, ScriptException {
     if (classPath == null) {
       classPath = getConfig().getString(CLASS_PATH);
     }
 
     if (engine == null) {
-      engine = new ScriptEngineManager().getEngineByName(scriptType.getShortName());
-
-      ClassLoader classLoader = null;
-      if (classPath != null) {
-        classLoader = GungnirUtils.addToClassPath(Paths.get(classPath));
-      }
-      if (classLoader == null) {
-        classLoader = Thread.currentThread().getContextClassLoader();
-      }
-
-      InputStreamReader reader =
-          new InputStreamReader(classLoader.getResourceAsStream(function.getLocation()));
-      try {
-        engine.eval(reader);
-      } finally {
-        reader.close();
+      ScriptHolder scriptHolder = getHolder();
+      if (!isStateful() && scriptHolder.engine != null) {
+        engine = scriptHolder.engine;
+      } else {
+        if (scriptHolder.script == null) {
+          scriptHolder.script = readScript();
+        }
+        ScriptEngine scriptEngine = createEngine();
+        scriptEngine.eval(scriptHolder.script);
+        engine = scriptEngine;
+        if (!isStateful()) {
+          scriptHolder.engine = engine;
+        }
       }
     }
 
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+
+public abstract class BaseSlidingFunction<T> extends BaseAggregateFunction<T> {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+  private static final Logger LOG = LoggerFactory.getLogger(BaseSlidingFunction.class);
+
+  private static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+    private Object key;
+    private Object value;
+
+    private Entry(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private boolean sliding;
+  private ArrayDeque<Entry> entries;
+  private ArrayDeque<Entry> window;
+
+  protected BaseSlidingFunction() {
+  }
+
+  protected BaseSlidingFunction(BaseSlidingFunction<T> c) {
+    super(c);
+    this.sliding = c.sliding;
+  }
+
+  public void setSliding(boolean sliding) {
+    this.sliding = sliding;
+  }
+
+  public boolean isSliding() {
+    return sliding;
+  }
+
+  protected void setFieldParameters(Object... parameters) throws ArgumentException {
+    for (Object parameter : parameters) {
+      if (!(parameter instanceof Field)) {
+        throw new ArgumentException("Incorrect type of argument");
+      }
+    }
+    setParameters(parameters);
+  }
+
+  protected Object getKey(GungnirTuple tuple) {
+    return ((Field) getParameter(0)).getValue(tuple);
+  }
+
+  protected Object getResult(GungnirTuple tuple, Object key) {
+    return key;
+  }
+
+  protected abstract boolean dominates(Object key, Object lastKey);
+
+  @Override
+  protected void prepare() {
+    entries = new ArrayDeque<Entry>();
+    window = new ArrayDeque<Entry>();
+  }
+
+  @SuppressWarnings("unchecked")
+  private T peek() {
+    Entry entry = entries.peekFirst();
+    if (entry == null) {
+      return null;
+    }
+    return (T) entry.value;
+  }
+
+  private void push(Entry entry) {
+    while (!entries.isEmpty() && dominates(entry.key, entries.peekLast().key)) {
+      entries.pollLast();
+    }
+    entries.addLast(entry);
+  }
+
+  @Override
+  public T evaluate(GungnirTuple tuple) {
+    Object key = getKey(tuple);
+    if (key != null) {
+      try {
+        if (sliding) {
+          Entry entry = new Entry(key, getResult(tuple, key));
+          push(entry);
+          window.addLast(entry);
+        } else {
+          while (!entries.isEmpty() && dominates(key, entries.peekLast().key)) {
+            entries.pollLast();
+          }
+          if (entries.isEmpty()) {
+            entries.addLast(new Entry(key, getResult(tuple, key)));
+          }
+        }
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Failed to compare {}", key, e);
+      }
+    }
+    return peek();
+  }
+
+  @Override
+  public T exclude(GungnirTuple tuple) {
+    Object key = getKey(tuple);
+    if (key == null) {
+      return peek();
+    }
+
+    Object result = getResult(tuple, key);
+    Entry excluded = null;
+    boolean oldest = true;
+    for (Iterator<Entry> it = window.iterator(); it.hasNext();) {
+      Entry entry = it.next();
+      if (Objects.equal(entry.key, key) && Objects.equal(entry.value, result)) {
+        it.remove();
+        excluded = entry;
+        break;
+      }
+      oldest = false;
+    }
+
+    if (excluded != null) {
+      if (oldest) {
+        if (excluded == entries.peekFirst()) {
+          entries.pollFirst();
+        }
+      } else if (entries.contains(excluded)) {
+        // Older entries dominated by the excluded one are candidates again
+        entries.clear();
+        for (Entry entry : window) {
+          push(entry);
+        }
+      }
+    }
+    return peek();
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+    window.clear();
+  }
+}
@@ -56,6 +56,13 @@ public class Cast extends BaseFunction<Object> {
     return this;
   }
 
+  public FieldType getCastType() {
+    if (getParameter(1) instanceof PrimitiveType) {
+      return (FieldType) getParameter(1);
+    }
+    return null;
+  }
+
   @Override
   protected void prepare() {
   }
@@ -71,8 +71,11 @@ public class CollectList extends BaseAggregateFunction<List<?>> {
 
   @Override
   public List<?> exclude(GungnirTuple tuple) {
-    values.remove(0);
-    return  Lists.newArrayList(values);
+    Object value = ((Field) getParameter(0)).getValue(tuple);
+    if (value != null) {
+      values.remove(value);
+    }
+    return Lists.newArrayList(values);
   }
 
   @Override
@@ -24,7 +24,8 @@ import org.gennai.gungnir.tuple.Field;
 import org.gennai.gungnir.tuple.GungnirTuple;
 
 @BaseFunction.Description(name = "count")
-public class Count extends BaseAggregateFunction<Long> {
+public class Count extends BaseAggregateFunction<Long>
+    implements MergeableFunction<Long> {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
 
@@ -88,6 +89,27 @@ public class Count extends BaseAggregateFunction<Long> {
     return cnt;
   }
 
+  @Override
+  public Object partial() {
+    return cnt;
+  }
+
+  @Override
+  public Long merge(Object partial) {
+    if (partial instanceof Number) {
+      cnt += ((Number) partial).longValue();
+    }
+    return cnt;
+  }
+
+  @Override
+  public Long unmerge(Object partial) {
+    if (partial instanceof Number) {
+      cnt -= ((Number) partial).longValue();
+    }
+    return cnt;
+  }
+
   @Override
   public void clear() {
     if (hasParameter()) {
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public final class FunctionClassLoaderCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FunctionClassLoaderCache.class);
+
+  private static final long CHECK_INTERVAL_MILLIS = 10000;
+  private static final ConcurrentMap<String, LoaderEntry> LOADERS = Maps.newConcurrentMap();
+  private static final AtomicLong CREATED_COUNT = new AtomicLong();
+  private static final AtomicLong LOADED_COUNT = new AtomicLong();
+  private static final AtomicLong HIT_COUNT = new AtomicLong();
+
+  private static final class LoaderEntry {
+
+    private String signature;
+    private ClassLoader classLoader;
+    private ConcurrentMap<String, Class<?>> classes = Maps.newConcurrentMap();
+    private volatile long checkedTime;
+
+    private LoaderEntry(String signature, ClassLoader classLoader, long checkedTime) {
+      this.signature = signature;
+      this.classLoader = classLoader;
+      this.checkedTime = checkedTime;
+    }
+  }
+
+  private FunctionClassLoaderCache() {
+  }
+
+  private static String signature(Path dir) throws IOException {
+    List<String> files = Lists.newArrayList();
+    DirectoryStream<Path> ds = Files.newDirectoryStream(dir);
+    try {
+      for (Path path : ds) {
+        files.add(path.getFileName().toString() + ':' + Files.size(path) + ':'
+            + Files.getLastModifiedTime(path).toMillis());
+      }
+    } finally {
+      ds.close();
+    }
+    Collections.sort(files);
+    return files.toString();
+  }
+
+  // Drops the loaders of directories that have been removed, e.g. those of deleted topologies.
+  // A dropped loader is not closed, because function instances that were cloned or prepared
+  // before the change may still load classes through it. It is collected with the last of them.
+  private static void prune() {
+    for (Iterator<Map.Entry<String, LoaderEntry>> it = LOADERS.entrySet().iterator();
+        it.hasNext();) {
+      Map.Entry<String, LoaderEntry> entry = it.next();
+      if (!Files.exists(Paths.get(entry.getKey()))) {
+        it.remove();
+        LOG.info("Released class loader for {}", entry.getKey());
+      }
+    }
+  }
+
+  // The directory is listed again at most once per CHECK_INTERVAL_MILLIS; in between, lookups
+  // are a map read. A loader replaced because the directory changed is released like a pruned
+  // one.
+  private static LoaderEntry getEntry(String classPath) throws IOException {
+    long now = System.currentTimeMillis();
+    LoaderEntry entry = LOADERS.get(classPath);
+    if (entry != null && now - entry.checkedTime < CHECK_INTERVAL_MILLIS) {
+      return entry;
+    }
+
+    synchronized (LOADERS) {
+      entry = LOADERS.get(classPath);
+      if (entry != null && now - entry.checkedTime < CHECK_INTERVAL_MILLIS) {
+        return entry;
+      }
+
+      prune();
+
+      Path dir = Paths.get(classPath);
+      if (!Files.exists(dir)) {
+        return null;
+      }
+
+      String signature = signature(dir);
+      if (entry != null && entry.signature.equals(signature)) {
+        entry.checkedTime = now;
+        return entry;
+      }
+
+      ClassLoader classLoader = GungnirUtils.addToClassPath(dir);
+      if (classLoader == null) {
+        return null;
+      }
+      LoaderEntry prev = LOADERS.put(classPath, new LoaderEntry(signature, classLoader, now));
+      CREATED_COUNT.incrementAndGet();
+      LOG.info("Created class loader for {}", classPath);
+
+      if (prev != null) {
+        LOG.info("Released class loader for {}", classPath);
+      }
+      return LOADERS.get(classPath);
+    }
+  }
+
+  public static ClassLoader getClassLoader(String classPath) throws IOException {
+    LoaderEntry entry = getEntry(classPath);
+    if (entry == null) {
+      return null;
+    }
+    return entry.classLoader;
+  }
+
+  public static Class<?> loadClass(String classPath, String className) throws IOException,
+      ClassNotFoundException {
+    LoaderEntry entry = getEntry(classPath);
+    if (entry == null) {
+      return Class.forName(className);
+    }
+
+    Class<?> clazz = entry.classes.get(className);
+    if (clazz == null) {
+      clazz = Class.forName(className, true, entry.classLoader);
+      Class<?> prev = entry.classes.putIfAbsent(className, clazz);
+      if (prev != null) {
+        clazz = prev;
+        HIT_COUNT.incrementAndGet();
+      } else {
+        LOADED_COUNT.incrementAndGet();
+      }
+    } else {
+      HIT_COUNT.incrementAndGet();
+    }
+    return clazz;
+  }
+
+  public static Map<String, Long> getStats() {
+    long classes = 0;
+    for (LoaderEntry entry : LOADERS.values()) {
+      classes += entry.classes.size();
+    }
+
+    Map<String, Long> stats = Maps.newLinkedHashMap();
+    stats.put("loaders", (long) LOADERS.size());
+    stats.put("classes", classes);
+    stats.put("created", CREATED_COUNT.get());
+    stats.put("loaded", LOADED_COUNT.get());
+    stats.put("hit", HIT_COUNT.get());
+    return stats;
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+@BaseFunction.Description(name = "last")
+public class Last extends BaseSlidingFunction<Object> {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  public Last() {
+  }
+
+  private Last(Last c) {
+    super(c);
+  }
+
+  @Override
+  public Last create(Object... parameters) throws ArgumentException {
+    if (parameters.length == 1) {
+      setFieldParameters(parameters);
+    } else {
+      throw new ArgumentException("Incorrect number of arguments");
+    }
+    return this;
+  }
+
+  @Override
+  protected boolean dominates(Object key, Object lastKey) {
+    return true;
+  }
+
+  @Override
+  public Last clone() {
+    return new Last(this);
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.GungnirTuple;
+
+@BaseFunction.Description(name = "merge")
+public class MergeFunction extends BaseAggregateFunction<Object> {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private MergeableFunction<?> function;
+
+  public MergeFunction(MergeableFunction<?> function) {
+    this.function = function;
+  }
+
+  public MergeFunction(MergeableFunction<?> function, Field partialField) {
+    this.function = function;
+    setParameters(new Object[] {partialField});
+  }
+
+  private MergeFunction(MergeFunction c) {
+    super(c);
+    this.function = (MergeableFunction<?>) c.function.clone();
+  }
+
+  @Override
+  public MergeFunction create(Object... parameters) throws ArgumentException {
+    if (parameters.length == 1) {
+      if (parameters[0] instanceof Field) {
+        setParameters(parameters);
+      } else {
+        throw new ArgumentException("Incorrect type of argument");
+      }
+    } else {
+      throw new ArgumentException("Incorrect number of arguments");
+    }
+    return this;
+  }
+
+  @Override
+  protected void prepare() {
+    function.prepare(getConfig(), getContext());
+  }
+
+  @Override
+  public Object evaluate(GungnirTuple tuple) {
+    return function.merge(((Field) getParameter(0)).getValue(tuple));
+  }
+
+  @Override
+  public Object exclude(GungnirTuple tuple) {
+    return function.unmerge(((Field) getParameter(0)).getValue(tuple));
+  }
+
+  @Override
+  public void clear() {
+    function.clear();
+  }
+
+  @Override
+  public MergeFunction clone() {
+    return new MergeFunction(this);
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import org.gennai.gungnir.tuple.GungnirTuple;
+
+@BaseFunction.Description(name = "partial")
+public class PartialFunction extends BaseAggregateFunction<Object> {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  public PartialFunction() {
+  }
+
+  public PartialFunction(MergeableFunction<?> function) {
+    setParameters(new Object[] {function});
+  }
+
+  private PartialFunction(PartialFunction c) {
+    super(c);
+  }
+
+  @Override
+  public PartialFunction create(Object... parameters) throws ArgumentException {
+    if (parameters.length == 1) {
+      if (parameters[0] instanceof MergeableFunction<?>) {
+        setParameters(parameters);
+      } else {
+        throw new ArgumentException("Incorrect type of argument");
+      }
+    } else {
+      throw new ArgumentException("Incorrect number of arguments");
+    }
+    return this;
+  }
+
+  private MergeableFunction<?> getFunction() {
+    return (MergeableFunction<?>) getParameter(0);
+  }
+
+  @Override
+  protected void prepare() {
+  }
+
+  @Override
+  public Object evaluate(GungnirTuple tuple) {
+    getFunction().evaluate(tuple);
+    return getFunction().partial();
+  }
+
+  @Override
+  public Object exclude(GungnirTuple tuple) {
+    getFunction().exclude(tuple);
+    return getFunction().partial();
+  }
+
+  @Override
+  public void clear() {
+    getFunction().clear();
+  }
+
+  @Override
+  public PartialFunction clone() {
+    return new PartialFunction(this);
+  }
+}
@@ -49,6 +49,11 @@ public class ScriptAggregateFunction extends BaseScriptFunction
     super(c);
   }
 
+  @Override
+  protected boolean isStateful() {
+    return true;
+  }
+
   @Override
   public Function<Object> create(Object... parameters) throws SemanticAnalyzeException,
       ArgumentException {
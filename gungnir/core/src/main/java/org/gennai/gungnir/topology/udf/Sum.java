@@ -28,7 +28,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @BaseFunction.Description(name = "sum")
-public class Sum extends BaseAggregateFunction<Object> {
+public class Sum extends BaseAggregateFunction<Object>
+    implements MergeableFunction<Object> {
 
   private static final long serialVersionUID = SERIAL_VERSION_UID;
   private static final Logger LOG = LoggerFactory.getLogger(Sum.class);
@@ -91,6 +92,35 @@ public class Sum extends BaseAggregateFunction<Object> {
     return total;
   }
 
+  @Override
+  public Object partial() {
+    return total;
+  }
+
+  @Override
+  public Object merge(Object partial) {
+    if (partial != null) {
+      try {
+        total = GungnirUtils.addition(total, partial);
+      } catch (ArithmeticOperationException e) {
+        LOG.warn("Failed to merged {} + {}", total, partial);
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public Object unmerge(Object partial) {
+    if (partial != null) {
+      try {
+        total = GungnirUtils.subtraction(total, partial);
+      } catch (ArithmeticOperationException e) {
+        LOG.warn("Failed to unmerged {} - {}", total, partial);
+      }
+    }
+    return total;
+  }
+
   @Override
   public void clear() {
     if (getParameter(0) instanceof AggregateFunction<?>) {
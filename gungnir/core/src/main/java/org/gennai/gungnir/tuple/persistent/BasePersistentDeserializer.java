@@ -21,9 +21,6 @@ package org.gennai.gungnir.tuple.persistent;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.util.Date;
-import java.util.Iterator;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.gennai.gungnir.ql.SchemaRegistry;
 import org.gennai.gungnir.tuple.TupleValues;
@@ -40,11 +37,6 @@ public abstract class BasePersistentDeserializer implements PersistentDeserializ
 
   private PersistentDispatcher dispatcher;
   private SchemaRegistry schemaRegistry;
-  private ReentrantLock stateLock = new ReentrantLock();
-  private Condition pauseCond = stateLock.newCondition();
-  private Condition resumeCond = stateLock.newCondition();
-  private volatile boolean paused;
-  private boolean resumed;
 
   protected BasePersistentDeserializer() {
   }
@@ -73,25 +65,6 @@ public abstract class BasePersistentDeserializer implements PersistentDeserializ
     sync();
   }
 
-  private void await() throws InterruptedException {
-    if (paused) {
-      LOG.info("Persistent deserializer paused. account ID: '{}'", dispatcher.getOwner().getId());
-
-      stateLock.lock();
-      try {
-        paused = false;
-        resumed = false;
-        pauseCond.signal();
-        while (!resumed) {
-          resumeCond.await();
-        }
-      } finally {
-        stateLock.unlock();
-      }
-      LOG.info("Persistent deserializer resume. account ID: '{}'", dispatcher.getOwner().getId());
-    }
-  }
-
   protected abstract TupleValues deserialize(TrackingData trackingData, Schema schema)
       throws DeserializeException;
 
@@ -136,70 +109,8 @@ public abstract class BasePersistentDeserializer implements PersistentDeserializ
   }
 
   @Override
-  public void run() {
-    LOG.info("Persistent deserializer started. account ID: '{}'", dispatcher.getOwner().getId());
-
-    try {
-      while (!Thread.interrupted()) {
-        TrackingData trackingData = dispatcher.getDeserQueue().take();
-        try {
-          while (trackingData != null) {
-            await();
-            dispatcher.getEmitQueue().put(doDeserialize(trackingData));
-            trackingData = dispatcher.getDeserQueue().poll();
-          }
-        } catch (DeserializeException e) {
-          LOG.warn("Failed to deserialize", e);
-        }
-      }
-    } catch (InterruptedException e) {
-      LOG.info("Persistent deserializer interrupted");
-    }
-
-    if (!dispatcher.getDeserQueue().isEmpty()) {
-      for (Iterator<TrackingData> it = dispatcher.getDeserQueue().iterator(); !Thread.interrupted()
-          && it.hasNext();) {
-        TrackingData trackingData = it.next();
-        try {
-          dispatcher.getEmitQueue().put(doDeserialize(trackingData));
-        } catch (InterruptedException e) {
-          LOG.info("Persistent emit queue interrupted");
-        } catch (DeserializeException e) {
-          LOG.warn("Failed to deserialize", e);
-        }
-      }
-    }
-  }
-
-  @Override
-  public void pause() {
-    stateLock.lock();
-    try {
-      if (!paused && stateLock.getWaitQueueLength(resumeCond) == 0) {
-        paused = true;
-        if (!dispatcher.getDeserQueue().isEmpty()) {
-          while (paused) {
-            pauseCond.await();
-          }
-        }
-      }
-    } catch (InterruptedException e) {
-      LOG.info("Persistent deserializer interrupted");
-    } finally {
-      stateLock.unlock();
-    }
-  }
-
-  @Override
-  public void resume() {
-    stateLock.lock();
-    try {
-      paused = false;
-      resumed = true;
-      resumeCond.signal();
-    } finally {
-      stateLock.unlock();
-    }
+  public TupleValues process(TrackingData trackingData) throws DeserializeException {
+    return doDeserialize(trackingData);
   }
 
   @Override
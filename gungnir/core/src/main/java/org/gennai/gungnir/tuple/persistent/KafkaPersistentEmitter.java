@@ -24,17 +24,12 @@ import static org.gennai.gungnir.GungnirConst.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 
-import kafka.admin.AdminUtils;
 import kafka.common.FailedToSendMessageException;
 import kafka.javaapi.producer.Producer;
 import kafka.producer.KeyedMessage;
-import kafka.utils.ZKStringSerializer;
 
-import org.I0Itec.zkclient.ZkClient;
-import org.I0Itec.zkclient.serialize.ZkSerializer;
-import org.apache.commons.lang.StringUtils;
+import org.gennai.gungnir.GungnirManager;
 import org.gennai.gungnir.tuple.Struct;
 import org.gennai.gungnir.tuple.TupleValues;
 import org.gennai.gungnir.tuple.schema.Schema;
@@ -44,23 +39,42 @@ import org.gennai.gungnir.utils.kafka.HashEncoder;
 import org.gennai.gungnir.utils.kafka.HashPartitioner;
 import org.gennai.gungnir.utils.kafka.KafkaClientBuilder;
 import org.gennai.gungnir.utils.kafka.KafkaClientBuilder.ProducerType;
+import org.gennai.gungnir.utils.kafka.TopicMetadataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 public class KafkaPersistentEmitter extends BasePersistentEmitter {
 
   private static final Logger LOG = LoggerFactory.getLogger(KafkaPersistentEmitter.class);
 
+  private static class PartitionBatch {
+
+    private List<KeyedMessage<Integer, byte[]>> messages = Lists.newArrayList();
+    private int size;
+  }
+
+  private static class TopicBatches {
+
+    private String topicName;
+    private PartitionBatch[] batches = new PartitionBatch[0];
+
+    TopicBatches(String topicName) {
+      this.topicName = topicName;
+    }
+  }
+
   private Producer<Integer, byte[]> producer;
+  private TopicMetadataCache topicMetadataCache;
   private int maxSize;
   private KryoSerializer serializer;
   private Random random;
   private Map<String, int[]> paritionIndexesMap;
-  private Set<String> existsTopics;
+  private Map<String, TopicBatches> topicBatchesMap;
+  private List<PartitionBatch> pendingBatches;
+  private List<KeyedMessage<Integer, byte[]>> messages;
 
   public KafkaPersistentEmitter() {
     super();
@@ -69,6 +83,7 @@ public class KafkaPersistentEmitter extends BasePersistentEmitter {
   private KafkaPersistentEmitter(KafkaPersistentEmitter c) {
     super(c);
     this.producer = c.producer;
+    this.topicMetadataCache = c.topicMetadataCache;
     this.maxSize = c.maxSize;
   }
 
@@ -81,7 +96,11 @@ public class KafkaPersistentEmitter extends BasePersistentEmitter {
           .getString(KAFKA_PRODUCER_TYPE).toUpperCase());
       producer = KafkaClientBuilder.createProducer().brokers(brokers).requiredAcks(requiredAcks)
           .keySerializer(HashEncoder.class).partitioner(HashPartitioner.class)
-          .producerType(producerType).build();
+          .producerType(producerType)
+          .compressionCodec(getDispatcher().getConfig().getString(KAFKA_COMPRESSION_CODEC))
+          .build();
+
+      topicMetadataCache = GungnirManager.getManager().getTopicMetadataCache();
 
       maxSize = getDispatcher().getConfig().getInteger(PERSISTENT_EMIT_TUPLES_MAX_SIZE);
     }
@@ -90,36 +109,14 @@ public class KafkaPersistentEmitter extends BasePersistentEmitter {
     serializer.register(Struct.class, new StructSerializer());
 
     random = new Random();
+    pendingBatches = Lists.newArrayList();
+    messages = Lists.newArrayList();
   }
 
   @Override
   protected void sync() {
     paritionIndexesMap = Maps.newHashMap();
-    existsTopics = Sets.newHashSet();
-  }
-
-  private boolean checkExistsTopic(String topicName) {
-    List<String> zkServers = getDispatcher().getConfig().getList(KAFKA_ZOOKEEPER_SERVERS);
-    ZkClient zkClient = new ZkClient(StringUtils.join(zkServers, ","),
-        getDispatcher().getConfig().getInteger(KAFKA_ZOOKEEPER_SESSION_TIMEOUT),
-        getDispatcher().getConfig().getInteger(KAFKA_ZOOKEEPER_CONNECTION_TIMEOUT),
-        new ZkSerializer() {
-          @Override
-          public byte[] serialize(Object data) {
-            return ZKStringSerializer.serialize(data);
-          }
-
-          @Override
-          public Object deserialize(byte[] bytes) {
-            return ZKStringSerializer.deserialize(bytes);
-          }
-        });
-
-    boolean exists = AdminUtils.topicExists(zkClient, topicName);
-
-    zkClient.close();
-
-    return exists;
+    topicBatchesMap = Maps.newHashMap();
   }
 
   private int hash(TupleValues tupleValues) {
@@ -139,31 +136,60 @@ public class KafkaPersistentEmitter extends BasePersistentEmitter {
     }
 
     if (indexes.length > 0) {
-      List<Object> partitionKey = Lists.newArrayListWithCapacity(indexes.length);
+      // Same as List.hashCode() of the partition key values
+      int hash = 1;
       for (int index : indexes) {
-        partitionKey.add(tupleValues.getValues().get(index));
+        Object value = tupleValues.getValues().get(index);
+        hash = 31 * hash + (value == null ? 0 : value.hashCode());
       }
-      return partitionKey.hashCode();
+      return hash;
     } else {
       return random.nextInt();
     }
   }
 
+  private void send(List<KeyedMessage<Integer, byte[]>> messages) {
+    try {
+      producer.send(messages);
+    } catch (FailedToSendMessageException e) {
+      LOG.error("Failed to insert tracking data", e);
+    }
+
+    getDispatcher().getMetrics().getEmitCount().mark(messages.size());
+  }
+
+  private PartitionBatch getBatch(TopicBatches topicBatches, int numPartitions, int partition) {
+    if (topicBatches.batches.length != numPartitions) {
+      // Partitions have been added, the pending batches are still sent as they are
+      topicBatches.batches = new PartitionBatch[numPartitions];
+    }
+    PartitionBatch batch = topicBatches.batches[partition];
+    if (batch == null) {
+      batch = new PartitionBatch();
+      topicBatches.batches[partition] = batch;
+    }
+    return batch;
+  }
+
+  private void clear(PartitionBatch batch) {
+    batch.messages.clear();
+    batch.size = 0;
+  }
+
   @Override
   public void emit(String accountId, List<TupleValues> tuples) {
     if (producer != null) {
-      List<KeyedMessage<Integer, byte[]>> messages = Lists.newArrayList();
-      int size = 0;
-
       for (TupleValues tupleValues : tuples) {
-        String topicName = TRACKDATA_TOPIC + accountId + "." + tupleValues.getTupleName();
-        if (!existsTopics.contains(topicName)) {
-          if (checkExistsTopic(topicName)) {
-            existsTopics.add(topicName);
-          } else {
-            LOG.warn("Topic doesn't exist. tuple: {}", tupleValues.getTupleName());
-            continue;
-          }
+        TopicBatches topicBatches = topicBatchesMap.get(tupleValues.getTupleName());
+        if (topicBatches == null) {
+          topicBatches = new TopicBatches(TRACKDATA_TOPIC + accountId + "."
+              + tupleValues.getTupleName());
+          topicBatchesMap.put(tupleValues.getTupleName(), topicBatches);
+        }
+        int numPartitions = topicMetadataCache.getNumPartitions(topicBatches.topicName);
+        if (numPartitions <= 0) {
+          LOG.warn("Topic doesn't exist. tuple: {}", tupleValues.getTupleName());
+          continue;
         }
 
         int hash = hash(tupleValues);
@@ -171,34 +197,35 @@ public class KafkaPersistentEmitter extends BasePersistentEmitter {
 
         getDispatcher().getMetrics().getEmitSize().update(bytes.length);
 
-        if (size > 0 && size + bytes.length > maxSize) {
-          try {
-            producer.send(messages);
-          } catch (FailedToSendMessageException e) {
-            LOG.error("Failed to insert tracking data", e);
-          }
-
-          getDispatcher().getMetrics().getEmitCount().mark(messages.size());
-          messages.clear();
-          size = 0;
+        PartitionBatch batch = getBatch(topicBatches, numPartitions,
+            HashPartitioner.partition(hash, numPartitions));
+        if (batch.size > 0 && batch.size + bytes.length > maxSize) {
+          send(batch.messages);
+          clear(batch);
         }
 
-        messages.add(new KeyedMessage<Integer, byte[]>(topicName, hash, bytes));
-        size += bytes.length;
+        if (batch.messages.isEmpty()) {
+          pendingBatches.add(batch);
+        }
+        batch.messages.add(new KeyedMessage<Integer, byte[]>(topicBatches.topicName, hash, bytes));
+        batch.size += bytes.length;
 
         if (LOG.isDebugEnabled()) {
-          LOG.debug("Insert tracking data. topic: '{}', hash: {}, tuple: {}", topicName, hash,
-              tupleValues);
+          LOG.debug("Insert tracking data. topic: '{}', hash: {}, tuple: {}",
+              topicBatches.topicName, hash, tupleValues);
         }
       }
 
-      try {
-        producer.send(messages);
-      } catch (FailedToSendMessageException e) {
-        LOG.error("Failed to insert tracking data", e);
+      for (PartitionBatch batch : pendingBatches) {
+        messages.addAll(batch.messages);
+        clear(batch);
       }
+      pendingBatches.clear();
 
-      getDispatcher().getMetrics().getEmitCount().mark(messages.size());
+      if (!messages.isEmpty()) {
+        send(messages);
+        messages.clear();
+      }
     }
   }
 
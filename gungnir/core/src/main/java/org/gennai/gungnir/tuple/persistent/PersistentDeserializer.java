@@ -19,16 +19,15 @@
 package org.gennai.gungnir.tuple.persistent;
 
 import org.gennai.gungnir.ql.SchemaRegistry;
+import org.gennai.gungnir.tuple.TupleValues;
 
-public interface PersistentDeserializer extends Runnable, Cloneable {
+public interface PersistentDeserializer extends Cloneable {
 
   void prepare(PersistentDispatcher dispatcher);
 
   void sync(SchemaRegistry schemaRegistry);
 
-  void pause();
-
-  void resume();
+  TupleValues process(TrackingData trackingData) throws DeserializeException;
 
   PersistentDeserializer clone();
 }
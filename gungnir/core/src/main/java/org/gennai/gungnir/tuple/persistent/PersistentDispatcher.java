@@ -22,10 +22,13 @@ import static org.gennai.gungnir.GungnirConfig.*;
 import static org.gennai.gungnir.GungnirConst.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -40,7 +43,6 @@ import org.gennai.gungnir.ql.SchemaRegistry;
 import org.gennai.gungnir.tuple.TupleValues;
 import org.gennai.gungnir.tuple.schema.Schema;
 import org.gennai.gungnir.tuple.schema.TupleSchema;
-import org.gennai.gungnir.utils.GungnirUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,13 +66,121 @@ public class PersistentDispatcher {
   private ReentrantReadWriteLock syncLock;
   private SchemaRegistry schemaRegistry;
   private LinkedBlockingQueue<TrackingData> deserQueue;
+  private int deserParallelism;
   private List<PersistentDeserializer> deserializers;
-  private ExecutorService deserExecutor;
+  private Queue<PersistentDeserializer> idleDeserializers;
   private LinkedBlockingQueue<TupleValues> emitQueue;
+  private int emitQueueSize;
+  private int emitTuplesMax;
   private List<PersistentEmitter> emitters;
-  private ExecutorService emitExecutor;
+  private Queue<PersistentEmitter> idleEmitters;
+  private ForkJoinPool executor;
+  private int sliceSize;
+  private ReentrantLock stateLock;
+  private Condition idleCond;
+  private volatile boolean paused;
   private Metrics metrics;
 
+  private class DeserializeTask implements Runnable {
+
+    private PersistentDeserializer deserializer;
+
+    DeserializeTask(PersistentDeserializer deserializer) {
+      this.deserializer = deserializer;
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i = 0; i < sliceSize && emitQueue.size() < emitQueueSize; i++) {
+          TrackingData trackingData = deserQueue.poll();
+          if (trackingData == null) {
+            break;
+          }
+          try {
+            emitQueue.offer(deserializer.process(trackingData));
+          } catch (DeserializeException e) {
+            LOG.warn("Failed to deserialize", e);
+          }
+        }
+      } catch (RuntimeException e) {
+        LOG.error("Failed to deserialize", e);
+      } finally {
+        release(idleDeserializers, deserializer);
+      }
+      schedule();
+    }
+  }
+
+  // Emitters block on network I/O, so the pool is told about it and can start a spare worker
+  // instead of leaving the deserializers of every account waiting behind a slow broker.
+  private static final class EmitBlocker implements ForkJoinPool.ManagedBlocker {
+
+    private PersistentEmitter emitter;
+    private List<TupleValues> tuples;
+    private boolean done;
+
+    EmitBlocker(PersistentEmitter emitter, List<TupleValues> tuples) {
+      this.emitter = emitter;
+      this.tuples = tuples;
+    }
+
+    @Override
+    public boolean block() {
+      emitter.process(tuples);
+      done = true;
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return done;
+    }
+  }
+
+  private class EmitTask implements Runnable {
+
+    private PersistentEmitter emitter;
+
+    EmitTask(PersistentEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    private void process(List<TupleValues> tuples) throws InterruptedException {
+      ForkJoinPool.managedBlock(new EmitBlocker(emitter, tuples));
+    }
+
+    @Override
+    public void run() {
+      try {
+        List<TupleValues> tuples = Lists.newArrayListWithCapacity(emitTuplesMax);
+        for (int i = 0; i < sliceSize; i++) {
+          TupleValues tupleValues = emitQueue.poll();
+          if (tupleValues == null) {
+            break;
+          }
+          tuples.add(tupleValues);
+          if (tuples.size() >= emitTuplesMax) {
+            process(tuples);
+            tuples = Lists.newArrayListWithCapacity(emitTuplesMax);
+          }
+        }
+
+        if (!tuples.isEmpty()) {
+          process(tuples);
+        }
+      } catch (InterruptedException e) {
+        LOG.info("Emit task interrupted");
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        LOG.error("Failed to emit", e);
+      } finally {
+        release(idleEmitters, emitter);
+      }
+      schedule();
+    }
+  }
+
   class Metrics {
 
     private MetricRegistry metricRegistry;
@@ -158,8 +268,22 @@ public class PersistentDispatcher {
 
     deserQueue = new LinkedBlockingQueue<TrackingData>(
         config.getInteger(PERSISTENT_DESER_QUEUE_SIZE));
-    emitQueue = new LinkedBlockingQueue<TupleValues>(
-        config.getInteger(PERSISTENT_EMITTER_QUEUE_SIZE));
+    // A deserializer stops taking tuples once the emit queue is full, so at most one tuple per
+    // deserializer can be in flight beyond its size and offer never fails.
+    deserParallelism = config.getInteger(PERSISTENT_DESER_PARALLELISM);
+    emitQueueSize = config.getInteger(PERSISTENT_EMITTER_QUEUE_SIZE);
+    emitQueue = new LinkedBlockingQueue<TupleValues>(emitQueueSize + deserParallelism);
+    emitTuplesMax = config.getInteger(PERSISTENT_EMIT_TUPLES_MAX);
+
+    Integer weight = config.getInteger(PERSISTENT_SCHEDULE_WEIGHT + "." + owner.getName());
+    if (weight == null) {
+      weight = config.getInteger(PERSISTENT_SCHEDULE_WEIGHT);
+    }
+    sliceSize = Math.max(config.getInteger(PERSISTENT_SCHEDULE_QUANTUM) * weight, 1);
+
+    executor = GungnirManager.getManager().getPersistentExecutor();
+    stateLock = new ReentrantLock();
+    idleCond = stateLock.newCondition();
 
     metrics = new Metrics();
     metrics.prepare();
@@ -184,16 +308,77 @@ public class PersistentDispatcher {
     return schemaRegistry;
   }
 
-  LinkedBlockingQueue<TrackingData> getDeserQueue() {
-    return deserQueue;
+  public Metrics getMetrics() {
+    return metrics;
   }
 
-  LinkedBlockingQueue<TupleValues> getEmitQueue() {
-    return emitQueue;
+  private <T> void release(Queue<T> idleWorkers, T worker) {
+    stateLock.lock();
+    try {
+      idleWorkers.offer(worker);
+      idleCond.signalAll();
+    } finally {
+      stateLock.unlock();
+    }
   }
 
-  public Metrics getMetrics() {
-    return metrics;
+  private boolean isIdle() {
+    return idleDeserializers.size() == deserializers.size()
+        && idleEmitters.size() == emitters.size();
+  }
+
+  // Workers are taken from the idle queues under stateLock, so once pause() has seen every
+  // worker idle no task can be started until resume().
+  private void schedule() {
+    stateLock.lock();
+    try {
+      if (paused || deserializers == null) {
+        return;
+      }
+
+      while (emitQueue.size() < emitQueueSize && deserQueue.size()
+          > (deserializers.size() - idleDeserializers.size()) * sliceSize) {
+        PersistentDeserializer deserializer = idleDeserializers.poll();
+        if (deserializer == null) {
+          break;
+        }
+        executor.execute(new DeserializeTask(deserializer));
+      }
+
+      while (emitQueue.size() > (emitters.size() - idleEmitters.size()) * sliceSize) {
+        PersistentEmitter emitter = idleEmitters.poll();
+        if (emitter == null) {
+          break;
+        }
+        executor.execute(new EmitTask(emitter));
+      }
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  private void pause() {
+    stateLock.lock();
+    try {
+      paused = true;
+      while (!isIdle()) {
+        idleCond.await();
+      }
+    } catch (InterruptedException e) {
+      LOG.info("Persistent dispatcher interrupted");
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  private void resume() {
+    stateLock.lock();
+    try {
+      paused = false;
+    } finally {
+      stateLock.unlock();
+    }
+    schedule();
   }
 
   public void sync(SchemaRegistry schemaRegistry) throws MetaStoreException {
@@ -202,37 +387,32 @@ public class PersistentDispatcher {
 
     try {
       if (this.schemaRegistry == null) {
-        int deserParallelism = config.getInteger(PERSISTENT_DESER_PARALLELISM);
-        deserExecutor = Executors.newFixedThreadPool(deserParallelism,
-            GungnirUtils.createThreadFactory("PersistentDeserializer"));
         deserializers = Lists.newArrayListWithCapacity(deserParallelism);
+        idleDeserializers = new ConcurrentLinkedQueue<PersistentDeserializer>();
 
         for (int i = 0; i < deserParallelism; i++) {
           PersistentDeserializer deserializer = persistentDeserializer.clone();
           deserializer.prepare(this);
           deserializer.sync(schemaRegistry);
-          deserExecutor.execute(deserializer);
           deserializers.add(deserializer);
+          idleDeserializers.add(deserializer);
         }
 
         int emitterParallelism = config.getInteger(PERSISTENT_EMITTER_PARALLELISM);
-        emitExecutor = Executors.newFixedThreadPool(emitterParallelism,
-            GungnirUtils.createThreadFactory("PersistentEmitter"));
         emitters = Lists.newArrayListWithCapacity(emitterParallelism);
+        idleEmitters = new ConcurrentLinkedQueue<PersistentEmitter>();
 
         for (int i = 0; i < emitterParallelism; i++) {
           PersistentEmitter emitter = persistentEmitter.clone();
           emitter.prepare(this);
           emitter.sync(schemaRegistry);
-          emitExecutor.execute(emitter);
           emitters.add(emitter);
+          idleEmitters.add(emitter);
         }
 
         this.schemaRegistry = schemaRegistry;
       } else {
-        for (PersistentDeserializer deserializer : deserializers) {
-          deserializer.pause();
-        }
+        pause();
 
         for (PersistentDeserializer deserializer : deserializers) {
           deserializer.sync(schemaRegistry);
@@ -242,12 +422,10 @@ public class PersistentDispatcher {
           emitter.sync(schemaRegistry);
         }
 
-        for (PersistentDeserializer deserializer : deserializers) {
-          deserializer.resume();
-        }
-
         this.schemaRegistry = schemaRegistry;
       }
+
+      resume();
     } finally {
       writeLock.unlock();
     }
@@ -272,6 +450,7 @@ public class PersistentDispatcher {
           }
         }
         deserQueue.put(trackingData);
+        schedule();
       } else {
         LOG.info("{} has not been accepted", trackingData.getTupleName());
       }
@@ -288,28 +467,28 @@ public class PersistentDispatcher {
     writeLock.lock();
 
     try {
-      deserExecutor.shutdownNow();
-      LOG.info("Deserializer shutdown. account ID: '{}'", owner.getId());
-      try {
-        long timeout = deserQueue.size() * 100 + TERMINATION_WAIT_TIME;
-        if (!deserExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
-          deserExecutor.shutdownNow();
-          LOG.warn("Deserializer forced shutdown. account ID: '{}'", owner.getId());
+      if (deserializers != null) {
+        stateLock.lock();
+        try {
+          long timeout = (deserQueue.size() + emitQueue.size()) * 100 + TERMINATION_WAIT_TIME;
+          long deadline = System.currentTimeMillis() + timeout;
+          schedule();
+          while (!(deserQueue.isEmpty() && emitQueue.isEmpty() && isIdle())) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+              LOG.warn("Persistent dispatcher forced shutdown. account ID: '{}'", owner.getId());
+              break;
+            }
+            idleCond.await(remaining, TimeUnit.MILLISECONDS);
+          }
+        } catch (InterruptedException e) {
+          LOG.error("Failed to shutdown persistent dispatcher", e);
+        } finally {
+          stateLock.unlock();
         }
-      } catch (InterruptedException e) {
-        LOG.error("Failed to shutdown deserializer", e);
-      }
 
-      emitExecutor.shutdownNow();
-      LOG.info("Emitter shutdown. account ID: '{}'", owner.getId());
-      try {
-        long timeout = emitQueue.size() * 100 + TERMINATION_WAIT_TIME;
-        if (!emitExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
-          emitExecutor.shutdownNow();
-          LOG.warn("Emitter forced shutdown. account ID: '{}'", owner.getId());
-        }
-      } catch (InterruptedException e) {
-        LOG.error("Failed to shutdown emitter", e);
+        pause();
+        LOG.info("Persistent dispatcher shutdown. account ID: '{}'", owner.getId());
       }
     } finally {
       writeLock.unlock();
@@ -18,17 +18,18 @@
 
 package org.gennai.gungnir.tuple.persistent;
 
+import java.util.List;
+
 import org.gennai.gungnir.ql.SchemaRegistry;
+import org.gennai.gungnir.tuple.TupleValues;
 
-public interface PersistentEmitter extends Runnable, Cloneable {
+public interface PersistentEmitter extends Cloneable {
 
   void prepare(PersistentDispatcher dispatcher);
 
   void sync(SchemaRegistry schemaRegistry);
 
-  void pause();
-
-  void resume();
+  void process(List<TupleValues> tuples);
 
   void cleanup();
 
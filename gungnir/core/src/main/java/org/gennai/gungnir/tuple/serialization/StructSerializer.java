@@ -27,9 +27,15 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 public class StructSerializer extends Serializer<Struct> {
 
+  // Structs of one schema share a single field name list so that FieldAccessor can find its
+  // cached field position by identity after a tuple has been deserialized.
+  private static final Interner<List<String>> FIELD_NAMES = Interners.newWeakInterner();
+
   @Override
   public void write(Kryo kryo, Output output, Struct struct) {
     kryo.writeObject(output, struct.getFieldNames());
@@ -39,7 +45,8 @@ public class StructSerializer extends Serializer<Struct> {
   @Override
   @SuppressWarnings("unchecked")
   public Struct read(Kryo kryo, Input input, Class<Struct> type) {
-    List<String> fieldNames = kryo.readObject(input, ArrayList.class);
+    List<String> fieldNames = FIELD_NAMES.intern(
+        (List<String>) kryo.readObject(input, ArrayList.class));
     List<Object> values = kryo.readObject(input, ArrayList.class);
     return new Struct(fieldNames, values);
   }
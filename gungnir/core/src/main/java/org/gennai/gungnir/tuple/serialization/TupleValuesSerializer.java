@@ -21,6 +21,7 @@ package org.gennai.gungnir.tuple.serialization;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.gennai.gungnir.tuple.TupleOrigin;
 import org.gennai.gungnir.tuple.TupleValues;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -34,6 +35,15 @@ public class TupleValuesSerializer extends Serializer<TupleValues>  {
   public void write(Kryo kryo, Output output, TupleValues tupleValues) {
     kryo.writeObject(output, tupleValues.getTupleName());
     kryo.writeObject(output, tupleValues.getValues());
+    TupleOrigin origin = tupleValues.getOrigin();
+    if (origin == null) {
+      output.writeBoolean(false);
+    } else {
+      output.writeBoolean(true);
+      output.writeString(origin.getSource());
+      output.writeLong(origin.getEpoch());
+      output.writeLong(origin.getOffset(), true);
+    }
   }
 
   @Override
@@ -41,6 +51,11 @@ public class TupleValuesSerializer extends Serializer<TupleValues>  {
   public TupleValues read(Kryo kryo, Input input, Class<TupleValues> type) {
     String tupleName = kryo.readObject(input, String.class);
     List<Object> values = kryo.readObject(input, ArrayList.class);
-    return new TupleValues(tupleName, values);
+    TupleValues tupleValues = new TupleValues(tupleName, values);
+    if (input.readBoolean()) {
+      tupleValues.setOrigin(new TupleOrigin(input.readString(), input.readLong(),
+          input.readLong(true)));
+    }
+    return tupleValues;
   }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.tuple.store;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+
+class HeapSortedStore implements SortedStore {
+
+  private NavigableMap<byte[], byte[]> delegate = Maps.newTreeMap(
+      UnsignedBytes.lexicographicalComparator());
+
+  @Override
+  public byte[] get(byte[] key) {
+    return delegate.get(key);
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) {
+    delegate.put(key, value);
+  }
+
+  @Override
+  public byte[] floorKey(byte[] key) {
+    return delegate.floorKey(key);
+  }
+
+  private NavigableMap<byte[], byte[]> subMap(byte[] fromKey, boolean fromInclusive,
+      byte[] toKey, boolean toInclusive) {
+    if (fromKey == null) {
+      if (toKey == null) {
+        return delegate;
+      }
+      return delegate.headMap(toKey, toInclusive);
+    } else if (toKey == null) {
+      return delegate.tailMap(fromKey, fromInclusive);
+    } else {
+      return delegate.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], byte[]>> iterator(byte[] fromKey, boolean fromInclusive,
+      byte[] toKey, boolean toInclusive) {
+    return subMap(fromKey, fromInclusive, toKey, toInclusive).entrySet().iterator();
+  }
+
+  @Override
+  public int count(byte[] fromKey, boolean fromInclusive, byte[] toKey, boolean toInclusive) {
+    return subMap(fromKey, fromInclusive, toKey, toInclusive).size();
+  }
+
+  @Override
+  public void clear() {
+    delegate = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+}
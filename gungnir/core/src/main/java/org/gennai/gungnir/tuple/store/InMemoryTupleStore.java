@@ -62,8 +62,12 @@ public class InMemoryTupleStore implements TupleStore {
       entities = new TupleEntities();
       entitiesMap.put(hashKeyValue, entities);
     }
-    entities.tuples.add(Lists.newArrayList(values));
-    entities.timeKeyIndex.add(timeKeyValue);
+    int index = entities.timeKeyIndex.size();
+    if (index > 0 && entities.timeKeyIndex.get(index - 1) > timeKeyValue) {
+      index = upperBound(entities.timeKeyIndex, timeKeyValue);
+    }
+    entities.tuples.add(index, Lists.newArrayList(values));
+    entities.timeKeyIndex.add(index, timeKeyValue);
     size++;
   }
 
@@ -81,6 +85,20 @@ public class InMemoryTupleStore implements TupleStore {
     return index;
   }
 
+  private static int upperBound(List<Integer> timeKeyIndex, int value) {
+    int low = 0;
+    int high = timeKeyIndex.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (timeKeyIndex.get(mid) <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
   private static class Position {
 
     private int from;
@@ -202,6 +220,17 @@ public class InMemoryTupleStore implements TupleStore {
     }
   }
 
+  @Override
+  public List<Integer> findTimeKeys(Query query) {
+    TupleEntities entities = entitiesMap.get(query.getHashKeyValue());
+    if (entities != null) {
+      Position position = getPosition(entities, query);
+      return Lists.newArrayList(entities.timeKeyIndex.subList(position.from, position.to));
+    } else {
+      return null;
+    }
+  }
+
   private int remove(TupleEntities entities, Position position) {
     if (position.from == 0) {
       if (entities.tuples.size() <= position.to) {
@@ -22,7 +22,6 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 
 import org.gennai.gungnir.utils.GungnirUtils;
 import org.gennai.gungnir.utils.IntArrayUtils;
@@ -30,7 +29,6 @@ import org.gennai.gungnir.utils.IntArrayUtils;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.primitives.UnsignedBytes;
 
 public class MemoryTable {
 
@@ -84,14 +82,14 @@ public class MemoryTable {
 
   private int expireSecs;
   private int seekSize;
-  private NavigableMap<byte[], byte[]> delegate = Maps.newTreeMap(
-      UnsignedBytes.lexicographicalComparator());
+  private SortedStore delegate = new HeapSortedStore();
   private HashBiMap<Object, Integer> hashKeyMap = HashBiMap.create();
   private int lastHashIndex = 0;
   private Map<Integer, HashMetaData> hashMetaMap = Maps.newHashMap();
   private int startTime = Integer.MAX_VALUE;
   private int size;
   private int byteSize;
+  private int evictedCount;
   private transient SeekIterator seekIterator;
   private transient Entry seekEntry;
   private transient IntArrayUtils i3 = new IntArrayUtils(3);
@@ -106,6 +104,13 @@ public class MemoryTable {
     seekIterator = new SeekIterator();
   }
 
+  public MemoryTable(int expireSecs, int seekSize, long offHeapCapacity) {
+    this(expireSecs, seekSize);
+    if (offHeapCapacity > 0) {
+      delegate = new OffHeapSortedStore(offHeapCapacity);
+    }
+  }
+
   public int getStartTime() {
     return startTime;
   }
@@ -144,11 +149,11 @@ public class MemoryTable {
     if (expireSecs > 0) {
       Iterator<Map.Entry<byte[], byte[]>> it = null;
       if (hashIndex >= 0) {
-        it = delegate.subMap(i3.create(hashIndex, 0, 0), true, i3.create(hashIndex,
-            GungnirUtils.currentTimeSecs() - 1, -1), true).entrySet().iterator();
+        it = delegate.iterator(i3.create(hashIndex, 0, 0), true, i3.create(hashIndex,
+            GungnirUtils.currentTimeSecs() - 1, -1), true);
       } else {
-        it = delegate.headMap(i3.create(hashIndex, GungnirUtils.currentTimeSecs() - 1, -1),
-            true).entrySet().iterator();
+        it = delegate.iterator(null, true,
+            i3.create(hashIndex, GungnirUtils.currentTimeSecs() - 1, -1), true);
       }
 
       for (; it.hasNext();) {
@@ -168,18 +173,51 @@ public class MemoryTable {
     return metaData;
   }
 
+  private int hashIndex(Object hashKey) {
+    if (hashKey == null) {
+      return -1;
+    }
+    Integer hashIndex = hashKeyMap.get(hashKey);
+    if (hashIndex == null) {
+      hashIndex = lastHashIndex;
+    }
+    return hashIndex;
+  }
+
+  private void registerHashKey(Object hashKey, int hashIndex) {
+    if (hashIndex == lastHashIndex) {
+      hashKeyMap.put(hashKey, hashIndex);
+      lastHashIndex++;
+    }
+  }
+
   public void put(Object hashKey, int timeKey, byte[] value) {
-    Integer hashIndex = null;
-    if (hashKey != null) {
-      hashIndex = hashKeyMap.get(hashKey);
-      if (hashIndex == null) {
-        hashIndex = lastHashIndex;
-        hashKeyMap.put(hashKey, hashIndex);
-        lastHashIndex++;
+    try {
+      doPut(hashKey, timeKey, value);
+    } catch (StoreCapacityException e) {
+      // The store is full, so reclaim the expired entries of all keys and try once more
+      if (!evictAll()) {
+        throw e;
       }
-    } else {
-      hashIndex = -1;
+      doPut(hashKey, timeKey, value);
     }
+  }
+
+  private boolean evictAll() {
+    int evicted = compactAll().size();
+    evictedCount += evicted;
+    return evicted > 0;
+  }
+
+  // Expired entries reclaimed by put or incr when the store was full
+  public int pollEvictedCount() {
+    int evicted = evictedCount;
+    evictedCount = 0;
+    return evicted;
+  }
+
+  private void doPut(Object hashKey, int timeKey, byte[] value) {
+    int hashIndex = hashIndex(hashKey);
 
     timeKey += expireSecs;
     byte[] key = i3.create(hashIndex, timeKey, Integer.MAX_VALUE);
@@ -196,6 +234,7 @@ public class MemoryTable {
     }
 
     delegate.put(key, value);
+    registerHashKey(hashKey, hashIndex);
 
     if (timeKey < startTime) {
       startTime = timeKey;
@@ -212,17 +251,18 @@ public class MemoryTable {
   }
 
   public int incr(Object hashKey, int timeKey) {
-    Integer hashIndex = null;
-    if (hashKey != null) {
-      hashIndex = hashKeyMap.get(hashKey);
-      if (hashIndex == null) {
-        hashIndex = lastHashIndex;
-        hashKeyMap.put(hashKey, hashIndex);
-        lastHashIndex++;
+    try {
+      return doIncr(hashKey, timeKey);
+    } catch (StoreCapacityException e) {
+      if (!evictAll()) {
+        throw e;
       }
-    } else {
-      hashIndex = -1;
+      return doIncr(hashKey, timeKey);
     }
+  }
+
+  private int doIncr(Object hashKey, int timeKey) {
+    int hashIndex = hashIndex(hashKey);
 
     timeKey += expireSecs;
     int v = 0;
@@ -235,7 +275,9 @@ public class MemoryTable {
       bsz = 4;
     } else {
       v = i1.incr(value, 0);
+      delegate.put(key, value);
     }
+    registerHashKey(hashKey, hashIndex);
 
     if (timeKey < startTime) {
       startTime = timeKey;
@@ -271,8 +313,8 @@ public class MemoryTable {
       sz = size;
     }
     if (expireSecs > 0) {
-      sz -= delegate.subMap(i3.create(hashIndex, 0, 0), true, i3.create(hashIndex,
-          GungnirUtils.currentTimeSecs() - 1, -1), true).size();
+      sz -= delegate.count(i3.create(hashIndex, 0, 0), true, i3.create(hashIndex,
+          GungnirUtils.currentTimeSecs() - 1, -1), true);
     }
     return sz;
   }
@@ -298,10 +340,10 @@ public class MemoryTable {
     private EntryIterator() {
       hashIndex = -1;
       if (expireSecs > 0) {
-        it = delegate.tailMap(i3.create(-1, GungnirUtils.currentTimeSecs(), 0), true).entrySet()
-            .iterator();
+        it = delegate.iterator(i3.create(-1, GungnirUtils.currentTimeSecs(), 0), true, null,
+            true);
       } else {
-        it = delegate.entrySet().iterator();
+        it = delegate.iterator(null, true, null, true);
       }
     }
 
@@ -309,11 +351,11 @@ public class MemoryTable {
       hashIndex = hashKeyMap.get(hashKey);
       if (hashIndex != null) {
         if (expireSecs > 0) {
-          it = delegate.subMap(i3.create(hashIndex, GungnirUtils.currentTimeSecs(), 0), true,
-              i3.create(hashIndex, Integer.MAX_VALUE, -1), true).entrySet().iterator();
+          it = delegate.iterator(i3.create(hashIndex, GungnirUtils.currentTimeSecs(), 0), true,
+              i3.create(hashIndex, Integer.MAX_VALUE, -1), true);
         } else {
-          it = delegate.subMap(i3.create(hashIndex, 0, 0), true,
-              i3.create(hashIndex, Integer.MAX_VALUE, -1), true).entrySet().iterator();
+          it = delegate.iterator(i3.create(hashIndex, 0, 0), true,
+              i3.create(hashIndex, Integer.MAX_VALUE, -1), true);
         }
       }
     }
@@ -370,7 +412,6 @@ public class MemoryTable {
 
   public final class SeekIterator {
 
-    private NavigableMap<byte[], byte[]> subMap;
     private Iterator<Map.Entry<byte[], byte[]>> it;
     private Entry current;
     private Integer hashIndex;
@@ -396,28 +437,21 @@ public class MemoryTable {
     }
 
     public void seekToFirst() {
-      subMap = delegate;
-      it = subMap.entrySet().iterator();
+      it = delegate.iterator(null, true, null, true);
       next();
     }
 
     public void seek(Object hashKey, int timeKey, int seqNo, boolean inclusive) {
-      if (subMap == null) {
-        subMap = delegate;
-      }
-
       if (hashKey != null) {
         Integer index = hashKeyMap.get(hashKey);
         if (index == null) {
           it = null;
         } else {
-          subMap = subMap.tailMap(i3.create(index, timeKey, seqNo), inclusive);
-          it = subMap.entrySet().iterator();
+          it = delegate.iterator(i3.create(index, timeKey, seqNo), inclusive, null, true);
           next();
         }
       } else {
-        subMap = subMap.tailMap(i3.create(-1, timeKey, seqNo), inclusive);
-        it = subMap.entrySet().iterator();
+        it = delegate.iterator(i3.create(-1, timeKey, seqNo), inclusive, null, true);
         next();
       }
     }
@@ -466,10 +500,10 @@ public class MemoryTable {
     int now = GungnirUtils.currentTimeSecs();
     Iterator<Map.Entry<byte[], byte[]>> it = null;
     if (hashIndex >= 0) {
-      it = delegate.subMap(i3.create(hashIndex, 0, 0), true,
-          i3.create(hashIndex, Integer.MAX_VALUE, -1), true).entrySet().iterator();
+      it = delegate.iterator(i3.create(hashIndex, 0, 0), true,
+          i3.create(hashIndex, Integer.MAX_VALUE, -1), true);
     } else {
-      it = delegate.entrySet().iterator();
+      it = delegate.iterator(null, true, null, true);
     }
 
     MetaData metaData = new MetaData();
@@ -506,6 +540,15 @@ public class MemoryTable {
   }
 
   public List<Entry> compactRange() {
+    return compactRange(seekSize);
+  }
+
+  public List<Entry> compactAll() {
+    seekEntry = null;
+    return compactRange(Integer.MAX_VALUE);
+  }
+
+  private List<Entry> compactRange(int limit) {
     if (seekEntry == null) {
       seekIterator.seekToFirst();
     } else {
@@ -519,7 +562,7 @@ public class MemoryTable {
     int now = GungnirUtils.currentTimeSecs();
     List<Entry> expiredEntries = Lists.newArrayList();
 
-    for (int i = 0; seekIterator.isValid() && i < seekSize; i++) {
+    for (int i = 0; seekIterator.isValid() && i < limit; i++) {
       seekEntry = seekIterator.entry();
       if (seekEntry.getTimeKey() < now) {
         expiredEntries.add(seekEntry);
@@ -537,7 +580,7 @@ public class MemoryTable {
   }
 
   public void clear() {
-    delegate = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+    delegate.clear();
     hashKeyMap = HashBiMap.create();
     hashMetaMap = Maps.newTreeMap();
     startTime = Integer.MAX_VALUE;
@@ -545,12 +588,19 @@ public class MemoryTable {
     byteSize = 0;
   }
 
+  public void close() {
+    clear();
+    delegate.close();
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append('{');
     int i = 0;
-    for (Map.Entry<byte[], byte[]> entry : delegate.entrySet()) {
+    for (Iterator<Map.Entry<byte[], byte[]>> it = delegate.iterator(null, true, null, true);
+        it.hasNext();) {
+      Map.Entry<byte[], byte[]> entry = it.next();
       if (i > 0) {
         sb.append(", ");
       }
@@ -0,0 +1,422 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.tuple.store;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Skip list over 12 byte keys whose nodes live in direct memory slabs, so that large caches do
+ * not add to the old generation. Node addresses are ints (slab index << SLAB_SHIFT | offset) and
+ * address 0 is NIL. Freed nodes go back to power of two size class free lists.
+ *
+ * node: header(size class << 8 | level), key[3], value length, next[level], value
+ */
+class OffHeapSortedStore implements SortedStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OffHeapSortedStore.class);
+  private static final int KEY_INTS = 3;
+  private static final int KEY_SIZE = KEY_INTS * 4;
+  private static final int MAX_LEVEL = 16;
+  private static final int SLAB_SHIFT = 22;
+  private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+  private static final int SLAB_MASK = SLAB_SIZE - 1;
+  private static final int MAX_SLABS = 512;
+  private static final int MIN_SIZE_CLASS = 5;
+
+  private static final int HEADER_OFFSET = 0;
+  private static final int KEY_OFFSET = 4;
+  private static final int VALUE_LENGTH_OFFSET = KEY_OFFSET + KEY_SIZE;
+  private static final int NEXT_OFFSET = VALUE_LENGTH_OFFSET + 4;
+  private static final int FREE_NEXT_OFFSET = 4;
+
+  private final int maxSlabs;
+  private ByteBuffer[] slabs;
+  private int slabCount;
+  private int allocOffset;
+  private int[] freeLists;
+  private int[] head;
+  private int level;
+  private int seed;
+  private final int[] update = new int[MAX_LEVEL];
+  private final int[] searchKey = new int[KEY_INTS];
+
+  OffHeapSortedStore(long capacity) {
+    maxSlabs = (int) Math.max(1, Math.min(MAX_SLABS, (capacity + SLAB_SIZE - 1) >>> SLAB_SHIFT));
+    seed = (int) System.nanoTime() | 1;
+    init();
+  }
+
+  private void init() {
+    slabs = new ByteBuffer[maxSlabs];
+    slabCount = 0;
+    allocOffset = SLAB_SIZE;
+    freeLists = new int[SLAB_SHIFT + 1];
+    head = new int[MAX_LEVEL];
+    level = 1;
+  }
+
+  private static int sizeClass(int size) {
+    return Math.max(MIN_SIZE_CLASS, 32 - Integer.numberOfLeadingZeros(size - 1));
+  }
+
+  private int allocate(int size) {
+    int sc = sizeClass(size);
+    if (sc >= SLAB_SHIFT) {
+      throw new IllegalStateException("Entry exceeds off-heap block size " + size);
+    }
+
+    int address = freeLists[sc];
+    if (address != 0) {
+      freeLists[sc] = getInt(address, FREE_NEXT_OFFSET);
+      return address;
+    }
+
+    int blockSize = 1 << sc;
+    if (allocOffset + blockSize > SLAB_SIZE) {
+      if (slabCount >= maxSlabs) {
+        throw new StoreCapacityException("Off-heap capacity exhausted "
+            + ((long) maxSlabs << SLAB_SHIFT) + " bytes");
+      }
+      slabs[slabCount] = ByteBuffer.allocateDirect(SLAB_SIZE).order(ByteOrder.nativeOrder());
+      slabCount++;
+      allocOffset = slabCount == 1 ? 8 : 0;
+    }
+    address = ((slabCount - 1) << SLAB_SHIFT) | allocOffset;
+    allocOffset += blockSize;
+    putInt(address, HEADER_OFFSET, sc << 8);
+    return address;
+  }
+
+  private void free(int address) {
+    int sc = getInt(address, HEADER_OFFSET) >>> 8;
+    putInt(address, FREE_NEXT_OFFSET, freeLists[sc]);
+    freeLists[sc] = address;
+  }
+
+  private int getInt(int address, int offset) {
+    return slabs[address >>> SLAB_SHIFT].getInt((address & SLAB_MASK) + offset);
+  }
+
+  private void putInt(int address, int offset, int value) {
+    slabs[address >>> SLAB_SHIFT].putInt((address & SLAB_MASK) + offset, value);
+  }
+
+  private int nodeLevel(int node) {
+    return getInt(node, HEADER_OFFSET) & 0xff;
+  }
+
+  private int next(int node, int lvl) {
+    if (node == 0) {
+      return head[lvl];
+    }
+    return getInt(node, NEXT_OFFSET + lvl * 4);
+  }
+
+  private void setNext(int node, int lvl, int next) {
+    if (node == 0) {
+      head[lvl] = next;
+    } else {
+      putInt(node, NEXT_OFFSET + lvl * 4, next);
+    }
+  }
+
+  private int valueOffset(int node) {
+    return NEXT_OFFSET + nodeLevel(node) * 4;
+  }
+
+  private int compare(int node, int[] key) {
+    for (int i = 0; i < KEY_INTS; i++) {
+      int k = getInt(node, KEY_OFFSET + i * 4);
+      if (k != key[i]) {
+        return (k ^ Integer.MIN_VALUE) < (key[i] ^ Integer.MIN_VALUE) ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private static int[] toInts(byte[] key, int[] ints) {
+    if (key.length != KEY_SIZE) {
+      throw new IllegalArgumentException("Key must be " + KEY_SIZE + " bytes " + key.length);
+    }
+    ByteBuffer buff = ByteBuffer.wrap(key);
+    for (int i = 0; i < KEY_INTS; i++) {
+      ints[i] = buff.getInt();
+    }
+    return ints;
+  }
+
+  private byte[] key(int node) {
+    ByteBuffer buff = ByteBuffer.allocate(KEY_SIZE);
+    for (int i = 0; i < KEY_INTS; i++) {
+      buff.putInt(getInt(node, KEY_OFFSET + i * 4));
+    }
+    return buff.array();
+  }
+
+  private byte[] value(int node) {
+    byte[] value = new byte[getInt(node, VALUE_LENGTH_OFFSET)];
+    ByteBuffer buff = slabs[node >>> SLAB_SHIFT].duplicate();
+    buff.position((node & SLAB_MASK) + valueOffset(node));
+    buff.get(value);
+    return value;
+  }
+
+  private void writeValue(int node, byte[] value) {
+    ByteBuffer buff = slabs[node >>> SLAB_SHIFT].duplicate();
+    buff.position((node & SLAB_MASK) + valueOffset(node));
+    buff.put(value);
+  }
+
+  // Fills update with the rightmost node on each level whose key is below (or, when inclusive,
+  // not above) the key and returns the node following it on level 0.
+  private int search(int[] key, boolean inclusive) {
+    int x = 0;
+    for (int lvl = level - 1; lvl >= 0; lvl--) {
+      for (int n = next(x, lvl); n != 0; n = next(x, lvl)) {
+        int c = compare(n, key);
+        if (c < 0 || (inclusive && c == 0)) {
+          x = n;
+        } else {
+          break;
+        }
+      }
+      update[lvl] = x;
+    }
+    return next(x, 0);
+  }
+
+  private int randomLevel() {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    int r = seed;
+    int lvl = 1;
+    while ((r & 3) == 0 && lvl < MAX_LEVEL) {
+      lvl++;
+      r >>>= 2;
+    }
+    return lvl;
+  }
+
+  @Override
+  public byte[] get(byte[] key) {
+    int[] k = toInts(key, searchKey);
+    int node = search(k, false);
+    if (node != 0 && compare(node, k) == 0) {
+      return value(node);
+    }
+    return null;
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) {
+    int[] k = toInts(key, searchKey);
+    int node = search(k, false);
+    boolean exists = node != 0 && compare(node, k) == 0;
+    if (exists && getInt(node, VALUE_LENGTH_OFFSET) == value.length) {
+      writeValue(node, value);
+      return;
+    }
+
+    int lvl = randomLevel();
+    int newNode = allocate(NEXT_OFFSET + lvl * 4 + value.length);
+    putInt(newNode, HEADER_OFFSET, (getInt(newNode, HEADER_OFFSET) & ~0xff) | lvl);
+    for (int i = 0; i < KEY_INTS; i++) {
+      putInt(newNode, KEY_OFFSET + i * 4, k[i]);
+    }
+    putInt(newNode, VALUE_LENGTH_OFFSET, value.length);
+    writeValue(newNode, value);
+
+    if (exists) {
+      int nodeLevel = nodeLevel(node);
+      for (int i = 0; i < nodeLevel; i++) {
+        setNext(update[i], i, next(node, i));
+      }
+      free(node);
+    }
+
+    for (int i = level; i < lvl; i++) {
+      update[i] = 0;
+    }
+    if (lvl > level) {
+      level = lvl;
+    }
+    for (int i = 0; i < lvl; i++) {
+      setNext(newNode, i, next(update[i], i));
+      setNext(update[i], i, newNode);
+    }
+  }
+
+  private void remove(byte[] key) {
+    int[] k = toInts(key, searchKey);
+    int node = search(k, false);
+    if (node != 0 && compare(node, k) == 0) {
+      int nodeLevel = nodeLevel(node);
+      for (int i = 0; i < nodeLevel; i++) {
+        if (next(update[i], i) == node) {
+          setNext(update[i], i, next(node, i));
+        }
+      }
+      free(node);
+      while (level > 1 && head[level - 1] == 0) {
+        level--;
+      }
+    }
+  }
+
+  @Override
+  public byte[] floorKey(byte[] key) {
+    search(toInts(key, searchKey), true);
+    if (update[0] == 0) {
+      return null;
+    }
+    return key(update[0]);
+  }
+
+  private final class Cursor implements Iterator<Map.Entry<byte[], byte[]>> {
+
+    private int[] toKey;
+    private boolean toInclusive;
+    private int node;
+    private byte[] lastKey;
+
+    private Cursor(byte[] fromKey, boolean fromInclusive, byte[] toKey, boolean toInclusive) {
+      if (fromKey == null) {
+        node = head[0];
+      } else {
+        node = search(toInts(fromKey, searchKey), !fromInclusive);
+      }
+      if (toKey != null) {
+        this.toKey = toInts(toKey, new int[KEY_INTS]);
+        this.toInclusive = toInclusive;
+      }
+      checkBound();
+    }
+
+    private void checkBound() {
+      if (node != 0 && toKey != null) {
+        int c = compare(node, toKey);
+        if (c > 0 || (c == 0 && !toInclusive)) {
+          node = 0;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return node != 0;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+      if (node == 0) {
+        throw new NoSuchElementException();
+      }
+      lastKey = key(node);
+      Map.Entry<byte[], byte[]> entry =
+          new AbstractMap.SimpleImmutableEntry<byte[], byte[]>(lastKey, value(node));
+      node = OffHeapSortedStore.this.next(node, 0);
+      checkBound();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      OffHeapSortedStore.this.remove(lastKey);
+      lastKey = null;
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], byte[]>> iterator(byte[] fromKey, boolean fromInclusive,
+      byte[] toKey, boolean toInclusive) {
+    return new Cursor(fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public int count(byte[] fromKey, boolean fromInclusive, byte[] toKey, boolean toInclusive) {
+    int count = 0;
+    for (Cursor cursor = new Cursor(fromKey, fromInclusive, toKey, toInclusive);
+        cursor.hasNext(); cursor.node = next(cursor.node, 0), cursor.checkBound()) {
+      count++;
+    }
+    return count;
+  }
+
+  // Frees a slab now rather than when the buffer is collected. sun.misc.Unsafe.invokeCleaner is
+  // used on Java 9 and later, DirectBuffer.cleaner() before that.
+  private static boolean release(ByteBuffer slab) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = null;
+      try {
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (NoSuchMethodException e) {
+        invokeCleaner = null;
+      }
+
+      if (invokeCleaner != null) {
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        invokeCleaner.invoke(theUnsafe.get(null), slab);
+      } else {
+        Method cleanerMethod = slab.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(slab);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Failed to release off-heap slabs, left to the garbage collector", e);
+      return false;
+    }
+  }
+
+  @Override
+  public void clear() {
+    ByteBuffer[] oldSlabs = slabs;
+    int oldSlabCount = slabCount;
+    init();
+    for (int i = 0; i < oldSlabCount; i++) {
+      if (!release(oldSlabs[i])) {
+        break;
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.tuple.store;
+
+import java.util.Iterator;
+import java.util.Map;
+
+interface SortedStore {
+
+  byte[] get(byte[] key);
+
+  void put(byte[] key, byte[] value);
+
+  byte[] floorKey(byte[] key);
+
+  Iterator<Map.Entry<byte[], byte[]>> iterator(byte[] fromKey, boolean fromInclusive,
+      byte[] toKey, boolean toInclusive);
+
+  int count(byte[] fromKey, boolean fromInclusive, byte[] toKey, boolean toInclusive);
+
+  void clear();
+
+  void close();
+}
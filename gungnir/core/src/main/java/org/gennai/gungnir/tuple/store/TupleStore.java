@@ -38,6 +38,8 @@ public interface TupleStore extends Serializable {
 
   List<List<Object>> find(Query query);
 
+  List<Integer> findTimeKeys(Query query);
+
   List<List<Object>> findAndRemove(Query query);
 
   void remove(Query query);
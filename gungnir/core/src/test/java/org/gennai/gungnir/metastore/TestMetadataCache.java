@@ -0,0 +1,144 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.metastore;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.cluster.ClusterManagerException;
+import org.gennai.gungnir.cluster.LocalClusterManager;
+import org.gennai.gungnir.cluster.MetadataChangedListener;
+import org.gennai.gungnir.tuple.schema.Schema;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestMetadataCache {
+
+  private InMemoryMetaStore metaStore;
+  private UserEntity owner;
+  private List<String> watched;
+  private List<String> notified;
+  private boolean watchFailed;
+  private MetadataCache cache;
+
+  @Before
+  public void setup() throws Exception {
+    metaStore = new InMemoryMetaStore();
+    owner = new UserEntity();
+    owner.setId("uid");
+    owner.setName("uname");
+    watched = Lists.newArrayList();
+    notified = Lists.newArrayList();
+    watchFailed = false;
+
+    cache = new MetadataCache(metaStore, new LocalClusterManager() {
+
+      @Override
+      public void watchMetadata(String accountId, MetadataChangedListener listener)
+          throws ClusterManagerException {
+        if (watchFailed) {
+          throw new ClusterManagerException("Failed to watch");
+        }
+        watched.add(accountId);
+      }
+
+      @Override
+      public void notifyMetadataChanged(String accountId) throws ClusterManagerException {
+        notified.add(accountId);
+      }
+    });
+  }
+
+  private void insertSchema(String schemaName) throws Exception {
+    Schema schema = new TupleSchema(schemaName);
+    schema.setOwner(owner);
+    metaStore.insertSchema(schema);
+  }
+
+  @Test
+  public void testMetadataChanged() throws Exception {
+    insertSchema("tuple1");
+    assertThat(cache.findSchemas(owner).size(), is(1));
+
+    insertSchema("tuple2");
+    assertThat(cache.findSchemas(owner).size(), is(1));
+
+    cache.metadataChanged(owner.getId());
+    assertThat(cache.findSchemas(owner).size(), is(2));
+    assertThat(watched, is((List<String>) Lists.newArrayList("uid")));
+    assertThat(notified.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    insertSchema("tuple1");
+    assertThat(cache.findSchemas(owner).size(), is(1));
+    assertThat(cache.findFunctions(owner).size(), is(0));
+
+    insertSchema("tuple2");
+    cache.invalidate(owner);
+    assertThat(cache.findSchemas(owner).size(), is(2));
+    assertThat(notified, is((List<String>) Lists.newArrayList("uid")));
+  }
+
+  @Test
+  public void testOtherAccountUnchanged() throws Exception {
+    UserEntity other = new UserEntity();
+    other.setId("uid2");
+    other.setName("uname2");
+
+    insertSchema("tuple1");
+    assertThat(cache.findSchemas(owner).size(), is(1));
+    assertThat(cache.findSchemas(other).size(), is(0));
+
+    insertSchema("tuple2");
+    cache.metadataChanged(other.getId());
+    assertThat(cache.findSchemas(owner).size(), is(1));
+    assertThat(watched, is((List<String>) Lists.newArrayList("uid", "uid2")));
+  }
+
+  @Test
+  public void testUncachedWithoutWatch() throws Exception {
+    watchFailed = true;
+    insertSchema("tuple1");
+    assertThat(cache.findSchemas(owner).size(), is(1));
+
+    insertSchema("tuple2");
+    assertThat(cache.findSchemas(owner).size(), is(2));
+
+    watchFailed = false;
+    assertThat(cache.findSchemas(owner).size(), is(2));
+    assertThat(watched, is((List<String>) Lists.newArrayList("uid")));
+  }
+
+  @Test
+  public void testReturnsCopies() throws Exception {
+    insertSchema("tuple1");
+    List<Schema> schemas = cache.findSchemas(owner);
+    schemas.get(0).setId("changed");
+
+    assertThat(cache.findSchemas(owner).get(0).getId(), is(not("changed")));
+  }
+}
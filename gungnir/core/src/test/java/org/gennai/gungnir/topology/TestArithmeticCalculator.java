@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology;
+
+import static org.junit.Assert.*;
+
+import org.gennai.gungnir.topology.ArithNode.Operator;
+import org.gennai.gungnir.topology.udf.Cast;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.schema.TupleSchema.FieldTypes;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestArithmeticCalculator {
+
+  private TupleSchema schema;
+  private GungnirTuple tuple;
+
+  @Before
+  public void setup() {
+    schema = new TupleSchema("dummy").field("height").field("width").field("name");
+    tuple = GungnirTuple.builder(schema)
+        .put("height", new Integer(100))
+        .put("width", new Integer(200))
+        .put("name", "abc")
+        .build();
+  }
+
+  private static FieldArithNode field(String fieldName) {
+    return new FieldArithNode(new FieldAccessor(fieldName));
+  }
+
+  private static FieldArithNode cast(String fieldName, Object fieldType) throws Exception {
+    return new FieldArithNode(new Cast().create(new FieldAccessor(fieldName), fieldType));
+  }
+
+  @Test
+  public void testCompute() throws Exception {
+    InternalArithNode node = new InternalArithNode(Operator.ADDITION, field("height"),
+        field("width"));
+    assertEquals(new Long(300), node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.DIVISION, field("width"), field("height"));
+    assertEquals(new Double(2), node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.ADDITION, new NumberArithNode((byte) 1),
+        new NumberArithNode((short) 2));
+    assertEquals(new Integer(3), node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.INTEGER_DIVISION, field("width"),
+        new NumberArithNode(0));
+    assertNull(node.getValue(tuple));
+  }
+
+  @Test
+  public void testCast() throws Exception {
+    InternalArithNode node = new InternalArithNode(Operator.MULTIPLICATION,
+        cast("height", FieldTypes.DOUBLE), new NumberArithNode(2));
+    assertEquals(ArithmeticCalculator.DOUBLE_TYPE, node.getExpression().getType());
+    assertEquals(new Double(200), node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.DIVISION, cast("height", FieldTypes.FLOAT),
+        new NumberArithNode(0));
+    assertNull(node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.ADDITION, cast("name", FieldTypes.DOUBLE),
+        new NumberArithNode(1L));
+    assertEquals(new Long(1), node.getValue(tuple));
+  }
+
+  @Test
+  public void testConstantFolding() throws Exception {
+    InternalArithNode constant = new InternalArithNode(Operator.MULTIPLICATION,
+        new NumberArithNode(2), new NumberArithNode(3.5));
+    assertTrue(constant.getExpression().isConstant());
+
+    InternalArithNode node = new InternalArithNode(Operator.ADDITION, field("height"),
+        constant);
+    assertEquals(new Double(107), node.getValue(tuple));
+
+    node = new InternalArithNode(Operator.ADDITION, field("height"),
+        new InternalArithNode(Operator.MODULO, new NumberArithNode(1), new NumberArithNode(0)));
+    assertNull(node.getValue(tuple));
+  }
+}
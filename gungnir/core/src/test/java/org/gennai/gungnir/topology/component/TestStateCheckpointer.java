@@ -0,0 +1,234 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.component;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.gennai.gungnir.ql.QueryOperations.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.dispatcher.CollectDispatcher;
+import org.gennai.gungnir.topology.dispatcher.GroupingDispatcher;
+import org.gennai.gungnir.topology.operator.SnapshotOperator;
+import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
+import org.gennai.gungnir.topology.udf.Count;
+import org.gennai.gungnir.topology.udf.Sum;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
+import org.gennai.gungnir.utils.SnapshotTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import backtype.storm.task.TopologyContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TestStateCheckpointer {
+
+  private static final TupleSchema SCHEMA = new TupleSchema("tuple1").field("aaa").field("bbb");
+
+  private Path localDir;
+  private GungnirConfig config;
+  private List<TupleValues> outputs;
+
+  @Before
+  public void setup() throws Exception {
+    localDir = Files.createTempDirectory("gungnir");
+    config = GungnirConfig.readGugnirConfig();
+    config.put(LOCAL_DIR, localDir.toString());
+    config.put(COMPONENT_CHECKPOINT_INTERVAL_SECS, 1);
+    outputs = Lists.newArrayList();
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    GungnirUtils.deleteDirectory(localDir);
+  }
+
+  private static GungnirContext createContext(String... operatorNames) {
+    Map<String, Map<String, List<String>>> outputFields = Maps.newHashMap();
+    for (String operatorName : operatorNames) {
+      outputFields.put(operatorName, Collections.<String, List<String>>emptyMap());
+    }
+    GungnirContext context = new GungnirContext();
+    context.setTopologyId("topology1");
+    context.setOutputFields(outputFields);
+    return context;
+  }
+
+  // SNAPSHOT(EVERY 3 TUPLES, aaa, sum(bbb), count())
+  private SnapshotOperator createOperator(int id, GungnirContext context) throws Exception {
+    SnapshotOperator operator = new SnapshotOperator(SnapshotInterval.count(3),
+        new Field[] {field("aaa"), new Sum().create(field("bbb")), new Count().create()}, null);
+    operator.setId(id);
+    operator.setDispatcher(new CollectDispatcher(outputs));
+    operator.doPrepare(config, context);
+    return operator;
+  }
+
+  private static void execute(SnapshotOperator operator, String key, int value)
+      throws Exception {
+    GungnirTuple tuple = GungnirTuple.builder(SCHEMA).put("aaa", key).put("bbb", value).build();
+    operator.execute(Lists.<Object>newArrayList(key), tuple);
+  }
+
+  private void checkpointStates(GungnirContext context) throws Exception {
+    StateCheckpointer checkpointer = StateCheckpointer.open(config, context, "task_0");
+    SnapshotOperator operator1 = createOperator(0, context);
+    SnapshotOperator operator2 = createOperator(0, context);
+    SnapshotOperator operator3 = createOperator(1, context);
+    checkpointer.register(operator1, null);
+    checkpointer.register(operator2, Lists.<Object>newArrayList("g1"));
+    checkpointer.register(operator3, Lists.<Object>newArrayList("g2"));
+
+    for (SnapshotOperator operator : Lists.newArrayList(operator1, operator2, operator3)) {
+      execute(operator, "k1", 10);
+      checkpointer.checkpoint();
+      execute(operator, "k1", 20);
+      execute(operator, "k2", 5);
+    }
+    checkpointer.close();
+  }
+
+  @Test
+  public void testRestoreState() throws Exception {
+    GungnirContext context = createContext("SNAPSHOT_0", "SNAPSHOT_1");
+    checkpointStates(context);
+
+    StateCheckpointer checkpointer = StateCheckpointer.open(config, context, "task_0");
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_0"),
+        is((Set<List<Object>>) Sets.<List<Object>>newHashSet(Lists.<Object>newArrayList("g1"))));
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_1"),
+        is((Set<List<Object>>) Sets.<List<Object>>newHashSet(Lists.<Object>newArrayList("g2"))));
+
+    SnapshotOperator operator1 = createOperator(0, context);
+    SnapshotOperator operator2 = createOperator(1, context);
+    checkpointer.register(operator1, null);
+    checkpointer.register(operator2, Lists.<Object>newArrayList("g2"));
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_1").isEmpty(), is(true));
+
+    execute(operator1, "k1", 30);
+    execute(operator2, "k2", 1);
+    execute(operator2, "k2", 2);
+    checkpointer.close();
+
+    assertThat(outputs.size(), is(2));
+    assertThat(outputs.get(0).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k1", 60L, 3L)));
+    assertThat(outputs.get(1).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k2", 8L, 3L)));
+  }
+
+  @Test
+  public void testRestoreStateOnPrepare() throws Exception {
+    GungnirContext context = createContext("SNAPSHOT_0", "SNAPSHOT_1");
+    checkpointStates(context);
+
+    final StateCheckpointer checkpointer = StateCheckpointer.open(config, context, "task_0");
+    context.setComponent(new GungnirComponent() {
+
+      @Override
+      public String getName() {
+        return "EXEC_BOLT_0";
+      }
+
+      @Override
+      public TopologyContext getTopologyContext() {
+        return null;
+      }
+
+      @Override
+      public SnapshotTimer getShapshotTimer() {
+        return null;
+      }
+
+      @Override
+      public StateCheckpointer getStateCheckpointer() {
+        return checkpointer;
+      }
+
+      @Override
+      public void addTickTask(SnapshotTask task) {
+      }
+    });
+    config.put(TOPOLOGY_METRICS_ENABLED, false);
+
+    SnapshotOperator operator = new SnapshotOperator(SnapshotInterval.count(3),
+        new Field[] {field("aaa"), new Sum().create(field("bbb")), new Count().create()}, null);
+    operator.setId(0);
+    operator.setDispatcher(new CollectDispatcher(outputs));
+    GroupingDispatcher dispatcher =
+        new GroupingDispatcher(operator, new GroupFields(new FieldAccessor[] {field("aaa")}));
+    dispatcher.doPrepare(config, context);
+    assertThat(operator.isPrepared(), is(false));
+
+    // Restored before the first tuple is dispatched
+    dispatcher.restoreStates();
+    assertThat(operator.isPrepared(), is(true));
+
+    execute(operator, "k1", 30);
+    checkpointer.close();
+
+    assertThat(outputs.size(), is(1));
+    assertThat(outputs.get(0).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k1", 60L, 3L)));
+  }
+
+  @Test
+  public void testDeleteStaleState() throws Exception {
+    checkpointStates(createContext("SNAPSHOT_0", "SNAPSHOT_1"));
+
+    // SNAPSHOT_1 has been removed from the topology
+    GungnirContext context = createContext("SNAPSHOT_0");
+    StateCheckpointer checkpointer = StateCheckpointer.open(config, context, "task_0");
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_1").isEmpty(), is(true));
+    checkpointer.close();
+
+    context = createContext("SNAPSHOT_0", "SNAPSHOT_1");
+    checkpointer = StateCheckpointer.open(config, context, "task_0");
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_0"),
+        is((Set<List<Object>>) Sets.<List<Object>>newHashSet(Lists.<Object>newArrayList("g1"))));
+    assertThat(checkpointer.getRestoredKeys("SNAPSHOT_1").isEmpty(), is(true));
+
+    SnapshotOperator operator = createOperator(1, context);
+    checkpointer.register(operator, Lists.<Object>newArrayList("g2"));
+    execute(operator, "k1", 30);
+    checkpointer.close();
+
+    assertThat(outputs.isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.dispatcher;
+
+import static org.gennai.gungnir.GungnirConst.*;
+
+import java.util.List;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.operator.Operator;
+import org.gennai.gungnir.tuple.TupleValues;
+
+public class CollectDispatcher implements Dispatcher {
+
+  private static final long serialVersionUID = SERIAL_VERSION_UID;
+
+  private List<TupleValues> outputs;
+
+  public CollectDispatcher(List<TupleValues> outputs) {
+    this.outputs = outputs;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Dispatcher> T setSource(Operator source) {
+    return (T) this;
+  }
+
+  @Override
+  public boolean isPrepared() {
+    return true;
+  }
+
+  @Override
+  public boolean isCleanedup() {
+    return false;
+  }
+
+  @Override
+  public void doPrepare(GungnirConfig config, GungnirContext context) {
+  }
+
+  @Override
+  public void dispatch(TupleValues values) {
+    outputs.add(values);
+  }
+
+  @Override
+  public void restoreStates() {
+  }
+
+  @Override
+  public void doCleanup() {
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.grouping;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import mockit.Deencapsulation;
+
+import org.junit.Test;
+
+import backtype.storm.generated.GlobalStreamId;
+import backtype.storm.task.WorkerTopologyContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestLocalOrShuffleGrouping {
+
+  private static final List<Integer> TARGET_TASKS = Lists.newArrayList(5, 6, 7, 8);
+
+  private static WorkerTopologyContext context(String stormId, List<Integer> sourceTasks,
+      List<Integer> workerTasks) {
+    Map<String, List<Integer>> componentToTasks = Maps.newHashMap();
+    componentToTasks.put("source", sourceTasks);
+    componentToTasks.put("target", TARGET_TASKS);
+    return new WorkerTopologyContext(null, Maps.newHashMap(), Maps.<Integer, String>newHashMap(),
+        componentToTasks, null, stormId, null, null, 6700, workerTasks, null, null);
+  }
+
+  private static int[] route(LocalOrShuffleGrouping grouping, WorkerTopologyContext context,
+      int n) {
+    grouping.prepare(context, new GlobalStreamId("source", "default"), TARGET_TASKS);
+    int[] counts = new int[TARGET_TASKS.size()];
+    for (int i = 0; i < n; i++) {
+      List<Integer> tasks = grouping.chooseTasks(1, null);
+      assertThat(tasks.size(), is(1));
+      counts[TARGET_TASKS.indexOf(tasks.get(0))]++;
+    }
+    return counts;
+  }
+
+  @Test
+  public void testLocalWeight() {
+    assertThat(LocalOrShuffleGrouping.localWeight(4, 1, 2, 4), is(1));
+    assertThat(LocalOrShuffleGrouping.localWeight(4, 2, 2, 4), is(4));
+    assertThat(LocalOrShuffleGrouping.localWeight(4, 4, 0, 4), is(1));
+    assertThat(LocalOrShuffleGrouping.localWeight(0, 4, 2, 4), is(1));
+  }
+
+  @Test
+  public void testPreferLocal() {
+    int[] counts = route(new LocalOrShuffleGrouping(4),
+        context("testPreferLocal", Lists.newArrayList(1, 2), Lists.newArrayList(1, 5, 6)), 10000);
+
+    assertThat(counts[0] + counts[1] > (counts[2] + counts[3]) * 2, is(true));
+    assertThat(counts[2] > 0, is(true));
+    assertThat(counts[3] > 0, is(true));
+  }
+
+  @Test
+  public void testWorkerCounts() {
+    WorkerTopologyContext context =
+        context("testWorkerCounts", Lists.newArrayList(1, 2), Lists.newArrayList(1, 5, 6));
+    LocalOrShuffleGrouping grouping1 = new LocalOrShuffleGrouping(4);
+    LocalOrShuffleGrouping grouping2 = new LocalOrShuffleGrouping(4);
+    int[] counts1 = route(grouping1, context, 10000);
+    int[] counts2 = route(grouping2, context, 10000);
+
+    AtomicLongArray counts = Deencapsulation.getField(grouping1, "counts");
+    assertThat(Deencapsulation.<AtomicLongArray>getField(grouping2, "counts"),
+        is(sameInstance(counts)));
+    for (int i = 0; i < counts.length(); i++) {
+      assertThat(counts.get(i), is((long) (counts1[i] + counts2[i])));
+    }
+    assertThat(counts2[0] + counts2[1] > (counts2[2] + counts2[3]) * 2, is(true));
+  }
+
+  @Test
+  public void testSingleSource() {
+    int[] counts = route(new LocalOrShuffleGrouping(4),
+        context("testSingleSource", Lists.newArrayList(1), Lists.newArrayList(1, 5, 6)), 10000);
+
+    for (int count : counts) {
+      assertThat(count > 2000, is(true));
+      assertThat(count < 3000, is(true));
+    }
+  }
+
+  @Test
+  public void testNoLocalTargets() {
+    int[] counts = route(new LocalOrShuffleGrouping(4),
+        context("testNoLocalTargets", Lists.newArrayList(1, 2), Lists.newArrayList(1)), 10000);
+
+    for (int count : counts) {
+      assertThat(count > 2000, is(true));
+    }
+  }
+
+  @Test
+  public void testEquals() {
+    assertThat(new LocalOrShuffleGrouping(), is(new LocalOrShuffleGrouping(4)));
+    assertThat(new LocalOrShuffleGrouping().hashCode(),
+        is(new LocalOrShuffleGrouping(4).hashCode()));
+    assertThat(new LocalOrShuffleGrouping(2), is(not(new LocalOrShuffleGrouping(4))));
+  }
+}
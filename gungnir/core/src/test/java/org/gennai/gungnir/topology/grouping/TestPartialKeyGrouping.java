@@ -0,0 +1,143 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.grouping;
+
+import static org.gennai.gungnir.GungnirConst.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.junit.Test;
+
+import backtype.storm.generated.GlobalStreamId;
+import backtype.storm.task.WorkerTopologyContext;
+import backtype.storm.tuple.Fields;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestPartialKeyGrouping {
+
+  private static final List<Integer> TARGET_TASKS = Lists.newArrayList(5, 6, 7, 8);
+  private static final GlobalStreamId STREAM = new GlobalStreamId("source", "default");
+
+  private static WorkerTopologyContext context(String stormId) {
+    Map<String, Fields> streamToFields = Maps.newHashMap();
+    streamToFields.put("default", new Fields(TUPLE_FIELD));
+    Map<String, Map<String, Fields>> componentToStreamToFields = Maps.newHashMap();
+    componentToStreamToFields.put("source", streamToFields);
+    return new WorkerTopologyContext(null, Maps.newHashMap(), Maps.<Integer, String>newHashMap(),
+        Maps.<String, List<Integer>>newHashMap(), componentToStreamToFields, stormId, null, null,
+        6700, Lists.newArrayList(1), null, null);
+  }
+
+  private static PartialKeyGrouping grouping(WorkerTopologyContext context, double hotKeyRatio) {
+    Map<String, List<String>> fields = Maps.newHashMap();
+    fields.put("tuple1", Lists.newArrayList("aaa", "bbb"));
+    Map<String, Map<String, List<String>>> outputFields = Maps.newHashMap();
+    outputFields.put("PARTITION_1", fields);
+    GungnirContext gungnirContext = new GungnirContext();
+    gungnirContext.setOutputFields(outputFields);
+
+    PartialKeyGrouping grouping = new PartialKeyGrouping(
+        new GroupFields(new FieldAccessor[] {new FieldAccessor("aaa")}), hotKeyRatio, 10);
+    grouping.setContext(gungnirContext);
+    grouping.setPartitionName("PARTITION_1");
+    grouping.prepare(context, STREAM, TARGET_TASKS);
+    return grouping;
+  }
+
+  private static int chooseTask(PartialKeyGrouping grouping, String key) {
+    List<Object> values = Lists.<Object>newArrayList(
+        new TupleValues("tuple1", Lists.<Object>newArrayList(key, 10)));
+    List<Integer> tasks = grouping.chooseTasks(1, values);
+    assertThat(tasks.size(), is(1));
+    return tasks.get(0);
+  }
+
+  @Test
+  public void testColdKeys() {
+    PartialKeyGrouping grouping = grouping(context("testColdKeys"), 0.5);
+
+    Map<String, Integer> routes = Maps.newHashMap();
+    for (int i = 0; i < 1000; i++) {
+      String key = "key" + (i % 100);
+      int task = chooseTask(grouping, key);
+      if (routes.containsKey(key)) {
+        assertThat(task, is(routes.get(key)));
+      } else {
+        routes.put(key, task);
+      }
+    }
+  }
+
+  @Test
+  public void testHotKey() {
+    PartialKeyGrouping grouping = grouping(context("testHotKey"), 0.5);
+
+    Map<Integer, Integer> counts = Maps.newHashMap();
+    for (int i = 0; i < 10000; i++) {
+      int task = chooseTask(grouping, "hot");
+      Integer count = counts.get(task);
+      counts.put(task, count == null ? 1 : count + 1);
+    }
+
+    assertThat(counts.size(), is(2));
+    for (int count : counts.values()) {
+      assertThat(count > 4900, is(true));
+      assertThat(count < 5100, is(true));
+    }
+  }
+
+  @Test
+  public void testWorkerLoads() {
+    WorkerTopologyContext context = context("testWorkerLoads");
+    PartialKeyGrouping grouping1 = grouping(context, 1.0);
+    PartialKeyGrouping grouping2 = grouping(context, 0.5);
+
+    int task = 0;
+    for (int i = 0; i < 1000; i++) {
+      task = chooseTask(grouping1, "hot");
+    }
+
+    int other = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (chooseTask(grouping2, "hot") != task) {
+        other++;
+      }
+    }
+    assertThat(other > 900, is(true));
+  }
+
+  @Test
+  public void testEquals() {
+    GroupFields groupFields = new GroupFields(new FieldAccessor[] {new FieldAccessor("aaa")});
+    assertThat(new PartialKeyGrouping(groupFields, 0.5, 10),
+        is(new PartialKeyGrouping(groupFields, 0.1, 100)));
+    assertThat(new PartialKeyGrouping(groupFields, 0.5, 10),
+        is(not(new PartialKeyGrouping(
+            new GroupFields(new FieldAccessor[] {new FieldAccessor("bbb")}), 0.5, 10))));
+  }
+}
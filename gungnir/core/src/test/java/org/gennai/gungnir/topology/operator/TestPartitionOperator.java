@@ -0,0 +1,55 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.topology.grouping.ShuffleGrouping;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestPartitionOperator {
+
+  @Test
+  public void testProject() {
+    PartitionOperator partitionOperator = new PartitionOperator(new ShuffleGrouping());
+    Map<String, int[]> projection = Maps.newHashMap();
+    projection.put("tuple1", new int[] {2, 0});
+    partitionOperator.setProjection(projection);
+
+    List<Object> values = Lists.<Object>newArrayList("aaa", 1, "ccc");
+    TupleValues tupleValues = new TupleValues("tuple1", values);
+    TupleValues projected = partitionOperator.project(tupleValues);
+
+    assertThat(projected.getTupleName(), is("tuple1"));
+    assertThat(projected.getValues(), is(Lists.<Object>newArrayList("ccc", "aaa")));
+    assertThat(tupleValues.getValues(), is(sameInstance(values)));
+    assertThat(values, is(Lists.<Object>newArrayList("aaa", 1, "ccc")));
+
+    TupleValues tupleValues2 = new TupleValues("tuple2", values);
+    assertThat(partitionOperator.project(tupleValues2), is(sameInstance(tupleValues2)));
+  }
+}
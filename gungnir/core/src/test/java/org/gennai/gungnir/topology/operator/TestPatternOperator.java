@@ -0,0 +1,194 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mockit.Deencapsulation;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.integration.junit4.JMockit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.Period;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.dispatcher.CollectDispatcher;
+import org.gennai.gungnir.topology.operator.pattern.PatternElement;
+import org.gennai.gungnir.topology.operator.pattern.SequencePattern;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.store.MemoryTable;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+
+@RunWith(JMockit.class)
+public class TestPatternOperator {
+
+  private static final TupleSchema SCHEMA =
+      new TupleSchema("tuple1").field("aaa").field("bbb").field("ccc");
+
+  private int now;
+  private List<TupleValues> matches;
+
+  @Before
+  public void setup() {
+    now = 1000;
+    matches = Lists.newArrayList();
+
+    new MockUp<GungnirUtils>() {
+
+      @Mock
+      public int currentTimeSecs() {
+        return now;
+      }
+    };
+  }
+
+  // PATTERN (v c+ !r p) DEFINE v AS bbb = 'view', c AS bbb = 'cart', r AS bbb = 'remove',
+  // p AS bbb = 'purchase'
+  private PatternOperator createOperator(int withinSecs, boolean withState) throws Exception {
+    SequencePattern pattern = new SequencePattern(
+        new PatternElement("v", field("bbb").eq("view")),
+        new PatternElement("c", field("bbb").eq("cart"), false, true),
+        new PatternElement("r", field("bbb").eq("remove"), true, false),
+        new PatternElement("p", field("bbb").eq("purchase")));
+    PatternOperator operator = new PatternOperator(Period.of(withinSecs, TimeUnit.SECONDS),
+        withState ? field("status") : null, pattern);
+    operator.setDispatcher(new CollectDispatcher(matches));
+    operator.doPrepare(GungnirConfig.readGugnirConfig(), new GungnirContext());
+    return operator;
+  }
+
+  private void execute(PatternOperator operator, String key, String event, int seq)
+      throws Exception {
+    GungnirTuple tuple = GungnirTuple.builder(SCHEMA).put("aaa", key).put("bbb", event)
+        .put("ccc", seq).build();
+    operator.execute(Lists.<Object>newArrayList(key), tuple);
+  }
+
+  private List<Object> matchedSeqs() {
+    List<Object> seqs = Lists.newArrayList();
+    for (TupleValues values : matches) {
+      seqs.add(values.getValues().get(2));
+    }
+    return seqs;
+  }
+
+  private static Date date(int secs) {
+    return new Date(TimeUnit.SECONDS.toMillis(secs));
+  }
+
+  @Test
+  public void testKleene() throws Exception {
+    PatternOperator operator = createOperator(60, true);
+
+    execute(operator, "k1", "view", 1);
+    now++;
+    execute(operator, "k1", "cart", 2);
+    now++;
+    execute(operator, "k1", "cart", 3);
+    now++;
+    execute(operator, "k1", "cart", 4);
+    assertThat(matches.isEmpty(), is(true));
+    now++;
+    execute(operator, "k1", "purchase", 5);
+
+    assertThat(matchedSeqs(), is((List<Object>) Lists.<Object>newArrayList(5)));
+    assertThat(matches.get(0).getValues().get(3), is((Object) Lists.newArrayList(
+        date(1000), date(1003), date(1004))));
+
+    execute(operator, "k1", "purchase", 6);
+    assertThat(matches.size(), is(1));
+  }
+
+  @Test
+  public void testNegation() throws Exception {
+    PatternOperator operator = createOperator(60, false);
+
+    execute(operator, "k1", "view", 1);
+    execute(operator, "k1", "cart", 2);
+    execute(operator, "k1", "remove", 3);
+    execute(operator, "k1", "purchase", 4);
+    assertThat(matches.isEmpty(), is(true));
+
+    execute(operator, "k1", "view", 5);
+    execute(operator, "k1", "remove", 6);
+    execute(operator, "k1", "cart", 7);
+    execute(operator, "k1", "purchase", 8);
+    assertThat(matchedSeqs(), is((List<Object>) Lists.<Object>newArrayList(8)));
+  }
+
+  @Test
+  public void testWithin() throws Exception {
+    PatternOperator operator = createOperator(10, false);
+
+    execute(operator, "k1", "view", 1);
+    now += 5;
+    execute(operator, "k1", "cart", 2);
+    now += 6;
+    execute(operator, "k1", "purchase", 3);
+    assertThat(matches.isEmpty(), is(true));
+
+    execute(operator, "k1", "view", 4);
+    now += 5;
+    execute(operator, "k1", "cart", 5);
+    now += 5;
+    execute(operator, "k1", "purchase", 6);
+    assertThat(matchedSeqs(), is((List<Object>) Lists.<Object>newArrayList(6)));
+  }
+
+  @Test
+  public void testGroups() throws Exception {
+    PatternOperator operator = createOperator(10, false);
+
+    execute(operator, "k1", "view", 1);
+    execute(operator, "k2", "view", 2);
+    execute(operator, "k1", "cart", 3);
+    execute(operator, "k2", "remove", 4);
+    execute(operator, "k3", "cart", 5);
+    execute(operator, "k2", "cart", 6);
+    execute(operator, "k3", "purchase", 7);
+    execute(operator, "k2", "purchase", 8);
+    execute(operator, "k1", "purchase", 9);
+    assertThat(matchedSeqs(), is((List<Object>) Lists.<Object>newArrayList(8, 9)));
+
+    for (int i = 0; i < 100; i++) {
+      execute(operator, "key" + i, "view", i);
+    }
+    MemoryTable runs = Deencapsulation.getField(operator, "runs");
+    assertThat(runs.size(), is(100));
+
+    now += 11;
+    for (int i = 0; i < 20; i++) {
+      execute(operator, "other", "cart", i);
+    }
+    assertThat(runs.size(), is(0));
+  }
+}
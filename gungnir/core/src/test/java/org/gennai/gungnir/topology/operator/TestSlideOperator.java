@@ -0,0 +1,167 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.Period;
+import org.gennai.gungnir.topology.GroupFields;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.dispatcher.CollectDispatcher;
+import org.gennai.gungnir.topology.operator.slide.SlideLength;
+import org.gennai.gungnir.topology.udf.CollectList;
+import org.gennai.gungnir.topology.udf.Count;
+import org.gennai.gungnir.topology.udf.Sum;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.serialization.StructSerializer;
+import org.gennai.gungnir.tuple.serialization.TupleValuesSerializer;
+import org.gennai.gungnir.utils.KryoSerializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TestSlideOperator {
+
+  private static final TupleSchema SCHEMA =
+      new TupleSchema("tuple1").field("aaa").field("bbb").field("ccc");
+
+  private List<TupleValues> outputs;
+  private KryoSerializer serializer;
+
+  @Before
+  public void setup() {
+    outputs = Lists.newArrayList();
+
+    serializer = new KryoSerializer();
+    serializer.register(Struct.class, new StructSerializer());
+    serializer.register(TupleValues.class, new TupleValuesSerializer());
+  }
+
+  // SLIDE(LENGTH 3, aaa, sum(bbb)) grouped by aaa
+  private SlideOperator createOperator() throws Exception {
+    return createOperator(SlideLength.count(3),
+        new Field[] {field("aaa"), new Sum().create(field("bbb"))});
+  }
+
+  private SlideOperator createOperator(SlideLength slideLength, Field[] fields) {
+    SlideOperator operator = new SlideOperator(slideLength, fields);
+    operator.setDispatcher(new CollectDispatcher(outputs));
+
+    Map<String, GroupFields> groupFields = Maps.newHashMap();
+    groupFields.put(operator.getName(), new GroupFields(new FieldAccessor[] {field("aaa")}));
+    GungnirContext context = new GungnirContext();
+    context.setGroupFields(groupFields);
+    operator.doPrepare(GungnirConfig.readGugnirConfig(), context);
+    return operator;
+  }
+
+  private static void execute(SlideOperator operator, String key, int value)
+      throws Exception {
+    operator.execute(GungnirTuple.builder(SCHEMA).put("aaa", key).put("bbb", value).build());
+  }
+
+  private static void execute(SlideOperator operator, int time, int value) throws Exception {
+    operator.execute(GungnirTuple.builder(SCHEMA).put("aaa", "k1").put("bbb", value)
+        .put("ccc", new Date(TimeUnit.SECONDS.toMillis(time))).build());
+  }
+
+  private Object roundTrip(Object state) {
+    return serializer.deserialize(serializer.serialize(state, true));
+  }
+
+  private Object lastSum() {
+    return outputs.get(outputs.size() - 1).getValues().get(1);
+  }
+
+  @Test
+  public void testSaveAndRestoreState() throws Exception {
+    SlideOperator operator = createOperator();
+    execute(operator, "k1", 10);
+    execute(operator, "k1", 20);
+    execute(operator, "k2", 5);
+    assertThat(lastSum(), is((Object) 5L));
+
+    Set<Object> keys = operator.pollChangedKeys();
+    assertThat(keys, is((Set<Object>) Sets.<Object>newHashSet(Lists.newArrayList("k1"),
+        Lists.newArrayList("k2"))));
+    assertThat(operator.pollChangedKeys().isEmpty(), is(true));
+    assertThat(operator.saveState(Lists.newArrayList("k3")), nullValue());
+
+    SlideOperator restored = createOperator();
+    for (Object key : keys) {
+      restored.restoreState(Lists.newArrayList((List<?>) key),
+          roundTrip(operator.saveState(key)));
+    }
+
+    execute(restored, "k1", 30);
+    assertThat(lastSum(), is((Object) 60L));
+    execute(restored, "k1", 40);
+    assertThat(lastSum(), is((Object) 90L));
+    execute(restored, "k2", 1);
+    assertThat(lastSum(), is((Object) 6L));
+
+    assertThat(restored.pollChangedKeys(), is((Set<Object>) Sets.<Object>newHashSet(
+        Lists.newArrayList("k1"), Lists.newArrayList("k2"))));
+  }
+
+  @Test
+  public void testLateTuple() throws Exception {
+    // SLIDE(LENGTH 10sec BY ccc, aaa, sum(bbb), count(), collect_list(bbb))
+    SlideOperator operator = createOperator(
+        SlideLength.time(Period.of(10, TimeUnit.SECONDS), field("ccc")),
+        new Field[] {field("aaa"), new Sum().create(field("bbb")), new Count().create(),
+            new CollectList().create(field("bbb"))});
+
+    execute(operator, 100, 1);
+    execute(operator, 105, 2);
+    execute(operator, 96, 4);
+    assertThat(outputs.get(2).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k1", 7L, 3L, Lists.newArrayList(1, 2, 4))));
+
+    // The late tuple leaves the window at its own event time
+    execute(operator, 107, 8);
+    assertThat(outputs.get(3).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k1", 11L, 3L, Lists.newArrayList(1, 2, 8))));
+
+    execute(operator, 111, 16);
+    assertThat(outputs.get(4).getValues(), is((List<Object>) Lists.<Object>newArrayList("k1",
+        26L, 3L, Lists.newArrayList(2, 8, 16))));
+
+    // Outside of the window
+    execute(operator, 100, 32);
+    assertThat(outputs.size(), is(5));
+  }
+}
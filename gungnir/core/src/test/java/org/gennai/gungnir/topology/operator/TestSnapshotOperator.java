@@ -0,0 +1,213 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator;
+
+import static org.gennai.gungnir.ql.QueryOperations.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import mockit.Deencapsulation;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.integration.junit4.JMockit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.Period;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.topology.dispatcher.CollectDispatcher;
+import org.gennai.gungnir.topology.operator.snapshot.SnapshotInterval;
+import org.gennai.gungnir.topology.udf.Count;
+import org.gennai.gungnir.topology.udf.Sum;
+import org.gennai.gungnir.tuple.Field;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.serialization.StructSerializer;
+import org.gennai.gungnir.tuple.serialization.TupleValuesSerializer;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.gennai.gungnir.utils.KryoSerializer;
+import org.gennai.gungnir.utils.SnapshotJob;
+import org.gennai.gungnir.utils.SnapshotJob.SnapshotTask;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+@RunWith(JMockit.class)
+public class TestSnapshotOperator {
+
+  private static final TupleSchema SCHEMA = new TupleSchema("tuple1").field("aaa").field("bbb");
+
+  private List<TupleValues> outputs;
+  private KryoSerializer serializer;
+  private SnapshotJob snapshotJob;
+  private long now;
+
+  @Before
+  public void setup() {
+    outputs = Lists.newArrayList();
+
+    serializer = new KryoSerializer();
+    serializer.register(Struct.class, new StructSerializer());
+    serializer.register(TupleValues.class, new TupleValuesSerializer());
+
+    snapshotJob = new SnapshotJob();
+    now = TimeUnit.DAYS.toMillis(1);
+    new MockUp<GungnirUtils>() {
+
+      @Mock
+      public long currentTimeMillis() {
+        return now;
+      }
+    };
+  }
+
+  // SNAPSHOT(EVERY 3 TUPLES, aaa, sum(bbb), count())
+  private SnapshotOperator createOperator() throws Exception {
+    SnapshotOperator operator = new SnapshotOperator(SnapshotInterval.count(3),
+        new Field[] {field("aaa"), new Sum().create(field("bbb")), new Count().create()}, null);
+    operator.setDispatcher(new CollectDispatcher(outputs));
+    operator.doPrepare(GungnirConfig.readGugnirConfig(), new GungnirContext());
+    return operator;
+  }
+
+  // SNAPSHOT(EVERY 1min [LENGTH length] aaa, sum(bbb), count() [EXPIRE expire])
+  private SnapshotOperator createTimeOperator(Period length, SnapshotInterval expire)
+      throws Exception {
+    SnapshotOperator operator = new SnapshotOperator(
+        SnapshotInterval.time(Period.of(1, TimeUnit.MINUTES)), length,
+        new Field[] {field("aaa"), new Sum().create(field("bbb")), new Count().create()}, expire);
+    operator.setDispatcher(new CollectDispatcher(outputs));
+    Deencapsulation.setField(operator, "snapshotJob", snapshotJob);
+    operator.doPrepare(GungnirConfig.readGugnirConfig(), new GungnirContext());
+    return operator;
+  }
+
+  private void snapshot() {
+    for (SnapshotTask task : snapshotJob.getTasks()) {
+      task.execute();
+    }
+  }
+
+  private static List<Object> values(Object... values) {
+    return Lists.newArrayList(values);
+  }
+
+  private static void execute(SnapshotOperator operator, String key, int value)
+      throws Exception {
+    GungnirTuple tuple = GungnirTuple.builder(SCHEMA).put("aaa", key).put("bbb", value).build();
+    operator.execute(Lists.<Object>newArrayList(key), tuple);
+  }
+
+  private Object roundTrip(Object state) {
+    return serializer.deserialize(serializer.serialize(state, true));
+  }
+
+  @Test
+  public void testSaveAndRestoreState() throws Exception {
+    SnapshotOperator operator = createOperator();
+    execute(operator, "k1", 10);
+    execute(operator, "k1", 20);
+    execute(operator, "k2", 5);
+
+    Set<Object> keys = operator.pollChangedKeys();
+    assertThat(keys, is((Set<Object>) Sets.<Object>newHashSet(Lists.newArrayList("k1"),
+        Lists.newArrayList("k2"))));
+    assertThat(operator.pollChangedKeys().isEmpty(), is(true));
+    assertThat(operator.saveState(Lists.newArrayList("k3")), nullValue());
+
+    SnapshotOperator restored = createOperator();
+    restored.restoreState(roundTrip(operator.saveState()));
+    for (Object key : keys) {
+      restored.restoreState(key, roundTrip(operator.saveState(key)));
+    }
+
+    execute(restored, "k1", 30);
+    assertThat(outputs.size(), is(1));
+    assertThat(outputs.get(0).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k1", 60L, 3L)));
+
+    execute(restored, "k2", 1);
+    execute(restored, "k2", 2);
+    assertThat(outputs.size(), is(2));
+    assertThat(outputs.get(1).getValues(),
+        is((List<Object>) Lists.<Object>newArrayList("k2", 8L, 3L)));
+
+    assertThat(restored.pollChangedKeys(), is((Set<Object>) Sets.<Object>newHashSet(
+        Lists.newArrayList("k1"), Lists.newArrayList("k2"))));
+  }
+
+  @Test
+  public void testPanes() throws Exception {
+    SnapshotOperator operator = createTimeOperator(Period.of(3, TimeUnit.MINUTES), null);
+    execute(operator, "k1", 10);
+    execute(operator, "k1", 20);
+    snapshot();
+    execute(operator, "k1", 5);
+    snapshot();
+    snapshot();
+    snapshot();
+    snapshot();
+
+    assertThat(outputs.size(), is(4));
+    assertThat(outputs.get(0).getValues(), is(values("k1", 30L, 2L)));
+    assertThat(outputs.get(1).getValues(), is(values("k1", 35L, 3L)));
+    assertThat(outputs.get(2).getValues(), is(values("k1", 35L, 3L)));
+    assertThat(outputs.get(3).getValues(), is(values("k1", 5L, 1L)));
+    assertThat(operator.saveState(Lists.newArrayList("k1")), nullValue());
+  }
+
+  @Test
+  public void testExpire() throws Exception {
+    SnapshotOperator operator = createTimeOperator(null,
+        SnapshotInterval.time(Period.of(2, TimeUnit.MINUTES)));
+    execute(operator, "k1", 10);
+    snapshot();
+    assertThat(operator.saveState(Lists.newArrayList("k1")), notNullValue());
+
+    now += TimeUnit.SECONDS.toMillis(130);
+    execute(operator, "k2", 7);
+    operator.pollChangedKeys();
+    snapshot();
+    assertThat(operator.saveState(Lists.newArrayList("k1")), nullValue());
+    assertThat(operator.saveState(Lists.newArrayList("k2")), notNullValue());
+    assertThat(operator.pollChangedKeys(), is((Set<Object>) Sets.<Object>newHashSet(
+        Lists.newArrayList("k1"), Lists.newArrayList("k2"))));
+
+    snapshot();
+    assertThat(operator.saveState(Lists.newArrayList("k2")), notNullValue());
+
+    execute(operator, "k1", 5);
+    execute(operator, "k2", 3);
+    snapshot();
+
+    assertThat(outputs.size(), is(4));
+    assertThat(outputs.get(0).getValues(), is(values("k1", 10L, 1L)));
+    assertThat(outputs.get(1).getValues(), is(values("k2", 7L, 1L)));
+    assertThat(outputs.get(2).getValues(), is(values("k2", 10L, 2L)));
+    assertThat(outputs.get(3).getValues(), is(values("k1", 5L, 1L)));
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.operator.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.gennai.gungnir.topology.udf.FunctionClassLoaderCache;
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.junit.Test;
+
+public class TestClassLoaderMeter {
+
+  @Test
+  public void testSingleReporter() {
+    ClassLoaderMeter meter1 = new ClassLoaderMeter("testSingleReporter");
+    ClassLoaderMeter meter2 = new ClassLoaderMeter("testSingleReporter");
+    ClassLoaderMeter meter3 = new ClassLoaderMeter("testSingleReporter2");
+
+    assertThat(meter1.getValueAndReset(), is(notNullValue()));
+    assertThat(meter2.getValueAndReset(), is(nullValue()));
+    assertThat(meter3.getValueAndReset(), is(notNullValue()));
+    assertThat(meter1.getValueAndReset(), is(notNullValue()));
+    assertThat(meter2.getValueAndReset(), is(nullValue()));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testReset() throws Exception {
+    ClassLoaderMeter meter = new ClassLoaderMeter("testReset");
+    meter.getValueAndReset();
+
+    Path dir = Files.createTempDirectory("gungnirudf");
+    try {
+      FunctionClassLoaderCache.loadClass(dir.toString(), "java.lang.String");
+      FunctionClassLoaderCache.loadClass(dir.toString(), "java.lang.String");
+
+      Map<String, Long> values = (Map<String, Long>) meter.getValueAndReset();
+      assertThat(values.get("created") >= 1L, is(true));
+      assertThat(values.get("loaded") >= 1L, is(true));
+      assertThat(values.get("hit") >= 1L, is(true));
+      assertThat(values.get("loaders") >= 1L, is(true));
+
+      values = (Map<String, Long>) meter.getValueAndReset();
+      assertThat(values.get("loaders") >= 1L, is(true));
+    } finally {
+      GungnirUtils.deleteDirectory(dir);
+    }
+  }
+}
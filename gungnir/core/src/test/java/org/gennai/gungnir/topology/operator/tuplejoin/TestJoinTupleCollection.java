@@ -355,4 +355,85 @@ public class TestJoinTupleCollection {
 
     collection.cleanup();
   }
+
+  @Test
+  public void testJoin3() throws Exception {
+    TupleAccessor t1 = new TupleAccessor("t1");
+    TupleAccessor t2 = new TupleAccessor("t2");
+    TupleAccessor t3 = new TupleAccessor("t3");
+
+    SimpleJoinContext simpleContext1 = new SimpleJoinContext(t1,
+        Lists.<FieldAccessor>newArrayList(t1.field("f1")));
+    simpleContext1.setJoinKey(new SimpleJoinKey(t1.field("f0")));
+
+    SimpleJoinContext simpleContext2 = new SimpleJoinContext(t2,
+        Lists.<FieldAccessor>newArrayList(t2.field("*")));
+    simpleContext2.setJoinKey(new SimpleJoinKey(t2.field("f0")));
+
+    SimpleJoinContext simpleContext3 = new SimpleJoinContext(t3,
+        Lists.<FieldAccessor>newArrayList(t3.field("f1"), t3.field("f2")));
+    simpleContext3.setJoinKey(new SimpleJoinKey(t3.field("f0")));
+
+    ComplexJoinContext complexContext = new ComplexJoinContext();
+    complexContext.addContext(simpleContext1);
+    complexContext.addContext(simpleContext2);
+    complexContext.addContext(simpleContext3);
+
+    final List<List<Object>> valuesList = Lists.newArrayList();
+
+    JoinTupleCollection collection = new JoinTupleCollection(complexContext,
+        new InMemoryTtlCacheProcessor(), 10,
+        Lists.<FieldAccessor>newArrayList(t3.field("f2"), t2.field("*"), t1.field("f1"),
+            t3.field("f1")), 8);
+
+    collection.prepare(GungnirConfig.readGugnirConfig(), new GungnirContext(), null);
+
+    collection.setDispatchHandler(new DispatchHandler() {
+
+      @Override
+      public void dispatch(List<Object> values) {
+        valuesList.add(values);
+      }
+    });
+
+    TupleSchema schema1 = new TupleSchema("t1").field("f0").field("f1");
+    TupleSchema schema2 = new TupleSchema("t2").field("f0").field("f1").field("f2");
+    TupleSchema schema3 = new TupleSchema("t3").field("f0").field("f1").field("f2");
+
+    collection.put(GungnirTuple.builder(schema1).put("f0", "key1").put("f1", "t1f1").build());
+    collection.put(GungnirTuple.builder(schema1).put("f0", "key1").put("f1", "t1f1-2").build());
+    collection.put(GungnirTuple.builder(schema3).put("f0", "key1").put("f1", "t3f1")
+        .put("f2", "t3f2").build());
+    collection.put(GungnirTuple.builder(schema3).put("f0", "key1").put("f1", "t3f1-2")
+        .put("f2", "t3f2-2").build());
+    collection.put(GungnirTuple.builder(schema3).put("f0", "key2").put("f1", "t3f1-3")
+        .put("f2", "t3f2-3").build());
+    assertThat(valuesList.size(), is(0));
+
+    collection.put(GungnirTuple.builder(schema2).put("f0", "key1").put("f1", "t2f1")
+        .put("f2", "t2f2").build());
+
+    assertThat(valuesList.size(), is(4));
+    assertThat(valuesList.get(0), is((List<Object>) Lists.<Object>newArrayList("t3f2", "key1",
+        "t2f1", "t2f2", "t1f1", "t3f1")));
+    assertThat(valuesList.get(1), is((List<Object>) Lists.<Object>newArrayList("t3f2-2", "key1",
+        "t2f1", "t2f2", "t1f1", "t3f1-2")));
+    assertThat(valuesList.get(2), is((List<Object>) Lists.<Object>newArrayList("t3f2", "key1",
+        "t2f1", "t2f2", "t1f1-2", "t3f1")));
+    assertThat(valuesList.get(3), is((List<Object>) Lists.<Object>newArrayList("t3f2-2", "key1",
+        "t2f1", "t2f2", "t1f1-2", "t3f1-2")));
+
+    collection.put(GungnirTuple.builder(schema2).put("f0", "key1").put("f1", "t2f1-2")
+        .put("f2", "t2f2-2").build());
+    collection.put(GungnirTuple.builder(schema1).put("f0", "key2").put("f1", "t1f1-3").build());
+    collection.put(GungnirTuple.builder(schema2).put("f0", "key2").put("f1", "t2f1-3")
+        .put("f2", "t2f2-3").build());
+
+    assertThat(valuesList.size(), is(5));
+    assertThat(valuesList.get(4), is((List<Object>) Lists.<Object>newArrayList("t3f2-3", "key2",
+        "t2f1-3", "t2f2-3", "t1f1-3", "t3f1-3")));
+    assertThat(collection.size(), is(1L));
+
+    collection.cleanup();
+  }
 }
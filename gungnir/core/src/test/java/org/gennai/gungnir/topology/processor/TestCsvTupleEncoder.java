@@ -0,0 +1,72 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.gennai.gungnir.tuple.schema.TupleSchema.FieldTypes.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestCsvTupleEncoder {
+
+  private static String encode(CsvTupleEncoder encoder, Object... values) {
+    return new String(encoder.encode(new TupleValues("tuple1", Lists.newArrayList(values))));
+  }
+
+  @Test
+  public void testEncode() throws Exception {
+    assertThat(encode(new CsvTupleEncoder(), "abc", 10, 10L, 1.5, true, new Date(0)),
+        is("abc,10,10,1.5,true,1970-01-01T00:00:00.000Z"));
+  }
+
+  @Test
+  public void testEscape() throws Exception {
+    assertThat(encode(new CsvTupleEncoder(), "a,\"b\"", "c"), is("\"a,\"\"b\"\"\",c"));
+  }
+
+  @Test
+  public void testNested() throws Exception {
+    Map<String, Object> map = Maps.newLinkedHashMap();
+    map.put("k1", "v1");
+    map.put("k2", Lists.newArrayList(1, 2));
+    Struct struct = Struct.builder(STRUCT().field("s1", STRING).field("s2", LIST(STRING)))
+        .put("s1", "v").put("s2", Lists.newArrayList("a")).build();
+
+    assertThat(encode(new CsvTupleEncoder(), Lists.newArrayList("a", "b\"c"), map, struct),
+        is("\"[a, b\"\"c]\",\"{k1=v1, k2=[1, 2]}\",\"(s1=v, s2=[a])\""));
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    CsvTupleEncoder encoder = new CsvTupleEncoder();
+    String str = StringUtils.repeat("a", 2000);
+    assertThat(encode(encoder, str, 1), is(str + ",1"));
+    assertThat(encode(encoder, "b", 2), is("b,2"));
+  }
+}
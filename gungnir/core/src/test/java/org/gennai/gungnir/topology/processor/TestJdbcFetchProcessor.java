@@ -0,0 +1,334 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.topology.GungnirContext;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.InvalidTupleException;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestJdbcFetchProcessor {
+
+  private static final String URL = "jdbc:gungnir-test:items";
+  private static final List<String> COLUMNS = Lists.newArrayList("id", "code", "name");
+  private static final Object[][] ROWS = {
+      {1L, "ab  ", "item1"},
+      {2L, "CD  ", "item2"},
+      {2L, "ef  ", "item3"},
+      {4L, "gh  ", "item4"}
+  };
+  private static final Pattern SELECT_PATTERN =
+      Pattern.compile("^SELECT (.+) FROM items WHERE (\\w+) (?:= \\?|IN \\((.*)\\))$");
+
+  private static List<String> statements = Lists.newArrayList();
+
+  private JdbcFetchProcessor processor;
+
+  public static class TestDriver implements Driver {
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      return proxy(Connection.class, new InvocationHandler() {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+          if (method.getName().equals("prepareStatement")) {
+            return prepareStatement((String) args[0]);
+          }
+          return null;
+        }
+      });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) throws SQLException {
+      return url.startsWith("jdbc:gungnir-test:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+        throws SQLException {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] {iface}, handler);
+  }
+
+  // Compares the way a case insensitive database with CHAR columns does.
+  private static boolean matches(Object value, Object param) {
+    if (value instanceof Number && param instanceof Number) {
+      return new BigDecimal(value.toString()).compareTo(new BigDecimal(param.toString())) == 0;
+    }
+    if (value instanceof String && param instanceof String) {
+      return ((String) value).trim().equalsIgnoreCase(((String) param).trim());
+    }
+    return value.equals(param);
+  }
+
+  private static PreparedStatement prepareStatement(final String sql) {
+    statements.add(sql);
+    final Map<Integer, Object> params = Maps.newTreeMap();
+    return proxy(PreparedStatement.class, new InvocationHandler() {
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("setObject")) {
+          params.put((Integer) args[0], args[1]);
+        } else if (method.getName().equals("executeQuery")) {
+          return executeQuery(sql, Lists.newArrayList(params.values()));
+        } else if (method.getName().equals("toString")) {
+          return sql;
+        }
+        return null;
+      }
+    });
+  }
+
+  private static ResultSet executeQuery(String sql, List<Object> params) {
+    Matcher matcher = SELECT_PATTERN.matcher(sql);
+    assertThat(sql, matcher.matches(), is(true));
+
+    final List<String> columns = Lists.newArrayList();
+    if (matcher.group(1).equals("*")) {
+      columns.addAll(COLUMNS);
+    } else {
+      columns.addAll(Arrays.asList(matcher.group(1).split(", ")));
+    }
+    int keyIndex = COLUMNS.indexOf(matcher.group(2));
+
+    final List<Object[]> rows = Lists.newArrayList();
+    for (Object[] row : ROWS) {
+      for (Object param : params) {
+        if (matches(row[keyIndex], param)) {
+          Object[] values = new Object[columns.size()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = row[COLUMNS.indexOf(columns.get(i))];
+          }
+          rows.add(values);
+          break;
+        }
+      }
+    }
+
+    final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, new InvocationHandler() {
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("getColumnCount")) {
+          return columns.size();
+        } else if (method.getName().equals("getColumnLabel")
+            || method.getName().equals("getColumnName")) {
+          return columns.get((Integer) args[0] - 1).toUpperCase();
+        }
+        return null;
+      }
+    });
+
+    return proxy(ResultSet.class, new InvocationHandler() {
+
+      private int cursor = -1;
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("next")) {
+          cursor++;
+          return cursor < rows.size();
+        } else if (method.getName().equals("getObject")) {
+          return rows.get(cursor)[(Integer) args[0] - 1];
+        } else if (method.getName().equals("getMetaData")) {
+          return metaData;
+        }
+        return null;
+      }
+    });
+  }
+
+  @BeforeClass
+  public static void registerDriver() throws SQLException {
+    DriverManager.registerDriver(new TestDriver());
+  }
+
+  @After
+  public void tearDown() {
+    if (processor != null) {
+      processor.close();
+    }
+    statements.clear();
+  }
+
+  private JdbcFetchProcessor open(String sql) throws ProcessorException {
+    Map<String, Object> conf = Maps.newHashMap();
+    conf.put("jdbc.fetch.driver", TestDriver.class.getName());
+    conf.put("jdbc.fetch.cache.size", 16);
+    processor = new JdbcFetchProcessor(URL, null, null, sql);
+    processor.open(GungnirConfig.wrap(conf), new GungnirContext());
+    statements.clear();
+    return processor;
+  }
+
+  private static List<GungnirTuple> tuples(String fieldName, Object... keys)
+      throws InvalidTupleException {
+    TupleSchema schema = new TupleSchema("tuple1").field(fieldName);
+    List<GungnirTuple> tuples = Lists.newArrayList();
+    for (Object key : keys) {
+      tuples.add(GungnirTuple.builder(schema).put(fieldName, key).build());
+    }
+    return tuples;
+  }
+
+  private static List<List<Object>> rows(Object[]... rows) {
+    List<List<Object>> valuesList = Lists.newArrayList();
+    for (Object[] row : rows) {
+      valuesList.add(Lists.newArrayList(row));
+    }
+    return valuesList;
+  }
+
+  @Test
+  public void testBatchSql() throws Exception {
+    open("SELECT name, code FROM items WHERE id = @id");
+    assertThat(processor.isBatchable(), is(true));
+    assertThat(processor.getBatchSql(2), is("SELECT name, code, id FROM items WHERE id IN (?, ?)"));
+    processor.close();
+
+    open("SELECT * FROM items WHERE id = @id");
+    assertThat(processor.isBatchable(), is(true));
+    assertThat(processor.getBatchSql(1), is("SELECT * FROM items WHERE id IN (?)"));
+    processor.close();
+
+    open("SELECT name FROM items WHERE id = @id OR code = 'ab'");
+    assertThat(processor.isBatchable(), is(false));
+  }
+
+  @Test
+  public void testBatchFetchNumericKeys() throws Exception {
+    open("SELECT name FROM items WHERE id = @id");
+    List<GungnirTuple> tuples = tuples("id", 1, 2L, 3, new BigDecimal("4.0"), 2);
+
+    List<List<List<Object>>> valuesLists = processor.fetch(tuples);
+
+    assertThat(statements.size(), is(1));
+    assertThat(valuesLists.size(), is(5));
+    assertThat(valuesLists.get(0), is(rows(new Object[] {"item1"})));
+    assertThat(valuesLists.get(1), is(rows(new Object[] {"item2"}, new Object[] {"item3"})));
+    assertThat(valuesLists.get(2), is(rows()));
+    assertThat(valuesLists.get(3), is(rows(new Object[] {"item4"})));
+    assertThat(valuesLists.get(4), is(valuesLists.get(1)));
+    for (int i = 0; i < tuples.size(); i++) {
+      assertThat(valuesLists.get(i), is(processor.fetch(tuples.get(i))));
+    }
+  }
+
+  @Test
+  public void testBatchFetchCharKeys() throws Exception {
+    open("SELECT name FROM items WHERE code = @code");
+    List<GungnirTuple> tuples = tuples("code", "ab", "cd", "ef  ", "xy");
+
+    List<List<List<Object>>> valuesLists = processor.fetch(tuples);
+
+    assertThat(statements.size(), is(1));
+    assertThat(valuesLists.get(0), is(rows(new Object[] {"item1"})));
+    assertThat(valuesLists.get(1), is(rows(new Object[] {"item2"})));
+    assertThat(valuesLists.get(2), is(rows(new Object[] {"item3"})));
+    assertThat(valuesLists.get(3), is(rows()));
+  }
+
+  @Test
+  public void testBatchFetchFoldedKeys() throws Exception {
+    open("SELECT name FROM items WHERE code = @code");
+    List<GungnirTuple> tuples = tuples("code", "ab  ", "AB", "Ab ");
+
+    List<List<List<Object>>> valuesLists = processor.fetch(tuples);
+
+    assertThat(statements.size(), is(1));
+    assertThat(valuesLists.get(0), is(rows(new Object[] {"item1"})));
+    assertThat(valuesLists.get(1), is(rows(new Object[] {"item1"})));
+    assertThat(valuesLists.get(2), is(rows(new Object[] {"item1"})));
+  }
+
+  @Test
+  public void testBatchFetchSelectAll() throws Exception {
+    open("SELECT * FROM items WHERE id = @id");
+    List<GungnirTuple> tuples = tuples("id", 4, 1);
+
+    List<List<List<Object>>> valuesLists = processor.fetch(tuples);
+
+    assertThat(statements, is((List<String>) Lists.newArrayList(
+        "SELECT * FROM items WHERE id IN (?, ?)")));
+    assertThat(valuesLists.get(0), is(rows(ROWS[3])));
+    assertThat(valuesLists.get(1), is(rows(ROWS[0])));
+  }
+}
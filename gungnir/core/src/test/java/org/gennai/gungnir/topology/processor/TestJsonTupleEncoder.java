@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.gennai.gungnir.tuple.schema.TupleSchema.FieldTypes.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestJsonTupleEncoder {
+
+  private static JsonTupleEncoder encoder(boolean escapeNonAscii) throws Exception {
+    Map<String, List<String>> outputFieldNames = Maps.newHashMap();
+    outputFieldNames.put("tuple1", Lists.newArrayList("aaa", "bbb"));
+    outputFieldNames.put("tuple2", Lists.newArrayList("aaa", "bbb", "ccc", "ddd", "eee", "fff",
+        "ggg", "hhh"));
+    return new JsonTupleEncoder(outputFieldNames, escapeNonAscii);
+  }
+
+  private static String encode(JsonTupleEncoder encoder, String tupleName, Object... values)
+      throws Exception {
+    return new String(encoder.encode(new TupleValues(tupleName, Lists.newArrayList(values))),
+        StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testEncode() throws Exception {
+    Map<String, Object> map = Maps.newLinkedHashMap();
+    map.put("k1", Lists.newArrayList(1, 2));
+    map.put("k2", null);
+    Struct struct = Struct.builder(STRUCT().field("s1", STRING).field("s2", LIST(STRING)))
+        .put("s1", "v").put("s2", Lists.newArrayList("a")).build();
+
+    assertThat(encode(encoder(false), "tuple2", "abc", 10, 1.5, true, null, new Date(0),
+        Lists.newArrayList(1L, "x", map), struct),
+        is("{\"aaa\":\"abc\",\"bbb\":10,\"ccc\":1.5,\"ddd\":true,\"eee\":null,"
+            + "\"fff\":\"1970-01-01T00:00:00.000Z\",\"ggg\":[1,\"x\",{\"k1\":[1,2],\"k2\":null}],"
+            + "\"hhh\":{\"s1\":\"v\",\"s2\":[\"a\"]}}"));
+  }
+
+  @Test
+  public void testEscape() throws Exception {
+    Map<String, Object> map = Maps.newLinkedHashMap();
+    map.put("k\"1", "v\\1");
+
+    assertThat(encode(encoder(false), "tuple1", "a\"b\\c\n\t", map),
+        is("{\"aaa\":\"a\\\"b\\\\c\\n\\t\",\"bbb\":{\"k\\\"1\":\"v\\\\1\"}}"));
+  }
+
+  @Test
+  public void testEscapeNonAscii() throws Exception {
+    assertThat(encode(encoder(false), "tuple1", "café", null),
+        is("{\"aaa\":\"café\",\"bbb\":null}"));
+    assertThat(encode(encoder(true), "tuple1", "café", null),
+        is("{\"aaa\":\"caf\\u00E9\",\"bbb\":null}"));
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    JsonTupleEncoder encoder = encoder(false);
+    assertThat(encoder.hasFields("tuple1"), is(true));
+    assertThat(encoder.hasFields("tuple3"), is(false));
+
+    assertThat(encode(encoder, "tuple1", "aaaaaaaaaa", 1),
+        is("{\"aaa\":\"aaaaaaaaaa\",\"bbb\":1}"));
+    assertThat(encode(encoder, "tuple1", "a", 2), is("{\"aaa\":\"a\",\"bbb\":2}"));
+
+    encoder.reset();
+    encoder.writeStartArray();
+    encoder.write(new TupleValues("tuple1", Lists.<Object>newArrayList("a", 1)));
+    encoder.write(new TupleValues("tuple1", Lists.<Object>newArrayList("b", 2)));
+    encoder.writeEndArray();
+    encoder.flush();
+    assertThat(new String(encoder.getBuffer(), 0, encoder.size(), StandardCharsets.UTF_8),
+        is("[{\"aaa\":\"a\",\"bbb\":1},{\"aaa\":\"b\",\"bbb\":2}]"));
+
+    // An unfinished array is discarded by the next encode
+    encoder.reset();
+    encoder.writeStartArray();
+    encoder.write(new TupleValues("tuple1", Lists.<Object>newArrayList("a", 1)));
+    assertThat(encode(encoder, "tuple1", "c", 3), is("{\"aaa\":\"c\",\"bbb\":3}"));
+  }
+}
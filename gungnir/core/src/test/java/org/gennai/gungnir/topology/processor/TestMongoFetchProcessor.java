@@ -0,0 +1,57 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.gennai.gungnir.topology.processor.ProcessorUtils.BatchResults;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestMongoFetchProcessor {
+
+  private static List<List<Object>> rows(Object... values) {
+    List<List<Object>> valuesList = Lists.newArrayList();
+    for (Object value : values) {
+      valuesList.add(Lists.newArrayList(value));
+    }
+    return valuesList;
+  }
+
+  @Test
+  public void testBatchResultsOfArrayKeys() throws Exception {
+    BatchResults results = new BatchResults(false);
+    MongoFetchProcessor.addBatchResult(results, Lists.<Object>newArrayList(1, 2, 2),
+        Lists.<Object>newArrayList("doc1"));
+    MongoFetchProcessor.addBatchResult(results, 2L, Lists.<Object>newArrayList("doc2"));
+    MongoFetchProcessor.addBatchResult(results, Lists.<Object>newArrayList("a", "B"),
+        Lists.<Object>newArrayList("doc3"));
+
+    assertThat(results.get(1L), is(rows("doc1")));
+    assertThat(results.get(2), is(rows("doc1", "doc2")));
+    assertThat(results.get(Lists.newArrayList(1L, 2L, 2L)), is(rows("doc1")));
+    assertThat(results.get(3), is(rows()));
+    assertThat(results.get("a"), is(rows("doc3")));
+    assertThat(results.get("b"), is(rows()));
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.processor;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestMongoPersistProcessor {
+
+  private static Document doc(String id, long count, double price, String name) {
+    return new Document("id", id).append("count", count).append("price", price)
+        .append("name", name);
+  }
+
+  @Test
+  public void testCoalesceLast() {
+    Document update = new Document();
+    MongoPersistProcessor.coalesce(update, doc("a", 1L, 10.0, "n1"), null);
+    MongoPersistProcessor.coalesce(update, doc("a", 2L, 20.0, "n2"), null);
+
+    assertThat(update.get("$inc"), is(nullValue()));
+    assertThat((Document) update.get("$set"), is(doc("a", 2L, 20.0, "n2")));
+  }
+
+  @Test
+  public void testCoalesceInc() {
+    Set<String> counterFieldNames = Sets.newHashSet("count");
+    Document update = new Document();
+    MongoPersistProcessor.coalesce(update, doc("a", 1L, 10.0, "n1"), counterFieldNames);
+    MongoPersistProcessor.coalesce(update, doc("a", 2L, 20.0, "n2"), counterFieldNames);
+    MongoPersistProcessor.coalesce(update, doc("a", 3L, 30.0, "n3"), counterFieldNames);
+
+    assertThat((Document) update.get("$inc"), is(new Document("count", 6L)));
+    assertThat((Document) update.get("$set"), is(new Document("id", "a").append("price", 30.0)
+        .append("name", "n3")));
+  }
+
+  @Test
+  public void testCoalesceIncMixedTypes() {
+    Set<String> counterFieldNames = Sets.newHashSet("count", "price");
+    Document update = new Document();
+    MongoPersistProcessor.coalesce(update, doc("a", 1L, 0.5, "n1"), counterFieldNames);
+    MongoPersistProcessor.coalesce(update,
+        new Document("id", "a").append("count", 2).append("price", 1L), counterFieldNames);
+
+    assertThat((Document) update.get("$inc"), is(new Document("count", 3L).append("price", 1.5)));
+    assertThat((Document) update.get("$set"), is(new Document("id", "a").append("name", "n1")));
+  }
+
+  @Test
+  public void testCoalesceIncNonNumeric() {
+    Set<String> counterFieldNames = Sets.newHashSet("count");
+    Document update = new Document();
+    MongoPersistProcessor.coalesce(update, doc("a", 1L, 10.0, "n1"), counterFieldNames);
+    MongoPersistProcessor.coalesce(update, new Document("id", "a").append("count", "unknown"),
+        counterFieldNames);
+
+    assertThat(update.get("$inc"), is(nullValue()));
+    assertThat(((Document) update.get("$set")).get("count"), is((Object) "unknown"));
+  }
+}
@@ -76,4 +76,17 @@ public class TestCount {
     count.clear();
     assertEquals(new Long(-1L), count.exclude(tuple));
   }
+
+  @Test
+  public void testMerge() throws Exception {
+    GungnirTuple tuple = new GungnirTuple(
+        new LinkedList<String>(),
+        new TupleValues("dummy", Lists.newArrayList()));
+    assertEquals(new Long(1L), count.evaluate(tuple));
+    Count other = new Count().create();
+    other.prepare();
+    other.evaluate(tuple);
+    other.evaluate(tuple);
+    assertEquals(new Long(3L), count.merge(other.partial()));
+  }
 }
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import mockit.Deencapsulation;
+import mockit.integration.junit4.JMockit;
+
+import org.gennai.gungnir.utils.GungnirUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JMockit.class)
+public class TestFunctionClassLoaderCache {
+
+  private static void expire(Path dir) {
+    Map<String, Object> loaders = Deencapsulation.getField(FunctionClassLoaderCache.class,
+        "LOADERS");
+    Deencapsulation.setField(loaders.get(dir.toString()), "checkedTime", 0L);
+  }
+
+  @Test
+  public void testLoadClass() throws Exception {
+    Path dir = Files.createTempDirectory("gungnirudf");
+    try {
+      ClassLoader classLoader = FunctionClassLoaderCache.getClassLoader(dir.toString());
+      assertThat(classLoader, is(notNullValue()));
+      assertThat(FunctionClassLoaderCache.getClassLoader(dir.toString()),
+          is(sameInstance(classLoader)));
+
+      Map<String, Long> stats = FunctionClassLoaderCache.getStats();
+      assertThat(FunctionClassLoaderCache.loadClass(dir.toString(), "java.lang.String"),
+          is((Object) String.class));
+      assertThat(FunctionClassLoaderCache.loadClass(dir.toString(), "java.lang.String"),
+          is((Object) String.class));
+      Map<String, Long> stats2 = FunctionClassLoaderCache.getStats();
+      assertThat(stats2.get("loaded") - stats.get("loaded"), is(1L));
+      assertThat(stats2.get("hit") - stats.get("hit"), is(1L));
+    } finally {
+      GungnirUtils.deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  public void testReplacedLoaderStaysOpen() throws Exception {
+    Path dir = Files.createTempDirectory("gungnirudf");
+    try {
+      Files.write(dir.resolve("udf1.txt"), new byte[] {1});
+      ClassLoader classLoader = FunctionClassLoaderCache.getClassLoader(dir.toString());
+      assertThat(classLoader.getResource("udf1.txt"), is(notNullValue()));
+
+      Files.write(dir.resolve("udf2.txt"), new byte[] {2});
+      expire(dir);
+      ClassLoader classLoader2 = FunctionClassLoaderCache.getClassLoader(dir.toString());
+      assertThat(classLoader2, is(not(sameInstance(classLoader))));
+      assertThat(classLoader2.getResource("udf2.txt"), is(notNullValue()));
+      assertThat(classLoader.getResource("udf1.txt"), is(notNullValue()));
+    } finally {
+      GungnirUtils.deleteDirectory(dir);
+    }
+  }
+
+  @Test
+  public void testMissingClassPath() throws Exception {
+    Path dir = Files.createTempDirectory("gungnirudf");
+    GungnirUtils.deleteDirectory(dir);
+
+    assertThat(FunctionClassLoaderCache.getClassLoader(dir.toString()), is(nullValue()));
+    assertThat(FunctionClassLoaderCache.loadClass(dir.toString(), "java.lang.String"),
+        is((Object) String.class));
+  }
+}
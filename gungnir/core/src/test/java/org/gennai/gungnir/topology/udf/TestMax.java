@@ -0,0 +1,86 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.junit.Assert.*;
+
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMax {
+
+  private TupleSchema schema;
+
+  @Before
+  public void setup() {
+    schema = new TupleSchema("dummy").field("height");
+  }
+
+  private GungnirTuple tuple(int height) throws Exception {
+    return GungnirTuple.builder(schema).put("height", new Integer(height)).build();
+  }
+
+  private Max slidingMax() throws Exception {
+    Max max = new Max().create(new FieldAccessor("height"));
+    max.setSliding(true);
+    max.prepare();
+    return max;
+  }
+
+  @Test
+  public void testExcludeOldest() throws Exception {
+    Max max = slidingMax();
+    assertEquals(9, max.evaluate(tuple(9)));
+    assertEquals(9, max.evaluate(tuple(1)));
+    assertEquals(9, max.evaluate(tuple(2)));
+    assertEquals(2, max.exclude(tuple(9)));
+    assertEquals(2, max.exclude(tuple(1)));
+    assertNull(max.exclude(tuple(2)));
+  }
+
+  @Test
+  public void testExcludeOutOfOrder() throws Exception {
+    Max max = slidingMax();
+    assertEquals(9, max.evaluate(tuple(9)));
+    assertEquals(9, max.evaluate(tuple(1)));
+    assertEquals(9, max.evaluate(tuple(2)));
+    assertEquals(9, max.exclude(tuple(1)));
+    assertEquals(2, max.exclude(tuple(9)));
+  }
+
+  @Test
+  public void testExcludeDominating() throws Exception {
+    Max max = slidingMax();
+    assertEquals(5, max.evaluate(tuple(5)));
+    assertEquals(7, max.evaluate(tuple(7)));
+    assertEquals(7, max.evaluate(tuple(3)));
+    assertEquals(5, max.exclude(tuple(7)));
+    assertEquals(3, max.exclude(tuple(5)));
+  }
+
+  @Test
+  public void testExcludeUnknown() throws Exception {
+    Max max = slidingMax();
+    assertEquals(4, max.evaluate(tuple(4)));
+    assertEquals(4, max.exclude(tuple(8)));
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.topology.udf;
+
+import static org.junit.Assert.*;
+
+import org.gennai.gungnir.tuple.FieldAccessor;
+import org.gennai.gungnir.tuple.GungnirTuple;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMergeFunction {
+
+  private TupleSchema schema;
+  private TupleSchema partialSchema;
+
+  @Before
+  public void setup() {
+    schema = new TupleSchema("dummy").field("height");
+    partialSchema = new TupleSchema("partial").field("value");
+  }
+
+  private GungnirTuple tuple(int height) {
+    return GungnirTuple.builder(schema).put("height", new Integer(height)).build();
+  }
+
+  private GungnirTuple partialTuple(Object value) {
+    return GungnirTuple.builder(partialSchema).put("value", value).build();
+  }
+
+  private static PartialFunction partial(MergeableFunction<?> function) {
+    PartialFunction partial = new PartialFunction(function);
+    partial.prepare(null, null);
+    return partial;
+  }
+
+  private static MergeFunction merge(MergeableFunction<?> function) {
+    MergeFunction merge = new MergeFunction(function, new FieldAccessor("value"));
+    merge.prepare(null, null);
+    return merge;
+  }
+
+  @Test
+  public void testSum() throws Exception {
+    PartialFunction partial1 = partial(new Sum().create(new FieldAccessor("height")));
+    PartialFunction partial2 = partial(new Sum().create(new FieldAccessor("height")));
+    partial1.evaluate(tuple(100));
+    Object value1 = partial1.evaluate(tuple(200));
+    partial2.evaluate(tuple(300));
+    Object value2 = partial2.evaluate(tuple(400));
+    assertEquals(new Long(300), value1);
+    assertEquals(new Long(700), value2);
+
+    MergeFunction merge = merge(new Sum());
+    assertEquals(new Long(300), merge.evaluate(partialTuple(value1)));
+    assertEquals(new Long(1000), merge.evaluate(partialTuple(value2)));
+    assertEquals(new Long(700), merge.exclude(partialTuple(value1)));
+  }
+
+  @Test
+  public void testCount() throws Exception {
+    PartialFunction partial1 = partial(new Count().create());
+    PartialFunction partial2 = partial(new Count().create());
+    partial1.evaluate(tuple(100));
+    partial1.evaluate(tuple(200));
+    Object value1 = partial1.evaluate(tuple(300));
+    Object value2 = partial2.evaluate(tuple(400));
+
+    MergeFunction merge = merge(new Count());
+    merge.evaluate(partialTuple(value1));
+    assertEquals(new Long(4), merge.evaluate(partialTuple(value2)));
+    assertEquals(new Long(1), merge.exclude(partialTuple(value1)));
+  }
+
+  @Test
+  public void testAverage() throws Exception {
+    PartialFunction partial1 = partial(new Average().create(new FieldAccessor("height")));
+    PartialFunction partial2 = partial(new Average().create(new FieldAccessor("height")));
+    partial1.evaluate(tuple(100));
+    Object value1 = partial1.evaluate(tuple(200));
+    partial2.evaluate(tuple(300));
+    partial2.evaluate(tuple(400));
+    Object value2 = partial2.evaluate(tuple(500));
+
+    Average average = new Average().create(new FieldAccessor("height"));
+    average.prepare();
+    Object expected = null;
+    for (int height = 100; height <= 500; height += 100) {
+      expected = average.evaluate(tuple(height));
+    }
+
+    MergeFunction merge = merge(new Average());
+    merge.evaluate(partialTuple(value1));
+    assertEquals(expected, merge.evaluate(partialTuple(value2)));
+    average.exclude(tuple(100));
+    expected = average.exclude(tuple(200));
+    assertEquals(expected, merge.exclude(partialTuple(value1)));
+  }
+
+  @Test
+  public void testPartialClear() throws Exception {
+    PartialFunction partial = partial(new Sum().create(new FieldAccessor("height")));
+    partial.evaluate(tuple(100));
+    assertEquals(new Long(300), partial.evaluate(tuple(200)));
+    partial.clear();
+    assertEquals(new Long(300), partial.evaluate(tuple(300)));
+    assertEquals(new Long(0), partial.exclude(tuple(300)));
+  }
+
+  @Test
+  public void testClone() throws Exception {
+    MergeFunction merge = merge(new Sum());
+    merge.evaluate(partialTuple(100L));
+    MergeFunction clone = merge.clone();
+    clone.prepare(null, null);
+    assertEquals(new Long(200), clone.evaluate(partialTuple(200L)));
+    assertEquals(new Long(300), merge.evaluate(partialTuple(200L)));
+  }
+}
@@ -83,4 +83,38 @@ public class TestSum {
     sum.clear();
     assertEquals(new Long(100), sum.evaluate(tuple));
   }
+
+  @Test
+  public void testMerge() throws Exception {
+    GungnirTuple tuple = GungnirTuple.builder(schema)
+        .put("height", new Integer(100))
+        .put("width", new Integer(200))
+        .build();
+    Sum sum1 = new Sum().create(new FieldAccessor("height"));
+    sum1.prepare();
+    sum1.evaluate(tuple);
+    sum1.evaluate(tuple);
+    Sum sum2 = new Sum().create(new FieldAccessor("height"));
+    sum2.prepare();
+    sum2.evaluate(tuple);
+    assertEquals(new Long(300), sum1.merge(sum2.partial()));
+    assertEquals(new Long(300), sum1.merge(null));
+  }
+
+  @Test
+  public void testUnmerge() throws Exception {
+    GungnirTuple tuple = GungnirTuple.builder(schema)
+        .put("height", new Integer(100))
+        .put("width", new Integer(200))
+        .build();
+    Sum sum1 = new Sum().create(new FieldAccessor("height"));
+    sum1.prepare();
+    sum1.evaluate(tuple);
+    Sum sum2 = new Sum().create(new FieldAccessor("height"));
+    sum2.prepare();
+    sum2.evaluate(tuple);
+    sum2.evaluate(tuple);
+    assertEquals(new Long(300), sum1.merge(sum2.partial()));
+    assertEquals(new Long(100), sum1.unmerge(sum2.partial()));
+  }
 }
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.tuple.persistent;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import kafka.javaapi.producer.Producer;
+import kafka.producer.KeyedMessage;
+import kafka.producer.ProducerConfig;
+
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.integration.junit4.JMockit;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.GungnirManager;
+import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.metastore.InMemoryMetaStore;
+import org.gennai.gungnir.ql.SchemaRegistry;
+import org.gennai.gungnir.tuple.Struct;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.gennai.gungnir.tuple.serialization.StructSerializer;
+import org.gennai.gungnir.utils.KryoSerializer;
+import org.gennai.gungnir.utils.kafka.HashPartitioner;
+import org.gennai.gungnir.utils.kafka.TopicMetadataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+@RunWith(JMockit.class)
+public class TestKafkaPersistentEmitter {
+
+  private static final String[] KEYS = {METASTORE, PERSISTENT_EMIT_TUPLES_MAX_SIZE};
+  private static final String TOPIC_NAME = "gungnir_track.account1.tuple1";
+
+  private Map<String, Object> savedConfig;
+  private List<List<KeyedMessage<Integer, byte[]>>> sent;
+  private Map<String, Integer> numPartitionsMap;
+
+  @Before
+  public void setup() {
+    GungnirConfig config = GungnirManager.getManager().getConfig();
+    savedConfig = Maps.newHashMap();
+    for (String key : KEYS) {
+      savedConfig.put(key, config.get(key));
+    }
+    config.put(METASTORE, InMemoryMetaStore.class.getName());
+
+    sent = Lists.newArrayList();
+    numPartitionsMap = Maps.newHashMap();
+
+    new MockUp<Producer<Integer, byte[]>>() {
+
+      @Mock
+      // CHECKSTYLE IGNORE MethodName FOR NEXT 1 LINES
+      public void $init(ProducerConfig config) {
+      }
+
+      @Mock
+      public void send(List<KeyedMessage<Integer, byte[]>> messages) {
+        sent.add(Lists.newArrayList(messages));
+      }
+
+      @Mock
+      public void close() {
+      }
+    };
+
+    new MockUp<TopicMetadataCache>() {
+
+      @Mock
+      // CHECKSTYLE IGNORE MethodName FOR NEXT 1 LINES
+      public void $init(GungnirConfig config) {
+      }
+
+      @Mock
+      public int getNumPartitions(String topicName) {
+        Integer numPartitions = numPartitionsMap.get(topicName);
+        return numPartitions != null ? numPartitions : 0;
+      }
+    };
+  }
+
+  @After
+  public void cleanup() {
+    GungnirManager.getManager().getConfig().putAll(savedConfig);
+  }
+
+  private static PersistentDispatcher createDispatcher(KafkaPersistentEmitter emitter)
+      throws Exception {
+    UserEntity owner = new UserEntity("account1");
+    owner.setId("account1");
+    PersistentDispatcher dispatcher =
+        new PersistentDispatcher(owner, new JsonPersistentDeserializer(), emitter);
+
+    SchemaRegistry schemaRegistry = new SchemaRegistry();
+    schemaRegistry.register(new TupleSchema("tuple1").field("aaa").field("bbb")
+        .partitioned("aaa"));
+    emitter.sync(schemaRegistry);
+    return dispatcher;
+  }
+
+  private static TupleValues tuple(String tupleName, String key, int value) {
+    return new TupleValues(tupleName, Lists.<Object>newArrayList(key, value));
+  }
+
+  private static int serializedSize(TupleValues tupleValues) {
+    KryoSerializer serializer = new KryoSerializer();
+    serializer.register(Struct.class, new StructSerializer());
+    return serializer.serialize(tupleValues.getValues()).length;
+  }
+
+  @Test
+  public void testBatchPerPartition() throws Exception {
+    numPartitionsMap.put(TOPIC_NAME, 4);
+    KafkaPersistentEmitter emitter = new KafkaPersistentEmitter();
+    PersistentDispatcher dispatcher = createDispatcher(emitter);
+
+    List<TupleValues> tuples = Lists.newArrayList();
+    for (int i = 0; i < 16; i++) {
+      tuples.add(tuple("tuple1", "k" + (i % 8), i));
+    }
+    emitter.process(tuples);
+    dispatcher.close();
+
+    assertThat(sent.size(), is(1));
+    assertThat(sent.get(0).size(), is(16));
+
+    // The messages of a partition are sent together and in the order they were emitted
+    Set<Integer> donePartitions = Sets.newHashSet();
+    Map<Integer, Integer> lastValues = Maps.newHashMap();
+    Integer partition = null;
+    for (KeyedMessage<Integer, byte[]> message : sent.get(0)) {
+      assertThat(message.topic(), is(TOPIC_NAME));
+
+      int p = HashPartitioner.partition(message.key(), 4);
+      if (partition != null && p != partition) {
+        donePartitions.add(partition);
+      }
+      assertThat(donePartitions.contains(p), is(false));
+      partition = p;
+
+      @SuppressWarnings("unchecked")
+      List<Object> values =
+          new KryoSerializer().deserialize(message.message(), ArrayList.class);
+      assertThat(message.key(), is(Lists.newArrayList(values.get(0)).hashCode()));
+      Integer lastValue = lastValues.put(p, (Integer) values.get(1));
+      assertThat(lastValue == null || lastValue < (Integer) values.get(1), is(true));
+    }
+  }
+
+  @Test
+  public void testSendFullBatch() throws Exception {
+    numPartitionsMap.put(TOPIC_NAME, 4);
+    GungnirManager.getManager().getConfig().put(PERSISTENT_EMIT_TUPLES_MAX_SIZE,
+        serializedSize(tuple("tuple1", "k1", 0)) * 2);
+    KafkaPersistentEmitter emitter = new KafkaPersistentEmitter();
+    PersistentDispatcher dispatcher = createDispatcher(emitter);
+
+    List<TupleValues> tuples = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      tuples.add(tuple("tuple1", "k1", i));
+    }
+    emitter.process(tuples);
+    dispatcher.close();
+
+    assertThat(sent.size(), is(3));
+    assertThat(sent.get(0).size(), is(2));
+    assertThat(sent.get(1).size(), is(2));
+    assertThat(sent.get(2).size(), is(1));
+  }
+
+  @Test
+  public void testUnknownTopic() throws Exception {
+    numPartitionsMap.put(TOPIC_NAME, 2);
+    KafkaPersistentEmitter emitter = new KafkaPersistentEmitter();
+    PersistentDispatcher dispatcher = createDispatcher(emitter);
+
+    emitter.process(Lists.newArrayList(tuple("tuple2", "k1", 0), tuple("tuple1", "k1", 1)));
+    emitter.process(Lists.newArrayList(tuple("tuple2", "k1", 2)));
+    dispatcher.close();
+
+    assertThat(sent.size(), is(1));
+    assertThat(sent.get(0).size(), is(1));
+    assertThat(sent.get(0).get(0).topic(), is(TOPIC_NAME));
+  }
+
+  @Test
+  public void testPartitionOfNegativeHash() {
+    assertThat(HashPartitioner.partition(Integer.MIN_VALUE, 3) >= 0, is(true));
+    assertThat(HashPartitioner.partition(-1, 3), is(Integer.MAX_VALUE % 3));
+  }
+}
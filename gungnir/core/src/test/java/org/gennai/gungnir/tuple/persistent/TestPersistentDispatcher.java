@@ -0,0 +1,241 @@
+/**
+ * Copyright 2013-2014 Recruit Technologies Co., Ltd. and contributors
+ * (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gennai.gungnir.tuple.persistent;
+
+import static org.gennai.gungnir.GungnirConfig.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mockit.Deencapsulation;
+
+import org.gennai.gungnir.GungnirConfig;
+import org.gennai.gungnir.GungnirManager;
+import org.gennai.gungnir.UserEntity;
+import org.gennai.gungnir.metastore.InMemoryMetaStore;
+import org.gennai.gungnir.ql.SchemaRegistry;
+import org.gennai.gungnir.tuple.TupleValues;
+import org.gennai.gungnir.tuple.schema.TupleSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TestPersistentDispatcher {
+
+  private static final String[] KEYS = {METASTORE, PERSISTENT_DESER_PARALLELISM,
+      PERSISTENT_EMITTER_PARALLELISM, PERSISTENT_EMITTER_QUEUE_SIZE, PERSISTENT_SCHEDULE_QUANTUM,
+      PERSISTENT_WORKER_THREADS};
+
+  private Map<String, Object> savedConfig;
+
+  private static class TestDeserializer implements PersistentDeserializer {
+
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+
+    TestDeserializer(AtomicInteger running, AtomicInteger maxRunning) {
+      this.running = running;
+      this.maxRunning = maxRunning;
+    }
+
+    @Override
+    public void prepare(PersistentDispatcher dispatcher) {
+    }
+
+    @Override
+    public void sync(SchemaRegistry schemaRegistry) {
+    }
+
+    @Override
+    public TupleValues process(TrackingData trackingData) throws DeserializeException {
+      int n = running.incrementAndGet();
+      try {
+        int max = maxRunning.get();
+        while (n > max && !maxRunning.compareAndSet(max, n)) {
+          max = maxRunning.get();
+        }
+        Thread.sleep(1);
+        return new TupleValues(trackingData.getTupleName(),
+            Lists.newArrayList(trackingData.getContent()));
+      } catch (InterruptedException e) {
+        throw new DeserializeException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    @Override
+    public TestDeserializer clone() {
+      return new TestDeserializer(running, maxRunning);
+    }
+  }
+
+  private static class TestEmitter implements PersistentEmitter {
+
+    private List<Object> emitted;
+    private CountDownLatch gate;
+
+    TestEmitter(List<Object> emitted, CountDownLatch gate) {
+      this.emitted = emitted;
+      this.gate = gate;
+    }
+
+    @Override
+    public void prepare(PersistentDispatcher dispatcher) {
+    }
+
+    @Override
+    public void sync(SchemaRegistry schemaRegistry) {
+    }
+
+    @Override
+    public void process(List<TupleValues> tuples) {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        return;
+      }
+      for (TupleValues tupleValues : tuples) {
+        emitted.add(tupleValues.getValues().get(0));
+      }
+    }
+
+    @Override
+    public void cleanup() {
+    }
+
+    @Override
+    public TestEmitter clone() {
+      return new TestEmitter(emitted, gate);
+    }
+  }
+
+  @Before
+  public void setup() {
+    GungnirConfig config = GungnirManager.getManager().getConfig();
+    savedConfig = Maps.newHashMap();
+    for (String key : KEYS) {
+      savedConfig.put(key, config.get(key));
+    }
+
+    config.put(METASTORE, InMemoryMetaStore.class.getName());
+    config.put(PERSISTENT_DESER_PARALLELISM, 2);
+    config.put(PERSISTENT_EMITTER_PARALLELISM, 2);
+    config.put(PERSISTENT_EMITTER_QUEUE_SIZE, 4);
+    config.put(PERSISTENT_SCHEDULE_QUANTUM, 2);
+    config.put(PERSISTENT_WORKER_THREADS, 4);
+  }
+
+  @After
+  public void cleanup() {
+    GungnirManager.getManager().getConfig().putAll(savedConfig);
+  }
+
+  private static PersistentDispatcher createDispatcher(String accountId,
+      PersistentDeserializer deserializer, PersistentEmitter emitter) throws Exception {
+    UserEntity owner = new UserEntity(accountId);
+    owner.setId(accountId);
+    PersistentDispatcher dispatcher = new PersistentDispatcher(owner, deserializer, emitter);
+
+    SchemaRegistry schemaRegistry = new SchemaRegistry();
+    schemaRegistry.register(new TupleSchema("tuple1").field("aaa"));
+    dispatcher.sync(schemaRegistry);
+    return dispatcher;
+  }
+
+  private static Set<Object> range(int n) {
+    Set<Object> values = Sets.newHashSet();
+    for (int i = 0; i < n; i++) {
+      values.add(i);
+    }
+    return values;
+  }
+
+  @Test
+  public void testDispatch() throws Exception {
+    CountDownLatch gate = new CountDownLatch(0);
+    List<PersistentDispatcher> dispatchers = Lists.newArrayList();
+    List<List<Object>> emitted = Lists.newArrayList();
+    List<AtomicInteger> maxRunning = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      emitted.add(Collections.synchronizedList(Lists.newArrayList()));
+      maxRunning.add(new AtomicInteger());
+      dispatchers.add(createDispatcher("account" + i,
+          new TestDeserializer(new AtomicInteger(), maxRunning.get(i)),
+          new TestEmitter(emitted.get(i), gate)));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      for (PersistentDispatcher dispatcher : dispatchers) {
+        dispatcher.dispatch(new TrackingData("tuple1", i));
+      }
+    }
+    for (PersistentDispatcher dispatcher : dispatchers) {
+      dispatcher.close();
+    }
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(emitted.get(i).size(), is(50));
+      assertThat(Sets.newHashSet(emitted.get(i)), is(range(50)));
+      assertThat(maxRunning.get(i).get() <= 2, is(true));
+    }
+  }
+
+  @Test
+  public void testEmitQueueBound() throws Exception {
+    CountDownLatch gate = new CountDownLatch(1);
+    List<Object> emitted = Collections.synchronizedList(Lists.newArrayList());
+    PersistentDispatcher dispatcher = createDispatcher("account2",
+        new TestDeserializer(new AtomicInteger(), new AtomicInteger()),
+        new TestEmitter(emitted, gate));
+
+    for (int i = 0; i < 40; i++) {
+      dispatcher.dispatch(new TrackingData("tuple1", i));
+    }
+
+    LinkedBlockingQueue<?> deserQueue = Deencapsulation.getField(dispatcher, "deserQueue");
+    LinkedBlockingQueue<?> emitQueue = Deencapsulation.getField(dispatcher, "emitQueue");
+    for (int i = 0; i < 100 && emitQueue.size() < 4; i++) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+
+    // The emitters hold at most a slice each, the emit queue its size plus one tuple per
+    // deserializer, and the rest has to wait in the deserialize queue
+    assertThat(emitQueue.size() <= 4 + 2, is(true));
+    assertThat(deserQueue.size() >= 40 - 2 * 2 - (4 + 2), is(true));
+    assertThat(emitted.isEmpty(), is(true));
+
+    gate.countDown();
+    dispatcher.close();
+
+    assertThat(Sets.newHashSet(emitted), is(range(40)));
+  }
+}
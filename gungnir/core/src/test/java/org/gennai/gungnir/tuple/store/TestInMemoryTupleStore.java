@@ -562,4 +562,29 @@ public class TestInMemoryTupleStore {
 
     assertThat(tupleStore.count(), is(2609));
   }
+
+  @Test
+  public void testPutOutOfOrder() throws Exception {
+    int[] timeKeys = {20, 10, 30, 20, 15};
+    for (int i = 0; i < timeKeys.length; i++) {
+      tupleStore.put("sorted", timeKeys[i], Lists.<Object>newArrayList("v" + i));
+    }
+
+    Query query = Query.builder().hashKeyValue("sorted").build();
+    List<Integer> sortedTimeKeys = Lists.newArrayList(10, 15, 20, 20, 30);
+    assertThat(tupleStore.findTimeKeys(query), is(sortedTimeKeys));
+    List<List<Object>> results = tupleStore.find(query);
+    assertThat(results.get(0).get(0), is((Object) "v1"));
+    assertThat(results.get(1).get(0), is((Object) "v4"));
+    assertThat(results.get(2).get(0), is((Object) "v0"));
+    assertThat(results.get(3).get(0), is((Object) "v3"));
+    assertThat(results.get(4).get(0), is((Object) "v2"));
+
+    results = tupleStore.findAndRemove(Query.builder().hashKeyValue("sorted")
+        .timeKeyCondition(ConditionType.LT, 20).build());
+    assertThat(results.size(), is(2));
+    assertThat(results.get(0).get(0), is((Object) "v1"));
+    assertThat(results.get(1).get(0), is((Object) "v4"));
+    assertThat(tupleStore.count(query), is(3));
+  }
 }
@@ -1268,6 +1268,99 @@ public class TestMemoryTable {
     assertThat(table.size(), is(0));
   }
 
+  @Test
+  public void testOffHeap() throws Exception {
+    final int now = GungnirUtils.currentTimeSecs();
+    MemoryTable table = new MemoryTable(3, 8, 1 << 22);
+
+    table.put("aaa", now + 3, new byte[] {1, 1, 1});
+    table.put("aaa", now + 1, new byte[] {2, 2, 2});
+    table.put("bbb", now + 1, new byte[] {3, 3, 3});
+    table.put("aaa", now + 1, new byte[] {4, 4, 4});
+    table.incr("ccc", now + 1);
+    table.incr("ccc", now + 1);
+
+    assertThat(table.size(), is(6));
+    assertThat(table.size("ccc"), is(2));
+
+    new MockUp<GungnirUtils>() {
+
+      @Mock
+      public int currentTimeSecs() {
+        return now + 5;
+      }
+    };
+
+    Object[][] expected = {
+        {"aaa", now + 4, new byte[] {2, 2, 2}},
+        {"aaa", now + 4, new byte[] {4, 4, 4}},
+        {"bbb", now + 4, new byte[] {3, 3, 3}},
+        {"ccc", now + 4, new byte[] {0, 0, 0, 2}}
+    };
+    List<Entry> entries = table.compactRange();
+    int i = 0;
+    for (Entry entry : entries) {
+      assertThat(entry.getHashKey(), is(expected[i][0]));
+      assertThat(entry.getTimeKey(), is(expected[i][1]));
+      assertThat(entry.getValue(), is(expected[i][2]));
+      i++;
+    }
+
+    assertThat(i, is(expected.length));
+    assertThat(table.size(), is(1));
+    assertThat(table.removeFirst("aaa").getValue(), is(new byte[] {1, 1, 1}));
+    assertThat(table.size(), is(0));
+
+    table.clear();
+    try {
+      for (int j = 0; j < 1 << 20; j++) {
+        table.put("aaa", now + 5, new byte[64]);
+      }
+      fail();
+    } catch (StoreCapacityException e) {
+      assertThat(table.size() < 1 << 20, is(true));
+    }
+  }
+
+  @Test
+  public void testOffHeapPutAfterExpire() throws Exception {
+    final int now = GungnirUtils.currentTimeSecs();
+    MemoryTable table = new MemoryTable(3, 8, 1 << 22);
+
+    int filled = 0;
+    try {
+      for (; filled < 1 << 10; filled++) {
+        table.put("aaa", now, new byte[60000]);
+      }
+      fail();
+    } catch (StoreCapacityException e) {
+      assertThat(table.size(), is(filled));
+    }
+
+    new MockUp<GungnirUtils>() {
+
+      @Mock
+      public int currentTimeSecs() {
+        return now + 5;
+      }
+    };
+
+    table.put("bbb", now + 5, new byte[60000]);
+    assertThat(table.pollEvictedCount(), is(filled));
+    assertThat(table.pollEvictedCount(), is(0));
+    assertThat(table.size(), is(1));
+    assertThat(table.size("aaa"), is(0));
+    assertThat(table.size("bbb"), is(1));
+
+    for (int i = 1; i < filled; i++) {
+      table.put("bbb", now + 5, new byte[60000]);
+    }
+    assertThat(table.size("bbb"), is(filled));
+
+    table.close();
+    assertThat(table.size(), is(0));
+  }
+
   // TODO Class cannot be created (missing no-arg constructor): com.google.common.collect.HashBiMap
   //@Test
   public void testSerialize() throws Exception {